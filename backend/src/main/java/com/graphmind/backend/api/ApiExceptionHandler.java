@@ -1,5 +1,6 @@
 package com.graphmind.backend.api;
 
+import com.graphmind.backend.service.VaultVersionConflictException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,4 +27,15 @@ public class ApiExceptionHandler {
                 "message", e.getMessage()
         );
     }
+
+    // ✅ If-Match 버전 불일치 → 412 (클라이언트는 currentVersion으로 다시 받아서 재시도)
+    @ExceptionHandler(VaultVersionConflictException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public Map<String, Object> handleVersionConflict(VaultVersionConflictException e) {
+        return Map.of(
+                "error", "PRECONDITION_FAILED",
+                "message", e.getMessage(),
+                "currentVersion", e.currentVersion()
+        );
+    }
 }
@@ -3,6 +3,7 @@ package com.graphmind.backend.api;
 import com.graphmind.backend.domain.User;
 import com.graphmind.backend.repo.InMemoryStore;
 import com.graphmind.backend.repo.TokenStore;
+import com.graphmind.backend.service.VaultService;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -18,11 +19,13 @@ public class AuthController {
 
     private final InMemoryStore store;
     private final TokenStore tokenStore;
+    private final VaultService vault;
     private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
 
-    public AuthController(InMemoryStore store, TokenStore tokenStore) {
+    public AuthController(InMemoryStore store, TokenStore tokenStore, VaultService vault) {
         this.store = store;
         this.tokenStore = tokenStore;
+        this.vault = vault;
     }
 
     public record RegisterReq(String email, String password, String displayName) {}
@@ -77,6 +80,9 @@ public class AuthController {
         String token = UUID.randomUUID().toString();
         tokenStore.bind(token, acc.userId());
 
+        // ✅ 디스크로 내려간 vault면 응답과 동시에 미리 올려 둔다 (첫 목록 요청이 IO를 기다리지 않도록)
+        vault.prefetch(acc.userId());
+
         User user = store.users.get(acc.userId());
         if (user == null) {
             // 데이터 불일치(계정은 있는데 user가 없는 상태)
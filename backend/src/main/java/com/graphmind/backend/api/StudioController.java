@@ -1,9 +1,13 @@
 package com.graphmind.backend.api;
 
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
 import com.graphmind.backend.domain.StudioProject;
 import com.graphmind.backend.service.StudioService;
+import com.graphmind.backend.service.json.JsonProjection;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -13,19 +17,31 @@ import java.util.List;
 public class StudioController {
 
     private final StudioService studio;
+    private final ObjectMapper om;
 
-    public StudioController(StudioService studio) {
+    public StudioController(StudioService studio, ObjectMapper om) {
         this.studio = studio;
+        this.om = om;
+    }
+
+    /** fields=id,title,payload/nodes → 요청된 경로만 직렬화 (payload 전체를 쓰지 않음) */
+    private ResponseEntity<?> projected(Object body, String fields) {
+        JsonProjection p = JsonProjection.parse(fields);
+        if (p == null) return ResponseEntity.ok(body);
+        p.validate(StudioProject.class);
+        byte[] json = body instanceof List<?> list ? p.bytes(om, list) : p.bytes(om, body);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     public record StudioUpsertReq(String title, String kind, JsonNode payload) {}
 
     @GetMapping
-    public List<StudioProject> list(HttpServletRequest req,
-                                    @RequestParam(required = false) String kind,
-                                    @RequestParam(required = false) String q) {
+    public ResponseEntity<?> list(HttpServletRequest req,
+                                  @RequestParam(required = false) String kind,
+                                  @RequestParam(required = false) String q,
+                                  @RequestParam(required = false) String fields) {
         String userId = (String) req.getAttribute("userId");
-        return studio.list(userId, kind, q);
+        return projected(studio.list(userId, kind, q), fields);
     }
 
     @PostMapping
@@ -39,9 +55,10 @@ public class StudioController {
     }
 
     @GetMapping("/{id}")
-    public StudioProject get(HttpServletRequest req, @PathVariable String id) {
+    public ResponseEntity<?> get(HttpServletRequest req, @PathVariable String id,
+                                 @RequestParam(required = false) String fields) {
         String userId = (String) req.getAttribute("userId");
-        return studio.getOwned(userId, id);
+        return projected(studio.getOwned(userId, id), fields);
     }
 
     @PutMapping("/{id}")
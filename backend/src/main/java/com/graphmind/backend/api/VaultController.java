@@ -5,13 +5,31 @@ import tools.jackson.databind.JsonNode;
 import com.graphmind.backend.domain.VaultItem;
 import com.graphmind.backend.domain.VaultItemSummary;
 import com.graphmind.backend.service.VaultService;
+import com.graphmind.backend.service.feed.VaultChangeFeed;
+import com.graphmind.backend.service.json.JsonProjection;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.NoSuchElementException;
 
 import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
 
 /**
  * ??405 Method Not Allowed / 404 Not Found ?닿껐 ?ъ씤??
@@ -28,10 +46,52 @@ import java.util.List;
 @RequestMapping("/api/v1/vault")
 public class VaultController {
 
+    public static final String JSON_PATCH = "application/json-patch+json";
+    public static final String MERGE_PATCH = "application/merge-patch+json";
+    public static final String NDJSON = "application/x-ndjson";
+
+    // ✅ 다음 페이지 cursor (limit 지정 시). 응답 본문은 기존처럼 배열 그대로
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
+
     private final VaultService vault;
+    private final VaultChangeFeed feed;
 
-    public VaultController(VaultService vault) {
+    public VaultController(VaultService vault, VaultChangeFeed feed) {
         this.vault = vault;
+        this.feed = feed;
+    }
+
+    private ResponseEntity<byte[]> json(VaultService.VaultJson j) {
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok()
+                .eTag(j.etag())
+                .contentType(MediaType.APPLICATION_JSON);
+        if (j.nextCursor() != null) res.header(NEXT_CURSOR, j.nextCursor());
+        return res.body(j.json());
+    }
+
+    /**
+     * If-Match → expectedVersion
+     * - 없음 / "*" : null (버전 확인 안 함)
+     * - "3", W/"3" : 3
+     * - 그 외 (예: 목록 ETag) : 어떤 버전과도 맞지 않는 값 → 412
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) return null;
+        String v = ifMatch.trim();
+        if (v.equals("*")) return null;
+        if (v.startsWith("W/")) v = v.substring(2);
+        if (v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"")) v = v.substring(1, v.length() - 1);
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /** fields=id,title,content/xRange → 요청된 경로만 직렬화 (없으면 null = 전체) */
+    private static JsonProjection projection(String fields) {
+        JsonProjection p = JsonProjection.parse(fields);
+        return p == null ? null : p.validate(VaultItem.class);
     }
 
     private String userId(HttpServletRequest req) {
@@ -43,18 +103,86 @@ public class VaultController {
     // =========================
     // List
     // =========================
+    /**
+     * view=full(대소문자 무시)이면 content까지 스트리밍, 아니면 요약 목록.
+     * 매핑 조건(params)은 대소문자를 구분하므로 핸들러 하나에서 나눈다 (?view=FULL이 요약으로 새지 않게).
+     * 요약은 캐시된 byte[] 그대로 (async dispatch 없음), 스트리밍은 view=full만
+     */
     @GetMapping("/items")
-    public Object listItems(
+    public ResponseEntity<?> listItems(
             HttpServletRequest req,
-            @RequestParam(defaultValue = "summary") String view,
-            @RequestParam(required = false) String tag,
-            @RequestParam(required = false) String q
+            WebRequest web,
+            @RequestParam(required = false) List<String> tag,
+            @RequestParam(defaultValue = "and") String tagMode,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "recent") String sort,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields
     ) {
         String uid = userId(req);
-        if ("full".equalsIgnoreCase(view)) {
-            return vault.listFull(uid, tag, q);
-        }
-        return vault.listSummary(uid, tag, q);
+        VaultService.VaultQuery query = new VaultService.VaultQuery(tag == null ? List.of() : tag, tagMode, q, limit, cursor, sort);
+        if ("full".equalsIgnoreCase(view)) return listFullItems(uid, web, query, fields);
+
+        // ✅ 바뀐 게 없으면 직렬화 없이 304
+        if (web.checkNotModified(vault.listEtag(uid))) return null;
+
+        // 캐시된 바이트를 그대로 쓴다. ETag는 checkNotModified가 이미 넣었다
+        VaultService.VaultJson j = vault.listSummaryJson(uid, query);
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (j.nextCursor() != null) res.header(NEXT_CURSOR, j.nextCursor());
+        return res.body(j.json());
+    }
+
+    /**
+     * ✅ view=full: 목록(id + cursor)만 먼저 정하고 content는 아이템 하나씩 응답에 바로 쓴다.
+     * vault 전체를 버퍼링하지 않으므로 첫 바이트가 바로 나가고, 요청당 메모리는 가장 큰 아이템 하나 정도
+     */
+    private ResponseEntity<StreamingResponseBody> listFullItems(String uid, WebRequest web, VaultService.VaultQuery query, String fields) {
+        JsonProjection projection = projection(fields); // 스트리밍 시작 전에 400
+        if (web.checkNotModified(vault.listEtag(uid))) return null;
+
+        VaultService.VaultFullPage page = vault.planFull(uid, query);
+        // ETag는 checkNotModified가 이미 응답에 넣었다 (스트리밍 응답은 헤더를 덧붙이므로 다시 넣지 않음)
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (page.nextCursor() != null) res.header(NEXT_CURSOR, page.nextCursor());
+        StreamingResponseBody body = out -> vault.writeFull(uid, page, projection, out);
+        return res.body(body);
+    }
+
+    // =========================
+    // ✅ 변경 스트림 (SSE): 목록 폴링 대신 event: change { op, id, version, fields, updatedAt }
+    // 느린 구독자는 끊기므로, 클라이언트는 재연결 후 목록을 다시 확인한다
+    // =========================
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(HttpServletRequest req) {
+        String uid = userId(req);
+        SseEmitter emitter = feed.subscribe(uid);
+        System.out.printf("[vault] SSE subscribe uid=%s subscribers=%d%n", uid, feed.subscriberCount(uid));
+        return emitter;
+    }
+
+    // =========================
+    // ✅ delta sync: GET /changes?since=<seq>&epoch=<epoch>
+    // 응답의 seq/epoch를 다음 요청에 그대로. reset == true면 로컬 캐시를 비우고 다시 채움
+    // =========================
+    @GetMapping("/changes")
+    public VaultService.VaultChanges changes(
+            HttpServletRequest req,
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) String epoch,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return vault.changes(userId(req), since, epoch, limit);
+    }
+
+    // =========================
+    // Facets: tag/type 개수 (본문 없이 인덱스만 읽음)
+    // =========================
+    @GetMapping("/facets")
+    public VaultService.VaultFacets facets(HttpServletRequest req) {
+        return vault.facets(userId(req));
     }
 
     // =========================
@@ -66,16 +194,16 @@ public class VaultController {
     }
 
     @PutMapping("/items/{id}")
-    public VaultItem update(HttpServletRequest req, @PathVariable String id, @RequestBody VaultService.VaultUpsert body) {
-        return vault.update(userId(req), id, body);
+    public VaultItem update(HttpServletRequest req, @PathVariable String id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch, @RequestBody VaultService.VaultUpsert body) {
+        return vault.update(userId(req), id, body, expectedVersion(ifMatch));
     }
 
     // =========================
     // Patch: meta only (existing pattern)
     // =========================
     @PatchMapping("/items/{id}/meta")
-    public VaultItem patchMeta(HttpServletRequest req, @PathVariable String id, @RequestBody VaultService.VaultMetaPatch patch) {
-        return vault.patchMeta(userId(req), id, patch);
+    public VaultItem patchMeta(HttpServletRequest req, @PathVariable String id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch, @RequestBody VaultService.VaultMetaPatch patch) {
+        return vault.patchMeta(userId(req), id, patch, expectedVersion(ifMatch));
     }
 
     // =========================
@@ -87,6 +215,7 @@ public class VaultController {
     public void patchContent(
             HttpServletRequest req,
             @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody JsonNode body
     ) {
         JsonNode content = body;
@@ -107,7 +236,7 @@ public class VaultController {
         );
 
         try {
-            vault.patchContent(uid, id, content);
+            vault.patchContent(uid, id, content, expectedVersion(ifMatch));
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
         } catch (Exception e) {
@@ -120,12 +249,32 @@ public class VaultController {
 
 
 
+    // =========================
+    // ✅ Patch: content 델타 (JSON Patch / JSON Merge Patch)
+    // 한 칸 수정에 content 전체를 다시 보내지 않도록. 응답은 새 버전 정보만
+    // =========================
+    @PatchMapping(value = "/items/{id}/content", consumes = {JSON_PATCH, MERGE_PATCH})
+    public ResponseEntity<Map<String, Object>> patchContentDelta(
+            HttpServletRequest req,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody JsonNode patch
+    ) {
+        String uid = userId(req);
+        boolean merge = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(MERGE_PATCH));
+        VaultItem next = vault.patchContentDelta(uid, id, new VaultService.ContentDelta(merge, patch), expectedVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(VaultService.itemEtag(next))
+                .body(Map.of("id", next.id(), "updatedAt", next.updatedAt(), "version", next.version()));
+    }
+
     // =========================
     // ??Patch: generic item patch (NEW)
     // curve3d/surface3d/array3d ?ы븿?댁꽌 ?꾩슂???꾨뱶留?PATCH 媛??
     // =========================
     @PatchMapping("/items/{id}")
-    public VaultItem patchItem(HttpServletRequest req, @PathVariable String id, @RequestBody VaultService.VaultItemPatch patch) {
+    public VaultItem patchItem(HttpServletRequest req, @PathVariable String id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch, @RequestBody VaultService.VaultItemPatch patch) {
         String uid = userId(req);
 
         // ???먯씤 ?뺤젙??濡쒓렇
@@ -142,22 +291,120 @@ public class VaultController {
             );
         } catch (Exception ignore) {}
 
-        return vault.patchItem(uid, id, patch);
+        return vault.patchItem(uid, id, patch, expectedVersion(ifMatch));
     }
 
 
+    // =========================
+    // ✅ Batch: create/update/patch/meta/delta/delete/get 여러 개를 한 번에
+    // 결과는 작업별 status (일부가 실패해도 200)
+    // =========================
+    @PostMapping("/batch")
+    public Map<String, Object> batch(HttpServletRequest req, @RequestBody VaultService.BatchRequest body) {
+        String uid = userId(req);
+        List<VaultService.BatchResult> results = vault.batch(uid, body == null ? null : body.ops());
+        System.out.printf("[vault] POST /batch uid=%s ops=%d%n", uid, results.size());
+        return Map.of("results", results);
+    }
+
+    // =========================
+    // ✅ 백업/이전: NDJSON 스트리밍 (vault 크기와 무관하게 아이템 하나씩)
+    // =========================
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(HttpServletRequest req, @RequestParam(defaultValue = "false") boolean gzip) {
+        String uid = userId(req);
+        StreamingResponseBody body = out -> {
+            if (!gzip) {
+                vault.exportNdjson(uid, out);
+                return;
+            }
+            // 백업 파일은 크기보다 속도: 기본 레벨(6)은 볼륨 데이터에서 직렬화보다 10배 느리다
+            GZIPOutputStream z = new GZIPOutputStream(out, 1 << 16) {
+                {
+                    def.setLevel(Deflater.BEST_SPEED);
+                }
+            };
+            vault.exportNdjson(uid, z);
+            z.finish();
+        };
+        String file = "vault-" + LocalDate.now() + (gzip ? ".ndjson.gz" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(file).build().toString())
+                .body(body);
+    }
+
+    /** 본문: NDJSON (?gzip=true 또는 Content-Encoding: gzip 이면 gzip) */
+    @PostMapping(value = "/import", consumes = {NDJSON, MediaType.APPLICATION_JSON_VALUE, "application/gzip", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public VaultService.VaultImportResult importItems(HttpServletRequest req, @RequestParam(defaultValue = "false") boolean gzip) throws IOException {
+        String uid = userId(req);
+        InputStream in = req.getInputStream();
+        if (gzip || "gzip".equalsIgnoreCase(req.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            try {
+                in = new GZIPInputStream(in, 1 << 16);
+            } catch (ZipException e) {
+                throw new IllegalArgumentException("import_bad_gzip");
+            }
+        }
+        return vault.importNdjson(uid, in);
+    }
+
     // =========================
     // Get / Delete
     // =========================
     @GetMapping("/items/{id}")
-    public VaultItem getOne(HttpServletRequest req, @PathVariable String id) {
-        return vault.getOwned(userId(req), id);
+    public ResponseEntity<byte[]> getOne(HttpServletRequest req, WebRequest web, @PathVariable String id,
+                                         @RequestParam(required = false) String fields) {
+        String uid = userId(req);
+        JsonProjection projection = projection(fields);
+        if (web.checkNotModified(vault.itemEtag(uid, id))) return null;
+        return json(vault.getOwnedJson(uid, id, projection));
+    }
+
+    // ✅ 버전 이력 (최신부터)
+    @GetMapping("/items/{id}/versions")
+    public List<VaultService.VaultVersion> versions(HttpServletRequest req, @PathVariable String id) {
+        return vault.versions(userId(req), id);
+    }
+
+    @GetMapping("/items/{id}/versions/{version}")
+    public VaultItem version(HttpServletRequest req, @PathVariable String id, @PathVariable long version) {
+        return vault.version(userId(req), id, version);
+    }
+
+    // ✅ 로컬 그래프: root에서 링크/역링크를 depth번까지 (tags=true면 태그 노드도)
+    @GetMapping("/graph")
+    public VaultService.VaultGraph graph(
+            HttpServletRequest req,
+            @RequestParam String root,
+            @RequestParam(defaultValue = "1") int depth,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean tags
+    ) {
+        return vault.graph(userId(req), root, depth, limit, tags);
+    }
+
+    // ✅ 전체 그래프 배치 좌표 (서버에서 계산, 바뀐 뒤에는 이전 좌표에서 이어서)
+    @GetMapping("/layout")
+    public VaultService.VaultLayout layout(HttpServletRequest req) {
+        return vault.layout(userId(req));
+    }
+
+    // ✅ 정규형이 같은/구조가 같은 수식 (2x+1 == 1+2*x)
+    @GetMapping("/items/{id}/equivalents")
+    public VaultService.VaultFormulaMatch equivalents(HttpServletRequest req, @PathVariable String id) {
+        return vault.formulaMatches(userId(req), id);
+    }
+
+    @GetMapping("/formulas/equivalents")
+    public VaultService.VaultFormulaMatch formulaEquivalents(HttpServletRequest req, @RequestParam String formula) {
+        return vault.formulaMatchesFor(userId(req), formula);
     }
 
     @DeleteMapping("/items/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(HttpServletRequest req, @PathVariable String id) {
-        vault.delete(userId(req), id);
+    public void delete(HttpServletRequest req, @PathVariable String id, @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        vault.delete(userId(req), id, expectedVersion(ifMatch));
     }
 }
 
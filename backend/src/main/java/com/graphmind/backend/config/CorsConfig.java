@@ -11,8 +11,8 @@ public class CorsConfig implements WebMvcConfigurer {
         registry.addMapping("/**")
                 .allowedOrigins("http://localhost:3000")
                 .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
-                .allowedHeaders("Authorization", "Content-Type", "Accept", "Origin")
-                .exposedHeaders("Authorization")
+                .allowedHeaders("Authorization", "Content-Type", "Accept", "Origin", "If-None-Match", "If-Match")
+                .exposedHeaders("Authorization", "X-Next-Cursor", "ETag")
                 .allowCredentials(false)
                 .maxAge(3600);
     }
@@ -0,0 +1,15 @@
+package com.graphmind.backend.domain;
+
+/**
+ * 아이템의 그래프 분석 값 (아이템 + 태그 노드, 링크/태그 간선 기준). 백그라운드에서 계산된 마지막 결과.
+ * - component: 연결 요소 번호 (크기 순, 0 = 가장 큰 요소)
+ * - community: 같은 커뮤니티의 hub(가장 중심적인 노드) id. 태그면 "tag:이름"
+ * - rank: PageRank × 노드 수 (1.0 = 평균)
+ */
+public record VaultGraphStats(
+        int component,
+        int componentSize,
+        String community,
+        int communitySize,
+        double rank
+) {}
@@ -41,6 +41,9 @@ public record VaultItem(
         JsonNode content,
 
         List<LinkRef> links,
-        Instant updatedAt
+        Instant updatedAt,
+
+        // 아이템 버전: 생성 시 1, 변경될 때마다 +1 (ETag / If-Match)
+        long version
 ) {}
 
@@ -19,5 +19,6 @@ public record VaultItemSummary(
         Integer sizeY,
         Integer sizeZ,
         List<String> tags,
-        Instant updatedAt
+        Instant updatedAt,
+        VaultGraphStats graph // 그래프 분석 값 (아직 계산 전이면 null)
 ) {}
@@ -0,0 +1,93 @@
+package com.graphmind.backend.service;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.service.feed.VaultChangeFeed;
+import com.graphmind.backend.service.graph.VaultAnalyticsJob;
+import com.graphmind.backend.service.layout.VaultLayoutJob;
+import com.graphmind.backend.service.storage.VaultColdStore;
+import com.graphmind.backend.service.storage.VaultContentStore;
+import com.graphmind.backend.service.storage.VaultHistoryStore;
+import com.graphmind.backend.service.storage.VaultPageStore;
+import com.graphmind.backend.service.storage.VaultSpillStore;
+import com.graphmind.backend.service.storage.VaultWal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * heap보다 큰 vault용 구현 (graphmind.vault.store=disk).
+ *
+ * 힙에는 아이템 요약 필드 + 인덱스(검색/태그/최신순/랭킹/수식)만 두고, content는 쓰는 즉시
+ * 압축해서 VaultPageStore(페이지 파일 + 크기 제한 페이지 캐시)에 둔다.
+ * 목록/검색은 메모리 구현과 같은 경로이고, content가 필요한 읽기(단건/view=full/export/changes)만 페이지를 읽는다.
+ *
+ * 메모리 구현과 다른 점 (아래 override)
+ * - content 중복 제거(dedup), 단건 JSON 캐시, cold sweep, vault 통째 내리기(spill)는 하지 않는다
+ * - 내구성은 같다 (WAL). 페이지 파일은 메모리 확장이라 시작할 때 비우고 WAL에서 다시 채운다
+ */
+@Service
+@ConditionalOnProperty(name = "graphmind.vault.store", havingValue = "disk")
+public class DiskVaultService extends InMemoryVaultService {
+
+    private final VaultColdStore cold;
+    private final VaultPageStore pages;
+
+    public DiskVaultService(
+            VaultWal wal,
+            VaultChangeFeed feed,
+            VaultContentStore contents,
+            VaultColdStore cold,
+            VaultSpillStore spill,
+            VaultHistoryStore history,
+            VaultAnalyticsJob analytics,
+            VaultLayoutJob layouts,
+            ObjectMapper om,
+            @Value("${graphmind.vault.tombstone-retention-hours:168}") long tombstoneRetentionHours,
+            VaultPageStore pages
+    ) {
+        super(wal, feed, contents, cold, spill, history, analytics, layouts, om, Duration.ofHours(Math.max(1, tombstoneRetentionHours)));
+        this.cold = cold;
+        this.pages = pages;
+        open();
+    }
+
+    /** content가 있으면 압축해서 페이지 파일에 쓴다 (크기와 상관없이 항상) */
+    @Override
+    protected VaultPageStore.Paged park(VaultItem it) {
+        if (it.content() == null || !it.content().isContainer()) return null;
+        return cold.page(withContent(it, null), it.content(), pages);
+    }
+
+    /** content는 힙에 두지 않으므로 공유할 것도 없다 */
+    @Override
+    protected VaultItem share(VaultItem it) {
+        return it;
+    }
+
+    /** 읽은 content를 저장소에 되돌리지 않는다 (항상 페이지 파일에) */
+    @Override
+    protected VaultItem promote(UserVault v, VaultItem raw) {
+        return hot(v, raw);
+    }
+
+    /** 이미 전부 페이지 파일에 있다 */
+    @Override
+    protected void coolIdle() {
+    }
+
+    /** 힙에는 요약/인덱스만 있다. 통째로 내리면 content를 다 풀어서 써야 하므로 하지 않는다 */
+    @Override
+    protected boolean evict(String userId, UserVault v) {
+        return false;
+    }
+
+    /** content를 힙에 쌓지 않으므로 JSON 캐시도 두지 않는다 */
+    @Override
+    protected boolean cacheItemJson(byte[] json) {
+        return false;
+    }
+}
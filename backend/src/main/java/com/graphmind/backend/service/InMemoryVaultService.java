@@ -1,39 +1,513 @@
 package com.graphmind.backend.service;
 
+import tools.jackson.core.JacksonException;
 import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ObjectNode;
 
 import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.domain.VaultGraphStats;
 import com.graphmind.backend.domain.VaultItem;
 import com.graphmind.backend.domain.VaultItemSummary;
-
+import com.graphmind.backend.service.feed.VaultChangeFeed;
+import com.graphmind.backend.service.formula.FormulaCanon;
+import com.graphmind.backend.service.graph.GraphAnalytics;
+import com.graphmind.backend.service.graph.VaultAnalyticsJob;
+import com.graphmind.backend.service.index.VaultLinkIndex;
+import com.graphmind.backend.service.index.VaultRankIndex;
+import com.graphmind.backend.service.index.VaultRecencyIndex;
+import com.graphmind.backend.service.json.JsonPatch;
+import com.graphmind.backend.service.json.JsonProjection;
+import com.graphmind.backend.service.layout.ForceLayout;
+import com.graphmind.backend.service.layout.VaultLayoutJob;
+import com.graphmind.backend.service.query.VaultFilter;
+import com.graphmind.backend.service.storage.VaultColdStore;
+import com.graphmind.backend.service.storage.VaultContentStore;
+import com.graphmind.backend.service.storage.VaultHistoryStore;
+import com.graphmind.backend.service.storage.VaultSpillStore;
+import com.graphmind.backend.service.storage.VaultWal;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
+@ConditionalOnProperty(name = "graphmind.vault.store", havingValue = "memory", matchIfMissing = true)
 public class InMemoryVaultService implements VaultService {
 
-    // userId -> (itemId -> item)
-    private final Map<String, Map<String, VaultItem>> store = new ConcurrentHashMap<>();
+    // userId -> (itemId -> item + 검색 인덱스). 메모리에 올라와 있는 유저만 (나머지는 spill 파일)
+    private final Map<String, UserVault> store = new ConcurrentHashMap<>();
+    // 디스크에서 올리는 중인 유저 (같은 유저를 두 번 읽지 않도록)
+    private final ConcurrentHashMap<String, CompletableFuture<UserVault>> loading = new ConcurrentHashMap<>();
+    // 읽기만 한, 어디에도 없는 유저에게 돌려주는 빈 vault (맵에 넣지 않음. 쓰기는 pinForWrite로만)
+    private final UserVault empty = new UserVault();
+
+    // 캐시 상한: 유저당 목록 조합 수 / 아이템 JSON 크기
+    private static final int MAX_CACHED_LISTS = 16;
+    private static final int MAX_CACHED_ITEM_BYTES = 256 * 1024;
+
+    // sort=relevance 결과 상한 (limit이 없을 때도 점수 낮은 꼬리는 버린다)
+    private static final int MAX_RELEVANCE_HITS = 1000;
+
+    // 수식 찾기 응답의 목록별 상한
+    private static final int MAX_FORMULA_MATCHES = 200;
+
+    // 링크 그래프: depth 상한 / 노드 수 기본값, 상한
+    private static final int MAX_GRAPH_DEPTH = 6;
+    private static final int DEFAULT_GRAPH_NODES = 500;
+    private static final int MAX_GRAPH_NODES = 5000;
+
+    // batch 한 번에 받을 작업 수 상한
+    private static final int MAX_BATCH_OPS = 1000;
+
+    // import: 이만큼 모아서 fsync 한 번 / 응답에 담을 오류 수
+    private static final int IMPORT_BATCH = 256;
+    private static final int MAX_IMPORT_ERRORS = 100;
+
+    // delta sync: 유저당 tombstone 상한 / changes 한 페이지 크기
+    private static final int MAX_TOMBSTONES = 10_000;
+    private static final int DEFAULT_CHANGES_PAGE = 1000;
+    private static final int MAX_CHANGES_PAGE = 5000;
+
+    // 버전 복원 중 head가 계속 바뀔 때 다시 시도하는 횟수
+    private static final int MAX_HISTORY_RETRIES = 8;
+
+    // deriveExpr/deriveSamples가 읽는 content 최상위 키
+    private static final Set<String> DERIVE_KEYS = Set.of("expr", "xExpr", "x", "yExpr", "y", "zExpr", "z", "nx", "samples");
+
+    private final VaultWal wal;
+    private final VaultChangeFeed feed;
+    private final VaultContentStore contents;
+    private final VaultColdStore cold;
+    private final VaultSpillStore spill;
+    private final VaultHistoryStore history;
+    private final VaultAnalyticsJob analytics;
+    private final VaultLayoutJob layouts;
+    private final ObjectMapper om;
+    private final Duration tombstoneRetention;
+    private final LongAdder casRetries = new LongAdder();
+
+    @Autowired
+    public InMemoryVaultService(
+            VaultWal wal,
+            VaultChangeFeed feed,
+            VaultContentStore contents,
+            VaultColdStore cold,
+            VaultSpillStore spill,
+            VaultHistoryStore history,
+            VaultAnalyticsJob analytics,
+            VaultLayoutJob layouts,
+            ObjectMapper om,
+            @Value("${graphmind.vault.tombstone-retention-hours:168}") long tombstoneRetentionHours
+    ) {
+        this(wal, feed, contents, cold, spill, history, analytics, layouts, om, Duration.ofHours(Math.max(1, tombstoneRetentionHours)));
+        open();
+    }
+
+    /**
+     * 서브클래스용: 필드만 채운다. 복구는 아래 hook(park/share)을 부르므로,
+     * 서브클래스가 자기 필드까지 채운 뒤 open()을 불러야 한다
+     */
+    protected InMemoryVaultService(
+            VaultWal wal,
+            VaultChangeFeed feed,
+            VaultContentStore contents,
+            VaultColdStore cold,
+            VaultSpillStore spill,
+            VaultHistoryStore history,
+            VaultAnalyticsJob analytics,
+            VaultLayoutJob layouts,
+            ObjectMapper om,
+            Duration tombstoneRetention
+    ) {
+        this.wal = wal;
+        this.feed = feed;
+        this.contents = contents;
+        this.cold = cold;
+        this.spill = spill;
+        this.history = history;
+        this.analytics = analytics;
+        this.layouts = layouts;
+        this.om = om;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /** 스냅샷+로그에서 복구하고 기록 / 백그라운드 작업을 시작한다 */
+    protected final void open() {
+        // ✅ 영속화 모드(wal.enabled)일 때만 스냅샷+로그에서 복구 후 기록 시작
+        wal.recover(new VaultWal.Applier() {
+            @Override
+            public void put(VaultItem item) {
+                UserVault v = store.computeIfAbsent(item.userId(), k -> new UserVault());
+                VaultColdStore.Packed parked = park(item);
+                VaultItem prev = parked == null ? v.restore(share(item)) : v.restore(parked.item(), parked);
+                if (prev != null) contents.release(prev.content());
+            }
+
+            @Override
+            public void delete(String userId, String id) {
+                UserVault v = store.get(userId);
+                VaultItem prev = v == null ? null : v.forget(id);
+                if (prev != null) contents.release(prev.content());
+            }
+        });
+        // 스냅샷에는 cold content도 풀어서 기록. 상주 유저 먼저, 그다음 디스크에만 있는 유저
+        wal.start(sink -> {
+            Set<String> seen = new HashSet<>();
+            store.forEach((userId, v) -> {
+                seen.add(userId);
+                v.items.values().forEach(it -> sink.accept(hot(v, it)));
+            });
+            spill.forEach(seen, (userId, s) -> s.items().forEach(e -> sink.accept(e.item())));
+        });
+        cold.start(this::coolIdle, this::coldUsage);
+        spill.start(this::enforceBudget, this::residentBytes);
+        analytics.start(this::refreshAnalytics);
+    }
 
     @Override
-    public List<VaultItemSummary> listSummary(String userId, String tag, String q) {
-        return listFull(userId, tag, q).stream()
-                .map(this::toSummary)
+    public List<VaultItemSummary> listSummary(String userId, VaultQuery query) {
+        UserVault v = pin(userId);
+        try {
+            return summaries(v, query);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    // 요약에는 content가 필요 없으므로 cold 아이템을 풀지 않는다
+    private List<VaultItemSummary> summaries(UserVault v, VaultQuery query) {
+        UserVault.GraphStats stats = v.graphStats;
+        return list(v, query).stream()
+                .map(it -> toSummary(it, stats))
                 .collect(Collectors.toList());
     }
 
     @Override
-    public List<VaultItem> listFull(String userId, String tag, String q) {
-        Map<String, VaultItem> m = store.getOrDefault(userId, Map.of());
-        return m.values().stream()
-                .filter(it -> tag == null || tag.isBlank() || (it.tags() != null && it.tags().contains(tag)))
-                .filter(it -> matchesQ(it, q))
-                .sorted(Comparator.comparing(VaultItem::updatedAt).reversed())
-                .toList();
+    public List<VaultItem> listFull(String userId, VaultQuery query) {
+        UserVault v = pin(userId);
+        try {
+            List<VaultItem> out = list(v, query);
+            for (int i = 0; i < out.size(); i++) out.set(i, hot(v, out.get(i)));
+            return out;
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public VaultFullPage planFull(String userId, VaultQuery query) {
+        UserVault v = pin(userId);
+        try {
+            return page(v, query);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public void writeFull(String userId, VaultFullPage page, JsonProjection fields, OutputStream out) throws IOException {
+        UserVault v = pin(userId);
+        try {
+            // exportNdjson과 같은 방식: 아이템마다 직렬화해서 바로 내보냄 (cold content도 하나씩 풀기)
+            out.write('[');
+            boolean first = true;
+            for (VaultItem it : page.items()) {
+                if (!first) out.write(',');
+                out.write(fields == null ? om.writeValueAsBytes(hot(v, it)) : fields.bytes(om, projected(v, it, fields)));
+                first = false;
+            }
+            out.write(']');
+        } finally {
+            unpin(v);
+        }
+    }
+
+    /**
+     * 조건/페이지에 맞는 아이템 (cold 아이템은 content == null 그대로).
+     * 모든 아이템은 시작할 때 잡은 스냅샷 하나에서 나온다 (쓰기와 겹쳐도 앞/뒤 상태가 섞이지 않음)
+     */
+    private List<VaultItem> list(UserVault v, VaultQuery query) {
+        return list(v, query, query == null ? null : query.pageSize());
+    }
+
+    /**
+     * 한 페이지 + 다음 cursor. 한 개를 더 받아 보고 넘칠 때만 cursor를 낸다
+     * (남은 아이템이 limit의 배수여도 빈 페이지를 한 번 더 받지 않도록). relevance는 cursor 없음
+     */
+    private VaultFullPage page(UserVault v, VaultQuery query) {
+        Integer size = query == null ? null : query.pageSize();
+        if (size == null || query.byRelevance()) return new VaultFullPage(list(v, query), null);
+        List<VaultItem> items = list(v, query, size + 1);
+        if (items.size() <= size) return new VaultFullPage(items, null);
+        VaultItem last = items.get(size - 1);
+        return new VaultFullPage(new ArrayList<>(items.subList(0, size)), VaultRecencyIndex.cursor(last.updatedAt(), last.id()));
+    }
+
+    private List<VaultItem> list(UserVault v, VaultQuery query, Integer pageSize) {
+        UserVault.Snapshot snap = v.items.snapshot();
+        int limit = pageSize == null ? Integer.MAX_VALUE : pageSize;
+        String cursor = query == null ? null : query.cursor();
+        VaultFilter filter = query == null ? VaultFilter.parse(null, null, false)
+                : VaultFilter.parse(query.q(), normTags(query.tags()), query.anyTag());
+
+        // ✅ relevance: 토큰 역색인에서 점수 상위 limit개만 (구조 조건은 후보 집합으로)
+        if (query != null && query.byRelevance() && filter.text() != null) {
+            Set<String> allowed = null;
+            if (filter.hasClauses()) {
+                allowed = new HashSet<>();
+                for (VaultItem it : plan(v, snap, filter, null, Integer.MAX_VALUE)) allowed.add(it.id());
+            }
+            List<VaultRankIndex.Hit> hits = v.rank.top(filter.text(), Math.min(limit, MAX_RELEVANCE_HITS), allowed);
+            if (hits != null) {
+                // 점수는 지금 인덱스 기준 (스냅샷 뒤에 생긴 아이템은 빠진다)
+                List<VaultItem> out = new ArrayList<>(hits.size());
+                for (VaultRankIndex.Hit h : hits) {
+                    VaultItem it = snap.get(h.id());
+                    if (it != null) out.add(it);
+                }
+                return out;
+            }
+        }
+        return plan(v, snap, filter, cursor, limit);
+    }
+
+    /**
+     * ✅ 쿼리 플래너: 가장 작은 인덱스 후보(tag/type 절, 텍스트 trigram)를 고르고
+     * 나머지 조건은 아이템마다 lazy하게 확인한다 (VaultFilter.matches).
+     * - 후보가 전체의 1/4보다 작으면 후보만 정렬
+     * - 아니면 recency 인덱스를 updated 상한부터 걸으며 거르고, 하한 아래로 내려가거나 페이지가 차면 멈춘다
+     *
+     * 인덱스는 지금 상태라서, 스냅샷 뒤에 바뀐 아이템(changedSince)은 스냅샷 값으로 따로 보정한다.
+     * 쓰기는 changelog에 먼저 남기고 인덱스를 고치므로, 다 고른 뒤 다시 확인해서 그 사이 새로 생겼으면 다시 고른다
+     */
+    private List<VaultItem> plan(UserVault v, UserVault.Snapshot snap, VaultFilter filter, String cursor, int limit) {
+        Set<String> changed = v.changedSince(snap);
+        for (int attempt = 0; changed != null && attempt < 3; attempt++) {
+            List<VaultItem> out = plan(v, snap, changed, filter, cursor, limit);
+            Set<String> again = v.changedSince(snap);
+            if (again == null) break;
+            if (changed.containsAll(again)) return out;
+            again.addAll(changed);
+            changed = again;
+        }
+        return scan(snap, filter, cursor, limit);
+    }
+
+    private List<VaultItem> plan(UserVault v, UserVault.Snapshot snap, Set<String> changed,
+                                 VaultFilter filter, String cursor, int limit) {
+        int total = snap.size();
+        List<String> bestKeys = null;
+        Function<String, Set<String>> bestIndex = null;
+        long best = Long.MAX_VALUE;
+        for (List<String> tags : filter.tagClauses()) {
+            long n = 0;
+            for (String t : tags) n += v.tags.ofTag(t).size();
+            if (n < best) {
+                best = n;
+                bestKeys = tags;
+                bestIndex = v.tags::ofTag;
+            }
+        }
+        for (List<String> types : filter.typeClauses()) {
+            long n = 0;
+            for (String t : types) n += v.tags.ofType(t).size();
+            if (n < best) {
+                best = n;
+                bestKeys = types;
+                bestIndex = v.tags::ofType;
+            }
+        }
+
+        // 텍스트 후보(trigram 교집합)도 보통 싸니 구해서 더 작은 쪽을 쓴다
+        Set<String> ids = null;
+        if (filter.text() != null) {
+            ids = v.search.search(filter.text());
+            if (ids.size() <= best) bestKeys = null;
+        }
+        if (bestKeys != null && best * 4L < total) ids = union(bestKeys, bestIndex);
+        if (ids != null && !changed.isEmpty()) {
+            // 스냅샷 뒤에 조건에서 빠진 아이템도 스냅샷 기준으로는 후보
+            ids = new HashSet<>(ids);
+            ids.addAll(changed);
+        }
+
+        // 후보가 적으면 후보만 정렬
+        VaultRecencyIndex.Key after = cursor == null || cursor.isBlank() ? null : VaultRecencyIndex.decode(cursor);
+        if (ids != null && ids.size() * 4L < total) return sorted(ids.stream().map(snap::get), filter, after, limit);
+
+        // 스냅샷 뒤에 바뀐 아이템은 인덱스 키가 이미 옮겨졌다 → 스냅샷 값의 키로 정렬해 끼워 넣는다
+        Instant from = filter.updatedFrom();
+        Instant to = filter.updatedTo();
+        Deque<VaultItem> moved = new ArrayDeque<>(changed.isEmpty() ? List.of()
+                : sorted(changed.stream().map(snap::get)
+                        .filter(it -> it != null && (to == null || it.updatedAt().isBefore(to))), filter, after, limit));
+
+        Comparator<VaultRecencyIndex.Key> order = VaultRecencyIndex.order();
+        List<VaultItem> out = new ArrayList<>(Math.min(limit, total));
+        for (VaultRecencyIndex.Key k : v.recency.after(cursor, to)) {
+            while (!moved.isEmpty() && out.size() < limit && order.compare(VaultRecencyIndex.keyOf(moved.peek()), k) < 0) {
+                take(out, moved.poll(), from);
+            }
+            if (out.size() >= limit) break;
+            if (from != null && k.updatedAt().isBefore(from)) break;
+            if (changed.contains(k.id())) continue;
+            if (ids != null && !ids.contains(k.id())) continue;
+            VaultItem it = snap.get(k.id());
+            // 갱신 중이라 옛 키가 남아 있으면 건너뜀 (새 키 위치에서 나온다)
+            if (VaultRecencyIndex.current(k, it) && filter.matches(it)) out.add(it);
+        }
+        while (!moved.isEmpty() && out.size() < limit) take(out, moved.poll(), from);
+        return out;
+    }
+
+    /** 하한(from) 이상만 */
+    private static void take(List<VaultItem> out, VaultItem it, Instant from) {
+        if (from == null || !it.updatedAt().isBefore(from)) out.add(it);
+    }
+
+    /** 조건에 맞는 아이템을 최신순으로 limit개 */
+    private static List<VaultItem> sorted(Stream<VaultItem> items, VaultFilter filter, VaultRecencyIndex.Key after, int limit) {
+        return items
+                .filter(Objects::nonNull)
+                .filter(it -> after == null || VaultRecencyIndex.order().compare(VaultRecencyIndex.keyOf(it), after) > 0)
+                .filter(filter::matches)
+                .sorted(Comparator.comparing(VaultRecencyIndex::keyOf, VaultRecencyIndex.order()))
+                .limit(limit)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /** 스냅샷 뒤 변경을 알 수 없거나 계속 바뀔 때: 스냅샷 전체를 거른다 */
+    private static List<VaultItem> scan(UserVault.Snapshot snap, VaultFilter filter, String cursor, int limit) {
+        VaultRecencyIndex.Key after = cursor == null || cursor.isBlank() ? null : VaultRecencyIndex.decode(cursor);
+        Instant to = filter.updatedTo();
+        return sorted(StreamSupport.stream(snap.items().values().spliterator(), false)
+                .filter(it -> to == null || it.updatedAt().isBefore(to)), filter, after, limit);
+    }
+
+    private static Set<String> union(List<String> keys, Function<String, Set<String>> index) {
+        if (keys.size() == 1) return index.apply(keys.get(0));
+        Set<String> out = new HashSet<>();
+        for (String k : keys) out.addAll(index.apply(k));
+        return out;
+    }
+
+    @Override
+    public VaultFacets facets(String userId) {
+        UserVault v = pin(userId);
+        try {
+            return new VaultFacets(v.tags.tagCounts(), v.tags.typeCounts(), v.items.size());
+        } finally {
+            unpin(v);
+        }
+    }
+
+    // =========================
+    // ✅ 직렬화 캐시 + ETag (폴링은 대부분 304 또는 캐시 바이트로 끝남)
+    // =========================
+    @Override
+    public String listEtag(String userId) {
+        UserVault v = pin(userId);
+        try {
+            return v.etag(v.version.get(), v.statsSeq());
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public VaultJson listSummaryJson(String userId, VaultQuery query) {
+        UserVault v = pin(userId);
+        try {
+            long stamp = v.version.get(); // 목록을 만들기 전에 읽어야 캐시가 과거 ETag로만 남는다
+            UserVault.GraphStats stats = v.graphStats;
+            long statsSeq = stats == null ? -1 : stats.seq();
+
+            UserVault.Cached c = v.listJson.get(query);
+            if (c == null || c.stamp() != stamp || c.statsSeq() != statsSeq) {
+                VaultFullPage page = page(v, query);
+                List<VaultItemSummary> items = page.items().stream().map(it -> toSummary(it, stats)).toList();
+                c = new UserVault.Cached(stamp, statsSeq, om.writeValueAsBytes(items), page.nextCursor());
+                if (v.listJson.size() >= MAX_CACHED_LISTS) v.listJson.clear();
+                v.listJson.put(query, c);
+            }
+            return new VaultJson(v.etag(c.stamp(), c.statsSeq()), c.json(), c.nextCursor());
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public String itemEtag(String userId, String id) {
+        UserVault v = pin(userId);
+        try {
+            return UserVault.itemEtag(stored(v, id));
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public VaultJson getOwnedJson(String userId, String id) {
+        UserVault v = pin(userId);
+        try {
+            VaultItem it = stored(v, id);
+            v.touched.put(id, System.currentTimeMillis());
+
+            UserVault.Cached c = v.itemJson.get(id);
+            if (c == null || c.stamp() != it.version()) {
+                it = promote(v, it);
+                c = new UserVault.Cached(it.version(), -1, om.writeValueAsBytes(it), null);
+                if (cacheItemJson(c.json())) {
+                    v.itemJson.put(id, c);
+                    if (!v.items.containsKey(id)) v.itemJson.remove(id); // 그 사이 삭제됨
+                }
+            }
+            return new VaultJson(UserVault.itemEtag(it), c.json(), null);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    /** 단건 JSON을 캐시에 둘지 (너무 큰 아이템은 매번 직렬화) */
+    protected boolean cacheItemJson(byte[] json) {
+        return json.length <= MAX_CACHED_ITEM_BYTES;
+    }
+
+    @Override
+    public VaultJson getOwnedJson(String userId, String id, JsonProjection fields) {
+        if (fields == null) return getOwnedJson(userId, id);
+        UserVault v = pin(userId);
+        try {
+            VaultItem it = stored(v, id);
+            v.touched.put(id, System.currentTimeMillis());
+            return new VaultJson(UserVault.itemEtag(it), fields.bytes(om, projected(v, it, fields)), null);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    /** content를 요청하지 않았으면 cold 아이템도 풀지 않는다 */
+    private VaultItem projected(UserVault v, VaultItem it, JsonProjection fields) {
+        return fields.includes("content") ? hot(v, it) : it;
     }
 
     @Override
@@ -68,214 +542,1172 @@ public class InMemoryVaultService implements VaultService {
                 normTags(body.tags()),
                 content,
                 body.links() == null ? List.of() : body.links(),
-                now
+                now,
+                1L
         );
 
         item = maybeInferArrayDims(item);
-        store.computeIfAbsent(userId, k -> new ConcurrentHashMap<>()).put(id, item);
-        return item;
+        return insert(userId, item);
     }
 
     @Override
-    public VaultItem update(String userId, String id, VaultUpsert body) {
-        VaultItem prev = getOwned(userId, id);
-        Instant now = Instant.now();
+    public VaultItem update(String userId, String id, VaultUpsert body, Long expectedVersion) {
+        return mutate(userId, id, expectedVersion, prev -> {
+            Instant now = Instant.now();
 
-        JsonNode nextContent = body.content() != null ? body.content() : prev.content();
-        String nextType = orDefault(body.type(), prev.type());
-
-        String nextExpr = body.expr() != null ? body.expr() : prev.expr();
-        Integer nextSamples = body.samples() != null ? body.samples() : prev.samples();
-
-        // ✅ update에서도 content가 있으면 요약값 동기화
-        if (nextContent != null && nextType != null) {
-            nextExpr = deriveExpr(nextType, nextContent, nextExpr);
-            nextSamples = deriveSamples(nextType, nextContent, nextSamples);
-        }
-
-        VaultItem next = new VaultItem(
-                prev.id(),
-                prev.userId(),
-                orDefault(body.title(), prev.title()),
-                nextType,
-                orDefault(body.formula(), prev.formula()),
-                nextExpr,
-                nextSamples,
-                orDefault(body.axisOrder(), prev.axisOrder()),
-                body.sizeX() != null ? body.sizeX() : prev.sizeX(),
-                body.sizeY() != null ? body.sizeY() : prev.sizeY(),
-                body.sizeZ() != null ? body.sizeZ() : prev.sizeZ(),
-                body.tags() != null ? normTags(body.tags()) : prev.tags(),
-                nextContent,
-                body.links() != null ? body.links() : prev.links(),
-                now
-        );
+            JsonNode nextContent = body.content() != null ? body.content() : prev.content();
+            String nextType = orDefault(body.type(), prev.type());
+
+            String nextExpr = body.expr() != null ? body.expr() : prev.expr();
+            Integer nextSamples = body.samples() != null ? body.samples() : prev.samples();
+
+            // ✅ update에서도 content가 있으면 요약값 동기화
+            if (nextContent != null && nextType != null) {
+                nextExpr = deriveExpr(nextType, nextContent, nextExpr);
+                nextSamples = deriveSamples(nextType, nextContent, nextSamples);
+            }
 
-        next = maybeInferArrayDims(next);
-        store.computeIfAbsent(userId, k -> new ConcurrentHashMap<>()).put(id, next);
-        return next;
+            VaultItem next = new VaultItem(
+                    prev.id(),
+                    prev.userId(),
+                    orDefault(body.title(), prev.title()),
+                    nextType,
+                    orDefault(body.formula(), prev.formula()),
+                    nextExpr,
+                    nextSamples,
+                    orDefault(body.axisOrder(), prev.axisOrder()),
+                    body.sizeX() != null ? body.sizeX() : prev.sizeX(),
+                    body.sizeY() != null ? body.sizeY() : prev.sizeY(),
+                    body.sizeZ() != null ? body.sizeZ() : prev.sizeZ(),
+                    body.tags() != null ? normTags(body.tags()) : prev.tags(),
+                    nextContent,
+                    body.links() != null ? body.links() : prev.links(),
+                    now,
+                    prev.version() + 1
+            );
+
+            next = maybeInferArrayDims(next);
+            return next;
+        });
     }
 
     @Override
-    public VaultItem patchMeta(String userId, String id, VaultMetaPatch patch) {
-        VaultItem prev = getOwned(userId, id);
-        Instant now = Instant.now();
-
-        String nextTitle = patch.title() != null ? patch.title().trim() : prev.title();
-        List<String> nextTags = patch.tags() != null ? normTags(patch.tags()) : prev.tags();
-
-        // equation 타입만 formula 변경 허용
-        String nextFormula = prev.formula();
-        if ("equation".equals(prev.type()) && patch.formula() != null) {
-            String f = patch.formula().trim();
-            nextFormula = f.isBlank() ? prev.formula() : f;
-        }
-
-        VaultItem next = new VaultItem(
-                prev.id(),
-                prev.userId(),
-                nextTitle,
-                prev.type(),
-                nextFormula,
-                prev.expr(),
-                prev.samples(),
-                prev.axisOrder(),
-                prev.sizeX(),
-                prev.sizeY(),
-                prev.sizeZ(),
-                nextTags,
-                prev.content(),
-                prev.links(),
-                now
-        );
+    public VaultItem patchMeta(String userId, String id, VaultMetaPatch patch, Long expectedVersion) {
+        return mutate(userId, id, expectedVersion, prev -> {
+            Instant now = Instant.now();
+
+            String nextTitle = patch.title() != null ? patch.title().trim() : prev.title();
+            List<String> nextTags = patch.tags() != null ? normTags(patch.tags()) : prev.tags();
+
+            // equation 타입만 formula 변경 허용
+            String nextFormula = prev.formula();
+            if ("equation".equals(prev.type()) && patch.formula() != null) {
+                String f = patch.formula().trim();
+                nextFormula = f.isBlank() ? prev.formula() : f;
+            }
 
-        store.computeIfAbsent(userId, k -> new ConcurrentHashMap<>()).put(id, next);
-        return next;
+            VaultItem next = new VaultItem(
+                    prev.id(),
+                    prev.userId(),
+                    nextTitle,
+                    prev.type(),
+                    nextFormula,
+                    prev.expr(),
+                    prev.samples(),
+                    prev.axisOrder(),
+                    prev.sizeX(),
+                    prev.sizeY(),
+                    prev.sizeZ(),
+                    nextTags,
+                    prev.content(),
+                    prev.links(),
+                    now,
+                    prev.version() + 1
+            );
+
+            return next;
+        });
     }
 
     // =========================
     // ✅ /content PATCH: content + 요약값 동기화
     // =========================
     @Override
-    public VaultItem patchContent(String userId, String id, JsonNode content) {
-        VaultItem prev = getOwned(userId, id);
-        Instant now = Instant.now();
+    public VaultItem patchContent(String userId, String id, JsonNode content, Long expectedVersion) {
+        return mutate(userId, id, expectedVersion, prev -> {
+            Instant now = Instant.now();
 
-        JsonNode nextContent = (content != null) ? content : prev.content();
-
-        String nextExpr = prev.expr();
-        Integer nextSamples = prev.samples();
-
-        if (nextContent != null && prev.type() != null) {
-            nextExpr = deriveExpr(prev.type(), nextContent, nextExpr);
-            nextSamples = deriveSamples(prev.type(), nextContent, nextSamples);
-        }
-
-        VaultItem next = new VaultItem(
-                prev.id(),
-                prev.userId(),
-                prev.title(),
-                prev.type(),
-                prev.formula(),
-                nextExpr,
-                nextSamples,
-                prev.axisOrder(),
-                prev.sizeX(),
-                prev.sizeY(),
-                prev.sizeZ(),
-                prev.tags() != null ? prev.tags() : List.of(),
-                nextContent,
-                prev.links() != null ? prev.links() : List.of(),
-                now
-        );
+            JsonNode nextContent = (content != null) ? content : prev.content();
+
+            String nextExpr = prev.expr();
+            Integer nextSamples = prev.samples();
+
+            if (nextContent != null && prev.type() != null) {
+                nextExpr = deriveExpr(prev.type(), nextContent, nextExpr);
+                nextSamples = deriveSamples(prev.type(), nextContent, nextSamples);
+            }
 
-        next = maybeInferArrayDims(next);
-        store.computeIfAbsent(userId, k -> new ConcurrentHashMap<>()).put(id, next);
-        return next;
+            VaultItem next = new VaultItem(
+                    prev.id(),
+                    prev.userId(),
+                    prev.title(),
+                    prev.type(),
+                    prev.formula(),
+                    nextExpr,
+                    nextSamples,
+                    prev.axisOrder(),
+                    prev.sizeX(),
+                    prev.sizeY(),
+                    prev.sizeZ(),
+                    prev.tags() != null ? prev.tags() : List.of(),
+                    nextContent,
+                    prev.links() != null ? prev.links() : List.of(),
+                    now,
+                    prev.version() + 1
+            );
+
+            next = maybeInferArrayDims(next);
+            return next;
+        });
     }
 
     // =========================
     // ✅ /items PATCH: content 들어오면 요약값 동기화
     // =========================
     @Override
-    public VaultItem patchItem(String userId, String id, VaultItemPatch patch) {
-        VaultItem prev = getOwned(userId, id);
-        Instant now = Instant.now();
+    public VaultItem patchItem(String userId, String id, VaultItemPatch patch, Long expectedVersion) {
+        return mutate(userId, id, expectedVersion, prev -> {
+            Instant now = Instant.now();
 
-        String nextType = prev.type();
-        if (patch.type() != null && !patch.type().isBlank()) nextType = patch.type().trim();
+            String nextType = prev.type();
+            if (patch.type() != null && !patch.type().isBlank()) nextType = patch.type().trim();
 
-        String nextTitle = prev.title();
-        if (patch.title() != null) {
-            String t = patch.title().trim();
-            nextTitle = t.isBlank() ? prev.title() : t;
-        }
+            String nextTitle = prev.title();
+            if (patch.title() != null) {
+                String t = patch.title().trim();
+                nextTitle = t.isBlank() ? prev.title() : t;
+            }
 
-        List<String> nextTags = patch.tags() != null ? normTags(patch.tags()) : prev.tags();
+            List<String> nextTags = patch.tags() != null ? normTags(patch.tags()) : prev.tags();
 
-        String nextAxisOrder = patch.axisOrder() != null ? orDefault(patch.axisOrder(), prev.axisOrder()) : prev.axisOrder();
+            String nextAxisOrder = patch.axisOrder() != null ? orDefault(patch.axisOrder(), prev.axisOrder()) : prev.axisOrder();
 
-        Integer nextSizeX = patch.sizeX() != null ? patch.sizeX() : prev.sizeX();
-        Integer nextSizeY = patch.sizeY() != null ? patch.sizeY() : prev.sizeY();
-        Integer nextSizeZ = patch.sizeZ() != null ? patch.sizeZ() : prev.sizeZ();
+            Integer nextSizeX = patch.sizeX() != null ? patch.sizeX() : prev.sizeX();
+            Integer nextSizeY = patch.sizeY() != null ? patch.sizeY() : prev.sizeY();
+            Integer nextSizeZ = patch.sizeZ() != null ? patch.sizeZ() : prev.sizeZ();
 
-        JsonNode nextContent = patch.content() != null ? patch.content() : prev.content();
+            JsonNode nextContent = patch.content() != null ? patch.content() : prev.content();
 
-        String nextFormula = prev.formula();
-        if (patch.formula() != null && "equation".equals(nextType)) {
-            String f = patch.formula().trim();
-            nextFormula = f.isBlank() ? prev.formula() : f;
-        }
+            String nextFormula = prev.formula();
+            if (patch.formula() != null && "equation".equals(nextType)) {
+                String f = patch.formula().trim();
+                nextFormula = f.isBlank() ? prev.formula() : f;
+            }
 
-        String nextExpr = patch.expr() != null ? patch.expr() : prev.expr();
-        Integer nextSamples = patch.samples() != null ? patch.samples() : prev.samples();
+            String nextExpr = patch.expr() != null ? patch.expr() : prev.expr();
+            Integer nextSamples = patch.samples() != null ? patch.samples() : prev.samples();
 
-        if (nextContent != null && nextType != null) {
-            nextExpr = deriveExpr(nextType, nextContent, nextExpr);
-            nextSamples = deriveSamples(nextType, nextContent, nextSamples);
-        }
+            if (nextContent != null && nextType != null) {
+                nextExpr = deriveExpr(nextType, nextContent, nextExpr);
+                nextSamples = deriveSamples(nextType, nextContent, nextSamples);
+            }
 
-        List<LinkRef> nextLinks = patch.links() != null ? patch.links() : prev.links();
+            List<LinkRef> nextLinks = patch.links() != null ? patch.links() : prev.links();
+
+            VaultItem next = new VaultItem(
+                    prev.id(),
+                    prev.userId(),
+                    nextTitle,
+                    nextType,
+                    nextFormula,
+                    nextExpr,
+                    nextSamples,
+                    nextAxisOrder,
+                    nextSizeX,
+                    nextSizeY,
+                    nextSizeZ,
+                    nextTags,
+                    nextContent,
+                    nextLinks,
+                    now,
+                    prev.version() + 1
+            );
+
+            next = maybeInferArrayDims(next);
+            return next;
+        });
+    }
 
-        VaultItem next = new VaultItem(
-                prev.id(),
-                prev.userId(),
-                nextTitle,
-                nextType,
-                nextFormula,
-                nextExpr,
-                nextSamples,
-                nextAxisOrder,
-                nextSizeX,
-                nextSizeY,
-                nextSizeZ,
-                nextTags,
-                nextContent,
-                nextLinks,
-                now
-        );
+    // =========================
+    // ✅ /content 델타 PATCH: 바뀐 경로만 복사, 요약값은 관련 키가 바뀐 경우에만 재계산
+    // =========================
+    @Override
+    public VaultItem patchContentDelta(String userId, String id, ContentDelta delta, Long expectedVersion) {
+        return mutate(userId, id, expectedVersion, prev -> {
+            Instant now = Instant.now();
+
+            JsonNode nextContent;
+            Set<String> roots;
+            if (delta.mergePatch()) {
+                nextContent = JsonPatch.merge(prev.content(), delta.patch());
+                roots = JsonPatch.mergedRoots(delta.patch());
+            } else {
+                nextContent = JsonPatch.apply(prev.content(), delta.patch());
+                roots = JsonPatch.touchedRoots(delta.patch());
+            }
 
-        next = maybeInferArrayDims(next);
-        store.computeIfAbsent(userId, k -> new ConcurrentHashMap<>()).put(id, next);
-        return next;
+            String nextExpr = prev.expr();
+            Integer nextSamples = prev.samples();
+            if (nextContent != null && prev.type() != null
+                    && (roots.contains("") || !Collections.disjoint(roots, DERIVE_KEYS))) {
+                nextExpr = deriveExpr(prev.type(), nextContent, nextExpr);
+                nextSamples = deriveSamples(prev.type(), nextContent, nextSamples);
+            }
+
+            VaultItem next = new VaultItem(
+                    prev.id(),
+                    prev.userId(),
+                    prev.title(),
+                    prev.type(),
+                    prev.formula(),
+                    nextExpr,
+                    nextSamples,
+                    prev.axisOrder(),
+                    prev.sizeX(),
+                    prev.sizeY(),
+                    prev.sizeZ(),
+                    prev.tags() != null ? prev.tags() : List.of(),
+                    nextContent,
+                    prev.links() != null ? prev.links() : List.of(),
+                    now,
+                    prev.version() + 1
+            );
+
+            if (delta.mergePatch() || JsonPatch.changesShape(delta.patch())) {
+                next = maybeInferArrayDims(next);
+            }
+            return next;
+        });
     }
 
     @Override
     public VaultItem getOwned(String userId, String id) {
-        VaultItem it = store.getOrDefault(userId, Map.of()).get(id);
+        UserVault v = pin(userId);
+        try {
+            VaultItem it = stored(v, id);
+            v.touched.put(id, System.currentTimeMillis());
+            return promote(v, it);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    /** 저장된 그대로 (cold면 content == null) */
+    private VaultItem stored(UserVault v, String id) {
+        VaultItem it = v.items.get(id);
         if (it == null) throw new NoSuchElementException("VaultItem not found: " + id);
         return it;
     }
 
     @Override
-    public void delete(String userId, String id) {
-        Map<String, VaultItem> m = store.get(userId);
-        if (m != null) m.remove(id);
+    public void delete(String userId, String id, Long expectedVersion) {
+        UserVault v = pinForWrite(userId);
+        try {
+            delete(v, userId, id, expectedVersion);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    private void delete(UserVault v, String userId, String id, Long expectedVersion) {
+        long[] seq = {0};
+        boolean[] conflict = {false};
+        VaultItem[] removed = {null};
+        wal.apply(() -> v.items.computeIfPresent(id, (k, prev) -> {
+            if (expectedVersion != null && prev.version() != expectedVersion) {
+                conflict[0] = true;
+                return prev;
+            }
+            removed[0] = prev;
+            seq[0] = wal.appendDelete(userId, id);
+            v.onWrite(prev, null);
+            v.approxBytes.addAndGet(-history.forget(userId, id));
+            feed.publish(userId, prev, null);
+            return null;
+        }));
+        if (v.tombstones.size() > MAX_TOMBSTONES) v.compactTombstones(Instant.now().minus(tombstoneRetention), MAX_TOMBSTONES);
+        if (conflict[0]) throw new VaultVersionConflictException(id, expectedVersion, v.items.get(id));
+        if (removed[0] != null) contents.release(removed[0].content());
+        wal.awaitDurable(seq[0]);
+    }
+
+    // =========================
+    // ✅ 버전 이력: 지난 버전은 역방향 patch + keyframe (VaultHistoryStore)
+    // =========================
+    @Override
+    public List<VaultVersion> versions(String userId, String id) {
+        UserVault v = pin(userId);
+        try {
+            return history.versions(stored(v, id)).stream()
+                    .map(h -> new VaultVersion(h.version(), h.updatedAt(), h.fields(), h.keyframe()))
+                    .toList();
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public VaultItem version(String userId, String id, long version) {
+        UserVault v = pin(userId);
+        try {
+            for (int attempt = 0; ; attempt++) {
+                VaultItem head = hot(v, stored(v, id));
+                try {
+                    VaultItem it = history.materialize(head, version);
+                    if (it == null) throw new NoSuchElementException("VaultItem version not found: " + id + "@" + version);
+                    return it;
+                } catch (IllegalStateException e) {
+                    // 그 사이 새 버전이 쌓임 → 최신 아이템으로 다시. 쉬지 않고 쓰이는 아이템이면 몇 번 만에 포기
+                    if (attempt + 1 >= MAX_HISTORY_RETRIES) throw new IllegalStateException("vault_history_busy", e);
+                }
+            }
+        } finally {
+            unpin(v);
+        }
+    }
+
+    // =========================
+    // ✅ 링크 그래프: 쓰기마다 갱신되는 인접 리스트에서 BFS → 주변 노드만
+    // =========================
+    @Override
+    public VaultGraph graph(String userId, String root, int depth, Integer limit, boolean tags) {
+        if (depth < 0 || depth > MAX_GRAPH_DEPTH) throw new IllegalArgumentException("graph_bad_depth");
+        int max = limit == null ? DEFAULT_GRAPH_NODES : Math.max(1, Math.min(MAX_GRAPH_NODES, limit));
+        UserVault v = pin(userId);
+        try {
+            stored(v, root);
+            VaultLinkIndex.Neighborhood n = v.links.neighborhood(root, depth, max);
+
+            List<VaultItem> items = new ArrayList<>(n.nodes().size());
+            List<VaultGraphNode> nodes = new ArrayList<>(n.nodes().size());
+            for (int i = 0; i < n.nodes().size(); i++) {
+                String id = n.nodes().get(i);
+                VaultItem it = v.items.get(id);
+                items.add(it);
+                nodes.add(new VaultGraphNode(id, it == null ? null : it.title(), it == null ? null : it.type(),
+                        n.depths()[i], it == null, n.outDegree()[i], n.inDegree()[i]));
+            }
+
+            List<VaultGraphEdge> edges = new ArrayList<>(n.from().length);
+            for (int e = 0; e < n.from().length; e++) {
+                VaultItem source = items.get(n.from()[e]);
+                String target = n.nodes().get(n.to()[e]);
+                edges.add(new VaultGraphEdge(n.nodes().get(n.from()[e]), target, "link", linkLabel(source, target)));
+            }
+
+            if (tags) {
+                // 태그 노드는 따라가지 않고 고른 아이템에만 붙인다 (태그 하나로 vault 전체가 이어지지 않도록)
+                Map<String, Integer> tagDepth = new LinkedHashMap<>();
+                for (int i = 0; i < items.size(); i++) {
+                    VaultItem it = items.get(i);
+                    if (it == null || it.tags() == null) continue;
+                    for (String t : it.tags()) {
+                        tagDepth.merge(t, n.depths()[i] + 1, Math::min);
+                        edges.add(new VaultGraphEdge(it.id(), "tag:" + t, "tag", null));
+                    }
+                }
+                tagDepth.forEach((t, d) -> nodes.add(new VaultGraphNode("tag:" + t, "#" + t, "tag", d, false, 0, 0)));
+            }
+            return new VaultGraph(root, depth, nodes, edges, n.truncated());
+        } finally {
+            unpin(v);
+        }
+    }
+
+    // =========================
+    // ✅ 그래프 배치: Barnes–Hut 힘 배치를 서버의 백그라운드(VaultLayoutJob)에서, 유저마다 마지막 결과에서 이어서
+    // =========================
+    @Override
+    public VaultLayout layout(String userId) {
+        UserVault v = pin(userId);
+        try {
+            // 요청 스레드는 계산하지 않는다: 마지막으로 끝난 결과를 돌려주고, 낡았으면 계산을 맡긴다
+            UserVault.Snapshot snap = v.items.snapshot();
+            UserVault.Layout cur = v.layout;
+            if (snap.size() == 0) return new VaultLayout(snap.seq(), 0, false, 0, false, List.of());
+            boolean stale = cur == null || cur.seq() != snap.seq();
+            if (stale) layouts.request(userId, () -> refreshLayout(userId));
+            if (cur == null) return new VaultLayout(-1, 0, false, 0, true, List.of());
+
+            ForceLayout.Result r = cur.result();
+            List<VaultLayoutNode> nodes = new ArrayList<>(r.ids().size());
+            for (int i = 0; i < r.ids().size(); i++) {
+                nodes.add(new VaultLayoutNode(r.ids().get(i), Math.round(r.x()[i] * 100) / 100.0, Math.round(r.y()[i] * 100) / 100.0));
+            }
+            return new VaultLayout(cur.seq(), r.edges().length, cur.warm(), cur.iterations(), stale, nodes);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    /** 상주 유저의 배치를 지금 스냅샷으로 다시 계산 (바뀐 게 없으면 그대로). 내려간 유저는 다시 올라온 뒤에 */
+    private void refreshLayout(String userId) {
+        UserVault v = store.get(userId);
+        if (v == null || v.evicted) return;
+        synchronized (v.layoutLock) {
+            UserVault.Snapshot snap = v.items.snapshot();
+            UserVault.Layout cur = v.layout;
+            if (cur != null && cur.seq() == snap.seq()) return;
+            ForceLayout.Result prev = cur == null ? null : cur.result();
+            ForceLayout.Result next = layoutGraph(snap, prev);
+            // 그래프가 그대로면(제목만 바뀐 경우 등) 이전 좌표 그대로, 반복 0
+            v.layout = next == prev
+                    ? new UserVault.Layout(snap.seq(), prev, cur.warm(), 0)
+                    : new UserVault.Layout(snap.seq(), next, next.warm(), next.iterations());
+        }
+    }
+
+    /** 테스트/벤치용: 배치를 이 스레드에서 즉시 다시 계산 */
+    public void refreshLayoutNow(String userId) {
+        refreshLayout(userId);
+    }
+
+    /** 스냅샷 → 그래프 → 배치 (arc는 방향 없는 간선으로) */
+    private static ForceLayout.Result layoutGraph(UserVault.Snapshot snap, ForceLayout.Result prev) {
+        ItemGraph g = itemGraph(snap, prev == null ? null : prev.ids());
+        long[] edges = new long[g.arcs().length];
+        for (int i = 0; i < edges.length; i++) edges[i] = ForceLayout.edge((int) (g.arcs()[i] >>> 32), (int) g.arcs()[i]);
+        return ForceLayout.layout(g.ids(), edges, prev);
+    }
+
+    /** 배치/분석에 쓰는 유저 그래프. arcs = GraphAnalytics.arc(from, to) */
+    private record ItemGraph(List<String> ids, long[] arcs) {}
+
+    /**
+     * 스냅샷 → 노드(아이템 + "tag:이름") / arc (아이템 → 링크 대상, 아이템 ↔ 태그 양방향).
+     * prevIds에 있던 노드를 같은 순서로 먼저 둔다 (그래프가 그대로면 이전 결과와 비교만으로 끝나도록)
+     */
+    private static ItemGraph itemGraph(UserVault.Snapshot snap, List<String> prevIds) {
+        Set<String> current = new HashSet<>(snap.size() * 2);
+        for (VaultItem it : snap.items().values()) {
+            current.add(it.id());
+            for (String t : graphTags(it)) current.add("tag:" + t);
+        }
+
+        Map<String, Integer> index = new HashMap<>(current.size() * 2);
+        List<String> ids = new ArrayList<>(current.size());
+        if (prevIds != null) {
+            for (String id : prevIds) {
+                if (current.contains(id)) {
+                    index.put(id, ids.size());
+                    ids.add(id);
+                }
+            }
+        }
+        for (VaultItem it : snap.items().values()) {
+            if (index.putIfAbsent(it.id(), ids.size()) == null) ids.add(it.id());
+            for (String t : graphTags(it)) {
+                if (index.putIfAbsent("tag:" + t, ids.size()) == null) ids.add("tag:" + t);
+            }
+        }
+
+        long[] arcs = new long[16];
+        int m = 0;
+        for (VaultItem it : snap.items().values()) {
+            int u = index.get(it.id());
+            List<String> tags = graphTags(it);
+            int links = it.links() == null ? 0 : it.links().size();
+            int need = m + 2 * tags.size() + links;
+            if (need > arcs.length) arcs = Arrays.copyOf(arcs, Math.max(arcs.length * 2, need));
+            for (String t : tags) {
+                int v = index.get("tag:" + t);
+                arcs[m++] = GraphAnalytics.arc(u, v);
+                arcs[m++] = GraphAnalytics.arc(v, u);
+            }
+            if (links == 0) continue;
+            for (LinkRef l : it.links()) {
+                if (l == null || !VaultLinkIndex.VAULT_ITEM.equals(l.refType()) || l.refId() == null) continue;
+                if (snap.get(l.refId()) == null) continue; // 없는 대상은 노드로 만들지 않음
+                arcs[m++] = GraphAnalytics.arc(u, index.get(l.refId()));
+            }
+        }
+        return new ItemGraph(ids, Arrays.copyOf(arcs, m));
+    }
+
+    private static List<String> graphTags(VaultItem it) {
+        if (it.tags() == null || it.tags().isEmpty()) return List.of();
+        List<String> out = new ArrayList<>(it.tags().size());
+        for (String t : it.tags()) {
+            if (t != null && !t.isBlank()) out.add(t.trim());
+        }
+        return out;
+    }
+
+    // =========================
+    // ✅ 그래프 분석: 연결 요소 / 커뮤니티 / PageRank를 백그라운드에서, summary의 graph 필드로
+    // =========================
+
+    /** 마지막 분석 이후 스냅샷이 바뀐 상주 유저만 다시 계산 (내려간 유저는 다시 올라올 때). 계산한 유저 수 */
+    private int refreshAnalytics() {
+        int n = 0;
+        for (UserVault v : store.values()) {
+            if (v.evicted) continue;
+            UserVault.GraphStats cur = v.graphStats;
+            UserVault.Snapshot snap = v.items.snapshot();
+            if (cur != null && cur.seq() == snap.seq()) continue;
+            analyze(v, snap, cur);
+            n++;
+        }
+        return n;
+    }
+
+    /** 테스트/벤치용: 분석 갱신을 즉시 한 번 */
+    public int refreshAnalyticsNow() {
+        return refreshAnalytics();
+    }
+
+    private static void analyze(UserVault v, UserVault.Snapshot snap, UserVault.GraphStats cur) {
+        GraphAnalytics.Result prev = cur == null ? null : cur.result();
+        ItemGraph g = itemGraph(snap, prev == null ? null : prev.ids());
+        GraphAnalytics.Result r = GraphAnalytics.analyze(g.ids(), g.arcs(), prev);
+
+        // 그래프가 그대로면(제목만 바뀐 경우 등) 아이템별 값도 그대로
+        Map<String, VaultGraphStats> byId = cur == null ? null : cur.byId();
+        if (r != prev) {
+            int nodes = r.ids().size();
+            byId = new HashMap<>(snap.size() * 2);
+            for (int i = 0; i < nodes; i++) {
+                String id = r.ids().get(i);
+                if (id.startsWith("tag:") && snap.get(id) == null) continue; // 태그 노드는 목록에 없다
+                int c = r.component()[i], k = r.community()[i];
+                byId.put(id, new VaultGraphStats(c, r.componentSize()[c], r.ids().get(r.hub()[k]), r.communitySize()[k],
+                        Math.round(r.rank()[i] * nodes * 1000) / 1000.0));
+            }
+        }
+        v.graphStats = new UserVault.GraphStats(snap.seq(), r, byId);
+    }
+
+    private static String linkLabel(VaultItem source, String target) {
+        if (source == null || source.links() == null) return null;
+        for (LinkRef l : source.links()) {
+            if (l != null && VaultLinkIndex.VAULT_ITEM.equals(l.refType()) && target.equals(l.refId())) return l.label();
+        }
+        return null;
+    }
+
+    // =========================
+    // ✅ 수식 찾기: 정규형은 쓰기 시점에 색인됨 → 해시 조회만
+    // =========================
+    @Override
+    public VaultFormulaMatch formulaMatches(String userId, String id) {
+        UserVault v = pin(userId);
+        try {
+            VaultItem it = stored(v, id);
+            FormulaCanon.Canon c = v.formulas.canon(id);
+            if (c == null) throw new IllegalArgumentException("formula_unparsable");
+            return formulaMatch(v, it.formula(), c, id);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public VaultFormulaMatch formulaMatchesFor(String userId, String formula) {
+        FormulaCanon.Canon c = FormulaCanon.of(formula);
+        if (c == null) throw new IllegalArgumentException("formula_unparsable");
+        UserVault v = pin(userId);
+        try {
+            return formulaMatch(v, formula, c, null);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    private VaultFormulaMatch formulaMatch(UserVault v, String formula, FormulaCanon.Canon c, String self) {
+        Set<String> same = v.formulas.equivalent(c.canonical());
+        List<VaultItemSummary> equivalent = summariesOf(v, same, self, null);
+        List<VaultItemSummary> similar = summariesOf(v, v.formulas.similar(c.shape()), self, same);
+        return new VaultFormulaMatch(formula, c.canonical(), equivalent, similar);
+    }
+
+    /** ids 중 살아있는 아이템 요약 (최신순, MAX_FORMULA_MATCHES개까지) */
+    private List<VaultItemSummary> summariesOf(UserVault v, Set<String> ids, String self, Set<String> exclude) {
+        List<VaultItem> out = new ArrayList<>();
+        for (String id : ids) {
+            if (id.equals(self) || (exclude != null && exclude.contains(id))) continue;
+            VaultItem it = v.items.get(id);
+            if (it != null) out.add(it);
+        }
+        out.sort(Comparator.comparing(VaultRecencyIndex::keyOf, VaultRecencyIndex.order()));
+        UserVault.GraphStats stats = v.graphStats;
+        return out.stream().limit(MAX_FORMULA_MATCHES).map(it -> toSummary(it, stats)).toList();
+    }
+
+    // =========================
+    // ✅ delta sync: since 이후 바뀐 것만 (재연결 시 전체 재다운로드 X)
+    // =========================
+    @Override
+    public VaultChanges changes(String userId, long since, String epoch, Integer limit) {
+        UserVault v = pin(userId);
+        try {
+            return changes(v, since, epoch, limit);
+        } finally {
+            unpin(v);
+        }
+    }
+
+    private VaultChanges changes(UserVault v, long since, String epoch, Integer limit) {
+        v.compactTombstones(Instant.now().minus(tombstoneRetention), MAX_TOMBSTONES);
+
+        int max = limit == null ? DEFAULT_CHANGES_PAGE : Math.max(1, Math.min(MAX_CHANGES_PAGE, limit));
+        long high = v.changeHighWater();
+
+        // 다른 서버 인스턴스(재시작)의 seq이거나, 그 사이 삭제 기록이 압축됐으면 처음부터
+        boolean reset = since < 0
+                || since > high
+                || (epoch != null && !epoch.isBlank() && !epoch.equalsIgnoreCase(v.epochHex()))
+                || (since > 0 && since < v.compactedSeq);
+        long from = reset ? 0 : since;
+
+        List<VaultItem> items = new ArrayList<>();
+        List<VaultTombstone> deleted = new ArrayList<>();
+        long seq = from;
+        boolean more = false;
+        for (UserVault.Change c : v.changelog.subMap(from, false, high, true).values()) {
+            if (items.size() + deleted.size() >= max) {
+                more = true;
+                break;
+            }
+            if (c.item() != null) {
+                items.add(hot(v, c.item()));
+            } else if (!reset) {
+                deleted.add(new VaultTombstone(c.id(), c.version(), c.seq(), c.at()));
+            }
+            seq = c.seq();
+        }
+        if (!more) seq = high;
+        return new VaultChanges(v.epochHex(), seq, reset, more, items, deleted);
+    }
+
+    @Override
+    public List<BatchResult> batch(String userId, List<BatchOp> ops) {
+        if (ops == null || ops.isEmpty()) return List.of();
+        if (ops.size() > MAX_BATCH_OPS) throw new IllegalArgumentException("batch_too_large");
+
+        // ✅ 작업마다 fsync를 기다리지 않고, 마지막에 한 번만 (배치 동안 vault가 내려가지 않도록 잡아 둔다)
+        UserVault v = pinForWrite(userId);
+        try {
+            return wal.durableOnce(() -> {
+                List<BatchResult> out = new ArrayList<>(ops.size());
+                for (BatchOp op : ops) out.add(runBatchOp(v, userId, op));
+                return out;
+            });
+        } finally {
+            unpin(v);
+        }
+    }
+
+    // =========================
+    // ✅ NDJSON export/import: 전체 목록을 한 번에 만들지 않는다
+    // =========================
+    @Override
+    public void exportNdjson(String userId, OutputStream out) throws IOException {
+        UserVault v = pin(userId);
+        try {
+            // 시작 시점의 스냅샷 하나를 내보낸다 (내보내는 동안의 쓰기는 보이지 않음)
+            for (VaultItem raw : v.items.values()) {
+                out.write(om.writeValueAsBytes(hot(v, raw)));
+                out.write('\n');
+            }
+        } finally {
+            unpin(v);
+        }
+    }
+
+    @Override
+    public VaultImportResult importNdjson(String userId, InputStream in) {
+        int[] counts = new int[3]; // created, updated, skipped
+        List<String> errors = new ArrayList<>();
+        List<VaultItem> pending = new ArrayList<>(IMPORT_BATCH);
+
+        UserVault v = pinForWrite(userId);
+        int n = 0;
+        // 최상위 값이 이어지는 형태(NDJSON)를 하나씩 읽는다
+        try (MappingIterator<JsonNode> lines = om.readerFor(JsonNode.class).readValues(in)) {
+            // 읽는 만큼만 받는다: 묶음을 반영하는 동안은 요청 본문을 더 읽지 않음 (backpressure)
+            while (true) {
+                n++;
+                if (!lines.hasNextValue()) break;
+                JsonNode node = lines.nextValue();
+                try {
+                    pending.add(importable(userId, node));
+                } catch (IllegalArgumentException | JacksonException e) {
+                    counts[2]++;
+                    if (errors.size() < MAX_IMPORT_ERRORS) errors.add("#" + n + ": " + e.getMessage());
+                }
+                if (pending.size() >= IMPORT_BATCH) importBatch(v, pending, counts, errors);
+            }
+        } catch (JacksonException e) {
+            // 깨진 줄부터는 읽을 수 없다 → 여기까지 반영하고 멈춤
+            if (errors.size() < MAX_IMPORT_ERRORS) errors.add("#" + n + ": bad_json " + e.getOriginalMessage());
+        } finally {
+            try {
+                importBatch(v, pending, counts, errors);
+            } finally {
+                unpin(v);
+            }
+        }
+        return new VaultImportResult(counts[0], counts[1], counts[2], errors);
+    }
+
+    private VaultItem importable(String userId, JsonNode node) {
+        if (node == null || !node.isObject()) throw new IllegalArgumentException("import_item_must_be_object");
+        // 직접 만든 파일은 version이 없을 수 있다 (방금 읽은 노드라 고쳐도 됨)
+        if (!node.path("version").isNumber()) ((ObjectNode) node).put("version", 1);
+        VaultItem it = om.treeToValue(node, VaultItem.class);
+        if (it.type() == null || it.type().isBlank()) throw new IllegalArgumentException("import_type_required");
+
+        String id = it.id() == null || it.id().isBlank() ? UUID.randomUUID().toString() : it.id();
+        // create와 같은 요약값 동기화 (직접 만든 파일은 expr/samples가 content와 어긋날 수 있다)
+        String expr = it.expr();
+        Integer samples = it.samples();
+        if (it.content() != null) {
+            expr = deriveExpr(it.type(), it.content(), expr);
+            samples = deriveSamples(it.type(), it.content(), samples);
+        }
+        VaultItem out = new VaultItem(
+                id,
+                userId, // 다른 유저의 백업이라도 가져오는 유저 소유로
+                orDefault(it.title(), defaultTitle(it.type())),
+                it.type(),
+                it.formula(),
+                expr,
+                samples,
+                it.axisOrder(),
+                it.sizeX(),
+                it.sizeY(),
+                it.sizeZ(),
+                normTags(it.tags()),
+                it.content(),
+                it.links() == null ? List.of() : it.links(),
+                it.updatedAt() == null ? Instant.now() : it.updatedAt(),
+                Math.max(1, it.version())
+        );
+        return maybeInferArrayDims(out);
+    }
+
+    /**
+     * 묶음 하나를 fsync 한 번으로. 이미 있는 id는 버전을 이어서 올린다.
+     * 저장된 쪽이 파일보다 새것(updatedAt이 같거나 늦음)이면 덮지 않고 skipped로 알린다 (오래된 백업으로 되돌아가지 않게)
+     */
+    private void importBatch(UserVault v, List<VaultItem> pending, int[] counts, List<String> errors) {
+        if (pending.isEmpty()) return;
+        try {
+            importPending(v, pending, counts, errors);
+        } finally {
+            pending.clear(); // 실패해도 같은 묶음을 다시 반영하지 않도록
+        }
+    }
+
+    private void importPending(UserVault v, List<VaultItem> pending, int[] counts, List<String> errors) {
+        wal.durableOnce(() -> {
+            for (VaultItem it : pending) {
+                while (true) {
+                    VaultItem raw = v.items.get(it.id());
+                    if (raw != null && !it.updatedAt().isAfter(raw.updatedAt())) {
+                        counts[2]++;
+                        if (errors.size() < MAX_IMPORT_ERRORS) errors.add(it.id() + ": import_stored_is_newer");
+                        break;
+                    }
+                    VaultItem prev = hot(v, raw);
+                    VaultItem next = share(prev == null ? it : withVersion(it, prev.version() + 1));
+                    if (cas(v, it.id(), raw, prev, next)) {
+                        if (prev != null) contents.release(prev.content());
+                        counts[prev == null ? 0 : 1]++;
+                        break;
+                    }
+                    contents.release(next.content());
+                    casRetries.increment();
+                }
+            }
+            return null;
+        });
+    }
+
+    private BatchResult runBatchOp(UserVault v, String userId, BatchOp op) {
+        String kind = op == null || op.op() == null ? "" : op.op().trim().toLowerCase(Locale.ROOT);
+        String id = op == null ? null : op.id();
+        try {
+            if (!kind.equals("create") && (id == null || id.isBlank())) {
+                throw new IllegalArgumentException("batch_id_required");
+            }
+            JsonNode body = op.body();
+            Long version = op.version();
+            return switch (kind) {
+                case "get" -> ok(kind, 200, getOwned(userId, id));
+                case "create" -> ok(kind, 201, create(userId, bodyAs(body, VaultUpsert.class)));
+                case "update" -> ok(kind, 200, update(userId, id, bodyAs(body, VaultUpsert.class), version));
+                case "patch" -> ok(kind, 200, patchItem(userId, id, bodyAs(body, VaultItemPatch.class), version));
+                case "meta" -> ok(kind, 200, patchMeta(userId, id, bodyAs(body, VaultMetaPatch.class), version));
+                case "delta" -> {
+                    if (body == null) throw new IllegalArgumentException("batch_body_required");
+                    yield ok(kind, 200, patchContentDelta(userId, id, new ContentDelta(!body.isArray(), body), version));
+                }
+                case "delete" -> {
+                    stored(v, id); // 없는 id는 404로 알려준다 (단건 DELETE와 달리 결과를 구분해야 하므로)
+                    delete(userId, id, version);
+                    yield new BatchResult(kind, id, 204, null, null, null);
+                }
+                default -> throw new IllegalArgumentException("batch_unknown_op: " + kind);
+            };
+        } catch (VaultVersionConflictException e) {
+            return new BatchResult(kind, id, 412, null, e.getMessage(), e.currentVersion());
+        } catch (NoSuchElementException e) {
+            return new BatchResult(kind, id, 404, null, e.getMessage(), null);
+        } catch (IllegalArgumentException | JacksonException e) {
+            return new BatchResult(kind, id, 400, null, e.getMessage(), null);
+        }
+    }
+
+    private static BatchResult ok(String op, int status, VaultItem item) {
+        return new BatchResult(op, item.id(), status, item, null, null);
+    }
+
+    private <T> T bodyAs(JsonNode body, Class<T> type) {
+        if (body == null || body.isNull()) throw new IllegalArgumentException("batch_body_required");
+        return om.treeToValue(body, type);
     }
 
     // ------------------- helpers -------------------
 
-    private VaultItemSummary toSummary(VaultItem it) {
+    /**
+     * 수정 계열 쓰기의 단일 진입점: 낙관적 동시성(CAS + 재시도).
+     * - 현재 아이템(prev)으로 next를 만들고, 그 사이 아무도 안 바꿨을 때만 교체한다.
+     * - 다른 writer가 먼저 바꿨으면 최신 값으로 다시 만든다 (락으로 writer를 줄 세우지 않음).
+     * - expectedVersion(If-Match)이 있으면 재시도하지 않고 바로 충돌(412).
+     */
+    private VaultItem mutate(String userId, String id, Long expectedVersion, UnaryOperator<VaultItem> change) {
+        UserVault v = pinForWrite(userId);
+        try {
+            while (true) {
+                VaultItem raw = stored(v, id);
+                VaultItem prev = hot(v, raw);
+                if (expectedVersion != null && prev.version() != expectedVersion) {
+                    throw new VaultVersionConflictException(id, expectedVersion, prev);
+                }
+                VaultItem next = share(change.apply(prev));
+                if (cas(v, id, raw, prev, next)) {
+                    contents.release(prev.content());
+                    return next;
+                }
+                contents.release(next.content());
+                casRetries.increment();
+            }
+        } finally {
+            unpin(v);
+        }
+    }
+
+    private VaultItem insert(String userId, VaultItem item) {
+        UserVault v = pinForWrite(userId);
+        try {
+            VaultItem shared = share(item);
+            if (!cas(v, item.id(), null, null, shared)) {
+                contents.release(shared.content());
+                throw new IllegalStateException("duplicate vault item id: " + item.id());
+            }
+            return shared;
+        } finally {
+            unpin(v);
+        }
+    }
+
+    /**
+     * content를 공용 저장소의 공유 노드로 바꾼 아이템 (참조 +1).
+     * 교체에 실패하거나 아이템이 사라질 때 contents.release로 되돌린다.
+     */
+    protected VaultItem share(VaultItem it) {
+        JsonNode c = contents.acquire(it.content());
+        return c == it.content() ? it : withContent(it, c);
+    }
+
+    private static VaultItem withVersion(VaultItem it, long version) {
+        return new VaultItem(
+                it.id(), it.userId(), it.title(), it.type(),
+                it.formula(), it.expr(), it.samples(), it.axisOrder(),
+                it.sizeX(), it.sizeY(), it.sizeZ(),
+                it.tags(), it.content(), it.links(), it.updatedAt(), version
+        );
+    }
+
+    static VaultItem withContent(VaultItem it, JsonNode content) {
+        return new VaultItem(
+                it.id(), it.userId(), it.title(), it.type(),
+                it.formula(), it.expr(), it.samples(), it.axisOrder(),
+                it.sizeX(), it.sizeY(), it.sizeZ(),
+                it.tags(), content, it.links(), it.updatedAt(), it.version()
+        );
+    }
+
+    // =========================
+    // ✅ cold tier: 오래 안 읽은 큰 content는 압축해 두고, 읽을 때 푼다
+    // =========================
+
+    /**
+     * 저장된 아이템을 content까지 채운 값으로. cold가 아니면 그대로.
+     * 그 사이 다른 쓰기로 교체됐으면 최신 값을 돌려준다.
+     */
+    protected final VaultItem hot(UserVault v, VaultItem it) {
+        while (it != null && it.content() == null) {
+            VaultColdStore.Packed c = v.cold.get(it.id());
+            if (c != null && c.item() == it) {
+                JsonNode content = cold.thaw(c);
+                if (content != null) return withContent(it, content);
+                // disk 모드: 읽는 사이 페이지가 해제됨 = 새 값으로 바뀌는 중 → 아래에서 다시
+            }
+            VaultItem cur = v.items.get(it.id());
+            if (cur == null) return it; // 삭제됨
+            if (cur == it) {
+                // cold 기록이 다른 아이템 것 = 쓰기가 compute 안에서 진행 중 (items는 compute가 끝나야 바뀐다)
+                if (c != null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                return it; // 원래 content가 없는 아이템
+            }
+            it = cur;
+        }
+        return it;
+    }
+
+    /** 단건 조회: cold면 풀어서 저장소도 hot으로 되돌린다 (다시 idle이 되면 sweep이 재압축) */
+    protected VaultItem promote(UserVault v, VaultItem raw) {
+        VaultItem hot = hot(v, raw);
+        if (hot == raw || hot.content() == null || hot.version() != raw.version()) return hot;
+        VaultItem shared = share(hot);
+        if (!v.swap(raw, shared, null)) contents.release(shared.content());
+        return shared;
+    }
+
+    /** idle이 지난 큰 content를 압축 (버전/seq는 그대로) */
+    protected void coolIdle() {
+        long cutoff = cold.idleCutoffMillis();
+        long t0 = System.nanoTime();
+        int n = 0;
+        for (UserVault v : store.values()) {
+            // 디스크로 내리는 중인 vault는 건너뜀 (content 참조를 그쪽에서 놓는다)
+            if (!v.gate.readLock().tryLock()) continue;
+            try {
+                if (v.evicted) continue;
+                for (VaultItem it : v.items.values()) {
+                    JsonNode content = it.content();
+                    if (content == null || !content.isContainer()) continue;
+                    long last = v.touched.getOrDefault(it.id(), it.updatedAt().toEpochMilli());
+                    if (last > cutoff) continue;
+                    // 다른 아이템과 공유 중인 content는 압축해도 메모리가 줄지 않는다
+                    if (contents.refs(content) > 1) continue;
+
+                    VaultItem coldItem = withContent(it, null);
+                    VaultColdStore.Cold c = cold.freeze(coldItem, content);
+                    if (c != null && v.swap(it, coldItem, c)) {
+                        contents.release(content);
+                        n++;
+                    }
+                }
+            } finally {
+                v.gate.readLock().unlock();
+            }
+        }
+        if (n > 0) {
+            System.out.printf("[vault-cold] cooled items=%d in %dms%n", n, (System.nanoTime() - t0) / 1_000_000);
+        }
+    }
+
+    private VaultColdStore.Usage coldUsage() {
+        long items = 0, packed = 0, raw = 0;
+        for (UserVault v : store.values()) {
+            for (VaultColdStore.Packed c : v.cold.values()) {
+                items++;
+                packed += c.packedBytes();
+                raw += c.rawBytes();
+            }
+        }
+        return new VaultColdStore.Usage(items, packed, raw);
+    }
+
+    /** 테스트/벤치용: idle 기준으로 즉시 한 번 sweep */
+    public void coolIdleNow() {
+        coolIdle();
+    }
+
+    /**
+     * items.compute 안에서 "현재 값(저장된 그대로)이 expected와 같으면 next로" 를 원자적으로 수행.
+     * 같은 compute 안에서 로그 enqueue + 인덱스 갱신을 해서 아이템 단위 순서를 보장하고,
+     * fsync(group commit) 대기는 락 밖에서 한다.
+     */
+    private boolean cas(UserVault v, String id, VaultItem expected, VaultItem before, VaultItem next) {
+        long[] seq = {0};
+        boolean[] ok = {false};
+        // park(disk 모드 페이지 쓰기)는 compute(버킷 락) 밖에서. 저장소에는 content 없는 아이템만
+        VaultColdStore.Packed parked = park(next);
+        VaultItem stored = parked == null ? next : parked.item();
+        // 이력 patch(content 크기 비례)도 compute 밖에서. 충돌로 버려지면 다음 시도에서 다시 만든다
+        VaultHistoryStore.Step step = history.prepare(before, next);
+        wal.apply(() -> v.items.compute(id, (k, cur) -> {
+            if (cur != expected) return cur;
+            seq[0] = wal.appendPut(next);
+            if (parked != null) v.park(id, parked);
+            v.onWrite(cur, stored);
+            v.approxBytes.addAndGet(history.record(step));
+            feed.publish(next.userId(), before, next); // before: cold였다면 푼 값 (바뀐 필드 비교용)
+            ok[0] = true;
+            return stored;
+        }));
+        if (!ok[0] && parked != null) parked.release();
+        wal.awaitDurable(seq[0]);
+        return ok[0];
+    }
+
+    /** 쓰기 직전: content를 힙 밖에 두면 content 없는 아이템 + 그 위치를, 아니면 null (메모리 모드는 항상 힙에) */
+    protected VaultColdStore.Packed park(VaultItem it) {
+        return null;
+    }
+
+    /** CAS 충돌로 다시 만든 횟수 (경합 측정용) */
+    public long casRetries() {
+        return casRetries.sum();
+    }
+
+    // =========================
+    // ✅ 메모리 예산: 오래 안 쓴 유저의 vault를 통째로 디스크에, 처음 접근할 때 다시 올린다
+    // =========================
+
+    /**
+     * 읽기용으로 유저 vault를 잡는다 (없으면 디스크에서 올린다). 반드시 unpin.
+     * 메모리에도 디스크에도 없는 유저는 만들지 않고 공용 빈 vault(맵에 넣지 않음)를 돌려준다
+     */
+    private UserVault pin(String userId) {
+        return pin(userId, false);
+    }
+
+    /** 쓰기용: 없는 유저면 새 vault를 만들어 등록한다 */
+    private UserVault pinForWrite(String userId) {
+        return pin(userId, true);
+    }
+
+    /** 잡는 사이 내려갔으면 다시 찾는다 */
+    private UserVault pin(String userId, boolean create) {
+        while (true) {
+            UserVault v = store.get(userId);
+            if (v == null) v = load(userId, create);
+            if (v == null) {
+                if (create) continue; // 다른 스레드의 읽기용 load와 겹쳤다 → 다시
+                v = empty;
+            }
+            v.gate.readLock().lock();
+            if (!v.evicted) {
+                v.lastAccess = System.currentTimeMillis();
+                return v;
+            }
+            v.gate.readLock().unlock();
+        }
+    }
+
+    private static void unpin(UserVault v) {
+        v.gate.readLock().unlock();
+    }
+
+    /** 디스크 IO는 맵 락 밖에서, 같은 유저는 한 번만. 어디에도 없고 create가 아니면 null */
+    private UserVault load(String userId, boolean create) {
+        CompletableFuture<UserVault> mine = new CompletableFuture<>();
+        CompletableFuture<UserVault> other = loading.putIfAbsent(userId, mine);
+        if (other != null) return other.join();
+        try {
+            UserVault v = store.get(userId); // 그 사이 다른 스레드가 올렸을 수 있다
+            if (v == null) {
+                VaultSpillStore.Spilled s = spill.read(userId);
+                if (s != null) v = UserVault.load(s, this::share);
+                else if (create) v = new UserVault();
+                if (v != null) store.put(userId, v);
+            }
+            // 기다리던 쪽이 null을 받고 다시 시도할 때 이 future를 다시 보지 않도록 먼저 뺀다
+            loading.remove(userId, mine);
+            mine.complete(v);
+            return v;
+        } catch (RuntimeException e) {
+            loading.remove(userId, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void prefetch(String userId) {
+        if (userId == null || store.containsKey(userId)) return;
+        spill.prefetch(userId, () -> unpin(pin(userId)));
+    }
+
+    private long residentBytes() {
+        long n = 0;
+        for (UserVault v : store.values()) n += v.approxBytes.get();
+        return n;
+    }
+
+    /** 예산을 넘었으면 마지막 접근이 오래된 유저부터 예산의 90%까지 내린다 */
+    private void enforceBudget() {
+        long budget = spill.budgetBytes();
+        long total = residentBytes();
+        if (total <= budget) return;
+
+        record Candidate(String userId, UserVault v, long lastAccess) {}
+        List<Candidate> lru = new ArrayList<>(store.size());
+        store.forEach((userId, v) -> lru.add(new Candidate(userId, v, v.lastAccess)));
+        lru.sort(Comparator.comparingLong(Candidate::lastAccess));
+
+        long target = budget - budget / 10;
+        long cutoff = spill.idleCutoffMillis();
+        long t0 = System.nanoTime();
+        int n = 0;
+        for (Candidate c : lru) {
+            if (total <= target || c.lastAccess() > cutoff) break;
+            long bytes = c.v().approxBytes.get();
+            if (evict(c.userId(), c.v())) {
+                total -= bytes;
+                n++;
+            }
+        }
+        if (n > 0) {
+            System.out.printf("[vault-spill] evicted users=%d in %dms resident=%dKB budget=%dKB%n",
+                    n, (System.nanoTime() - t0) / 1_000_000, total / 1024, budget / 1024);
+        }
+    }
+
+    /** 사용 중(pin)인 vault는 건너뛴다. 파일을 다 쓴 뒤에야 맵에서 뺀다 */
+    protected boolean evict(String userId, UserVault v) {
+        if (!v.gate.writeLock().tryLock()) return false;
+        try {
+            if (v.evicted) return false;
+            spill.write(userId, v.spill(it -> hot(v, it)));
+            v.evicted = true;
+            // 이력은 spill 파일에 담지 않는다 (메모리 전용) → vault와 함께 버림
+            history.forgetUser(userId);
+            store.remove(userId, v);
+        } catch (UncheckedIOException e) {
+            System.out.printf("[vault-spill] evict failed user=%s: %s%n", userId, e);
+            return false;
+        } finally {
+            v.gate.writeLock().unlock();
+        }
+        for (VaultItem it : v.items.values()) contents.release(it.content());
+        return true;
+    }
+
+    /** 테스트/벤치용: 예산 검사를 즉시 한 번 */
+    public void enforceBudgetNow() {
+        enforceBudget();
+    }
+
+    private VaultItemSummary toSummary(VaultItem it, UserVault.GraphStats stats) {
         return new VaultItemSummary(
                 it.id(),
                 it.title(),
@@ -288,33 +1720,11 @@ public class InMemoryVaultService implements VaultService {
                 it.sizeY(),
                 it.sizeZ(),
                 it.tags(),
-                it.updatedAt()
+                it.updatedAt(),
+                stats == null ? null : stats.byId().get(it.id())
         );
     }
 
-    private boolean matchesQ(VaultItem it, String q) {
-        if (q == null || q.isBlank()) return true;
-        String needle = q.trim().toLowerCase();
-
-        String title = (it.title() == null ? "" : it.title()).toLowerCase();
-        String type = (it.type() == null ? "" : it.type()).toLowerCase();
-        String formula = (it.formula() == null ? "" : it.formula()).toLowerCase();
-        String expr = (it.expr() == null ? "" : it.expr()).toLowerCase();
-        String tags = it.tags() == null ? "" : String.join(" ", it.tags()).toLowerCase();
-
-        String dims = "";
-        if ("array3d".equals(it.type()) && it.sizeX() != null && it.sizeY() != null && it.sizeZ() != null) {
-            dims = (it.sizeX() + "x" + it.sizeY() + "x" + it.sizeZ()).toLowerCase();
-        }
-
-        return (title.contains(needle)
-                || type.contains(needle)
-                || formula.contains(needle)
-                || expr.contains(needle)
-                || tags.contains(needle)
-                || dims.contains(needle));
-    }
-
     private List<String> normTags(List<String> tags) {
         if (tags == null) return List.of();
         return tags.stream()
@@ -359,7 +1769,7 @@ public class InMemoryVaultService implements VaultService {
                 x == 0 ? item.sizeX() : x,
                 y == 0 ? item.sizeY() : y,
                 z == 0 ? item.sizeZ() : z,
-                item.tags(), item.content(), item.links(), item.updatedAt()
+                item.tags(), item.content(), item.links(), item.updatedAt(), item.version()
         );
     }
 
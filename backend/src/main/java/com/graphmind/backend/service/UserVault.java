@@ -0,0 +1,492 @@
+package com.graphmind.backend.service;
+
+import tools.jackson.databind.JsonNode;
+
+import com.graphmind.backend.domain.VaultGraphStats;
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.service.graph.GraphAnalytics;
+import com.graphmind.backend.service.index.HamtMap;
+import com.graphmind.backend.service.index.VaultFormulaIndex;
+import com.graphmind.backend.service.index.VaultLinkIndex;
+import com.graphmind.backend.service.index.VaultRankIndex;
+import com.graphmind.backend.service.index.VaultRecencyIndex;
+import com.graphmind.backend.service.index.VaultSearchIndex;
+import com.graphmind.backend.service.index.VaultTagIndex;
+import com.graphmind.backend.service.json.JsonSize;
+import com.graphmind.backend.service.layout.ForceLayout;
+import com.graphmind.backend.service.storage.VaultColdStore;
+import com.graphmind.backend.service.storage.VaultSpillStore;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * 유저 1명분 vault: 아이템 맵 + 보조 인덱스 + 직렬화 캐시.
+ * onWrite는 항상 items.compute 안에서 호출되어 아이템 단위로 직렬화된다.
+ * 서비스는 gate 읽기 락을 잡고 쓰며, 디스크로 내릴 때만 쓰기 락(tryLock)을 잡는다.
+ */
+class UserVault {
+
+    /** 직렬화된 JSON 캐시. stamp가 현재 값과 같을 때만 유효 */
+    record Cached(long stamp, long statsSeq, byte[] json, String nextCursor) {}
+
+    /** 변경 기록 1건. item == null 이면 삭제(tombstone) */
+    record Change(long seq, String id, VaultItem item, long version, Instant at) {}
+
+    /**
+     * 한 시점의 아이템 맵 (불변). seq = 이 seq 이하의 변경은 모두 여기에 들어 있다 (더 뒤의 변경이 먼저 들어 있을 수도 있음).
+     * seq가 이보다 큰 변경이나 아직 반영 중인 아이템(changedSince)만 이 스냅샷과 인덱스가 어긋날 수 있다
+     */
+    record Snapshot(HamtMap<String, VaultItem> items, long seq) {
+        VaultItem get(String id) {
+            return items.get(id);
+        }
+
+        int size() {
+            return items.size();
+        }
+    }
+
+    final Items items = new Items();
+    final VaultSearchIndex search = new VaultSearchIndex();
+    final VaultTagIndex tags = new VaultTagIndex();
+    final VaultRecencyIndex recency = new VaultRecencyIndex();
+    final VaultRankIndex rank = new VaultRankIndex();
+    final VaultFormulaIndex formulas = new VaultFormulaIndex();
+    final VaultLinkIndex links = new VaultLinkIndex();
+
+    // ✅ 그래프 배치: 백그라운드에서 마지막으로 끝난 결과 + 그때의 스냅샷 seq (다음 계산의 시작 좌표).
+    // 요청은 읽기만 하고, 계산은 VaultLayoutJob에서 layoutLock 안에서 하나씩
+    record Layout(long seq, ForceLayout.Result result, boolean warm, int iterations) {}
+    final Object layoutLock = new Object();
+    volatile Layout layout;
+
+    // ✅ 그래프 분석: 백그라운드에서 계산한 마지막 결과 (summary의 graph 필드).
+    // seq = 계산에 쓴 스냅샷 seq → 목록 ETag/캐시에 포함 (쓰기가 없어도 분석이 끝나면 목록이 바뀐다)
+    record GraphStats(long seq, GraphAnalytics.Result result, Map<String, VaultGraphStats> byId) {}
+    volatile GraphStats graphStats;
+
+    // ✅ 목록 버전: 이 seq 이하의 변경은 모두 스냅샷/changelog에 반영됨. ETag = epoch-version
+    // (재시작/다른 유저와 겹치지 않도록 epoch 포함. 아이템 ETag는 VaultItem.version 그대로)
+    final long epoch;
+    final AtomicLong version = new AtomicLong();
+    // seq 발급 (락 없이). 반영을 마친 순서대로 version이 따라 올라온다
+    private final AtomicLong seqs = new AtomicLong();
+    // 반영은 끝났지만 앞 번호가 아직이라 version을 못 올린 seq
+    private final ConcurrentSkipListSet<Long> landed = new ConcurrentSkipListSet<>();
+
+    // ✅ delta sync: 아이템마다 "마지막 변경"만 seq 순으로 보관 (살아있는 아이템 + tombstone)
+    // item을 직접 들고 있으므로, compute가 끝나기 전에 읽어도 그 seq 시점의 값이 보인다
+    final ConcurrentSkipListMap<Long, Change> changelog = new ConcurrentSkipListMap<>();
+    final ConcurrentHashMap<String, Long> lastSeq = new ConcurrentHashMap<>();
+    // 삭제 기록 (seq 순 = 삭제 시각 순). 오래된 것부터 압축
+    final ConcurrentSkipListMap<Long, Change> tombstones = new ConcurrentSkipListMap<>();
+    // 이 seq 이하의 tombstone은 버려졌다 → since가 이보다 작으면 전체 재동기화
+    volatile long compactedSeq;
+    // tombstone 압축 / changedSince / spill끼리만 (쓰기 경로는 잡지 않는다)
+    private final Object changeLock = new Object();
+    // seq를 받고 나서 인덱스까지 다 고칠 때까지의 id (스냅샷/changelog보다 먼저 들어가고 마지막에 빠진다)
+    private final Set<String> indexing = ConcurrentHashMap.newKeySet();
+
+    // ✅ cold tier: itemId -> 압축된 content (items에는 content == null 인 cold 아이템). disk 모드는 페이지 위치
+    final ConcurrentHashMap<String, VaultColdStore.Packed> cold = new ConcurrentHashMap<>();
+    // itemId -> 마지막 접근(읽기/쓰기) 시각 ms. cold sweep 기준
+    final ConcurrentHashMap<String, Long> touched = new ConcurrentHashMap<>();
+
+    final ConcurrentHashMap<VaultService.VaultQuery, Cached> listJson = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<String, Cached> itemJson = new ConcurrentHashMap<>();
+
+    // ✅ 메모리 예산: 읽기 락 = 사용 중, 쓰기 락 = 디스크로 내리는 중. evicted면 다시 찾아야 한다
+    final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    volatile boolean evicted;
+    volatile long lastAccess = System.currentTimeMillis();
+    // 대략적인 힙 사용량 (아이템 + content 노드 수 기준 추정, cold는 압축 크기, 버전 이력 포함)
+    final AtomicLong approxBytes = new AtomicLong(BASE_BYTES);
+
+    // 추정치 계수: 빈 vault(맵/인덱스) / 아이템 1개(레코드 + 인덱스 엔트리). JSON 노드는 JsonSize
+    private static final long BASE_BYTES = 2048;
+    private static final long ITEM_BYTES = 1536;
+
+    UserVault() {
+        this(ThreadLocalRandom.current().nextLong() >>> 16);
+    }
+
+    UserVault(long epoch) {
+        this.epoch = epoch;
+    }
+
+    /** prev → next 반영 (next == null 이면 삭제) */
+    void onWrite(VaultItem prev, VaultItem next) {
+        String id = logChange(prev, next);
+        try {
+            index(prev, next);
+        } finally {
+            if (id != null) indexing.remove(id);
+        }
+    }
+
+    private void index(VaultItem prev, VaultItem next) {
+        approxBytes.addAndGet(estimate(next) - estimate(prev));
+
+        if (next == null) {
+            if (prev != null) {
+                dropCold(prev.id());
+                touched.remove(prev.id());
+                search.remove(prev.id());
+                rank.remove(prev.id());
+                formulas.remove(prev.id());
+                links.remove(prev.id());
+                tags.remove(prev);
+                recency.remove(prev);
+                itemJson.remove(prev.id());
+            }
+            return;
+        }
+        VaultColdStore.Packed parked = cold.get(next.id());
+        if (parked == null || parked.item() != next) dropCold(next.id());
+        touched.put(next.id(), System.currentTimeMillis());
+        search.put(next);
+        rank.put(next);
+        formulas.put(prev, next);
+        if (prev == null || !Objects.equals(prev.links(), next.links())) links.put(next);
+        tags.put(prev, next);
+        recency.put(prev, next);
+        itemJson.remove(next.id());
+    }
+
+    /** 바뀐 id (없으면 null). 돌아온 뒤 인덱스를 고치는 동안 indexing에 남는다 */
+    private String logChange(VaultItem prev, VaultItem next) {
+        String id = next != null ? next.id() : prev != null ? prev.id() : null;
+        // 같은 id의 쓰기는 items.compute(stripe)로 이미 직렬화돼 있다. 다른 id끼리는 공유 락 없이
+        if (id != null) indexing.add(id);
+        long seq = seqs.incrementAndGet();
+        try {
+            if (id == null) return null;
+            items.publish(id, next);
+
+            Change c = next == null
+                    ? new Change(seq, id, null, prev.version(), Instant.now())
+                    : new Change(seq, id, next, next.version(), next.updatedAt());
+            // 새 기록을 먼저 넣고 옛 기록을 뺀다 (읽는 쪽이 이 아이템을 못 보는 순간이 없게)
+            changelog.put(seq, c);
+            if (next == null) tombstones.put(seq, c);
+            Long old = lastSeq.put(id, seq);
+            if (old != null) {
+                changelog.remove(old);
+                tombstones.remove(old);
+            }
+        } finally {
+            land(seq);
+        }
+        items.advance();
+        return id;
+    }
+
+    /**
+     * seq 반영 끝. 앞 번호부터 이어진 만큼 version을 올린다 → version 이하에는 빈 칸이 없다.
+     * h+1을 landed에서 꺼낸 스레드만 version을 h → h+1로 올릴 수 있어서 CAS 없이 set
+     */
+    private void land(long seq) {
+        landed.add(seq);
+        while (true) {
+            long h = version.get();
+            if (!landed.remove(h + 1)) return;
+            version.set(h + 1);
+        }
+    }
+
+    /**
+     * 같은 버전의 표현만 바꾼다 (hot ↔ cold). 버전/seq/인덱스는 그대로.
+     * 저장된 값이 아직 from일 때만 교체하고, changelog가 들고 있는 참조도 같이 바꾼다.
+     * toCold == null 이면 cold 기록을 지운다 (hot으로 되돌림)
+     */
+    boolean swap(VaultItem from, VaultItem to, VaultColdStore.Cold toCold) {
+        boolean[] ok = {false};
+        items.computeIfPresent(from.id(), (k, cur) -> {
+            if (cur != from) return cur;
+            dropCold(k);
+            if (toCold != null) {
+                cold.put(k, toCold);
+                approxBytes.addAndGet(toCold.heapBytes());
+            }
+            approxBytes.addAndGet(estimate(to) - estimate(from));
+            synchronized (changeLock) {
+                Long seq = lastSeq.get(k);
+                if (seq != null) {
+                    changelog.computeIfPresent(seq, (s, c) ->
+                            c.item() == from ? new Change(c.seq(), c.id(), to, c.version(), c.at()) : c);
+                }
+            }
+            itemJson.remove(k);
+            ok[0] = true;
+            return to;
+        });
+        return ok[0];
+    }
+
+    /**
+     * disk 모드: 새 아이템(content == null)의 content 위치. onWrite 전에 같은 compute 안에서.
+     * 옛 기록과 한 번에 바꿔서, 읽는 쪽이 cold 기록이 빈 순간을 보지 않게 한다
+     */
+    void park(String id, VaultColdStore.Packed c) {
+        VaultColdStore.Packed old = cold.put(id, c);
+        approxBytes.addAndGet(c.heapBytes());
+        if (old != null) {
+            approxBytes.addAndGet(-old.heapBytes());
+            old.release();
+        }
+    }
+
+    private void dropCold(String id) {
+        VaultColdStore.Packed c = cold.remove(id);
+        if (c != null) {
+            approxBytes.addAndGet(-c.heapBytes());
+            c.release();
+        }
+    }
+
+    /** 아이템 1개의 대략적인 힙 크기 (cold 아이템은 content 없이) */
+    static long estimate(VaultItem it) {
+        if (it == null) return 0;
+        long n = ITEM_BYTES;
+        n += 2L * (len(it.title()) + len(it.formula()) + len(it.expr()));
+        if (it.tags() != null) for (String t : it.tags()) n += 48 + 2L * len(t);
+        if (it.links() != null) n += 64L * it.links().size();
+        return n + JsonSize.estimate(it.content());
+    }
+
+    private static int len(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    // =========================
+    // ✅ 디스크로 내리기 / 다시 올리기 (seq, epoch 그대로)
+    // =========================
+
+    /** gate 쓰기 락 안에서. hot은 cold 아이템을 content까지 채운 값으로 바꾼다 */
+    VaultSpillStore.Spilled spill(UnaryOperator<VaultItem> hot) {
+        synchronized (changeLock) {
+            List<VaultSpillStore.SpilledItem> out = new ArrayList<>(items.size());
+            for (VaultItem it : items.values()) {
+                Long seq = lastSeq.get(it.id());
+                out.add(new VaultSpillStore.SpilledItem(seq == null ? 0 : seq, hot.apply(it)));
+            }
+            List<VaultSpillStore.SpilledTombstone> dead = new ArrayList<>(tombstones.size());
+            for (Change c : tombstones.values()) {
+                dead.add(new VaultSpillStore.SpilledTombstone(c.seq(), c.id(), c.version(), c.at()));
+            }
+            return new VaultSpillStore.Spilled(epoch, version.get(), compactedSeq, out, dead);
+        }
+    }
+
+    /** spill()로 내린 vault를 다시 만든다. share는 content를 공용 저장소에 다시 잡는다 */
+    static UserVault load(VaultSpillStore.Spilled s, UnaryOperator<VaultItem> share) {
+        UserVault v = new UserVault(s.epoch());
+        for (VaultSpillStore.SpilledItem e : s.items()) {
+            VaultItem it = share.apply(e.item());
+            v.items.put(it.id(), it);
+            v.search.put(it);
+            v.rank.put(it);
+            v.formulas.put(null, it);
+            v.links.put(it);
+            v.tags.put(null, it);
+            v.recency.put(null, it);
+            v.approxBytes.addAndGet(estimate(it));
+            v.lastSeq.put(it.id(), e.seq());
+            v.changelog.put(e.seq(), new Change(e.seq(), it.id(), it, it.version(), it.updatedAt()));
+        }
+        for (VaultSpillStore.SpilledTombstone t : s.tombstones()) {
+            Change c = new Change(t.seq(), t.id(), null, t.version(), t.at());
+            v.lastSeq.put(t.id(), t.seq());
+            v.changelog.put(t.seq(), c);
+            v.tombstones.put(t.seq(), c);
+        }
+        v.seqs.set(s.version());
+        v.version.set(s.version());
+        v.items.advance();
+        v.compactedSeq = s.compactedSeq();
+        return v;
+    }
+
+    /** 지금까지 발급된 seq 중 changelog에 모두 반영된 최고값 */
+    long changeHighWater() {
+        return version.get();
+    }
+
+    /** cutoff 이전 삭제 기록 또는 maxTombstones를 넘는 오래된 기록을 버린다 */
+    void compactTombstones(Instant cutoff, int maxTombstones) {
+        if (tombstones.isEmpty()) return;
+        synchronized (changeLock) {
+            Map.Entry<Long, Change> e;
+            while ((e = tombstones.firstEntry()) != null
+                    && (tombstones.size() > maxTombstones || e.getValue().at().isBefore(cutoff))) {
+                Change c = e.getValue();
+                tombstones.remove(c.seq());
+                changelog.remove(c.seq());
+                lastSeq.remove(c.id(), c.seq());
+                compactedSeq = Math.max(compactedSeq, c.seq());
+            }
+        }
+    }
+
+    /**
+     * 인덱스가 스냅샷 s와 어긋날 수 있는 아이템 id: s 뒤에 바뀐(생성/수정/삭제) 것 + 아직 인덱스를 고치는 중인 것.
+     * 인덱스에서 고른 후보를 s 기준으로 보정할 때 쓴다.
+     * 오래된 삭제 기록이 압축돼 알 수 없으면 null (호출 측이 s 전체를 본다)
+     */
+    Set<String> changedSince(Snapshot s) {
+        synchronized (changeLock) {
+            if (s.seq() < compactedSeq) return null;
+            Collection<Change> after = changelog.tailMap(s.seq(), false).values();
+            if (after.isEmpty() && indexing.isEmpty()) return Set.of();
+            Set<String> out = new HashSet<>(indexing);
+            for (Change c : after) out.add(c.id());
+            return out;
+        }
+    }
+
+    String epochHex() {
+        return Long.toHexString(epoch);
+    }
+
+    String etag(long stamp) {
+        return "\"" + Long.toHexString(epoch) + "-" + stamp + "\"";
+    }
+
+    /** 목록 ETag: 목록 버전 + 분석 결과의 seq (분석 전이면 -1) */
+    String etag(long stamp, long statsSeq) {
+        return statsSeq < 0 ? etag(stamp) : "\"" + Long.toHexString(epoch) + "-" + stamp + "." + statsSeq + "\"";
+    }
+
+    long statsSeq() {
+        GraphStats s = graphStats;
+        return s == null ? -1 : s.seq();
+    }
+
+    static String itemEtag(VaultItem it) {
+        return VaultService.itemEtag(it);
+    }
+
+    /** 복구용: 인덱스까지 포함해 그대로 넣기. 덮어쓴 이전 값을 돌려준다 */
+    VaultItem restore(VaultItem item) {
+        return restore(item, null);
+    }
+
+    /** parked != null 이면 disk 모드: item은 content 없는 아이템, content는 parked 페이지에 */
+    VaultItem restore(VaultItem item, VaultColdStore.Packed parked) {
+        VaultItem[] replaced = {null};
+        items.compute(item.id(), (k, prev) -> {
+            replaced[0] = prev;
+            if (parked != null) park(k, parked);
+            onWrite(prev, item);
+            return item;
+        });
+        return replaced[0];
+    }
+
+    VaultItem forget(String id) {
+        VaultItem[] removed = {null};
+        items.computeIfPresent(id, (k, prev) -> {
+            removed[0] = prev;
+            onWrite(prev, null);
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 아이템 맵: 읽기는 현재 스냅샷(HamtMap)을 락 없이, 쓰기는 키 단위로 직렬화해서 경로 복사 후 교체.
+     * ConcurrentHashMap.compute와 같은 약속: 같은 키의 compute는 한 번에 하나, 반환값이 저장된다.
+     * 버전이 바뀌는 쓰기는 onWrite → logChange가 먼저 반영하고, 나머지(hot ↔ cold 교체 등)는 compute가 반영.
+     * 루트 교체는 CAS (충돌하면 새 루트에서 경로를 다시 복사) → 다른 키의 쓰기끼리는 락을 공유하지 않는다
+     */
+    final class Items {
+        private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(HamtMap.empty(), 0));
+        private final Object[] stripes = new Object[64];
+
+        private Items() {
+            for (int i = 0; i < stripes.length; i++) stripes[i] = new Object();
+        }
+
+        Snapshot snapshot() {
+            return snapshot.get();
+        }
+
+        VaultItem get(String id) {
+            return snapshot.get().get(id);
+        }
+
+        boolean containsKey(String id) {
+            return get(id) != null;
+        }
+
+        int size() {
+            return snapshot.get().size();
+        }
+
+        /** 한 스냅샷의 값들 */
+        Iterable<VaultItem> values() {
+            return snapshot.get().items().values();
+        }
+
+        VaultItem compute(String id, BiFunction<String, VaultItem, VaultItem> fn) {
+            synchronized (stripe(id)) {
+                VaultItem next = fn.apply(id, get(id));
+                if (next != get(id)) publish(id, next);
+                return next;
+            }
+        }
+
+        VaultItem computeIfPresent(String id, BiFunction<String, VaultItem, VaultItem> fn) {
+            return compute(id, (k, cur) -> cur == null ? null : fn.apply(k, cur));
+        }
+
+        /** 복구/적재용 (인덱스는 호출 측이) */
+        void put(String id, VaultItem item) {
+            synchronized (stripe(id)) {
+                publish(id, item);
+            }
+        }
+
+        /**
+         * id 하나만 바꾼 새 루트를 CAS로 건다 (같은 id는 stripe로 직렬화돼 있어 재시도해도 값은 그대로).
+         * 스냅샷 seq는 version: 루트를 읽기 전에 읽어야 "그 이하의 변경은 모두 cur에 있다"가 성립
+         */
+        private void publish(String id, VaultItem next) {
+            while (true) {
+                long hw = version.get();
+                Snapshot cur = snapshot.get();
+                HamtMap<String, VaultItem> map = next == null ? cur.items().remove(id) : cur.items().put(id, next);
+                if (snapshot.compareAndSet(cur, new Snapshot(map, Math.max(cur.seq(), hw)))) return;
+            }
+        }
+
+        /** 맵은 그대로 두고 스냅샷 seq만 지금의 version까지 (쓰기가 끝난 뒤 목록/배치가 최신 seq를 보게) */
+        void advance() {
+            while (true) {
+                long hw = version.get();
+                Snapshot cur = snapshot.get();
+                if (cur.seq() >= hw || snapshot.compareAndSet(cur, new Snapshot(cur.items(), hw))) return;
+            }
+        }
+
+        private Object stripe(String id) {
+            return stripes[(id.hashCode() & 0x7fffffff) % stripes.length];
+        }
+    }
+}
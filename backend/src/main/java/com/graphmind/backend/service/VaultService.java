@@ -4,8 +4,14 @@ import tools.jackson.databind.JsonNode;
 import com.graphmind.backend.domain.LinkRef;
 import com.graphmind.backend.domain.VaultItem;
 import com.graphmind.backend.domain.VaultItemSummary;
+import com.graphmind.backend.service.json.JsonProjection;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Vault 鍮꾩쫰?덉뒪 濡쒖쭅 ?명꽣?섏씠??
@@ -70,21 +76,272 @@ public interface VaultService {
             List<LinkRef> links
     ) {}
 
-    List<VaultItemSummary> listSummary(String userId, String tag, String q);
-    List<VaultItem> listFull(String userId, String tag, String q);
+    /**
+     * 목록 조회 조건.
+     * - tags: 여러 태그 필터, tagMode: "and"(기본, 모두 포함) | "or"(하나라도 포함)
+     * - q: title/type/formula/expr/tags/dims 부분 문자열 검색
+     * - limit/cursor: updatedAt 최신순 keyset 페이지 (limit == null 이면 전체)
+     * - sort: "recent"(기본) | "relevance" (q의 토큰 중 하나라도 맞는 아이템을 BM25 점수순으로, cursor 무시)
+     */
+    record VaultQuery(
+            List<String> tags,
+            String tagMode,
+            String q,
+            Integer limit,
+            String cursor,
+            String sort
+    ) {
+        public static VaultQuery of(String tag, String q) {
+            return new VaultQuery(tag == null || tag.isBlank() ? List.of() : List.of(tag), null, q, null, null, null);
+        }
+
+        /** sort=relevance + q: BM25 점수순 상위 limit개 (cursor 없음). 그 외엔 최신순 */
+        public boolean byRelevance() {
+            return "relevance".equalsIgnoreCase(sort) && q != null && !q.isBlank();
+        }
+
+        /** 실제 페이지 크기 (1..1000), limit == null 이면 null */
+        public Integer pageSize() {
+            return limit == null ? null : Math.max(1, Math.min(1000, limit));
+        }
+
+        public boolean anyTag() {
+            return "or".equalsIgnoreCase(tagMode) || "any".equalsIgnoreCase(tagMode);
+        }
+    }
+
+    /** 태그/타입별 아이템 수 (많은 순) */
+    record VaultFacets(
+            Map<String, Integer> tags,
+            Map<String, Integer> types,
+            int total
+    ) {}
+
+    List<VaultItemSummary> listSummary(String userId, VaultQuery query);
+    List<VaultItem> listFull(String userId, VaultQuery query);
+
+    /**
+     * listFull 스트리밍용: 페이지의 아이템(한 스냅샷에서, 순서대로) + 다음 cursor만 먼저 정하고,
+     * 직렬화(cold content 풀기 포함)는 writeFull에서 하나씩
+     */
+    record VaultFullPage(List<VaultItem> items, String nextCursor) {
+        public List<String> ids() {
+            return items.stream().map(VaultItem::id).toList();
+        }
+    }
+
+    VaultFullPage planFull(String userId, VaultQuery query);
+
+    /**
+     * page의 아이템을 JSON 배열로 하나씩 out에 쓴다 (한 번에 아이템 하나만 직렬화).
+     * planFull 시점의 스냅샷 그대로 나온다. fields가 있으면 요청된 경로만
+     */
+    void writeFull(String userId, VaultFullPage page, JsonProjection fields, OutputStream out) throws IOException;
+
+    default List<VaultItemSummary> listSummary(String userId, String tag, String q) {
+        return listSummary(userId, VaultQuery.of(tag, q));
+    }
+
+    default List<VaultItem> listFull(String userId, String tag, String q) {
+        return listFull(userId, VaultQuery.of(tag, q));
+    }
+
+    VaultFacets facets(String userId);
+
+    /** 미리 직렬화된 JSON 응답 + ETag (+ 다음 페이지 cursor) */
+    record VaultJson(String etag, byte[] json, String nextCursor) {}
+
+    /** 목록 ETag: 유저 vault가 바뀔 때만 달라진다 (304 판단용, 직렬화 없음) */
+    String listEtag(String userId);
+
+    /** summary 목록 JSON. 변경이 없으면 캐시된 바이트를 그대로 돌려준다. */
+    VaultJson listSummaryJson(String userId, VaultQuery query);
+
+    /** 아이템 ETag (없으면 NoSuchElementException) */
+    String itemEtag(String userId, String id);
+
+    /** 이미 받은 아이템의 ETag. 쓰기 응답도 GET /items/{id}와 같은 값을 내도록 */
+    static String itemEtag(VaultItem it) {
+        return "\"" + it.version() + "\"";
+    }
+
+    VaultJson getOwnedJson(String userId, String id);
+
+    /** fields projection된 단건 JSON (fields == null이면 getOwnedJson과 같음, 캐시 안 함) */
+    VaultJson getOwnedJson(String userId, String id, JsonProjection fields);
+
+    /*
+     * ✅ 낙관적 동시성: expectedVersion(If-Match)이 null이 아니고 현재 버전과 다르면
+     * VaultVersionConflictException(412). null이면 버전 확인 없이 적용
+     */
 
     VaultItem create(String userId, VaultUpsert body);
-    VaultItem update(String userId, String id, VaultUpsert body);
+    VaultItem update(String userId, String id, VaultUpsert body, Long expectedVersion);
+
+    default VaultItem update(String userId, String id, VaultUpsert body) {
+        return update(userId, id, body, null);
+    }
+
+    VaultItem patchMeta(String userId, String id, VaultMetaPatch patch, Long expectedVersion);
 
-    VaultItem patchMeta(String userId, String id, VaultMetaPatch patch);
+    default VaultItem patchMeta(String userId, String id, VaultMetaPatch patch) {
+        return patchMeta(userId, id, patch, null);
+    }
 
-    // ??NEW: /items/{id}/content PATCH ???
-    VaultItem patchContent(String userId, String id, JsonNode content);
+    // ??NEW: /items/{id}/content PATCH ???
+    VaultItem patchContent(String userId, String id, JsonNode content, Long expectedVersion);
 
-    // ??NEW: /items/{id} PATCH ???怨〓㈃/怨≪꽑/諛곗뿴 ?ы븿)
-    VaultItem patchItem(String userId, String id, VaultItemPatch patch);
+    default VaultItem patchContent(String userId, String id, JsonNode content) {
+        return patchContent(userId, id, content, null);
+    }
+
+    // ??NEW: /items/{id} PATCH ???怨〓㈃/怨≪꽑/諛곗뿴 ?ы븿)
+    VaultItem patchItem(String userId, String id, VaultItemPatch patch, Long expectedVersion);
+
+    default VaultItem patchItem(String userId, String id, VaultItemPatch patch) {
+        return patchItem(userId, id, patch, null);
+    }
+
+    /**
+     * content 델타 수정.
+     * - mergePatch=false: JSON Patch(RFC 6902) op 배열
+     * - mergePatch=true: JSON Merge Patch(RFC 7396) 객체
+     */
+    record ContentDelta(boolean mergePatch, JsonNode patch) {}
+
+    VaultItem patchContentDelta(String userId, String id, ContentDelta delta, Long expectedVersion);
+
+    default VaultItem patchContentDelta(String userId, String id, ContentDelta delta) {
+        return patchContentDelta(userId, id, delta, null);
+    }
+
+    /**
+     * ✅ batch: 여러 작업을 한 번의 요청으로.
+     * - op: create | update | patch | meta | delta | delete | get
+     * - body: 각 단건 API의 요청 본문과 같음 (delta는 JSON Patch 배열 또는 Merge Patch 객체)
+     * - version: 단건 API의 If-Match와 같은 의미 (null이면 확인 안 함)
+     */
+    record BatchOp(String op, String id, Long version, JsonNode body) {}
+
+    record BatchRequest(List<BatchOp> ops) {}
+
+    /** 작업별 결과. 실패해도 나머지 작업은 계속 진행된다. */
+    record BatchResult(
+            String op,
+            String id,
+            int status,
+            VaultItem item,
+            String error,
+            Long currentVersion
+    ) {}
+
+    /** 작업 순서대로 실행하고, 영속화 모드면 모든 쓰기를 한 번의 flush로 확정한다. */
+    List<BatchResult> batch(String userId, List<BatchOp> ops);
+
+    /** 삭제 기록 */
+    record VaultTombstone(String id, long version, long seq, Instant deletedAt) {}
+
+    /**
+     * delta sync 응답.
+     * - seq: 다음 요청의 since (more == true면 이어서 요청)
+     * - reset: true면 클라이언트는 로컬 캐시를 비우고 items부터 다시 채운다
+     *   (서버 재시작으로 epoch가 바뀌었거나, since 이후의 삭제 기록이 이미 압축된 경우)
+     */
+    record VaultChanges(
+            String epoch,
+            long seq,
+            boolean reset,
+            boolean more,
+            List<VaultItem> items,
+            List<VaultTombstone> deleted
+    ) {}
+
+    /** since 이후 생성/수정/삭제된 것만. epoch는 이전 응답의 epoch (없으면 확인 안 함) */
+    VaultChanges changes(String userId, long since, String epoch, Integer limit);
 
     VaultItem getOwned(String userId, String id);
-    void delete(String userId, String id);
-}
+    void delete(String userId, String id, Long expectedVersion);
+
+    // =========================
+    // ✅ 버전 이력
+    // =========================
+
+    /** 버전 1개 요약. fields = 직전 버전 대비 바뀐 필드, keyframe = content 통째 보관 여부 (최신은 항상 true) */
+    record VaultVersion(long version, Instant updatedAt, List<String> fields, boolean keyframe) {}
+
+    /** 보관 중인 버전들 (최신부터) */
+    List<VaultVersion> versions(String userId, String id);
+
+    /** version 시점의 아이템 (보관 기간이 지난 버전이면 NoSuchElementException) */
+    VaultItem version(String userId, String id, long version);
+
+    default void delete(String userId, String id) {
+        delete(userId, id, null);
+    }
+
+    // =========================
+    // ✅ 링크 그래프: 아이템 하나 주변(depth 이내)만 (전체 목록 없이 로컬 그래프를 그리기 위함)
+    // =========================
+
+    /**
+     * 노드 1개. missing = 링크는 있는데 아이템이 없음(지워졌거나 아직 없음). type "tag"는 태그 노드 (id "tag:이름").
+     * links/backlinks = 그래프 전체에서의 링크 / 역링크 수
+     */
+    record VaultGraphNode(String id, String title, String type, int depth, boolean missing, int links, int backlinks) {}
 
+    /** kind = "link"(source가 target을 링크) | "tag" */
+    record VaultGraphEdge(String source, String target, String kind, String label) {}
+
+    /** truncated = limit에 걸려 depth 이내 노드를 다 담지 못함 */
+    record VaultGraph(String root, int depth, List<VaultGraphNode> nodes, List<VaultGraphEdge> edges, boolean truncated) {}
+
+    /** root에서 링크를 양방향으로 depth번까지 따라간 부분 그래프. tags면 고른 아이템의 태그 노드도 붙인다 */
+    VaultGraph graph(String userId, String root, int depth, Integer limit, boolean tags);
+
+    /** 배치 좌표 1개 (소수 둘째 자리까지) */
+    record VaultLayoutNode(String id, double x, double y) {}
+
+    /**
+     * vault 전체 그래프(아이템 + 태그 노드, 링크/태그 간선)의 배치.
+     * seq = 이 배치에 반영된 마지막 변경 (첫 계산 전이면 -1), warm = 이전 배치에서 이어서 계산함,
+     * iterations = 이 결과를 만든 계산의 반복 수 (0이면 그래프가 그대로라 이전 좌표 그대로),
+     * stale = 이후 바뀐 게 있어 백그라운드에서 다시 계산 중 (잠시 뒤 다시 요청)
+     */
+    record VaultLayout(long seq, int edges, boolean warm, int iterations, boolean stale, List<VaultLayoutNode> nodes) {}
+
+    /** 마지막으로 끝난 배치 좌표 (요청 스레드에서 계산하지 않음). 낡았으면 백그라운드에서 이전 좌표부터 이어서 계산 */
+    VaultLayout layout(String userId);
+
+    // =========================
+    // ✅ 수식 찾기: 정규형이 같은(동치) / 상수만 다른(구조 유사) 수식
+    // =========================
+
+    /** canonical = 기준 수식의 정규형. similar에는 equivalent를 빼고 담는다 (각각 최신순) */
+    record VaultFormulaMatch(String formula, String canonical, List<VaultItemSummary> equivalent, List<VaultItemSummary> similar) {}
+
+    /** 아이템 id의 formula 기준 (자기 자신은 제외). formula가 없거나 못 읽으면 IllegalArgumentException */
+    VaultFormulaMatch formulaMatches(String userId, String id);
+
+    /** 임의 수식 문자열 기준 */
+    VaultFormulaMatch formulaMatchesFor(String userId, String formula);
+
+    // =========================
+    // ✅ 백업/이전: NDJSON (한 줄에 아이템 1개)
+    // =========================
+
+    /** 가져오기 결과. errors는 앞부분만 (몇 번째 아이템인지, 건너뛴 id 포함) */
+    record VaultImportResult(int created, int updated, int skipped, List<String> errors) {}
+
+    /** 전체 아이템을 한 줄씩 흘려 보낸다 (한 번에 아이템 하나만 메모리에) */
+    void exportNdjson(String userId, OutputStream out) throws IOException;
+
+    /**
+     * 한 줄씩 읽어 일정 개수마다 묶어서 반영한다 (원자적이지 않음: 중간 오류 전까지는 반영됨).
+     * 같은 id가 있으면 파일 쪽 updatedAt이 더 늦을 때만 덮어쓰고 버전을 올린다 (아니면 skipped).
+     * expr/samples는 create처럼 content에서 다시 뽑는다
+     */
+    VaultImportResult importNdjson(String userId, InputStream in);
+
+    /** 곧 쓸 유저의 vault를 미리 메모리에 올린다 (로그인 직후). 비동기, 기본은 아무것도 안 함 */
+    default void prefetch(String userId) {}
+}
@@ -0,0 +1,21 @@
+package com.graphmind.backend.service;
+
+import com.graphmind.backend.domain.VaultItem;
+
+/**
+ * If-Match(기대 버전)와 현재 아이템 버전이 다를 때 → 412 Precondition Failed
+ */
+public class VaultVersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public VaultVersionConflictException(String id, Long expectedVersion, VaultItem current) {
+        super("VaultItem version mismatch: " + id + " expected=" + expectedVersion
+                + " current=" + (current == null ? "deleted" : current.version()));
+        this.currentVersion = current == null ? -1 : current.version();
+    }
+
+    public long currentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,241 @@
+package com.graphmind.backend.service.feed;
+
+import com.graphmind.backend.domain.VaultItem;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 유저별 vault 변경 스트림 (SSE).
+ *
+ * - publish()는 쓰기 경로(items.compute 안)에서 호출되므로 절대 블록하지 않는다:
+ *   구독자별 bounded 큐에 prev/next 참조만 offer하고, 바뀐 필드 비교(content 깊은 비교 포함)와 전송은 sender 스레드풀에서
+ * - 큐가 가득 찬(느린) 구독자는 끊는다. 클라이언트는 재연결 후 목록/changes로 따라잡는다
+ * - 같은 아이템 이벤트는 버전 순서대로 들어온다 (compute 안에서 publish)
+ */
+@Component
+public class VaultChangeFeed {
+
+    public static final String OP_UPSERT = "upsert";
+    public static final String OP_DELETE = "delete";
+
+    private static final long HEARTBEAT_SECONDS = 25;
+
+    /** 변경 이벤트: 본문 대신 무엇이 바뀌었는지만 */
+    public record Change(
+            String op,
+            String id,
+            long version,
+            List<String> fields,
+            Instant updatedAt
+    ) {}
+
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    // userId -> 구독자들
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "vault-feed-sender");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "vault-feed-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public VaultChangeFeed(
+            @Value("${graphmind.vault.feed.buffer-size:256}") int bufferSize,
+            @Value("${graphmind.vault.feed.timeout-minutes:30}") long timeoutMinutes
+    ) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(Math.max(1, timeoutMinutes));
+        heartbeat.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // =========================
+    // publish (write path)
+    // =========================
+
+    /** prev == null 이면 생성, next == null 이면 삭제 */
+    public void publish(String userId, VaultItem prev, VaultItem next) {
+        Set<Subscriber> subs = subscribers.get(userId);
+        if (subs == null || subs.isEmpty()) return;
+
+        Pending c = next == null
+                ? new Pending(null, null, new Change(OP_DELETE, prev.id(), prev.version(), List.of(), Instant.now()))
+                : new Pending(prev, next, null);
+        published.incrementAndGet();
+        for (Subscriber s : subs) s.offer(c);
+    }
+
+    /** 큐에 넣는 이벤트. 바뀐 필드는 처음 보내는 sender 스레드가 한 번만 계산 (구독자끼리 공유) */
+    private static final class Pending {
+        private final VaultItem prev;
+        private final VaultItem next;
+        private volatile Change change;
+
+        Pending(VaultItem prev, VaultItem next, Change change) {
+            this.prev = prev;
+            this.next = next;
+            this.change = change;
+        }
+
+        Change change() {
+            Change c = change;
+            if (c == null) {
+                c = new Change(OP_UPSERT, next.id(), next.version(), changedFields(prev, next), next.updatedAt());
+                change = c;
+            }
+            return c;
+        }
+    }
+
+    /** prev 대비 바뀐 필드 이름 (생성이면 빈 목록) */
+    public static List<String> changedFields(VaultItem prev, VaultItem next) {
+        if (prev == null) return List.of();
+        List<String> out = new ArrayList<>(4);
+        if (!Objects.equals(prev.title(), next.title())) out.add("title");
+        if (!Objects.equals(prev.type(), next.type())) out.add("type");
+        if (!Objects.equals(prev.formula(), next.formula())) out.add("formula");
+        if (!Objects.equals(prev.expr(), next.expr())) out.add("expr");
+        if (!Objects.equals(prev.samples(), next.samples())) out.add("samples");
+        if (!Objects.equals(prev.axisOrder(), next.axisOrder())) out.add("axisOrder");
+        if (!Objects.equals(prev.sizeX(), next.sizeX())) out.add("sizeX");
+        if (!Objects.equals(prev.sizeY(), next.sizeY())) out.add("sizeY");
+        if (!Objects.equals(prev.sizeZ(), next.sizeZ())) out.add("sizeZ");
+        if (!Objects.equals(prev.tags(), next.tags())) out.add("tags");
+        if (prev.content() != next.content() && !Objects.equals(prev.content(), next.content())) out.add("content");
+        if (!Objects.equals(prev.links(), next.links())) out.add("links");
+        return out;
+    }
+
+    // =========================
+    // subscribe (controller)
+    // =========================
+
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Subscriber s = new Subscriber(userId, emitter);
+
+        subscribers.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(s);
+        emitter.onCompletion(() -> remove(s));
+        emitter.onTimeout(() -> remove(s));
+        emitter.onError(e -> remove(s));
+
+        // 연결 직후 한 번 보내서 프록시 버퍼링/연결 상태를 바로 확인
+        s.sendNow(SseEmitter.event().name("ready").data(Map.of("bufferSize", bufferSize)));
+        return emitter;
+    }
+
+    /** 테스트에서 보낸 이벤트를 가로챌 수 있도록 분리 */
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    public int subscriberCount(String userId) {
+        Set<Subscriber> subs = subscribers.get(userId);
+        return subs == null ? 0 : subs.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("users", subscribers.size());
+        out.put("subscribers", subscribers.values().stream().mapToInt(Set::size).sum());
+        out.put("published", published.get());
+        out.put("droppedSubscribers", dropped.get());
+        return out;
+    }
+
+    private void remove(Subscriber s) {
+        s.closed.set(true);
+        subscribers.computeIfPresent(s.userId, (k, set) -> {
+            set.remove(s);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /** 큐가 빈 구독자에게 ping (프록시 idle timeout 방지). 테스트에서 직접 부름 */
+    void heartbeat() {
+        for (Set<Subscriber> subs : subscribers.values()) {
+            for (Subscriber s : subs) {
+                if (s.queue.isEmpty()) sender.execute(() -> s.sendNow(SseEmitter.event().comment("ping")));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        for (Set<Subscriber> subs : subscribers.values()) {
+            for (Subscriber s : subs) s.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    // =========================
+    // subscriber
+    // =========================
+
+    private final class Subscriber {
+        final String userId;
+        final SseEmitter emitter;
+        final ArrayBlockingQueue<Pending> queue = new ArrayBlockingQueue<>(bufferSize);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(Pending c) {
+            if (closed.get()) return;
+            if (!queue.offer(c)) {
+                // ✅ 느린 구독자: 버퍼를 키우지 않고 끊는다
+                dropped.incrementAndGet();
+                remove(this);
+                sender.execute(() -> emitter.completeWithError(new IOException("vault_feed_overflow")));
+                return;
+            }
+            if (scheduled.compareAndSet(false, true)) sender.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                Pending p;
+                while (!closed.get() && (p = queue.poll()) != null) {
+                    Change c = p.change();
+                    sendNow(SseEmitter.event().name("change").id(c.id() + ":" + c.version()).data(c));
+                }
+            } finally {
+                scheduled.set(false);
+                // drain 종료와 offer 사이에 들어온 이벤트
+                if (!queue.isEmpty() && !closed.get() && scheduled.compareAndSet(false, true)) sender.execute(this::drain);
+            }
+        }
+
+        void sendNow(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) return;
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                remove(this);
+            }
+        }
+    }
+}
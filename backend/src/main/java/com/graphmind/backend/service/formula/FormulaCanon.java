@@ -0,0 +1,503 @@
+package com.graphmind.backend.service.formula;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.*;
+
+/**
+ * 수식 문자열(mathjs 문법) → 정규형 문자열.
+ *
+ * - 파싱: + - * / ^(**) 단항 -, 암묵적 곱(2x, 2(x+1), (a)(b)), 함수 호출(sin(x) 등 알려진 이름만), 등식 "a = b"
+ * - 정규화: 뺄셈/나눗셈을 덧셈/곱셈(-1배, -1승)으로, 결합 평탄화, 상수 접기, 동류항/같은 밑 지수 합치기,
+ *   작은 전개(항 64개 이하), 교환 연산 피연산자 정렬
+ * - 등식: "y = f" / "z = f" 는 f 자체와 같게 본다 (그래프 수식 관례). 그 외엔 (좌 - 우) 와 그 -1배 중 작은 쪽 "= 0"
+ * - 결과는 괄호 전위 표기 ("(+ (* 2 x) 1)"). 같은 수식 = 같은 문자열
+ * - shape: 정규형에서 숫자만 '#'으로 바꾼 것 (상수만 다른 "구조가 같은" 수식)
+ *
+ * 대수적으로 완전하지 않다 (삼각함수 항등식 등은 모름). 못 읽으면 null.
+ */
+public final class FormulaCanon {
+
+    /** 정규형 + 구조 키 */
+    public record Canon(String canonical, String shape) {}
+
+    private static final int MAX_LENGTH = 2000;
+    private static final int MAX_DEPTH = 200;
+    private static final int MAX_EXPANDED_TERMS = 64;
+
+    private static final Set<String> FUNCTIONS = Set.of(
+            "sin", "cos", "tan", "sec", "csc", "cot", "asin", "acos", "atan", "atan2",
+            "sinh", "cosh", "tanh", "exp", "log", "ln", "log10", "log2", "sqrt", "cbrt",
+            "abs", "floor", "ceil", "round", "sign", "min", "max", "pow", "mod");
+
+    private FormulaCanon() {}
+
+    public static Canon of(String formula) {
+        if (formula == null || formula.isBlank() || formula.length() > MAX_LENGTH) return null;
+        try {
+            Node n = normalize(new Parser(formula).parseTop());
+            return new Canon(n.key(), shape(n));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    // =========================
+    // AST
+    // =========================
+
+    private interface Node {
+        /** 정렬/비교용 정규 문자열 */
+        String key();
+    }
+
+    private record Num(double v) implements Node {
+        public String key() {
+            return format(v);
+        }
+    }
+
+    private record Sym(String name) implements Node {
+        public String key() {
+            return name;
+        }
+    }
+
+    private record Add(List<Node> terms) implements Node {
+        public String key() {
+            return join("+", terms);
+        }
+    }
+
+    private record Mul(List<Node> factors) implements Node {
+        public String key() {
+            return join("*", factors);
+        }
+    }
+
+    private record Pow(Node base, Node exp) implements Node {
+        public String key() {
+            return "(^ " + base.key() + " " + exp.key() + ")";
+        }
+    }
+
+    private record Fn(String name, List<Node> args) implements Node {
+        public String key() {
+            return join(name, args);
+        }
+    }
+
+    private record Eq(Node left, Node right) implements Node {
+        public String key() {
+            return "(= " + left.key() + " " + right.key() + ")";
+        }
+    }
+
+    private static String join(String op, List<Node> xs) {
+        StringBuilder sb = new StringBuilder("(").append(op);
+        for (Node x : xs) sb.append(' ').append(x.key());
+        return sb.append(')').toString();
+    }
+
+    // =========================
+    // 파서 (재귀 하강)
+    // =========================
+
+    private static final class Parser {
+        private final String s;
+        private int pos;
+        private int depth;
+
+        Parser(String s) {
+            this.s = s;
+        }
+
+        Node parseTop() {
+            Node left = expr();
+            skipWs();
+            if (peek() == '=') {
+                pos++;
+                if (peek() == '=') pos++;
+                Node right = expr();
+                skipWs();
+                if (pos != s.length()) throw new IllegalArgumentException("trailing input at " + pos);
+                return new Eq(left, right);
+            }
+            if (pos != s.length()) throw new IllegalArgumentException("trailing input at " + pos);
+            return left;
+        }
+
+        private Node expr() {
+            enter();
+            List<Node> terms = new ArrayList<>();
+            terms.add(term());
+            while (true) {
+                skipWs();
+                char c = peek();
+                if (c == '+') {
+                    pos++;
+                    terms.add(term());
+                } else if (c == '-') {
+                    pos++;
+                    terms.add(neg(term()));
+                } else break;
+            }
+            depth--;
+            return terms.size() == 1 ? terms.get(0) : new Add(terms);
+        }
+
+        private Node term() {
+            List<Node> factors = new ArrayList<>();
+            factors.add(unary());
+            while (true) {
+                skipWs();
+                char c = peek();
+                if (c == '*' && !(pos + 1 < s.length() && s.charAt(pos + 1) == '*')) {
+                    pos++;
+                    factors.add(unary());
+                } else if (c == '/') {
+                    pos++;
+                    factors.add(new Pow(unary(), new Num(-1)));
+                } else if (c == '(' || Character.isLetterOrDigit(c) || c == '.') {
+                    factors.add(power()); // 암묵적 곱: 2x, 2(x+1), x y
+                } else break;
+            }
+            return factors.size() == 1 ? factors.get(0) : new Mul(factors);
+        }
+
+        private Node unary() {
+            skipWs();
+            char c = peek();
+            if (c == '-') {
+                pos++;
+                return neg(unary());
+            }
+            if (c == '+') {
+                pos++;
+                return unary();
+            }
+            return power();
+        }
+
+        private Node power() {
+            Node base = primary();
+            skipWs();
+            if (peek() == '^') {
+                pos++;
+                return new Pow(base, unary()); // 오른쪽 결합, 2^-x 허용
+            }
+            if (peek() == '*' && pos + 1 < s.length() && s.charAt(pos + 1) == '*') {
+                pos += 2;
+                return new Pow(base, unary());
+            }
+            return base;
+        }
+
+        private Node primary() {
+            enter();
+            skipWs();
+            char c = peek();
+            Node out;
+            if (c == '(') {
+                pos++;
+                out = expr();
+                expect(')');
+            } else if (c == '|') {
+                pos++;
+                out = new Fn("abs", List.of(expr()));
+                expect('|');
+            } else if (Character.isDigit(c) || c == '.') {
+                out = number();
+            } else if (Character.isLetter(c)) {
+                int start = pos;
+                while (pos < s.length() && (Character.isLetterOrDigit(s.charAt(pos)) || s.charAt(pos) == '_')) pos++;
+                String name = s.substring(start, pos);
+                String fn = name.toLowerCase(Locale.ROOT);
+                skipWs();
+                if (peek() == '(' && FUNCTIONS.contains(fn)) {
+                    pos++;
+                    List<Node> args = new ArrayList<>();
+                    skipWs();
+                    if (peek() != ')') {
+                        args.add(expr());
+                        while (true) {
+                            skipWs();
+                            if (peek() != ',') break;
+                            pos++;
+                            args.add(expr());
+                        }
+                    }
+                    expect(')');
+                    out = new Fn(fn, args);
+                } else {
+                    out = new Sym(name);
+                }
+            } else {
+                throw new IllegalArgumentException("unexpected '" + c + "' at " + pos);
+            }
+            depth--;
+            return out;
+        }
+
+        private Node number() {
+            int start = pos;
+            while (pos < s.length() && (Character.isDigit(s.charAt(pos)) || s.charAt(pos) == '.')) pos++;
+            // 지수 표기 1e-3 (뒤에 숫자가 있을 때만, "2e" 는 2*e)
+            if (pos + 1 < s.length() && (s.charAt(pos) == 'e' || s.charAt(pos) == 'E')) {
+                int p = pos + 1;
+                if (p < s.length() && (s.charAt(p) == '+' || s.charAt(p) == '-')) p++;
+                if (p < s.length() && Character.isDigit(s.charAt(p))) {
+                    pos = p;
+                    while (pos < s.length() && Character.isDigit(s.charAt(pos))) pos++;
+                }
+            }
+            try {
+                return new Num(Double.parseDouble(s.substring(start, pos)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad number at " + start);
+            }
+        }
+
+        private static Node neg(Node n) {
+            return new Mul(List.of(new Num(-1), n));
+        }
+
+        private void enter() {
+            if (++depth > MAX_DEPTH) throw new IllegalArgumentException("formula too deep");
+        }
+
+        private void expect(char c) {
+            skipWs();
+            if (peek() != c) throw new IllegalArgumentException("expected '" + c + "' at " + pos);
+            pos++;
+        }
+
+        private char peek() {
+            return pos < s.length() ? s.charAt(pos) : '\0';
+        }
+
+        private void skipWs() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+    }
+
+    // =========================
+    // 정규화 (아래에서 위로)
+    // =========================
+
+    private static final Comparator<Node> BY_KEY = Comparator.comparing(Node::key);
+
+    private static Node normalize(Node n) {
+        if (n instanceof Num || n instanceof Sym) return n;
+        if (n instanceof Eq e) return equation(normalize(e.left()), normalize(e.right()));
+        if (n instanceof Fn f) return function(f);
+        if (n instanceof Pow p) return pow(normalize(p.base()), normalize(p.exp()));
+        if (n instanceof Mul m) {
+            List<Node> xs = new ArrayList<>(m.factors().size());
+            for (Node x : m.factors()) xs.add(normalize(x));
+            return mul(xs);
+        }
+        Add a = (Add) n;
+        List<Node> xs = new ArrayList<>(a.terms().size());
+        for (Node x : a.terms()) xs.add(normalize(x));
+        return add(xs);
+    }
+
+    private static Node equation(Node l, Node r) {
+        // y = f(x), z = f(x, y): 그래프 수식 관례상 f 와 같다
+        for (String v : List.of("y", "z")) {
+            if (l instanceof Sym s && s.name().equals(v) && !mentions(r, v)) return r;
+            if (r instanceof Sym s && s.name().equals(v) && !mentions(l, v)) return l;
+        }
+        Node d = add(List.of(l, mul(List.of(new Num(-1), r))));
+        Node negD = mul(List.of(new Num(-1), d));
+        Node side = d.key().compareTo(negD.key()) <= 0 ? d : negD;
+        return new Eq(side, new Num(0));
+    }
+
+    private static Node function(Fn f) {
+        List<Node> args = new ArrayList<>(f.args().size());
+        for (Node a : f.args()) args.add(normalize(a));
+        String name = f.name().equals("ln") ? "log" : f.name();
+        if (name.equals("sqrt") && args.size() == 1) return pow(args.get(0), new Num(0.5));
+        if (name.equals("cbrt") && args.size() == 1) return pow(args.get(0), new Num(1.0 / 3));
+        if (name.equals("pow") && args.size() == 2) return pow(args.get(0), args.get(1));
+        if (name.equals("exp") && args.size() == 1) return pow(new Sym("e"), args.get(0));
+        if ((name.equals("min") || name.equals("max")) && args.size() > 1) args.sort(BY_KEY);
+        return new Fn(name, List.copyOf(args));
+    }
+
+    private static Node pow(Node base, Node exp) {
+        if (exp instanceof Num e) {
+            if (e.v() == 0) return new Num(1);
+            if (e.v() == 1) return base;
+            if (base instanceof Num b) {
+                double v = Math.pow(b.v(), e.v());
+                if (Double.isFinite(v)) return new Num(v);
+            }
+            boolean integer = e.v() == Math.rint(e.v());
+            // (b^k)^n = b^(k n) (n 정수일 때만 항상 성립)
+            if (base instanceof Pow p && p.exp() instanceof Num k && integer) {
+                return pow(p.base(), new Num(k.v() * e.v()));
+            }
+            // (a b)^n = a^n b^n
+            if (base instanceof Mul m && integer) {
+                List<Node> xs = new ArrayList<>();
+                for (Node x : m.factors()) xs.add(pow(x, e));
+                return mul(xs);
+            }
+            // (a + b)^n: 작은 양의 정수면 전개
+            if (base instanceof Add a && integer && e.v() > 1 && e.v() <= 8
+                    && Math.pow(a.terms().size(), e.v()) <= MAX_EXPANDED_TERMS) {
+                List<Node> xs = new ArrayList<>();
+                for (int i = 0; i < (int) e.v(); i++) xs.add(base);
+                return mul(xs);
+            }
+        }
+        return new Pow(base, exp);
+    }
+
+    private static Node mul(List<Node> input) {
+        // 평탄화 + 상수 곱
+        double coef = 1;
+        List<Node> xs = new ArrayList<>();
+        Deque<Node> todo = new ArrayDeque<>(input);
+        while (!todo.isEmpty()) {
+            Node x = todo.pollFirst();
+            if (x instanceof Mul m) {
+                for (int i = m.factors().size() - 1; i >= 0; i--) todo.addFirst(m.factors().get(i));
+            } else if (x instanceof Num num) {
+                coef *= num.v();
+            } else {
+                xs.add(x);
+            }
+        }
+        if (coef == 0) return new Num(0);
+
+        // 합이 섞여 있으면 전개 (항 수 상한 안에서)
+        int sums = 1;
+        for (Node x : xs) if (x instanceof Add a) sums *= a.terms().size();
+        if (sums > 1 && sums <= MAX_EXPANDED_TERMS) {
+            List<List<Node>> products = new ArrayList<>();
+            products.add(new ArrayList<>(List.of(new Num(coef))));
+            for (Node x : xs) {
+                List<Node> choices = x instanceof Add a ? a.terms() : List.of(x);
+                List<List<Node>> next = new ArrayList<>(products.size() * choices.size());
+                for (List<Node> p : products) {
+                    for (Node c : choices) {
+                        List<Node> q = new ArrayList<>(p);
+                        q.add(c);
+                        next.add(q);
+                    }
+                }
+                products = next;
+            }
+            List<Node> terms = new ArrayList<>(products.size());
+            for (List<Node> p : products) terms.add(mul(p));
+            return add(terms);
+        }
+
+        // 같은 밑끼리 지수 합치기: x * x^2 = x^3
+        Map<String, Node> bases = new LinkedHashMap<>();
+        Map<String, List<Node>> exps = new LinkedHashMap<>();
+        for (Node x : xs) {
+            Node base = x instanceof Pow p ? p.base() : x;
+            Node exp = x instanceof Pow p ? p.exp() : new Num(1);
+            bases.putIfAbsent(base.key(), base);
+            exps.computeIfAbsent(base.key(), k -> new ArrayList<>()).add(exp);
+        }
+        List<Node> factors = new ArrayList<>();
+        for (Map.Entry<String, Node> b : bases.entrySet()) {
+            List<Node> es = exps.get(b.getKey());
+            Node f = pow(b.getValue(), es.size() == 1 ? es.get(0) : add(es));
+            if (f instanceof Num num) coef *= num.v();
+            else if (f instanceof Mul m) {
+                for (Node y : m.factors()) {
+                    if (y instanceof Num num) coef *= num.v();
+                    else factors.add(y);
+                }
+            } else factors.add(f);
+        }
+        if (coef == 0) return new Num(0);
+        factors.sort(BY_KEY);
+        if (factors.isEmpty()) return new Num(coef);
+        if (coef == 1 && factors.size() == 1) return factors.get(0);
+        if (coef != 1) factors.add(0, new Num(coef));
+        return new Mul(List.copyOf(factors));
+    }
+
+    private static Node add(List<Node> input) {
+        // 평탄화 + 동류항: 계수 × 나머지 → 나머지 기준으로 계수 합
+        double constant = 0;
+        Map<String, Node> rests = new LinkedHashMap<>();
+        Map<String, Double> coefs = new HashMap<>();
+        Deque<Node> todo = new ArrayDeque<>(input);
+        while (!todo.isEmpty()) {
+            Node x = todo.pollFirst();
+            if (x instanceof Add a) {
+                for (int i = a.terms().size() - 1; i >= 0; i--) todo.addFirst(a.terms().get(i));
+                continue;
+            }
+            if (x instanceof Num num) {
+                constant += num.v();
+                continue;
+            }
+            double c = 1;
+            Node rest = x;
+            if (x instanceof Mul m && m.factors().get(0) instanceof Num num) {
+                c = num.v();
+                List<Node> r = m.factors().subList(1, m.factors().size());
+                rest = r.size() == 1 ? r.get(0) : new Mul(List.copyOf(r));
+            }
+            rests.putIfAbsent(rest.key(), rest);
+            coefs.merge(rest.key(), c, Double::sum);
+        }
+        List<Node> terms = new ArrayList<>();
+        for (Map.Entry<String, Node> e : rests.entrySet()) {
+            double c = round(coefs.get(e.getKey()));
+            if (c == 0) continue;
+            terms.add(c == 1 ? e.getValue() : mul(List.of(new Num(c), e.getValue())));
+        }
+        terms.sort(BY_KEY);
+        constant = round(constant);
+        if (constant != 0) terms.add(new Num(constant));
+        if (terms.isEmpty()) return new Num(0);
+        return terms.size() == 1 ? terms.get(0) : new Add(List.copyOf(terms));
+    }
+
+    // ------------------- helpers -------------------
+
+    private static boolean mentions(Node n, String name) {
+        if (n instanceof Sym s) return s.name().equals(name);
+        if (n instanceof Num) return false;
+        if (n instanceof Pow p) return mentions(p.base(), name) || mentions(p.exp(), name);
+        if (n instanceof Eq e) return mentions(e.left(), name) || mentions(e.right(), name);
+        List<Node> xs = n instanceof Add a ? a.terms() : n instanceof Mul m ? m.factors() : ((Fn) n).args();
+        for (Node x : xs) if (mentions(x, name)) return true;
+        return false;
+    }
+
+    /** 부동소수 오차 정리 (0.1 + 0.2 = 0.3) */
+    private static double round(double v) {
+        if (v == 0 || !Double.isFinite(v)) return v;
+        return new BigDecimal(v).round(MathContext.DECIMAL64).round(new MathContext(12)).doubleValue();
+    }
+
+    private static String format(double v) {
+        double r = round(v);
+        if (r == Math.rint(r) && Math.abs(r) < 1e15) return Long.toString((long) r);
+        return BigDecimal.valueOf(r).stripTrailingZeros().toPlainString();
+    }
+
+    private static String shape(Node n) {
+        if (n instanceof Num) return "#";
+        if (n instanceof Sym s) return s.name();
+        if (n instanceof Pow p) return "(^ " + shape(p.base()) + " " + shape(p.exp()) + ")";
+        if (n instanceof Eq e) return "(= " + shape(e.left()) + " " + shape(e.right()) + ")";
+        String op = n instanceof Add ? "+" : n instanceof Mul ? "*" : ((Fn) n).name();
+        List<Node> xs = n instanceof Add a ? a.terms() : n instanceof Mul m ? m.factors() : ((Fn) n).args();
+        StringBuilder sb = new StringBuilder("(").append(op);
+        for (Node x : xs) sb.append(' ').append(shape(x));
+        return sb.append(')').toString();
+    }
+}
@@ -0,0 +1,292 @@
+package com.graphmind.backend.service.graph;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * 유저 그래프(아이템 + 태그) 분석: 연결 요소, 커뮤니티(label propagation), PageRank.
+ *
+ * - 입력 간선은 방향 있는 arc (from << 32 | to). 링크는 한 방향, 태그는 양방향으로 넣는다
+ * - 인접 리스트는 CSR int 배열만: PageRank용 in(받는 쪽 기준) + out 차수, 요소/커뮤니티용 무방향
+ * - 연결 요소: union-find. 번호는 크기 순 (0 = 가장 큰 요소)
+ * - 커뮤니티: 비동기 label propagation (고정 시드 순서로 훑고, 이웃에 가장 많은 라벨. 동률이면 지금 라벨 유지, 아니면 작은 라벨).
+ *   번호는 크기 순, hub = 커뮤니티 안에서 rank가 가장 높은 노드
+ * - PageRank: damping 0.85, 나가는 arc가 없는 노드의 몫은 전체에 고르게. 블록 단위 병렬 pull
+ * - warm start: 이전 결과의 라벨/rank를 id로 이어받아 몇 번 만에 수렴. 노드/간선이 그대로면 이전 결과
+ */
+public final class GraphAnalytics {
+
+    private static final double DAMPING = 0.85;
+    private static final double RANK_TOLERANCE = 1e-6; // 반복 사이 L1 변화 (rank 합 = 1 기준)
+    private static final int MAX_RANK_ITERATIONS = 100;
+    private static final int MAX_LABEL_PASSES = 30;
+    private static final int BLOCK = 4096;
+
+    /**
+     * 분석 결과 (노드 번호 = ids 순서).
+     * component/community = 크기 순 번호, componentSize/communitySize/hub = 번호별 값.
+     * rank 합 = 1. arcs = 정렬/중복 제거된 입력 (다음 계산에서 바뀌었는지 비교용)
+     */
+    public record Result(List<String> ids, long[] arcs,
+                         int[] component, int[] componentSize,
+                         int[] community, int[] communitySize, int[] hub,
+                         double[] rank, int labelPasses, int rankIterations) {}
+
+    /** arc 1개 (방향 있음) */
+    public static long arc(int from, int to) {
+        return ((long) from << 32) | (to & 0xffffffffL);
+    }
+
+    public static Result analyze(List<String> ids, long[] arcs, Result previous) {
+        long[] a = normalize(arcs);
+        if (previous != null && previous.ids().equals(ids) && Arrays.equals(previous.arcs(), a)) return previous;
+        return new GraphAnalytics(ids, a).run(previous);
+    }
+
+    // ------------------- graph -------------------
+
+    private final List<String> ids;
+    private final long[] arcs;
+    private final int n;
+
+    // PageRank: inAdj[inStart[v] .. inStart[v+1]) = v로 들어오는 arc의 출발 노드
+    private final int[] inStart;
+    private final int[] inAdj;
+    private final int[] outDegree;
+    // 무방향 (양쪽 arc가 다 있으면 한 번만)
+    private final int[] start;
+    private final int[] adj;
+
+    private GraphAnalytics(List<String> ids, long[] arcs) {
+        this.ids = ids;
+        this.arcs = arcs;
+        this.n = ids.size();
+
+        outDegree = new int[n];
+        inStart = new int[n + 1];
+        for (long e : arcs) {
+            outDegree[from(e)]++;
+            inStart[to(e) + 1]++;
+        }
+        for (int i = 0; i < n; i++) inStart[i + 1] += inStart[i];
+        inAdj = new int[arcs.length];
+        int[] fill = Arrays.copyOf(inStart, n);
+        for (long e : arcs) inAdj[fill[to(e)]++] = from(e);
+
+        // 무방향: (작은, 큰) 쌍으로 모아 정렬 → 중복 제거
+        long[] pairs = new long[arcs.length];
+        for (int i = 0; i < arcs.length; i++) {
+            int u = from(arcs[i]), v = to(arcs[i]);
+            pairs[i] = u < v ? arc(u, v) : arc(v, u);
+        }
+        pairs = normalize(pairs);
+        start = new int[n + 1];
+        for (long e : pairs) {
+            start[from(e) + 1]++;
+            start[to(e) + 1]++;
+        }
+        for (int i = 0; i < n; i++) start[i + 1] += start[i];
+        adj = new int[pairs.length * 2];
+        fill = Arrays.copyOf(start, n);
+        for (long e : pairs) {
+            adj[fill[from(e)]++] = to(e);
+            adj[fill[to(e)]++] = from(e);
+        }
+    }
+
+    private Result run(Result previous) {
+        Map<String, Integer> prevIndex = null;
+        if (previous != null) {
+            prevIndex = new HashMap<>(previous.ids().size() * 2);
+            for (int i = 0; i < previous.ids().size(); i++) prevIndex.put(previous.ids().get(i), i);
+        }
+
+        int[] component = new int[n];
+        int[] componentSize = components(component);
+
+        double[] rank = new double[n];
+        int rankIterations = pageRank(rank, previous, prevIndex);
+
+        int[] label = new int[n];
+        int passes = propagate(label, previous, prevIndex);
+        int[] community = new int[n];
+        int[] communitySize = renumber(label, community);
+        int[] hub = new int[communitySize.length];
+        Arrays.fill(hub, -1);
+        for (int i = 0; i < n; i++) {
+            int c = community[i];
+            if (hub[c] < 0 || rank[i] > rank[hub[c]]) hub[c] = i;
+        }
+        return new Result(ids, arcs, component, componentSize, community, communitySize, hub, rank, passes, rankIterations);
+    }
+
+    /** union-find → 크기 순 번호. 번호별 크기를 돌려준다 */
+    private int[] components(int[] out) {
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (int u = 0; u < n; u++) {
+            for (int p = start[u]; p < start[u + 1]; p++) {
+                int v = adj[p];
+                if (v < u) continue;
+                int ru = find(parent, u), rv = find(parent, v);
+                if (ru != rv) parent[Math.max(ru, rv)] = Math.min(ru, rv);
+            }
+        }
+        for (int i = 0; i < n; i++) out[i] = find(parent, i);
+        return renumber(out, out);
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /** pull 방식 거듭제곱. 이전 rank가 있으면 거기서 시작 */
+    private int pageRank(double[] rank, Result previous, Map<String, Integer> prevIndex) {
+        if (n == 0) return 0;
+        double init = 1.0 / n;
+        Arrays.fill(rank, init);
+        if (previous != null) {
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                Integer p = prevIndex.get(ids.get(i));
+                if (p != null) rank[i] = previous.rank()[p];
+                sum += rank[i];
+            }
+            for (int i = 0; i < n; i++) rank[i] /= sum;
+        }
+
+        double[] share = new double[n];
+        double[] next = new double[n];
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        for (int it = 1; it <= MAX_RANK_ITERATIONS; it++) {
+            double dangling = 0;
+            for (int i = 0; i < n; i++) {
+                if (outDegree[i] == 0) {
+                    dangling += rank[i];
+                    share[i] = 0;
+                } else {
+                    share[i] = rank[i] / outDegree[i];
+                }
+            }
+            double base = (1 - DAMPING) / n + DAMPING * dangling / n;
+            if (blocks > 1) IntStream.range(0, blocks).parallel().forEach(b -> pull(share, next, base, b * BLOCK, Math.min(n, (b + 1) * BLOCK)));
+            else pull(share, next, base, 0, n);
+
+            double delta = 0;
+            for (int i = 0; i < n; i++) {
+                delta += Math.abs(next[i] - rank[i]);
+                rank[i] = next[i];
+            }
+            if (delta < RANK_TOLERANCE) return it;
+        }
+        return MAX_RANK_ITERATIONS;
+    }
+
+    private void pull(double[] share, double[] next, double base, int from, int to) {
+        for (int v = from; v < to; v++) {
+            double s = 0;
+            for (int p = inStart[v]; p < inStart[v + 1]; p++) s += share[inAdj[p]];
+            next[v] = base + DAMPING * s;
+        }
+    }
+
+    /**
+     * 비동기 label propagation. 이전 결과가 있으면 이전 커뮤니티 c를 라벨 n + c로 이어받고 (새 노드의 자기 번호와 겹치지 않게),
+     * 새 노드는 자기 번호에서 시작. 바뀐 노드가 없으면 끝
+     */
+    private int propagate(int[] label, Result previous, Map<String, Integer> prevIndex) {
+        for (int i = 0; i < n; i++) {
+            Integer p = previous == null ? null : prevIndex.get(ids.get(i));
+            label[i] = p == null ? i : n + previous.community()[p];
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Random rnd = new Random(42);
+        int[] counts = new int[0];
+        int[] seen = new int[0];
+        for (int pass = 1; pass <= MAX_LABEL_PASSES; pass++) {
+            for (int i = n - 1; i > 0; i--) {
+                int j = rnd.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            int changed = 0;
+            for (int u : order) {
+                int deg = start[u + 1] - start[u];
+                if (deg == 0) continue;
+                if (seen.length < deg) {
+                    seen = new int[deg * 2];
+                    counts = new int[deg * 2];
+                }
+                // 이웃 라벨을 정렬해서 같은 값끼리 센다 (차수만큼의 작은 배열)
+                for (int p = 0; p < deg; p++) seen[p] = label[adj[start[u] + p]];
+                Arrays.sort(seen, 0, deg);
+                int best = label[u], bestCount = 0, own = 0;
+                for (int p = 0; p < deg; ) {
+                    int q = p;
+                    while (q < deg && seen[q] == seen[p]) q++;
+                    int c = q - p;
+                    if (seen[p] == label[u]) own = c;
+                    if (c > bestCount) {
+                        bestCount = c;
+                        best = seen[p];
+                    }
+                    p = q;
+                }
+                if (own == bestCount) continue; // 동률이면 지금 라벨 유지
+                label[u] = best;
+                changed++;
+            }
+            if (changed == 0) return pass;
+        }
+        return MAX_LABEL_PASSES;
+    }
+
+    /** 라벨 → 크기 순 번호 (동률이면 라벨이 먼저 나온 노드 순). 번호별 크기를 돌려준다 */
+    private int[] renumber(int[] label, int[] out) {
+        Map<Integer, int[]> groups = new LinkedHashMap<>(); // 라벨 → {크기, 처음 나온 노드}
+        for (int i = 0; i < n; i++) {
+            int[] g = groups.computeIfAbsent(label[i], k -> new int[]{0, 0});
+            if (g[0]++ == 0) g[1] = groups.size() - 1;
+        }
+        List<Map.Entry<Integer, int[]>> sorted = new ArrayList<>(groups.entrySet());
+        sorted.sort((x, y) -> x.getValue()[0] != y.getValue()[0]
+                ? Integer.compare(y.getValue()[0], x.getValue()[0])
+                : Integer.compare(x.getValue()[1], y.getValue()[1]));
+        Map<Integer, Integer> number = new HashMap<>(sorted.size() * 2);
+        int[] sizes = new int[sorted.size()];
+        for (int k = 0; k < sorted.size(); k++) {
+            number.put(sorted.get(k).getKey(), k);
+            sizes[k] = sorted.get(k).getValue()[0];
+        }
+        for (int i = 0; i < n; i++) out[i] = number.get(label[i]);
+        return sizes;
+    }
+
+    private static int from(long arc) {
+        return (int) (arc >>> 32);
+    }
+
+    private static int to(long arc) {
+        return (int) arc;
+    }
+
+    /** 정렬 + 중복/자기 자신 제거 */
+    private static long[] normalize(long[] arcs) {
+        long[] a = arcs.clone();
+        Arrays.sort(a);
+        int m = 0;
+        for (long e : a) {
+            if (from(e) == to(e)) continue;
+            if (m > 0 && a[m - 1] == e) continue;
+            a[m++] = e;
+        }
+        return Arrays.copyOf(a, m);
+    }
+}
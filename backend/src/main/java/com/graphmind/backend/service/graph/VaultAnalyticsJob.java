@@ -0,0 +1,74 @@
+package com.graphmind.backend.service.graph;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * 그래프 분석(GraphAnalytics) 백그라운드 갱신 주기.
+ *
+ * - 쓰기 경로에서는 아무것도 하지 않는다. interval-ms마다 서비스가 준 refresh를 돌리고,
+ *   refresh는 마지막 분석 이후 스냅샷이 바뀐 유저만 다시 계산한다 (연속 쓰기는 한 번으로 합쳐짐)
+ * - 계산은 스레드 1개. 결과는 summary 목록의 graph 필드로만 나간다
+ */
+@Component
+public class VaultAnalyticsJob {
+
+    private final boolean enabled;
+    private final long intervalMillis;
+    private final Timer refreshTimer;
+    private final Counter users;
+
+    private ScheduledExecutorService scheduler;
+
+    public VaultAnalyticsJob(
+            @Value("${graphmind.vault.analytics.enabled:true}") boolean enabled,
+            @Value("${graphmind.vault.analytics.interval-ms:2000}") long intervalMillis,
+            MeterRegistry registry
+    ) {
+        this.enabled = enabled;
+        this.intervalMillis = Math.max(100, intervalMillis);
+        this.refreshTimer = Timer.builder("graphmind.vault.analytics.refresh")
+                .description("바뀐 유저들의 그래프 분석을 다시 계산하는 데 걸린 시간 (한 주기)")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.users = Counter.builder("graphmind.vault.analytics.users")
+                .description("그래프 분석을 다시 계산한 유저 수 (누적)")
+                .register(registry);
+    }
+
+    /** 주기적으로 refresh 실행 (돌려준 값 = 다시 계산한 유저 수) */
+    public void start(IntSupplier refresh) {
+        if (!enabled) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vault-analytics");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                long t0 = System.nanoTime();
+                int n = refresh.getAsInt();
+                if (n > 0) {
+                    refreshTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+                    users.increment(n);
+                }
+            } catch (RuntimeException e) {
+                System.out.printf("[vault-analytics] refresh failed: %s%n", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,306 @@
+package com.graphmind.backend.service.index;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 불변 해시 맵 (HAMT: hash array mapped trie).
+ *
+ * - put/remove는 루트에서 그 키까지의 경로(노드 최대 7개)만 복사하고 나머지 노드는 공유한다.
+ *   이전 맵은 그대로 남으므로, 참조 하나만 잡으면 락 없이 한 시점의 스냅샷을 읽을 수 있다
+ * - 노드 = 32비트 bitmap + 압축 배열. 칸마다 (키, 값) 또는 (null, 하위 노드). 해시를 5비트씩 소비
+ * - 해시가 완전히 같은 키들은 충돌 노드에 나란히 둔다
+ *
+ * 키/값은 null이 아니어야 한다. 쓰기끼리의 직렬화는 호출 측 책임.
+ */
+public final class HamtMap<K, V> {
+
+    private static final HamtMap<?, ?> EMPTY = new HamtMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private HamtMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> HamtMap<K, V> empty() {
+        return (HamtMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        return root == null ? null : (V) root.get(hash(key), key, 0);
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /** key → value로 바꾼 새 맵. 값이 이미 같은 객체면 this */
+    public HamtMap<K, V> put(K key, V value) {
+        int h = hash(key);
+        boolean[] added = {false};
+        Node next = root == null
+                ? new BitmapNode(bit(h, 0), new Object[]{key, value})
+                : root.put(h, key, value, 0, added);
+        if (root == null) added[0] = true;
+        return next == root ? this : new HamtMap<>(next, added[0] ? size + 1 : size);
+    }
+
+    /** key를 뺀 새 맵. 없으면 this */
+    public HamtMap<K, V> remove(K key) {
+        if (root == null) return this;
+        Node next = root.remove(hash(key), key, 0);
+        if (next == root) return this;
+        return next == null ? empty() : new HamtMap<>(next, size - 1);
+    }
+
+    /** 값 순회 (순서는 해시 순, 이 스냅샷 그대로) */
+    public Iterable<V> values() {
+        return () -> new ValueIterator<>(root);
+    }
+
+    // ------------------- nodes -------------------
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    private abstract static class Node {
+        /** (키, 값) 또는 (null, 하위 노드) 쌍이 이어진 배열 */
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object get(int hash, Object key, int shift);
+
+        abstract Node put(int hash, Object key, Object value, int shift, boolean[] added);
+
+        /** 비면 null */
+        abstract Node remove(int hash, Object key, int shift);
+    }
+
+    private static final class BitmapNode extends Node {
+        final int bitmap;
+
+        BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(int hash, Object key, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return null;
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) return ((Node) array[i + 1]).get(hash, key, shift + 5);
+            return key.equals(k) ? array[i + 1] : null;
+        }
+
+        @Override
+        Node put(int hash, Object key, Object value, int shift, boolean[] added) {
+            int bit = bit(hash, shift);
+            int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] a = new Object[array.length + 2];
+                System.arraycopy(array, 0, a, 0, i);
+                a[i] = key;
+                a[i + 1] = value;
+                System.arraycopy(array, i, a, i + 2, array.length - i);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, a);
+            }
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).put(hash, key, value, shift + 5, added);
+                return child == v ? this : with(i + 1, child);
+            }
+            if (key.equals(k)) return v == value ? this : with(i + 1, value);
+            // 같은 칸에 다른 키 → 하위 노드로 내린다
+            added[0] = true;
+            Node child = pair(shift + 5, k, v, HamtMap.hash(k), key, value, hash);
+            Object[] a = array.clone();
+            a[i] = null;
+            a[i + 1] = child;
+            return new BitmapNode(bitmap, a);
+        }
+
+        @Override
+        Node remove(int hash, Object key, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) return this;
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                Node sub = (Node) array[i + 1];
+                Node child = sub.remove(hash, key, shift + 5);
+                if (child == sub) return this;
+                if (child != null) {
+                    // 하위 노드에 쌍 하나만 남으면 이 칸으로 끌어올린다 (트리 깊이 유지)
+                    if (child.array.length == 2 && child.array[0] != null) {
+                        Object[] a = array.clone();
+                        a[i] = child.array[0];
+                        a[i + 1] = child.array[1];
+                        return new BitmapNode(bitmap, a);
+                    }
+                    return with(i + 1, child);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) return null;
+            Object[] a = new Object[array.length - 2];
+            System.arraycopy(array, 0, a, 0, i);
+            System.arraycopy(array, i + 2, a, i, array.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, a);
+        }
+
+        private BitmapNode with(int i, Object o) {
+            Object[] a = array.clone();
+            a[i] = o;
+            return new BitmapNode(bitmap, a);
+        }
+    }
+
+    /** 해시 32비트가 전부 같은 키들 */
+    private static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(int hash, Object key, int shift) {
+            int i = find(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        Node put(int hash, Object key, Object value, int shift, boolean[] added) {
+            if (hash != this.hash) {
+                // 해시가 다른 키 → 이 노드를 bitmap 노드 아래로 감싸고 다시 넣는다
+                Node wrapped = new BitmapNode(bit(this.hash, shift), new Object[]{null, this});
+                return wrapped.put(hash, key, value, shift, added);
+            }
+            int i = find(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) return this;
+                Object[] a = array.clone();
+                a[i + 1] = value;
+                return new CollisionNode(hash, a);
+            }
+            added[0] = true;
+            Object[] a = Arrays.copyOf(array, array.length + 2);
+            a[array.length] = key;
+            a[array.length + 1] = value;
+            return new CollisionNode(hash, a);
+        }
+
+        @Override
+        Node remove(int hash, Object key, int shift) {
+            int i = find(key);
+            if (i < 0) return this;
+            if (array.length == 2) return null;
+            Object[] a = new Object[array.length - 2];
+            System.arraycopy(array, 0, a, 0, i);
+            System.arraycopy(array, i + 2, a, i, array.length - i - 2);
+            return new CollisionNode(hash, a);
+        }
+    }
+
+    private static Node pair(int shift, Object k1, Object v1, int h1, Object k2, Object v2, int h2) {
+        if (h1 == h2) return new CollisionNode(h1, new Object[]{k1, v1, k2, v2});
+        int b1 = bit(h1, shift);
+        int b2 = bit(h2, shift);
+        if (b1 == b2) {
+            return new BitmapNode(b1, new Object[]{null, pair(shift + 5, k1, v1, h1, k2, v2, h2)});
+        }
+        return Integer.compareUnsigned(b1, b2) < 0
+                ? new BitmapNode(b1 | b2, new Object[]{k1, v1, k2, v2})
+                : new BitmapNode(b1 | b2, new Object[]{k2, v2, k1, v1});
+    }
+
+    /** 깊이 우선으로 배열을 걷는다 (노드 깊이만큼의 스택) */
+    private static final class ValueIterator<V> implements Iterator<V> {
+        private final ArrayDeque<Object[]> arrays = new ArrayDeque<>();
+        private final ArrayDeque<Integer> positions = new ArrayDeque<>();
+        private Object next;
+
+        ValueIterator(Node root) {
+            if (root != null) {
+                arrays.push(root.array);
+                positions.push(0);
+            }
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (!arrays.isEmpty()) {
+                Object[] a = arrays.peek();
+                int i = positions.pop();
+                if (i >= a.length) {
+                    arrays.pop();
+                    continue;
+                }
+                positions.push(i + 2);
+                if (a[i] != null) {
+                    next = a[i + 1];
+                    return;
+                }
+                Node child = (Node) a[i + 1];
+                arrays.push(child.array);
+                positions.push(0);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next == null) throw new NoSuchElementException();
+            Object out = next;
+            advance();
+            return (V) out;
+        }
+    }
+}
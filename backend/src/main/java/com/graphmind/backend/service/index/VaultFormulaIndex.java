@@ -0,0 +1,80 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.service.formula.FormulaCanon;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 유저 1명분 수식 정규형 인덱스.
+ * - formula를 쓰기 시점에 한 번만 정규화 (FormulaCanon). 문자열이 그대로면 다시 하지 않는다
+ * - 정규형 -> itemIds (동치), shape(상수만 다름) -> itemIds (구조 유사). 조회는 해시 한 번
+ * - 못 읽는 수식은 색인하지 않는다
+ *
+ * put/remove는 같은 아이템에 대해 직렬화되어 호출된다고 가정 (ConcurrentHashMap.compute 안).
+ */
+public class VaultFormulaIndex {
+
+    private final ConcurrentHashMap<String, FormulaCanon.Canon> byItem = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> byCanonical = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> byShape = new ConcurrentHashMap<>();
+
+    public void put(VaultItem prev, VaultItem next) {
+        if (prev != null && Objects.equals(prev.formula(), next.formula())) return;
+        FormulaCanon.Canon before = byItem.get(next.id());
+        FormulaCanon.Canon after = FormulaCanon.of(next.formula());
+        if (Objects.equals(before, after)) return;
+
+        if (before != null) unlink(next.id(), before);
+        if (after == null) {
+            byItem.remove(next.id());
+            return;
+        }
+        byItem.put(next.id(), after);
+        add(byCanonical, after.canonical(), next.id());
+        add(byShape, after.shape(), next.id());
+    }
+
+    public void remove(String id) {
+        FormulaCanon.Canon before = byItem.remove(id);
+        if (before != null) unlink(id, before);
+    }
+
+    /** 아이템의 정규형 (formula가 없거나 못 읽으면 null) */
+    public FormulaCanon.Canon canon(String id) {
+        return byItem.get(id);
+    }
+
+    /** 정규형이 같은 itemIds (live view, 복사 X) */
+    public Set<String> equivalent(String canonical) {
+        return byCanonical.getOrDefault(canonical, Set.of());
+    }
+
+    /** shape가 같은 itemIds (live view, 복사 X) */
+    public Set<String> similar(String shape) {
+        return byShape.getOrDefault(shape, Set.of());
+    }
+
+    // ------------------- helpers -------------------
+
+    private void unlink(String id, FormulaCanon.Canon c) {
+        drop(byCanonical, c.canonical(), id);
+        drop(byShape, c.shape(), id);
+    }
+
+    private static void add(ConcurrentHashMap<String, Set<String>> index, String key, String id) {
+        index.compute(key, (k, set) -> {
+            if (set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(id);
+            return set;
+        });
+    }
+
+    private static void drop(ConcurrentHashMap<String, Set<String>> index, String key, String id) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(id);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
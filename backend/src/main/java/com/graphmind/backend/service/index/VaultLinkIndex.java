@@ -0,0 +1,261 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.domain.VaultItem;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 유저 1명분 링크 그래프: VAULT_ITEM 링크의 정방향(out) + 역방향(in) 인접 리스트.
+ * - 아이템 id를 int 번호로 바꿔(intern) 인접 리스트를 int 배열로 보관. 이웃 탐색(BFS)은 int만 다룬다
+ * - 링크 대상이 아직 없거나 지워진 아이템이어도 노드는 남는다 (역링크가 보이도록).
+ *   아이템도 아니고 간선도 없어지면 번호를 재사용
+ * - 쓰기는 다른 아이템의 역방향 리스트도 고치므로 쓰기 락, 조회는 읽기 락
+ *
+ * put/remove는 같은 아이템에 대해 직렬화되어 호출된다고 가정 (items.compute 안).
+ */
+public class VaultLinkIndex {
+
+    public static final String VAULT_ITEM = "VAULT_ITEM";
+
+    /**
+     * root에서 depth 이내 (링크 방향 무관). nodes는 BFS 순서 (root가 0번), depths[i] = nodes[i]까지 거리.
+     * 간선은 nodes 인덱스 쌍 from[i] → to[i] (고른 노드끼리의 링크 전부).
+     * outDegree/inDegree = 그래프 전체에서의 링크 / 역링크 수 (depth 밖으로 더 이어지는지 보여주기용)
+     */
+    public record Neighborhood(List<String> nodes, int[] depths, int[] outDegree, int[] inDegree,
+                               int[] from, int[] to, boolean truncated) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    private boolean[] live = new boolean[16];
+    private int[][] out = new int[16][];
+    private int[] outN = new int[16];
+    private int[][] in = new int[16][];
+    private int[] inN = new int[16];
+    private int nodes; // 번호 상한 (재사용 대기 포함)
+    private int[] free = new int[16];
+    private int freeN;
+    private long edges;
+
+    /** 아이템의 링크 목록을 그대로 반영 (이전 값과 비교하지 않고 인덱스의 out 리스트 기준으로 맞춘다) */
+    public void put(VaultItem next) {
+        Set<String> targets = targets(next);
+        lock.writeLock().lock();
+        try {
+            int u = intern(next.id());
+            live[u] = true;
+            // 없어진 링크
+            for (int i = outN[u] - 1; i >= 0; i--) {
+                int v = out[u][i];
+                if (!targets.remove(names[v])) {
+                    unlink(u, v);
+                    release(v);
+                }
+            }
+            // 남은 targets = 새 링크
+            for (String t : targets) link(u, intern(t));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** 아이템 삭제: 나가는 링크만 지운다 (들어오는 링크는 남아 있는 아이템의 것) */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer n = ids.get(id);
+            if (n == null) return;
+            int u = n;
+            while (outN[u] > 0) {
+                int v = out[u][outN[u] - 1];
+                unlink(u, v);
+                release(v);
+            }
+            live[u] = false;
+            release(u);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** root에서 depth 이내의 노드를 maxNodes개까지. root가 색인에 없으면 root 하나만 */
+    public Neighborhood neighborhood(String root, int depth, int maxNodes) {
+        lock.readLock().lock();
+        try {
+            Integer r = ids.get(root);
+            if (r == null) return new Neighborhood(List.of(root), new int[1], new int[1], new int[1], new int[0], new int[0], false);
+
+            int cap = Math.max(1, Math.min(maxNodes, nodes));
+            int[] order = new int[cap];
+            int[] dist = new int[cap];
+            BitSet seen = new BitSet(nodes);
+            order[0] = r;
+            seen.set(r);
+            int size = 1;
+            boolean truncated = false;
+
+            // order 배열이 곧 BFS 큐
+            for (int head = 0; head < size; head++) {
+                int u = order[head];
+                if (dist[head] >= depth) break; // BFS 순서라 이후도 모두 depth
+                for (int pass = 0; pass < 2; pass++) {
+                    int[] adj = pass == 0 ? out[u] : in[u];
+                    int n = pass == 0 ? outN[u] : inN[u];
+                    for (int i = 0; i < n; i++) {
+                        int v = adj[i];
+                        if (seen.get(v)) continue;
+                        if (size == cap) {
+                            truncated = true;
+                            continue;
+                        }
+                        seen.set(v);
+                        order[size] = v;
+                        dist[size] = dist[head] + 1;
+                        size++;
+                    }
+                }
+            }
+
+            // 번호 → nodes 인덱스 (정렬 + 이진 탐색)
+            long[] local = new long[size];
+            for (int i = 0; i < size; i++) local[i] = ((long) order[i] << 32) | i;
+            Arrays.sort(local);
+
+            int[] from = new int[16];
+            int[] to = new int[16];
+            int m = 0;
+            for (int i = 0; i < size; i++) {
+                int u = order[i];
+                for (int k = 0; k < outN[u]; k++) {
+                    int v = out[u][k];
+                    if (!seen.get(v)) continue;
+                    if (m == from.length) {
+                        from = Arrays.copyOf(from, m * 2);
+                        to = Arrays.copyOf(to, m * 2);
+                    }
+                    from[m] = i;
+                    to[m] = localIndex(local, v);
+                    m++;
+                }
+            }
+
+            List<String> names = new ArrayList<>(size);
+            int[] outDegree = new int[size];
+            int[] inDegree = new int[size];
+            for (int i = 0; i < size; i++) {
+                names.add(this.names[order[i]]);
+                outDegree[i] = outN[order[i]];
+                inDegree[i] = inN[order[i]];
+            }
+            return new Neighborhood(names, Arrays.copyOf(dist, size), outDegree, inDegree,
+                    Arrays.copyOf(from, m), Arrays.copyOf(to, m), truncated);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long edgeCount() {
+        lock.readLock().lock();
+        try {
+            return edges;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------- helpers -------------------
+
+    /** VAULT_ITEM 링크 대상 (중복/자기 자신 제외, 순서 유지) */
+    private static Set<String> targets(VaultItem it) {
+        Set<String> out = new LinkedHashSet<>();
+        if (it.links() == null) return out;
+        for (LinkRef l : it.links()) {
+            if (l != null && VAULT_ITEM.equals(l.refType()) && l.refId() != null && !l.refId().equals(it.id())) {
+                out.add(l.refId());
+            }
+        }
+        return out;
+    }
+
+    private static int localIndex(long[] local, int node) {
+        int lo = 0, hi = local.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int n = (int) (local[mid] >>> 32);
+            if (n < node) lo = mid + 1;
+            else if (n > node) hi = mid - 1;
+            else return (int) local[mid];
+        }
+        throw new IllegalStateException("not in neighborhood: " + node);
+    }
+
+    private int intern(String id) {
+        Integer n = ids.get(id);
+        if (n != null) return n;
+        int u;
+        if (freeN > 0) {
+            u = free[--freeN];
+        } else {
+            if (nodes == names.length) grow();
+            u = nodes++;
+        }
+        names[u] = id;
+        ids.put(id, u);
+        return u;
+    }
+
+    /** 아이템도 아니고 간선도 없으면 번호 반납 */
+    private void release(int u) {
+        if (live[u] || outN[u] > 0 || inN[u] > 0) return;
+        ids.remove(names[u]);
+        names[u] = null;
+        out[u] = null;
+        in[u] = null;
+        if (freeN == free.length) free = Arrays.copyOf(free, freeN * 2);
+        free[freeN++] = u;
+    }
+
+    private void link(int u, int v) {
+        out[u] = append(out[u], outN[u]++, v);
+        in[v] = append(in[v], inN[v]++, u);
+        edges++;
+    }
+
+    private void unlink(int u, int v) {
+        outN[u] = drop(out[u], outN[u], v);
+        inN[v] = drop(in[v], inN[v], u);
+        edges--;
+    }
+
+    private static int[] append(int[] a, int n, int v) {
+        if (a == null) a = new int[4];
+        else if (n == a.length) a = Arrays.copyOf(a, n * 2);
+        a[n] = v;
+        return a;
+    }
+
+    /** 순서는 상관없으므로 마지막 원소로 덮는다 */
+    private static int drop(int[] a, int n, int v) {
+        for (int i = 0; i < n; i++) {
+            if (a[i] == v) {
+                a[i] = a[n - 1];
+                return n - 1;
+            }
+        }
+        return n;
+    }
+
+    private void grow() {
+        int cap = names.length * 2;
+        names = Arrays.copyOf(names, cap);
+        live = Arrays.copyOf(live, cap);
+        out = Arrays.copyOf(out, cap);
+        outN = Arrays.copyOf(outN, cap);
+        in = Arrays.copyOf(in, cap);
+        inN = Arrays.copyOf(inN, cap);
+    }
+}
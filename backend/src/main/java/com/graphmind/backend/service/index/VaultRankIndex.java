@@ -0,0 +1,407 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.VaultItem;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 유저 1명분 relevance 정렬용 토큰 역색인 (필드 가중 BM25, BM25F 방식).
+ *
+ * - 필드: title / tags / formula / expr. 소문자 + 글자·숫자 연속 구간 단위 토큰
+ * - 아이템마다 정수 번호(ord)를 주고, term -> (ord[], 필드별 tf[]) 배열 posting. 쓰기마다 바뀐 term만 고친다
+ * - 점수: term마다 idf × tf' × (k1 + 1) / (k1 + tf'), tf' = Σ 필드가중치 × tf / (1 - b + b × 길이 / 평균길이)
+ *   길이는 필드당 1byte(최대 255)로 ord마다 int 하나에 담고, 검색마다 길이 → 정규화 계수 표(256칸)를 만든다
+ * - 상위 k개만 크기 k인 min-heap으로 고른다 (전체 정렬 X). 누적 점수는 ord로 찾는 배열 (해시맵 X)
+ * - 여러 term이면 MaxScore: 남은 term들의 점수 상한 합이 현재 k등 점수보다 작아지면
+ *   그 term들은 posting을 걷지 않고 이미 나온 후보에만 더한다
+ *
+ * 쓰기는 짧은 쓰기 락, 검색은 읽기 락 (다른 인덱스와 달리 배열을 공유하므로).
+ */
+public class VaultRankIndex {
+
+    /** 상위 k개 결과 1건 */
+    public record Hit(String id, double score) {}
+
+    static final int TITLE = 0, TAGS = 1, FORMULA = 2, EXPR = 3, FIELDS = 4;
+    private static final double[] WEIGHT = {3.0, 2.0, 1.5, 1.0};
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** 아이템 1개의 색인 상태: ord + 필드별 길이 + term -> 필드별 tf (8bit씩 4칸) */
+    private record Doc(int ord, int[] lens, Map<String, Integer> tf) {}
+
+    /** term 1개의 posting (순서 없음, 삭제는 마지막 칸과 바꿔치기) */
+    private static final class Postings {
+        int[] ords = new int[4];
+        int[] tfs = new int[4];
+        int size;
+
+        void add(int ord, int tf) {
+            if (size == ords.length) {
+                ords = Arrays.copyOf(ords, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            ords[size] = ord;
+            tfs[size++] = tf;
+        }
+
+        void set(int ord, int tf) {
+            tfs[indexOf(ord)] = tf;
+        }
+
+        void remove(int ord) {
+            int i = indexOf(ord);
+            size--;
+            ords[i] = ords[size];
+            tfs[i] = tfs[size];
+        }
+
+        private int indexOf(int ord) {
+            for (int i = 0; i < size; i++) if (ords[i] == ord) return i;
+            throw new IllegalStateException("rank posting missing ord " + ord);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Doc> docs = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    // ord -> itemId / 필드별 길이. 지운 ord는 free에 모아 재사용
+    private String[] ids = new String[16];
+    private int[] norms = new int[16]; // 필드별 min(길이, 255)를 8bit씩
+    private final long[] totalLens = new long[FIELDS];
+    private int[] free = new int[16];
+    private int freeSize;
+    private int nextOrd;
+
+    // 검색용 누적 점수 / 나온 ord 목록 (스레드마다 재사용, ord 수만큼)
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        double[] acc = new double[0];
+        int[] seen = new int[0];
+    }
+
+    public void put(VaultItem next) {
+        Map<String, Integer> tf = new HashMap<>();
+        int[] l = new int[FIELDS];
+        tokenize(next, tf, l);
+
+        lock.writeLock().lock();
+        try {
+            Doc before = docs.get(next.id());
+            if (before != null && Arrays.equals(before.lens(), l) && before.tf().equals(tf)) return;
+
+            int ord = before != null ? before.ord() : alloc(next.id());
+            int norm = 0;
+            for (int f = 0; f < FIELDS; f++) {
+                totalLens[f] += l[f] - (before == null ? 0 : before.lens()[f]);
+                norm |= Math.min(l[f], 255) << (f * 8);
+            }
+            norms[ord] = norm;
+            tf.forEach((term, n) -> {
+                Integer old = before == null ? null : before.tf().get(term);
+                if (old == null) postings.computeIfAbsent(term, k -> new Postings()).add(ord, n);
+                else if (old.intValue() != n) postings.get(term).set(ord, n);
+            });
+            if (before != null) {
+                for (String term : before.tf().keySet()) {
+                    if (!tf.containsKey(term)) drop(term, ord);
+                }
+            }
+            docs.put(next.id(), new Doc(ord, l, tf));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Doc before = docs.remove(id);
+            if (before == null) return;
+            int ord = before.ord();
+            for (String term : before.tf().keySet()) drop(term, ord);
+            for (int f = 0; f < FIELDS; f++) totalLens[f] -= before.lens()[f];
+            norms[ord] = 0;
+            ids[ord] = null;
+            if (freeSize == free.length) free = Arrays.copyOf(free, freeSize * 2);
+            free[freeSize++] = ord;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * q의 토큰 중 하나라도 가진 아이템을 점수 높은 순으로 최대 k개.
+     * filter != null 이면 그 안의 아이템만 (tag 필터 등). q에 토큰이 없으면 null
+     */
+    public List<Hit> top(String q, int k, Set<String> filter) {
+        Set<String> terms = new LinkedHashSet<>(tokens(q));
+        if (terms.isEmpty()) return null;
+        if (k <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            int n = Math.max(1, docs.size());
+            // table[f * 256 + len] = 필드가중치 / (1 - b + b × len / 평균길이)
+            double[] table = new double[FIELDS * 256];
+            for (int f = 0; f < FIELDS; f++) {
+                double avg = Math.max(1.0, (double) totalLens[f] / n);
+                for (int len = 0; len < 256; len++) table[f * 256 + len] = WEIGHT[f] / (1 - B + B * len / avg);
+            }
+
+            // term별 posting + idf, 점수 상한(idf × (k1 + 1))이 큰 순으로
+            List<Postings> list = new ArrayList<>(terms.size());
+            for (String t : terms) {
+                Postings p = postings.get(t);
+                if (p != null) list.add(p);
+            }
+            if (list.isEmpty()) return List.of();
+            list.sort(Comparator.comparingInt(p -> p.size));
+            double[] idf = new double[list.size()];
+            for (int i = 0; i < idf.length; i++) idf[i] = Math.log(1 + (n - list.get(i).size + 0.5) / (list.get(i).size + 0.5));
+
+            TopK heap = new TopK(k, ids);
+            if (list.size() == 1) {
+                Postings p = list.get(0);
+                for (int i = 0; i < p.size; i++) {
+                    int ord = p.ords[i];
+                    if (filter != null && !filter.contains(ids[ord])) continue;
+                    heap.offer(ord, idf[0] * saturate(p.tfs[i], norms[ord], table));
+                }
+                return heap.drain();
+            }
+
+            // rest[i] = i번째 이후 term들의 점수 상한 합
+            double[] rest = new double[list.size() + 1];
+            for (int i = list.size() - 1; i >= 0; i--) rest[i] = rest[i + 1] + idf[i] * (K1 + 1);
+
+            Scratch sc = scratch(nextOrd);
+            double[] acc = sc.acc;
+            int[] seen = sc.seen;
+            int seenSize = 0;
+            try {
+                int t = 0;
+                for (; t < list.size(); t++) {
+                    // 지금까지의 k등보다 남은 term만으로는 새로 들어올 수 없음 → 기존 후보만 갱신
+                    if (seenSize >= k && rest[t] < kth(acc, seen, seenSize, k)) break;
+                    Postings p = list.get(t);
+                    for (int i = 0; i < p.size; i++) {
+                        int ord = p.ords[i];
+                        if (filter != null && !filter.contains(ids[ord])) continue;
+                        // 처음 나온 ord만 seen에 남긴다
+                        if (acc[ord] == 0) seen[seenSize++] = ord;
+                        acc[ord] += idf[t] * saturate(p.tfs[i], norms[ord], table);
+                    }
+                }
+                for (; t < list.size(); t++) {
+                    Postings p = list.get(t);
+                    for (int i = 0; i < p.size; i++) {
+                        int ord = p.ords[i];
+                        if (acc[ord] != 0) acc[ord] += idf[t] * saturate(p.tfs[i], norms[ord], table);
+                    }
+                }
+                for (int i = 0; i < seenSize; i++) heap.offer(seen[i], acc[seen[i]]);
+                return heap.drain();
+            } finally {
+                for (int i = 0; i < seenSize; i++) acc[seen[i]] = 0;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------- helpers -------------------
+
+    /** (score, ord) min-heap: 맨 위 = 가장 약한 결과 (점수 낮은 것, 같으면 id 큰 것) */
+    private static final class TopK {
+        final int k;
+        final String[] ids;
+        double[] scores;
+        int[] ords;
+        int size;
+
+        TopK(int k, String[] ids) {
+            this.k = k;
+            this.ids = ids;
+            this.scores = new double[Math.min(k, 1024)];
+            this.ords = new int[scores.length];
+        }
+
+        void offer(int ord, double score) {
+            if (size < k) {
+                if (size == scores.length) {
+                    scores = Arrays.copyOf(scores, size * 2);
+                    ords = Arrays.copyOf(ords, size * 2);
+                }
+                scores[size] = score;
+                ords[size] = ord;
+                up(size++);
+            } else if (weaker(0, score, ord)) {
+                scores[0] = score;
+                ords[0] = ord;
+                down(0);
+            }
+        }
+
+        List<Hit> drain() {
+            Hit[] out = new Hit[size];
+            while (size > 0) {
+                out[size - 1] = new Hit(ids[ords[0]], scores[0]);
+                size--;
+                scores[0] = scores[size];
+                ords[0] = ords[size];
+                down(0);
+            }
+            return Arrays.asList(out);
+        }
+
+        /** i번째 칸이 (score, ord)보다 약한가 */
+        private boolean weaker(int i, double score, int ord) {
+            if (scores[i] != score) return scores[i] < score;
+            return ids[ords[i]].compareTo(ids[ord]) > 0;
+        }
+
+        private void up(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!weaker(i, scores[parent], ords[parent])) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void down(int i) {
+            while (true) {
+                int l = 2 * i + 1, r = l + 1, min = i;
+                if (l < size && weaker(l, scores[min], ords[min])) min = l;
+                if (r < size && weaker(r, scores[min], ords[min])) min = r;
+                if (min == i) return;
+                swap(i, min);
+                i = min;
+            }
+        }
+
+        private void swap(int a, int b) {
+            double s = scores[a];
+            int o = ords[a];
+            scores[a] = scores[b];
+            ords[a] = ords[b];
+            scores[b] = s;
+            ords[b] = o;
+        }
+    }
+
+    /** 누적 점수 중 k번째로 큰 값 (MaxScore 경계) */
+    private static double kth(double[] acc, int[] seen, int seenSize, int k) {
+        double[] heap = new double[k];
+        int size = 0;
+        for (int i = 0; i < seenSize; i++) {
+            double s = acc[seen[i]];
+            if (size < k) {
+                int j = size++;
+                heap[j] = s;
+                while (j > 0 && heap[(j - 1) >>> 1] > heap[j]) {
+                    int parent = (j - 1) >>> 1;
+                    heap[j] = heap[parent];
+                    heap[parent] = s;
+                    j = parent;
+                }
+            } else if (s > heap[0]) {
+                heap[0] = s;
+                int j = 0;
+                while (true) {
+                    int l = 2 * j + 1, r = l + 1, min = j;
+                    if (l < size && heap[l] < heap[min]) min = l;
+                    if (r < size && heap[r] < heap[min]) min = r;
+                    if (min == j) break;
+                    heap[j] = heap[min];
+                    heap[min] = s;
+                    j = min;
+                }
+            }
+        }
+        return size == 0 ? 0 : heap[0];
+    }
+
+    private static double saturate(int tfs, int norm, double[] table) {
+        double tf = 0;
+        // tf가 있는 필드만 (대부분 1개)
+        for (int rest = tfs; rest != 0; ) {
+            int shift = Integer.numberOfTrailingZeros(rest) & ~7;
+            tf += ((tfs >>> shift) & 0xFF) * table[(shift << 5) + ((norm >>> shift) & 0xFF)];
+            rest &= ~(0xFF << shift);
+        }
+        return tf * (K1 + 1) / (K1 + tf);
+    }
+
+    private static Scratch scratch(int size) {
+        Scratch sc = SCRATCH.get();
+        if (sc.acc.length < size) {
+            sc.acc = new double[Math.max(size, sc.acc.length * 2)];
+            sc.seen = new int[sc.acc.length];
+        }
+        return sc;
+    }
+
+    private int alloc(String id) {
+        int ord;
+        if (freeSize > 0) {
+            ord = free[--freeSize];
+        } else {
+            ord = nextOrd++;
+            if (ord == ids.length) {
+                ids = Arrays.copyOf(ids, ord * 2);
+                norms = Arrays.copyOf(norms, ord * 2);
+            }
+        }
+        ids[ord] = id;
+        return ord;
+    }
+
+    private void drop(String term, int ord) {
+        Postings p = postings.get(term);
+        p.remove(ord);
+        if (p.size == 0) postings.remove(term);
+    }
+
+    private static void tokenize(VaultItem it, Map<String, Integer> tf, int[] lens) {
+        index(tf, lens, TITLE, it.title());
+        index(tf, lens, TAGS, it.tags() == null ? null : String.join(" ", it.tags()));
+        index(tf, lens, FORMULA, it.formula());
+        index(tf, lens, EXPR, it.expr());
+    }
+
+    private static void index(Map<String, Integer> tf, int[] lens, int field, String text) {
+        for (String t : tokens(text)) {
+            lens[field]++;
+            tf.merge(t, 1 << (field * 8), (a, b) -> ((a >>> (field * 8)) & 0xFF) == 0xFF ? a : a + b);
+        }
+    }
+
+    /** 소문자 글자/숫자 연속 구간 ("sin(x)*y^2" → sin, x, y, 2) */
+    static List<String> tokens(String s) {
+        if (s == null || s.isEmpty()) return List.of();
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                out.add(s.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return out;
+    }
+}
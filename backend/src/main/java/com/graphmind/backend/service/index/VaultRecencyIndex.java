@@ -0,0 +1,89 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.VaultItem;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 유저 1명분 (updatedAt desc, id asc) 정렬 인덱스.
+ * - 목록을 매 요청 정렬하지 않고 이미 정렬된 순서로 걷는다.
+ * - cursor: 마지막으로 받은 아이템의 (updatedAt, id)를 base64url로 감싼 불투명 문자열
+ *
+ * put/remove는 같은 아이템에 대해 직렬화되어 호출된다고 가정 (ConcurrentHashMap.compute 안).
+ */
+public class VaultRecencyIndex {
+
+    public record Key(Instant updatedAt, String id) {}
+
+    private static final Comparator<Key> ORDER = Comparator
+            .comparing(Key::updatedAt, Comparator.reverseOrder())
+            .thenComparing(Key::id);
+
+    private final ConcurrentSkipListSet<Key> keys = new ConcurrentSkipListSet<>(ORDER);
+
+    public void put(VaultItem prev, VaultItem next) {
+        Key k = keyOf(next);
+        if (prev != null) {
+            Key old = keyOf(prev);
+            if (old.equals(k)) return;
+            keys.remove(old);
+        }
+        keys.add(k);
+    }
+
+    public void remove(VaultItem prev) {
+        keys.remove(keyOf(prev));
+    }
+
+    /** cursor 다음부터(최신순) 걷는 뷰. cursor == null 이면 처음부터. */
+    public NavigableSet<Key> after(String cursor) {
+        if (cursor == null || cursor.isBlank()) return keys;
+        return keys.tailSet(decode(cursor), false);
+    }
+
+    /**
+     * cursor 다음이면서 updatedAt < before 인 곳부터(최신순) 걷는 뷰.
+     * before == null 이면 after(cursor)와 같다. before와 같은 시각의 키는 포함될 수 있다 (호출 측에서 거름)
+     */
+    public NavigableSet<Key> after(String cursor, Instant before) {
+        NavigableSet<Key> view = after(cursor);
+        if (before == null) return view;
+        Key bound = new Key(before, "");
+        if (view.isEmpty() || ORDER.compare(bound, view.first()) <= 0) return view;
+        return view.tailSet(bound, true);
+    }
+
+    public static Comparator<Key> order() {
+        return ORDER;
+    }
+
+    public static Key keyOf(VaultItem it) {
+        return new Key(it.updatedAt(), it.id());
+    }
+
+    /** 정렬 키가 현재 아이템과 같은지 (갱신 중 옛 키를 건너뛰기 위함) */
+    public static boolean current(Key k, VaultItem it) {
+        return it != null && Objects.equals(k.updatedAt(), it.updatedAt());
+    }
+
+    public static String cursor(Instant updatedAt, String id) {
+        String raw = updatedAt.getEpochSecond() + ":" + updatedAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Key decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] p = raw.split(":", 3);
+            return new Key(Instant.ofEpochSecond(Long.parseLong(p[0]), Long.parseLong(p[1])), p[2]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("invalid_cursor");
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.VaultItem;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 유저 1명분 vault 검색용 trigram 역색인.
+ *
+ * - 아이템별 검색 필드(title/type/formula/expr/tags/dims)를 쓰기 시점에 한 번만 소문자화해서 보관
+ * - 필드 문자열의 모든 3-gram -> itemId posting
+ * - q가 3글자 이상이면 q의 trigram posting들을 교집합 → 후보만 contains로 확인
+ *   (후보는 항상 정답의 상위집합이므로 결과는 기존 contains 검색과 동일)
+ * - 1~2글자 q는 미리 소문자화된 필드를 스캔
+ *
+ * put/remove는 같은 아이템에 대해 직렬화되어 호출된다고 가정 (ConcurrentHashMap.compute 안).
+ */
+public class VaultSearchIndex {
+
+    // itemId -> 소문자 검색 필드들
+    private final ConcurrentHashMap<String, String[]> docs = new ConcurrentHashMap<>();
+    // trigram -> itemIds
+    private final ConcurrentHashMap<Long, Set<String>> postings = new ConcurrentHashMap<>();
+
+    public void put(VaultItem next) {
+        String[] before = docs.get(next.id());
+        String[] after = fields(next);
+        if (before != null && Arrays.equals(before, after)) return;
+
+        Set<Long> oldGrams = before == null ? Set.of() : grams(before);
+        Set<Long> newGrams = grams(after);
+
+        docs.put(next.id(), after);
+        for (Long g : newGrams) {
+            if (!oldGrams.contains(g)) add(g, next.id());
+        }
+        for (Long g : oldGrams) {
+            if (!newGrams.contains(g)) drop(g, next.id());
+        }
+    }
+
+    public void remove(String id) {
+        String[] before = docs.remove(id);
+        if (before == null) return;
+        for (Long g : grams(before)) drop(g, id);
+    }
+
+    /** q를 포함하는 itemId들. q가 비어 있으면 null(필터 없음). */
+    public Set<String> search(String q) {
+        if (q == null || q.isBlank()) return null;
+        String needle = q.trim().toLowerCase();
+
+        Set<String> out = new HashSet<>();
+        if (needle.length() < 3) {
+            docs.forEach((id, f) -> {
+                if (contains(f, needle)) out.add(id);
+            });
+            return out;
+        }
+
+        Set<Long> qGrams = new HashSet<>();
+        addGrams(needle, qGrams);
+
+        List<Set<String>> lists = new ArrayList<>(qGrams.size());
+        for (Long g : qGrams) {
+            Set<String> p = postings.get(g);
+            if (p == null) return out;
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<String> smallest = lists.get(0);
+        next:
+        for (String id : smallest) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) continue next;
+            }
+            String[] f = docs.get(id);
+            if (f != null && contains(f, needle)) out.add(id);
+        }
+        return out;
+    }
+
+    /** 아이템 하나가 q를 포함하는지 (search()와 같은 기준, 인덱스 없이) */
+    public static boolean matches(VaultItem it, String q) {
+        if (q == null || q.isBlank()) return true;
+        return contains(fields(it), q.trim().toLowerCase());
+    }
+
+    // ------------------- helpers -------------------
+
+    /** 기존 InMemoryVaultService.matchesQ와 같은 필드 구성 */
+    static String[] fields(VaultItem it) {
+        String title = (it.title() == null ? "" : it.title()).toLowerCase();
+        String type = (it.type() == null ? "" : it.type()).toLowerCase();
+        String formula = (it.formula() == null ? "" : it.formula()).toLowerCase();
+        String expr = (it.expr() == null ? "" : it.expr()).toLowerCase();
+        String tags = it.tags() == null ? "" : String.join(" ", it.tags()).toLowerCase();
+
+        String dims = "";
+        if ("array3d".equals(it.type()) && it.sizeX() != null && it.sizeY() != null && it.sizeZ() != null) {
+            dims = (it.sizeX() + "x" + it.sizeY() + "x" + it.sizeZ()).toLowerCase();
+        }
+        return new String[]{title, type, formula, expr, tags, dims};
+    }
+
+    private static boolean contains(String[] fields, String needle) {
+        for (String f : fields) {
+            if (f.contains(needle)) return true;
+        }
+        return false;
+    }
+
+    private static Set<Long> grams(String[] fields) {
+        Set<Long> out = new HashSet<>();
+        for (String f : fields) addGrams(f, out);
+        return out;
+    }
+
+    private static void addGrams(String s, Set<Long> out) {
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            out.add(((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2));
+        }
+    }
+
+    private void add(Long gram, String id) {
+        postings.compute(gram, (k, set) -> {
+            if (set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(id);
+            return set;
+        });
+    }
+
+    private void drop(Long gram, String id) {
+        postings.computeIfPresent(gram, (k, set) -> {
+            set.remove(id);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
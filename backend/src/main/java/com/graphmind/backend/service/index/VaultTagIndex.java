@@ -0,0 +1,125 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.VaultItem;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 유저 1명분 tag/type 보조 인덱스.
+ * - tag -> itemIds, type -> itemIds
+ * - facet(개수)은 posting 크기만 읽으므로 아이템 본문을 건드리지 않는다.
+ *
+ * put/remove는 같은 아이템에 대해 직렬화되어 호출된다고 가정 (ConcurrentHashMap.compute 안).
+ */
+public class VaultTagIndex {
+
+    private final ConcurrentHashMap<String, Set<String>> byTag = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> byType = new ConcurrentHashMap<>();
+
+    public void put(VaultItem prev, VaultItem next) {
+        List<String> oldTags = prev == null || prev.tags() == null ? List.of() : prev.tags();
+        List<String> newTags = next.tags() == null ? List.of() : next.tags();
+        for (String t : newTags) {
+            if (!oldTags.contains(t)) add(byTag, t, next.id());
+        }
+        for (String t : oldTags) {
+            if (!newTags.contains(t)) drop(byTag, t, next.id());
+        }
+
+        String oldType = prev == null ? null : prev.type();
+        if (!Objects.equals(oldType, next.type())) {
+            if (oldType != null) drop(byType, oldType, next.id());
+            if (next.type() != null) add(byType, next.type(), next.id());
+        }
+    }
+
+    public void remove(VaultItem prev) {
+        if (prev.tags() != null) {
+            for (String t : prev.tags()) drop(byTag, t, prev.id());
+        }
+        if (prev.type() != null) drop(byType, prev.type(), prev.id());
+    }
+
+    /**
+     * 태그 필터에 맞는 itemIds.
+     * - any=false: 모든 태그를 가진 아이템(AND), any=true: 하나라도 가진 아이템(OR)
+     * - tags가 비어 있으면 null(필터 없음)
+     */
+    public Set<String> match(List<String> tags, boolean any) {
+        if (tags == null || tags.isEmpty()) return null;
+
+        if (any) {
+            Set<String> out = new HashSet<>();
+            for (String t : tags) out.addAll(byTag.getOrDefault(t, Set.of()));
+            return out;
+        }
+
+        List<Set<String>> lists = new ArrayList<>(tags.size());
+        for (String t : tags) {
+            Set<String> p = byTag.get(t);
+            if (p == null) return Set.of();
+            lists.add(p);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<String> out = new HashSet<>();
+        next:
+        for (String id : lists.get(0)) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) continue next;
+            }
+            out.add(id);
+        }
+        return out;
+    }
+
+    /** type 필터에 맞는 itemIds (live view, 복사 X) */
+    public Set<String> ofType(String type) {
+        return byType.getOrDefault(type, Set.of());
+    }
+
+    /** tag를 가진 itemIds (live view, 복사 X) */
+    public Set<String> ofTag(String tag) {
+        return byTag.getOrDefault(tag, Set.of());
+    }
+
+    /** tag -> 개수 (많은 순, 같으면 이름순) */
+    public Map<String, Integer> tagCounts() {
+        return counts(byTag);
+    }
+
+    public Map<String, Integer> typeCounts() {
+        return counts(byType);
+    }
+
+    // ------------------- helpers -------------------
+
+    private static Map<String, Integer> counts(Map<String, Set<String>> index) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(index.size());
+        index.forEach((k, ids) -> {
+            int n = ids.size();
+            if (n > 0) entries.add(Map.entry(k, n));
+        });
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : entries) out.put(e.getKey(), e.getValue());
+        return out;
+    }
+
+    private static void add(ConcurrentHashMap<String, Set<String>> index, String key, String id) {
+        index.compute(key, (k, set) -> {
+            if (set == null) set = ConcurrentHashMap.newKeySet();
+            set.add(id);
+            return set;
+        });
+    }
+
+    private static void drop(ConcurrentHashMap<String, Set<String>> index, String key, String id) {
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(id);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
@@ -0,0 +1,271 @@
+package com.graphmind.backend.service.json;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+
+import java.util.*;
+
+/**
+ * JSON Patch(RFC 6902) / JSON Merge Patch(RFC 7396) 적용기.
+ *
+ * 저장된 content 트리는 여러 스레드가 동시에 직렬화할 수 있으므로 제자리 수정하지 않고,
+ * 바뀌는 경로의 컨테이너만 얕게 복사한다(path copy). 나머지 서브트리는 이전 버전과 공유된다.
+ * 예) array3d 한 칸 수정 = z 배열 1개 + y 배열 1개 + x 배열 1개 복사
+ */
+public final class JsonPatch {
+
+    private static final JsonNodeFactory NF = JsonNodeFactory.instance;
+
+    private JsonPatch() {}
+
+    // =========================
+    // RFC 6902
+    // =========================
+
+    public static JsonNode apply(JsonNode doc, JsonNode ops) {
+        if (ops == null || !ops.isArray()) throw new IllegalArgumentException("json_patch_must_be_array");
+        JsonNode cur = doc;
+        for (JsonNode op : ops) cur = applyOne(cur, op);
+        return cur;
+    }
+
+    private static JsonNode applyOne(JsonNode doc, JsonNode op) {
+        if (op == null || !op.isObject()) throw new IllegalArgumentException("json_patch_op_must_be_object");
+        String name = str(op, "op");
+        List<String> path = pointer(str(op, "path"));
+
+        switch (name) {
+            case "add":
+                return put(doc, path, 0, value(op), true);
+            case "remove":
+                return remove(doc, path, 0);
+            case "replace":
+                get(doc, path); // 없으면 예외
+                return put(doc, path, 0, value(op), false);
+            case "move": {
+                List<String> from = pointer(str(op, "from"));
+                if (from.equals(path)) return doc;
+                if (path.size() > from.size() && path.subList(0, from.size()).equals(from)) {
+                    throw new IllegalArgumentException("json_patch_move_into_child");
+                }
+                JsonNode v = get(doc, from);
+                return put(remove(doc, from, 0), path, 0, v, true);
+            }
+            case "copy":
+                return put(doc, path, 0, get(doc, pointer(str(op, "from"))), true);
+            case "test":
+                if (!get(doc, path).equals(value(op))) throw new IllegalArgumentException("json_patch_test_failed");
+                return doc;
+            default:
+                throw new IllegalArgumentException("json_patch_unknown_op: " + name);
+        }
+    }
+
+    /** patch가 건드리는 최상위 키들 ("" = 문서 전체) */
+    public static Set<String> touchedRoots(JsonNode ops) {
+        Set<String> out = new HashSet<>();
+        if (ops == null || !ops.isArray()) return Set.of("");
+        for (JsonNode op : ops) {
+            for (String key : List.of("path", "from")) {
+                JsonNode p = op.get(key);
+                if (p == null || !p.isString()) continue;
+                List<String> tokens = pointer(p.asString());
+                out.add(tokens.isEmpty() ? "" : tokens.get(0));
+            }
+        }
+        return out;
+    }
+
+    /** 배열 구조(길이)를 바꿀 수 있는 op가 있는지 (array3d dims 재계산 판단용) */
+    public static boolean changesShape(JsonNode ops) {
+        if (ops == null || !ops.isArray()) return true;
+        for (JsonNode op : ops) {
+            String name = op.path("op").asString("");
+            if (!"replace".equals(name) && !"test".equals(name)) return true;
+            List<String> path = pointer(op.path("path").asString(""));
+            if (path.size() < 3) return true; // 행/면 통째 교체
+        }
+        return false;
+    }
+
+    /**
+     * from → to 로 가는 RFC 6902 patch.
+     * 경로 복사로 공유된 서브트리(같은 객체)는 내려가지 않으므로, 부분 수정끼리의 diff는 바뀐 경로 길이에 비례한다.
+     * 배열은 같은 인덱스끼리 비교하고 길이 차이는 끝에서 add/remove (move 탐지는 하지 않음)
+     */
+    public static ArrayNode diff(JsonNode from, JsonNode to) {
+        ArrayNode ops = NF.arrayNode();
+        diff(from, to, "", ops);
+        return ops;
+    }
+
+    private static void diff(JsonNode a, JsonNode b, String path, ArrayNode ops) {
+        if (a == b) return;
+        if (a == null || b == null) {
+            ops.add(op("add", path, b == null ? NF.nullNode() : b));
+            return;
+        }
+        if (a.isObject() && b.isObject()) {
+            for (String key : a.propertyNames()) {
+                if (!b.has(key)) ops.add(op("remove", path + "/" + escape(key), null));
+            }
+            for (Map.Entry<String, JsonNode> e : b.properties()) {
+                String child = path + "/" + escape(e.getKey());
+                JsonNode old = a.get(e.getKey());
+                if (old == null) ops.add(op("add", child, e.getValue()));
+                else diff(old, e.getValue(), child, ops);
+            }
+            return;
+        }
+        if (a.isArray() && b.isArray()) {
+            int common = Math.min(a.size(), b.size());
+            for (int i = 0; i < common; i++) diff(a.get(i), b.get(i), path + "/" + i, ops);
+            for (int i = common; i < b.size(); i++) ops.add(op("add", path + "/-", b.get(i)));
+            for (int i = a.size() - 1; i >= common; i--) ops.add(op("remove", path + "/" + i, null));
+            return;
+        }
+        if (!a.equals(b)) ops.add(op("replace", path, b));
+    }
+
+    private static ObjectNode op(String name, String path, JsonNode value) {
+        ObjectNode op = NF.objectNode().put("op", name).put("path", path);
+        if (value != null) op.set("value", value);
+        return op;
+    }
+
+    private static String escape(String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+
+    // =========================
+    // RFC 7396
+    // =========================
+
+    public static JsonNode merge(JsonNode target, JsonNode patch) {
+        if (patch == null || !patch.isObject()) return patch;
+
+        ObjectNode out = NF.objectNode();
+        if (target != null && target.isObject()) out.setAll((ObjectNode) target);
+        for (Map.Entry<String, JsonNode> e : patch.properties()) {
+            if (e.getValue().isNull()) out.remove(e.getKey());
+            else out.set(e.getKey(), merge(out.get(e.getKey()), e.getValue()));
+        }
+        return out;
+    }
+
+    public static Set<String> mergedRoots(JsonNode patch) {
+        if (patch == null || !patch.isObject()) return Set.of("");
+        return new HashSet<>(patch.propertyNames());
+    }
+
+    // =========================
+    // pointer helpers (RFC 6901)
+    // =========================
+
+    public static List<String> pointer(String p) {
+        if (p == null) throw new IllegalArgumentException("json_patch_path_required");
+        if (p.isEmpty()) return List.of();
+        if (p.charAt(0) != '/') throw new IllegalArgumentException("json_patch_bad_pointer: " + p);
+        String[] raw = p.substring(1).split("/", -1);
+        List<String> out = new ArrayList<>(raw.length);
+        for (String t : raw) out.add(t.replace("~1", "/").replace("~0", "~"));
+        return out;
+    }
+
+    public static JsonNode get(JsonNode doc, List<String> path) {
+        JsonNode cur = doc;
+        for (String t : path) {
+            if (cur == null) break;
+            if (cur.isObject()) cur = cur.get(t);
+            else if (cur.isArray()) cur = cur.get(index(t, cur.size() - 1));
+            else cur = null;
+        }
+        if (cur == null) throw new IllegalArgumentException("json_patch_path_not_found");
+        return cur;
+    }
+
+    private static JsonNode put(JsonNode node, List<String> path, int i, JsonNode value, boolean insert) {
+        if (i == path.size()) return value;
+        String t = path.get(i);
+        boolean last = i == path.size() - 1;
+
+        if (node instanceof ObjectNode obj) {
+            ObjectNode copy = NF.objectNode();
+            copy.setAll(obj);
+            if (last) {
+                copy.set(t, value);
+            } else {
+                JsonNode child = obj.get(t);
+                if (child == null) throw new IllegalArgumentException("json_patch_path_not_found");
+                copy.set(t, put(child, path, i + 1, value, insert));
+            }
+            return copy;
+        }
+
+        if (node instanceof ArrayNode arr) {
+            ArrayNode copy = NF.arrayNode(arr.size() + 1);
+            copy.addAll(arr);
+            if (last && insert) {
+                if ("-".equals(t)) copy.add(value);
+                else copy.insert(index(t, arr.size()), value);
+            } else {
+                int idx = index(t, arr.size() - 1);
+                copy.set(idx, last ? value : put(arr.get(idx), path, i + 1, value, insert));
+            }
+            return copy;
+        }
+
+        throw new IllegalArgumentException("json_patch_path_not_found");
+    }
+
+    private static JsonNode remove(JsonNode node, List<String> path, int i) {
+        if (path.isEmpty()) throw new IllegalArgumentException("json_patch_cannot_remove_root");
+        String t = path.get(i);
+        boolean last = i == path.size() - 1;
+
+        if (node instanceof ObjectNode obj) {
+            JsonNode child = obj.get(t);
+            if (child == null) throw new IllegalArgumentException("json_patch_path_not_found");
+            ObjectNode copy = NF.objectNode();
+            copy.setAll(obj);
+            if (last) copy.remove(t);
+            else copy.set(t, remove(child, path, i + 1));
+            return copy;
+        }
+
+        if (node instanceof ArrayNode arr) {
+            int idx = index(t, arr.size() - 1);
+            ArrayNode copy = NF.arrayNode(arr.size());
+            copy.addAll(arr);
+            if (last) copy.remove(idx);
+            else copy.set(idx, remove(arr.get(idx), path, i + 1));
+            return copy;
+        }
+
+        throw new IllegalArgumentException("json_patch_path_not_found");
+    }
+
+    private static int index(String t, int max) {
+        try {
+            if (t.isEmpty() || (t.length() > 1 && t.charAt(0) == '0')) throw new NumberFormatException();
+            int idx = Integer.parseInt(t);
+            if (idx < 0 || idx > max) throw new IllegalArgumentException("json_patch_index_out_of_bounds: " + t);
+            return idx;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("json_patch_bad_index: " + t);
+        }
+    }
+
+    private static String str(JsonNode op, String key) {
+        JsonNode n = op.get(key);
+        if (n == null || !n.isString()) throw new IllegalArgumentException("json_patch_" + key + "_required");
+        return n.asString();
+    }
+
+    private static JsonNode value(JsonNode op) {
+        if (!op.has("value")) throw new IllegalArgumentException("json_patch_value_required");
+        return op.get("value");
+    }
+}
@@ -0,0 +1,198 @@
+package com.graphmind.backend.service.json;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.*;
+
+/**
+ * 응답 projection (fields=id,title,content/xRange).
+ *
+ * 요청된 경로만 generator에 바로 쓴다: 레코드는 접근자로 필드를 꺼내고, JsonNode는 요청된 자식만 따라 내려간다.
+ * 요청되지 않은 서브트리는 복사도 직렬화도 하지 않는다 (content 전체를 valueToTree 하지 않음).
+ *
+ * 경로 규칙
+ * - 쉼표로 여러 개, 각각 JSON pointer (앞의 "/"는 생략 가능, "~1" = "/", "~0" = "~")
+ * - 경로 끝이면 그 값 전체. 중간에 있으면 요청된 자식만 (없는 키는 빠짐)
+ * - 배열에서 숫자 토큰은 그 원소만 골라 배열로, 그 외 토큰은 객체 원소마다 같은 projection (객체가 아닌 원소는 빠짐)
+ * - 최상위 필드 이름은 레코드 필드여야 한다 (validate)
+ */
+public final class JsonProjection {
+
+    /** 레코드 클래스별 필드 접근자 (선언 순서) */
+    private static final ClassValue<Map<String, Method>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> type) {
+            Map<String, Method> out = new LinkedHashMap<>();
+            for (RecordComponent c : type.getRecordComponents()) out.put(c.getName(), c.getAccessor());
+            return out;
+        }
+    };
+
+    /** null이면 이 값 전체 */
+    private final Map<String, JsonProjection> children;
+
+    private JsonProjection(Map<String, JsonProjection> children) {
+        this.children = children;
+    }
+
+    /** fields 파라미터 → projection. 비어 있으면 null (전체) */
+    public static JsonProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) return null;
+        JsonProjection root = new JsonProjection(new LinkedHashMap<>());
+        for (String raw : fields.split(",")) {
+            String f = raw.trim();
+            if (f.isEmpty()) continue;
+            List<String> path = JsonPatch.pointer(f.startsWith("/") ? f : "/" + f);
+            if (path.isEmpty() || path.contains("")) throw new IllegalArgumentException("fields_bad_path: " + f);
+            root.add(path, 0);
+        }
+        return root.children.isEmpty() ? null : root;
+    }
+
+    private void add(List<String> path, int i) {
+        if (children == null) return; // 이미 전체
+        String name = path.get(i);
+        if (i == path.size() - 1) {
+            children.put(name, new JsonProjection(null));
+            return;
+        }
+        children.computeIfAbsent(name, k -> new JsonProjection(new LinkedHashMap<>())).add(path, i + 1);
+    }
+
+    /** 최상위 필드 name(또는 그 아래 경로)을 요청했는지 */
+    public boolean includes(String name) {
+        return children == null || children.containsKey(name);
+    }
+
+    /** 최상위 필드가 type(레코드)에 있는지. 스트리밍 전에 확인해서 400으로 */
+    public JsonProjection validate(Class<? extends Record> type) {
+        Map<String, Method> fields = ACCESSORS.get(type);
+        for (String name : children.keySet()) {
+            if (!fields.containsKey(name)) throw new IllegalArgumentException("fields_unknown: " + name);
+        }
+        return this;
+    }
+
+    /** 한 값을 projection해서 bytes로 */
+    public byte[] bytes(ObjectMapper om, Object value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator g = om.createGenerator(out)) {
+            write(g, value);
+        }
+        return out.toByteArray();
+    }
+
+    /** 값 목록을 JSON 배열로 */
+    public byte[] bytes(ObjectMapper om, Collection<?> values) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256 + values.size() * 64);
+        try (JsonGenerator g = om.createGenerator(out)) {
+            g.writeStartArray();
+            for (Object v : values) write(g, v);
+            g.writeEndArray();
+        }
+        return out.toByteArray();
+    }
+
+    public void write(JsonGenerator g, Object value) {
+        if (children == null || value == null) {
+            g.writePOJO(value);
+            return;
+        }
+        if (value instanceof JsonNode n) {
+            if (n.isObject()) writeObject(g, n);
+            else if (n.isArray()) writeArray(g, n, n.size());
+            else g.writeTree(n);
+        } else if (value instanceof Record r) {
+            Map<String, Method> fields = ACCESSORS.get(r.getClass());
+            g.writeStartObject();
+            for (Map.Entry<String, JsonProjection> e : children.entrySet()) {
+                Method m = fields.get(e.getKey());
+                if (m == null) continue;
+                field(g, e.getKey(), e.getValue(), invoke(m, r));
+            }
+            g.writeEndObject();
+        } else if (value instanceof Map<?, ?> map) {
+            g.writeStartObject();
+            for (Map.Entry<String, JsonProjection> e : children.entrySet()) {
+                if (map.containsKey(e.getKey())) field(g, e.getKey(), e.getValue(), map.get(e.getKey()));
+            }
+            g.writeEndObject();
+        } else if (value instanceof List<?> list) {
+            writeArray(g, list, list.size());
+        } else {
+            g.writePOJO(value); // 더 내려갈 수 없는 값
+        }
+    }
+
+    private void writeObject(JsonGenerator g, JsonNode n) {
+        g.writeStartObject();
+        for (Map.Entry<String, JsonProjection> e : children.entrySet()) {
+            JsonNode child = n.get(e.getKey());
+            if (child != null) field(g, e.getKey(), e.getValue(), child);
+        }
+        g.writeEndObject();
+    }
+
+    /** 숫자 토큰은 그 원소만, 아니면 객체 원소마다 같은 projection */
+    private void writeArray(JsonGenerator g, Object array, int size) {
+        g.writeStartArray();
+        boolean picked = false;
+        for (Map.Entry<String, JsonProjection> e : children.entrySet()) {
+            int i = index(e.getKey());
+            if (i < 0) continue;
+            picked = true;
+            if (i < size) e.getValue().write(g, element(array, i));
+        }
+        if (!picked) {
+            // 키 토큰은 객체 원소에만 적용 (숫자 격자 같은 배열은 통째로 쓰지 않고 뺀다)
+            for (int i = 0; i < size; i++) {
+                Object e = element(array, i);
+                if (object(e)) write(g, e);
+            }
+        }
+        g.writeEndArray();
+    }
+
+    /** 하위 경로가 있는데 값이 컨테이너가 아니면 (없는 경로) 필드째 뺀다 */
+    private static void field(JsonGenerator g, String name, JsonProjection p, Object value) {
+        if (p.children != null && !container(value)) return;
+        g.writeName(name);
+        p.write(g, value);
+    }
+
+    private static boolean container(Object v) {
+        if (v instanceof JsonNode n) return n.isContainer();
+        return v instanceof Record || v instanceof Map<?, ?> || v instanceof List<?>;
+    }
+
+    private static boolean object(Object v) {
+        if (v instanceof JsonNode n) return n.isObject();
+        return v instanceof Record || v instanceof Map<?, ?>;
+    }
+
+    private static Object element(Object array, int i) {
+        return array instanceof JsonNode n ? n.get(i) : ((List<?>) array).get(i);
+    }
+
+    private static int index(String token) {
+        if (token.isEmpty() || token.length() > 9) return -1;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) < '0' || token.charAt(i) > '9') return -1;
+        }
+        return Integer.parseInt(token);
+    }
+
+    private static Object invoke(Method m, Object target) {
+        try {
+            return m.invoke(target);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
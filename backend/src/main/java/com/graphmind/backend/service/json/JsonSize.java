@@ -0,0 +1,34 @@
+package com.graphmind.backend.service.json;
+
+import tools.jackson.databind.JsonNode;
+
+import java.util.ArrayDeque;
+
+/**
+ * JsonNode 트리의 대략적인 힙 크기 (메모리 예산 추정용).
+ * 노드 1개 = 고정 오버헤드, 문자열은 길이만큼 더한다. 공유 서브트리도 따로 센다 (상한 추정)
+ */
+public final class JsonSize {
+
+    // 노드 1개 (객체 헤더 + 컨테이너 엔트리)
+    private static final long NODE_BYTES = 64;
+
+    private JsonSize() {}
+
+    public static long estimate(JsonNode root) {
+        if (root == null) return 0;
+        long n = 0;
+        ArrayDeque<JsonNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            JsonNode node = stack.pop();
+            n += NODE_BYTES;
+            if (node.isContainer()) {
+                for (JsonNode child : node) stack.push(child);
+            } else if (node.isString()) {
+                n += 2L * node.asString().length();
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,342 @@
+package com.graphmind.backend.service.layout;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * 힘 기반 그래프 배치 (d3-force와 같은 모델: 노드끼리 척력 + 간선 스프링 + 중심 고정, 속도 감쇠).
+ *
+ * - 좌표/속도/힘은 double 배열, 간선은 CSR(노드별 이웃 구간) int 배열로만 다룬다
+ * - 척력은 Barnes–Hut: 반복마다 사분트리를 배열로 새로 만들고, 충분히 먼 셀(폭² / 거리² < theta²)은
+ *   질량 중심 하나로 근사 → 반복당 O(n log n)
+ * - 힘 계산은 노드 블록 단위로 병렬. 각 블록은 좌표/트리를 읽기만 하고 자기 노드의 힘만 쓴다
+ * - warm start: 이전 결과의 좌표를 id로 이어받고, 새 노드는 이미 놓인 이웃들의 평균 근처에 둔 뒤
+ *   낮은 alpha로 짧게 돈다. 노드/간선이 그대로면 계산 없이 이전 결과
+ */
+public final class ForceLayout {
+
+    public static final int COLD_ITERATIONS = 300;
+    public static final int WARM_ITERATIONS = 60;
+
+    // d3-force 기본값 (브라우저에서 돌던 배치와 같은 축척)
+    private static final double CHARGE = -30;
+    private static final double LINK_DISTANCE = 30;
+    private static final double THETA2 = 0.81;
+    private static final double DISTANCE_MIN2 = 1;
+    private static final double VELOCITY_DECAY = 0.4;
+    private static final double ALPHA_MIN = 0.001;
+    private static final double WARM_ALPHA = 0.02;
+    private static final double INITIAL_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    // 병렬 블록 크기 / 좌표가 같은 점이 계속 겹칠 때 트리 깊이 상한
+    private static final int BLOCK = 512;
+    private static final int MAX_DEPTH = 48;
+
+    /**
+     * 배치 결과. ids[i]의 좌표 = (x[i], y[i]).
+     * edges = (작은 번호 << 32 | 큰 번호) 정렬, 중복/자기 자신 없음 (다음 계산에서 바뀌었는지 비교용)
+     */
+    public record Result(List<String> ids, double[] x, double[] y, long[] edges, int iterations, boolean warm) {}
+
+    /** 간선 1개 (방향 무관) */
+    public static long edge(int u, int v) {
+        return u < v ? ((long) u << 32) | v : ((long) v << 32) | u;
+    }
+
+    /**
+     * ids/edges 그래프 배치. previous가 있으면 거기서 이어서 (warm start).
+     * edges는 edge()로 만든 값 (순서/중복 상관없음)
+     */
+    public static Result layout(List<String> ids, long[] edges, Result previous) {
+        long[] e = normalize(edges);
+        if (previous != null && previous.ids().equals(ids) && Arrays.equals(previous.edges(), e)) return previous;
+        return new ForceLayout(ids, e).run(previous);
+    }
+
+    // ------------------- simulation -------------------
+
+    private final List<String> ids;
+    private final long[] edges;
+    private final int n;
+
+    private final double[] x, y, vx, vy, fx, fy;
+    // CSR: i의 이웃 = adj[start[i] .. start[i+1])
+    private final int[] start;
+    private final int[] adj;
+
+    // 사분트리 (셀 배열). body: -1 빈 잎, -2 내부 셀, 그 외 잎의 첫 노드 (nextBody로 같은 칸 노드들을 잇는다)
+    private int cells;
+    private int[] body = new int[64];
+    private int[] firstChild = new int[64];
+    private double[] size = new double[64];
+    private double[] mass = new double[64];
+    private double[] cmx = new double[64];
+    private double[] cmy = new double[64];
+    private final int[] nextBody;
+
+    private ForceLayout(List<String> ids, long[] edges) {
+        this.ids = ids;
+        this.edges = edges;
+        this.n = ids.size();
+        x = new double[n];
+        y = new double[n];
+        vx = new double[n];
+        vy = new double[n];
+        fx = new double[n];
+        fy = new double[n];
+        nextBody = new int[n];
+
+        start = new int[n + 1];
+        for (long e : edges) {
+            start[(int) (e >>> 32) + 1]++;
+            start[(int) e + 1]++;
+        }
+        for (int i = 0; i < n; i++) start[i + 1] += start[i];
+        adj = new int[edges.length * 2];
+        int[] fill = Arrays.copyOf(start, n);
+        for (long e : edges) {
+            int u = (int) (e >>> 32), v = (int) e;
+            adj[fill[u]++] = v;
+            adj[fill[v]++] = u;
+        }
+    }
+
+    private Result run(Result previous) {
+        boolean warm = place(previous);
+        double alpha = warm ? WARM_ALPHA : 1;
+        int iterations = warm ? WARM_ITERATIONS : COLD_ITERATIONS;
+        double decay = 1 - Math.pow(ALPHA_MIN / alpha, 1.0 / iterations);
+
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        for (int it = 0; it < iterations && n > 1; it++) {
+            alpha *= 1 - decay;
+            double a = alpha;
+            buildTree();
+            if (blocks > 1) IntStream.range(0, blocks).parallel().forEach(b -> forces(b * BLOCK, Math.min(n, (b + 1) * BLOCK), a));
+            else forces(0, n, a);
+            integrate();
+        }
+        return new Result(ids, x, y, edges, n > 1 ? iterations : 0, warm);
+    }
+
+    /** 시작 좌표. 이전 결과에서 하나라도 이어받았으면 true */
+    private boolean place(Result previous) {
+        boolean[] placed = new boolean[n];
+        int inherited = 0;
+        if (previous != null) {
+            Map<String, Integer> prev = new HashMap<>(previous.ids().size() * 2);
+            for (int i = 0; i < previous.ids().size(); i++) prev.put(previous.ids().get(i), i);
+            for (int i = 0; i < n; i++) {
+                Integer p = prev.get(ids.get(i));
+                if (p == null) continue;
+                x[i] = previous.x()[p];
+                y[i] = previous.y()[p];
+                placed[i] = true;
+                inherited++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (placed[i]) continue;
+            // 이미 놓인 이웃들의 평균 근처 (새 아이템이 자기 태그/링크 옆에서 시작하도록)
+            double sx = 0, sy = 0;
+            int k = 0;
+            for (int p = start[i]; p < start[i + 1]; p++) {
+                int j = adj[p];
+                if (!placed[j]) continue;
+                sx += x[j];
+                sy += y[j];
+                k++;
+            }
+            if (k > 0) {
+                Random rnd = new Random(ids.get(i).hashCode());
+                double angle = rnd.nextDouble() * 2 * Math.PI;
+                x[i] = sx / k + Math.cos(angle) * LINK_DISTANCE / 2;
+                y[i] = sy / k + Math.sin(angle) * LINK_DISTANCE / 2;
+            } else {
+                // d3와 같은 phyllotaxis 배치
+                double r = 10 * Math.sqrt(0.5 + i), angle = i * INITIAL_ANGLE;
+                x[i] = r * Math.cos(angle);
+                y[i] = r * Math.sin(angle);
+            }
+            placed[i] = true;
+        }
+        return inherited > 0;
+    }
+
+    private void buildTree() {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double w = Math.max(1, Math.max(maxX - minX, maxY - minY)) * (1 + 1e-9);
+
+        cells = 0;
+        int root = allocate(w);
+        for (int i = 0; i < n; i++) insert(root, i, minX, minY, w);
+
+        // 자식은 항상 부모보다 뒤에 만들어지므로 거꾸로 훑으면 아래에서 위로 합산
+        for (int c = cells - 1; c >= 0; c--) {
+            double m = 0, sx = 0, sy = 0;
+            if (body[c] == -2) {
+                for (int q = firstChild[c]; q < firstChild[c] + 4; q++) {
+                    m += mass[q];
+                    sx += cmx[q] * mass[q];
+                    sy += cmy[q] * mass[q];
+                }
+            } else {
+                for (int j = body[c]; j >= 0; j = nextBody[j]) {
+                    m++;
+                    sx += x[j];
+                    sy += y[j];
+                }
+            }
+            mass[c] = m;
+            cmx[c] = m > 0 ? sx / m : 0;
+            cmy[c] = m > 0 ? sy / m : 0;
+        }
+    }
+
+    private void insert(int c, int i, double x0, double y0, double w) {
+        nextBody[i] = -1;
+        for (int depth = 0; ; depth++) {
+            int b = body[c];
+            if (b == -1) {
+                body[c] = i;
+                return;
+            }
+            if (b >= 0) {
+                // 같은 좌표(또는 너무 깊음)면 같은 잎에 잇는다
+                if ((x[b] == x[i] && y[b] == y[i]) || depth >= MAX_DEPTH) {
+                    nextBody[i] = b;
+                    body[c] = i;
+                    return;
+                }
+                // 잎 나누기: 기존 노드 사슬을 자식 칸으로 (모두 같은 좌표라 한 칸)
+                int first = allocate(w / 2);
+                allocate(w / 2);
+                allocate(w / 2);
+                allocate(w / 2);
+                body[c] = -2;
+                firstChild[c] = first;
+                body[first + quadrant(x[b], y[b], x0, y0, w / 2)] = b;
+            }
+            w /= 2;
+            int q = quadrant(x[i], y[i], x0, y0, w);
+            if ((q & 1) != 0) x0 += w;
+            if ((q & 2) != 0) y0 += w;
+            c = firstChild[c] + q;
+        }
+    }
+
+    private static int quadrant(double px, double py, double x0, double y0, double half) {
+        return (px >= x0 + half ? 1 : 0) | (py >= y0 + half ? 2 : 0);
+    }
+
+    private int allocate(double w) {
+        if (cells == body.length) {
+            int cap = cells * 2;
+            body = Arrays.copyOf(body, cap);
+            firstChild = Arrays.copyOf(firstChild, cap);
+            size = Arrays.copyOf(size, cap);
+            mass = Arrays.copyOf(mass, cap);
+            cmx = Arrays.copyOf(cmx, cap);
+            cmy = Arrays.copyOf(cmy, cap);
+        }
+        body[cells] = -1;
+        size[cells] = w;
+        return cells++;
+    }
+
+    /** [from, to) 노드의 척력 + 스프링. 좌표/트리는 읽기만 */
+    private void forces(int from, int to, double alpha) {
+        int[] stack = new int[3 * MAX_DEPTH + 8];
+        for (int i = from; i < to; i++) {
+            double xi = x[i], yi = y[i];
+            double ax = 0, ay = 0;
+
+            // 척력 (Barnes–Hut)
+            int sp = 0;
+            stack[sp++] = 0;
+            while (sp > 0) {
+                int c = stack[--sp];
+                if (mass[c] == 0) continue;
+                if (body[c] == -2) {
+                    double dx = cmx[c] - xi, dy = cmy[c] - yi, l = dx * dx + dy * dy;
+                    if (size[c] * size[c] / THETA2 < l) {
+                        if (l < DISTANCE_MIN2) l = Math.sqrt(DISTANCE_MIN2 * l);
+                        double k = CHARGE * mass[c] * alpha / l;
+                        ax += dx * k;
+                        ay += dy * k;
+                    } else {
+                        int f = firstChild[c];
+                        stack[sp++] = f;
+                        stack[sp++] = f + 1;
+                        stack[sp++] = f + 2;
+                        stack[sp++] = f + 3;
+                    }
+                    continue;
+                }
+                for (int j = body[c]; j >= 0; j = nextBody[j]) {
+                    if (j == i) continue;
+                    double dx = x[j] - xi, dy = y[j] - yi;
+                    if (dx == 0 && dy == 0) dx = i < j ? -1e-6 : 1e-6; // 겹친 점은 번호 순으로 떼어 낸다
+                    double l = dx * dx + dy * dy;
+                    if (l < DISTANCE_MIN2) l = Math.sqrt(DISTANCE_MIN2 * l);
+                    double k = CHARGE * alpha / l;
+                    ax += dx * k;
+                    ay += dy * k;
+                }
+            }
+
+            // 스프링: d3 forceLink와 같은 세기(1/min(차수))와 몫(이웃 차수 비율)
+            int di = start[i + 1] - start[i];
+            for (int p = start[i]; p < start[i + 1]; p++) {
+                int j = adj[p];
+                double dx = x[j] - xi, dy = y[j] - yi;
+                double l = Math.sqrt(dx * dx + dy * dy);
+                if (l == 0) continue;
+                int dj = start[j + 1] - start[j];
+                double k = (l - LINK_DISTANCE) / l * alpha / Math.min(di, dj) * dj / (di + dj);
+                ax += dx * k;
+                ay += dy * k;
+            }
+            fx[i] = ax;
+            fy[i] = ay;
+        }
+    }
+
+    /** 속도 감쇠 후 이동, 전체를 원점 중심으로 */
+    private void integrate() {
+        double sx = 0, sy = 0;
+        for (int i = 0; i < n; i++) {
+            vx[i] = (vx[i] + fx[i]) * (1 - VELOCITY_DECAY);
+            vy[i] = (vy[i] + fy[i]) * (1 - VELOCITY_DECAY);
+            x[i] += vx[i];
+            y[i] += vy[i];
+            sx += x[i];
+            sy += y[i];
+        }
+        sx /= n;
+        sy /= n;
+        for (int i = 0; i < n; i++) {
+            x[i] -= sx;
+            y[i] -= sy;
+        }
+    }
+
+    private static long[] normalize(long[] edges) {
+        long[] e = edges.clone();
+        Arrays.sort(e);
+        int m = 0;
+        for (int i = 0; i < e.length; i++) {
+            if ((int) (e[i] >>> 32) == (int) e[i]) continue;
+            if (m > 0 && e[m - 1] == e[i]) continue;
+            e[m++] = e[i];
+        }
+        return Arrays.copyOf(e, m);
+    }
+}
@@ -0,0 +1,75 @@
+package com.graphmind.backend.service.layout;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 그래프 배치(ForceLayout) 백그라운드 계산.
+ *
+ * - 요청 스레드는 계산하지 않는다. /layout은 마지막으로 끝난 결과를 바로 돌려주고, 낡았으면 여기에 계산을 맡긴다
+ * - 같은 유저는 한 번에 하나. 계산 중에 들어온 요청은 끝난 뒤 한 번으로 합쳐서 다시 계산 (최신 스냅샷으로)
+ * - 전용 ForkJoinPool에서 돌리므로 ForceLayout의 parallel()도 이 풀 안에서만 (공용 풀을 쓰지 않음)
+ */
+@Component
+public class VaultLayoutJob {
+
+    private final boolean enabled;
+    private final ForkJoinPool pool;
+    private final Timer computeTimer;
+
+    // 유저 -> 계산 중에 다시 요청됐는지
+    private final ConcurrentHashMap<String, Boolean> running = new ConcurrentHashMap<>();
+
+    public VaultLayoutJob(
+            @Value("${graphmind.vault.layout.enabled:true}") boolean enabled,
+            @Value("${graphmind.vault.layout.parallelism:0}") int parallelism,
+            MeterRegistry registry
+    ) {
+        this.enabled = enabled;
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.pool = enabled ? new ForkJoinPool(threads, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("vault-layout-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false) : null;
+        this.computeTimer = Timer.builder("graphmind.vault.layout.compute")
+                .description("유저 1명의 그래프 배치를 다시 계산하는 데 걸린 시간")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /** 계산 요청 (블록하지 않음). 이미 계산 중이면 끝난 뒤 한 번 더 */
+    public void request(String userId, Runnable compute) {
+        if (!enabled) return;
+        Boolean state = running.compute(userId, (k, again) -> again == null ? Boolean.FALSE : Boolean.TRUE);
+        if (!state) pool.execute(() -> run(userId, compute));
+    }
+
+    private void run(String userId, Runnable compute) {
+        try {
+            long t0 = System.nanoTime();
+            compute.run();
+            computeTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            System.out.printf("[vault-layout] compute failed user=%s: %s%n", userId, e);
+        } finally {
+            if (running.compute(userId, (k, again) -> again ? Boolean.FALSE : null) != null) {
+                pool.execute(() -> run(userId, compute));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (pool != null) pool.shutdownNow();
+    }
+}
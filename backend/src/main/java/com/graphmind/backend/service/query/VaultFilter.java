@@ -0,0 +1,310 @@
+package com.graphmind.backend.service.query;
+
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.service.index.VaultSearchIndex;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * vault 목록 검색어(q)의 구조화 조건.
+ *
+ * 문법: 공백으로 나눈 토큰마다 [-]필드 연산자 값, 나머지는 자유 텍스트(기존 부분 문자열 검색)
+ * - 연산자: ":" "=" "!=" ">" ">=" "<" "<="  (앞에 "-"면 부정)
+ * - type:/tag:/id: 정확히 일치, "a,b"는 그중 하나. title:/formula:/expr:/axis: 는 포함(대소문자 무시)
+ * - sizeX/sizeY/sizeZ/samples/version: 정수 비교, "32..64" 범위
+ * - updated: 날짜(2026-01-01, UTC 하루 단위) / ISO 시각 / 상대값(7d, 12h). "a..b" 범위
+ *   상대값에 ":" "=" 는 "최근 d 이내"(updated:7d = updated>=7d), "!="는 그 반대
+ * - 값에 공백이 있으면 따옴표: title:"heat eq"
+ * - 모르는 필드 이름이면 자유 텍스트로 취급 (예: 수식 "x>0")
+ *
+ * 인덱스로 밀어 넣을 수 있는 부분(tag/type 절, updated 범위, 텍스트)은 따로 노출하고,
+ * matches()는 모든 조건을 다시 확인한다 (어떤 인덱스로 후보를 뽑든 결과가 같도록).
+ */
+public final class VaultFilter {
+
+    /** 조건 1개. desc는 "sizeX>64" 같은 원문 */
+    private record Clause(String desc, Predicate<VaultItem> test) {}
+
+    private static final Pattern TOKEN = Pattern.compile("^(-?)([A-Za-z]+)(!=|>=|<=|:|=|>|<)(.+)$");
+    private static final Pattern RELATIVE = Pattern.compile("^(\\d+)([dhm])$");
+
+    private final List<Clause> clauses = new ArrayList<>();
+    private final List<List<String>> tagClauses = new ArrayList<>();
+    private final List<List<String>> typeClauses = new ArrayList<>();
+    private Instant updatedFrom;
+    private Instant updatedTo;
+    private String text;
+
+    private VaultFilter() {}
+
+    /**
+     * q + 기존 tag 파라미터(any=false면 태그마다 AND, true면 하나라도)를 합친 조건.
+     * 잘못된 값(sizeX>abc 등)은 IllegalArgumentException
+     */
+    public static VaultFilter parse(String q, List<String> tags, boolean anyTag) {
+        VaultFilter f = new VaultFilter();
+        if (tags != null && !tags.isEmpty()) {
+            if (anyTag) f.tagClause(tags, false, "tag:" + String.join(",", tags));
+            else for (String t : tags) f.tagClause(List.of(t), false, "tag:" + t);
+        }
+        if (q == null || q.isBlank()) return f;
+
+        List<String> free = new ArrayList<>();
+        for (String token : split(q)) {
+            Matcher m = TOKEN.matcher(token);
+            if (!m.matches() || !f.clause(m.group(1).equals("-"), m.group(2).toLowerCase(Locale.ROOT), m.group(3), unquote(m.group(4)), token)) {
+                free.add(token);
+            }
+        }
+        // 조건이 하나도 없으면 원문 그대로 (기존 부분 문자열 검색과 똑같이)
+        if (free.size() == split(q).size()) f.text = q;
+        else if (!free.isEmpty()) f.text = String.join(" ", free);
+        return f;
+    }
+
+    /** 아무 조건도 없음 */
+    public boolean isEmpty() {
+        return clauses.isEmpty() && text == null;
+    }
+
+    /** 모든 조건 확인 (텍스트 포함) */
+    public boolean matches(VaultItem it) {
+        for (Clause c : clauses) {
+            if (!c.test().test(it)) return false;
+        }
+        return text == null || VaultSearchIndex.matches(it, text);
+    }
+
+    /** tag 절들 (절 안은 OR, 절끼리 AND). 인덱스 후보용 */
+    public List<List<String>> tagClauses() {
+        return tagClauses;
+    }
+
+    /** type 절들 (절 안은 OR, 절끼리 AND) */
+    public List<List<String>> typeClauses() {
+        return typeClauses;
+    }
+
+    /** updatedAt >= from (없으면 null) */
+    public Instant updatedFrom() {
+        return updatedFrom;
+    }
+
+    /** updatedAt < to (없으면 null) */
+    public Instant updatedTo() {
+        return updatedTo;
+    }
+
+    /** 조건을 뺀 자유 텍스트 (없으면 null) */
+    public String text() {
+        return text;
+    }
+
+    /** 텍스트 말고 다른 조건이 있는지 */
+    public boolean hasClauses() {
+        return !clauses.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner j = new StringJoiner(" ");
+        clauses.forEach(c -> j.add(c.desc()));
+        if (text != null) j.add('"' + text + '"');
+        return j.toString();
+    }
+
+    // ------------------- parse -------------------
+
+    /** 알려진 필드면 조건을 추가하고 true */
+    private boolean clause(boolean negate, String field, String op, String value, String desc) {
+        switch (field) {
+            case "tag" -> {
+                requireEquality(op, desc);
+                tagClause(list(value), negate ^ op.equals("!="), desc);
+            }
+            case "type" -> {
+                requireEquality(op, desc);
+                List<String> types = list(value);
+                boolean not = negate ^ op.equals("!=");
+                add(not, desc, it -> types.contains(it.type()));
+                if (!not) typeClauses.add(types);
+            }
+            case "id" -> {
+                requireEquality(op, desc);
+                List<String> ids = list(value);
+                add(negate ^ op.equals("!="), desc, it -> ids.contains(it.id()));
+            }
+            case "title" -> text(negate, op, value, desc, VaultItem::title);
+            case "formula" -> text(negate, op, value, desc, VaultItem::formula);
+            case "expr" -> text(negate, op, value, desc, VaultItem::expr);
+            case "axis" -> text(negate, op, value, desc, VaultItem::axisOrder);
+            case "sizex" -> number(negate, op, value, desc, VaultItem::sizeX);
+            case "sizey" -> number(negate, op, value, desc, VaultItem::sizeY);
+            case "sizez" -> number(negate, op, value, desc, VaultItem::sizeZ);
+            case "samples" -> number(negate, op, value, desc, VaultItem::samples);
+            case "version" -> number(negate, op, value, desc, it -> it.version());
+            case "updated" -> updated(negate, op, value, desc);
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void tagClause(List<String> tags, boolean negate, String desc) {
+        add(negate, desc, it -> it.tags() != null && tags.stream().anyMatch(it.tags()::contains));
+        if (!negate) tagClauses.add(tags);
+    }
+
+    private void text(boolean negate, String op, String value, String desc, Function<VaultItem, String> field) {
+        requireEquality(op, desc);
+        String needle = value.toLowerCase(Locale.ROOT);
+        add(negate ^ op.equals("!="), desc, it -> {
+            String s = field.apply(it);
+            return s != null && s.toLowerCase(Locale.ROOT).contains(needle);
+        });
+    }
+
+    private void number(boolean negate, String op, String value, String desc, Function<VaultItem, ? extends Number> field) {
+        long lo, hi; // 포함 범위
+        try {
+            int dots = value.indexOf("..");
+            if (dots >= 0) {
+                requireEquality(op, desc);
+                lo = Long.parseLong(value.substring(0, dots).trim());
+                hi = Long.parseLong(value.substring(dots + 2).trim());
+            } else {
+                long n = Long.parseLong(value.trim());
+                lo = switch (op) {
+                    case ">" -> n + 1;
+                    case ">=" -> n;
+                    case "<", "<=" -> Long.MIN_VALUE;
+                    default -> n;
+                };
+                hi = switch (op) {
+                    case "<" -> n - 1;
+                    case "<=" -> n;
+                    case ">", ">=" -> Long.MAX_VALUE;
+                    default -> n;
+                };
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("query_bad_value: " + desc);
+        }
+        long from = lo, to = hi;
+        add(negate ^ op.equals("!="), desc, it -> {
+            Number n = field.apply(it);
+            return n != null && n.longValue() >= from && n.longValue() <= to;
+        });
+    }
+
+    private void updated(boolean negate, String op, String value, String desc) {
+        Instant from, to; // [from, to)
+        int dots = value.indexOf("..");
+        if (dots >= 0) {
+            requireEquality(op, desc);
+            from = instant(value.substring(0, dots), desc)[0];
+            to = instant(value.substring(dots + 2), desc)[1];
+        } else {
+            Instant[] r = instant(value, desc);
+            from = switch (op) {
+                case ">" -> r[1];
+                case ">=", ":", "=", "!=" -> r[0];
+                default -> null;
+            };
+            to = switch (op) {
+                case "<" -> r[0];
+                case "<=", ":", "=", "!=" -> r[1];
+                default -> null;
+            };
+            // 상대값은 한 순간이라 같음 비교는 "그 시점부터 지금까지"로 본다
+            boolean equality = op.equals(":") || op.equals("=") || op.equals("!=");
+            if (equality && RELATIVE.matcher(value.trim()).matches()) to = null;
+        }
+        boolean not = negate ^ op.equals("!=");
+        Instant lo = from, hi = to;
+        add(not, desc, it -> it.updatedAt() != null
+                && (lo == null || !it.updatedAt().isBefore(lo))
+                && (hi == null || it.updatedAt().isBefore(hi)));
+        if (!not) {
+            if (from != null && (updatedFrom == null || from.isAfter(updatedFrom))) updatedFrom = from;
+            if (to != null && (updatedTo == null || to.isBefore(updatedTo))) updatedTo = to;
+        }
+    }
+
+    /** 값 → [시작, 끝) : 날짜면 그 하루, 시각/상대값이면 그 순간 */
+    private static Instant[] instant(String value, String desc) {
+        String v = value.trim();
+        Matcher rel = RELATIVE.matcher(v);
+        if (rel.matches()) {
+            long n = Long.parseLong(rel.group(1));
+            Duration d = switch (rel.group(2)) {
+                case "d" -> Duration.ofDays(n);
+                case "h" -> Duration.ofHours(n);
+                default -> Duration.ofMinutes(n);
+            };
+            Instant t = Instant.now().minus(d);
+            return new Instant[]{t, t.plusNanos(1)};
+        }
+        try {
+            if (v.length() == 10) {
+                Instant day = LocalDate.parse(v).atStartOfDay(ZoneOffset.UTC).toInstant();
+                return new Instant[]{day, day.plus(Duration.ofDays(1))};
+            }
+            Instant t = Instant.parse(v);
+            return new Instant[]{t, t.plusNanos(1)};
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("query_bad_value: " + desc);
+        }
+    }
+
+    private void add(boolean negate, String desc, Predicate<VaultItem> test) {
+        clauses.add(new Clause(desc, negate ? test.negate() : test));
+    }
+
+    private static void requireEquality(String op, String desc) {
+        if (!op.equals(":") && !op.equals("=") && !op.equals("!=")) {
+            throw new IllegalArgumentException("query_bad_operator: " + desc);
+        }
+    }
+
+    private static List<String> list(String value) {
+        List<String> out = new ArrayList<>();
+        for (String s : value.split(",")) {
+            if (!s.isBlank()) out.add(s.trim());
+        }
+        return out;
+    }
+
+    private static String unquote(String v) {
+        return v.length() >= 2 && v.startsWith("\"") && v.endsWith("\"") ? v.substring(1, v.length() - 1) : v;
+    }
+
+    /** 공백 기준, 따옴표 안의 공백은 유지 */
+    private static List<String> split(String q) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < q.length(); i++) {
+            char c = q.charAt(i);
+            if (c == '"') quoted = !quoted;
+            if (Character.isWhitespace(c) && !quoted) {
+                if (!cur.isEmpty()) out.add(cur.toString());
+                cur.setLength(0);
+            } else {
+                cur.append(c);
+            }
+        }
+        if (!cur.isEmpty()) out.add(cur.toString());
+        return out;
+    }
+}
@@ -0,0 +1,45 @@
+package com.graphmind.backend.service.storage;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 최근 N개 샘플(ns)을 링 버퍼에 보관하고 p50/p99를 계산하는 간단한 측정기.
+ * - record()는 락 없이 동작 (가끔 샘플이 덮어써져도 통계 용도로는 문제 없음)
+ * - snapshot()은 복사 후 정렬하므로 조회 시에만 비용 발생
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+    private volatile long count;
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[Math.max(16, capacity)];
+    }
+
+    public void record(long nanos) {
+        long c = count;
+        samples[(int) (c % samples.length)] = nanos;
+        count = c + 1;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** p50/p99/max (micro seconds) */
+    public Map<String, Object> snapshot() {
+        long c = count;
+        int n = (int) Math.min(c, samples.length);
+        long[] copy = Arrays.copyOf(samples, n);
+        Arrays.sort(copy);
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("count", c);
+        out.put("p50Micros", n == 0 ? 0 : copy[(int) Math.floor((n - 1) * 0.50)] / 1_000);
+        out.put("p99Micros", n == 0 ? 0 : copy[(int) Math.floor((n - 1) * 0.99)] / 1_000);
+        out.put("maxMicros", n == 0 ? 0 : copy[n - 1] / 1_000);
+        return out;
+    }
+}
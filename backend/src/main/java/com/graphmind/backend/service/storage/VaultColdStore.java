@@ -0,0 +1,222 @@
+package com.graphmind.backend.service.storage;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import com.graphmind.backend.domain.VaultItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * vault cold tier: 오래 안 열어 본 아이템의 content를 Smile(이진 JSON) + Deflate 바이트로 보관.
+ *
+ * - 아이템 자체(요약 필드)는 그대로 두고 content만 null로 바꾼 "cold 아이템" + Cold(압축 바이트)로 교체
+ * - 읽을 때(getOwned / listFull view=full / changes) thaw()로 풀어서 돌려준다
+ * - 주기적인 sweep은 InMemoryVaultService가 넘겨준 작업을 그대로 실행 (유저 맵은 서비스가 가짐)
+ * - 지표: graphmind.vault.cold.{items,bytes,raw.bytes} 게이지, graphmind.vault.cold.inflate 타이머
+ */
+@Component
+public class VaultColdStore {
+
+    /**
+     * 저장소에 content 없이 들어 있는 아이템과, 그 content가 실제로 있는 곳 (압축 바이트).
+     * item == 저장소에 들어 있는 아이템일 때만 유효
+     */
+    public interface Packed {
+        VaultItem item();
+
+        /** 압축 전(Smile) 크기 */
+        int rawBytes();
+
+        /** 압축 크기 */
+        int packedBytes();
+
+        /** 힙에서 차지하는 크기 */
+        int heapBytes();
+
+        /** 압축 바이트. 그 사이 해제됐으면 null */
+        byte[] read();
+
+        /** 더 이상 안 쓰는 기록: 잡고 있던 자원 반환 */
+        void release();
+    }
+
+    /** 메모리 모드 cold tier: 압축 바이트를 힙에 */
+    public record Cold(VaultItem item, byte[] packed, int rawBytes) implements Packed {
+        @Override
+        public int packedBytes() {
+            return packed.length;
+        }
+
+        @Override
+        public int heapBytes() {
+            return packed.length;
+        }
+
+        @Override
+        public byte[] read() {
+            return packed;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    /** 게이지용 현재 사용량 (서비스가 계산) */
+    public record Usage(long items, long packedBytes, long rawBytes) {}
+
+    private final boolean enabled;
+    private final long idleMillis;
+    private final int minBytes;
+    private final long sweepSeconds;
+
+    private final SmileMapper smile = SmileMapper.builder().build();
+    private final Timer inflateTimer;
+    private final LatencyRecorder inflateLatency = new LatencyRecorder(4096);
+    private final AtomicLong cooled = new AtomicLong();
+    private final AtomicLong thawed = new AtomicLong();
+
+    private volatile Supplier<Usage> usage = () -> new Usage(0, 0, 0);
+    private ScheduledExecutorService scheduler;
+
+    public VaultColdStore(
+            @Value("${graphmind.vault.cold.enabled:false}") boolean enabled,
+            @Value("${graphmind.vault.cold.idle-minutes:60}") long idleMinutes,
+            @Value("${graphmind.vault.cold.min-bytes:16384}") int minBytes,
+            @Value("${graphmind.vault.cold.sweep-seconds:60}") long sweepSeconds,
+            MeterRegistry registry
+    ) {
+        this.enabled = enabled;
+        this.idleMillis = TimeUnit.MINUTES.toMillis(Math.max(0, idleMinutes));
+        this.minBytes = Math.max(0, minBytes);
+        this.sweepSeconds = Math.max(1, sweepSeconds);
+
+        this.inflateTimer = Timer.builder("graphmind.vault.cold.inflate")
+                .description("cold content를 풀어서 읽는 데 걸린 시간")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("graphmind.vault.cold.items", () -> usage.get().items())
+                .description("content가 압축 보관 중인 아이템 수").register(registry);
+        Gauge.builder("graphmind.vault.cold.bytes", () -> usage.get().packedBytes())
+                .description("압축된 content 크기 합").baseUnit("bytes").register(registry);
+        Gauge.builder("graphmind.vault.cold.raw.bytes", () -> usage.get().rawBytes())
+                .description("압축 전(Smile) content 크기 합").baseUnit("bytes").register(registry);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /** 마지막 접근이 이 시각(ms) 이전이면 cold 대상 */
+    public long idleCutoffMillis() {
+        return System.currentTimeMillis() - idleMillis;
+    }
+
+    /** 주기적으로 sweep 실행 + 게이지가 읽을 사용량 공급자 등록 */
+    public void start(Runnable sweep, Supplier<Usage> usage) {
+        this.usage = usage;
+        if (!enabled) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vault-cold-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sweep.run();
+            } catch (RuntimeException e) {
+                System.out.printf("[vault-cold] sweep failed: %s%n", e);
+            }
+        }, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    /**
+     * content 압축. 작아서 이득이 없으면 null.
+     * coldItem은 content를 null로 바꾼, 저장소에 넣을 아이템
+     */
+    public Cold freeze(VaultItem coldItem, JsonNode content) {
+        byte[] raw = smile.writeValueAsBytes(content);
+        if (raw.length < minBytes) return null;
+
+        cooled.incrementAndGet();
+        return new Cold(coldItem, deflate(raw, Deflater.DEFAULT_COMPRESSION), raw.length);
+    }
+
+    private byte[] deflate(byte[] raw, int level) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        Deflater deflater = new Deflater(level);
+        try (DeflaterOutputStream z = new DeflaterOutputStream(out, deflater)) {
+            z.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * disk 모드: content를 압축해서 페이지 파일에 쓴다 (크기와 상관없이 항상, 쓰기 경로라 속도 우선 레벨).
+     * coldItem은 content를 null로 바꾼, 저장소에 넣을 아이템
+     */
+    public VaultPageStore.Paged page(VaultItem coldItem, JsonNode content, VaultPageStore pages) {
+        byte[] raw = smile.writeValueAsBytes(content);
+        return new VaultPageStore.Paged(coldItem, pages.write(deflate(raw, Deflater.BEST_SPEED)), raw.length);
+    }
+
+    /** 풀어서 돌려준다. 페이지가 그 사이 해제됐으면(아이템이 바뀜) null */
+    public JsonNode thaw(Packed c) {
+        byte[] packed = c.read();
+        if (packed == null) return null;
+        long t0 = System.nanoTime();
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(packed))) {
+            return smile.readTree(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            long ns = System.nanoTime() - t0;
+            inflateTimer.record(ns, TimeUnit.NANOSECONDS);
+            inflateLatency.record(ns);
+            thawed.incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Usage u = usage.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("items", u.items());
+        out.put("packedBytes", u.packedBytes());
+        out.put("rawBytes", u.rawBytes());
+        out.put("cooled", cooled.get());
+        out.put("thawed", thawed.get());
+        out.put("inflateLatency", inflateLatency.snapshot());
+        return out;
+    }
+}
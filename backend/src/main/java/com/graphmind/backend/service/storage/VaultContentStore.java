@@ -0,0 +1,325 @@
+package com.graphmind.backend.service.storage;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+import tools.jackson.databind.node.ObjectNode;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * vault content 중복 제거 (content-addressed, 전체 유저 공용).
+ *
+ * - content 트리를 아래에서부터 SHA-256으로 해시하고, 일정 크기 이상의 object/array는
+ *   해시 → 하나의 공유 노드로 저장한다 (hash-consing). 같은 하위 트리는 아이템/유저가 달라도 한 벌
+ * - 참조 수를 센다: 아이템이 content를 잡을 때 acquire, 놓을 때 release.
+ *   공유 노드는 자기 자식 공유 노드를 1씩 잡고 있으므로, 0이 되면 자식도 연쇄 해제
+ * - 이미 공유 노드인 하위 트리(JSON Patch 경로 복사로 남은 부분)는 다시 해시하지 않는다
+ * - 전역 락 없음: 해시 계산과 공유 노드 구성은 호출 스레드에서, 참조 수만 키별 ConcurrentHashMap.compute 안에서
+ *
+ * 공유 노드는 절대 제자리 수정하면 안 된다 (JsonPatch/merge는 경로 복사로만 바꾼다).
+ */
+@Component
+public class VaultContentStore {
+
+    // 이보다 작은 하위 트리는 공유하지 않고 부모에 그대로 둔다 (엔트리 오버헤드가 더 큼)
+    private static final int MIN_SHARED_NODES = 8;
+
+    private static final byte TAG_OBJECT = 1;
+    private static final byte TAG_ARRAY = 2;
+    private static final byte TAG_VALUE = 3;
+    private static final byte TAG_NODE = 4; // 자식 object/array의 해시
+    private static final byte TAG_LONG = 5;
+    private static final byte TAG_DOUBLE = 6;
+
+    /** SHA-256 앞 128bit */
+    record Key(long hi, long lo) {}
+
+    private static final class Entry {
+        final Key key;
+        final JsonNode node;
+        final List<Entry> children; // 이 노드가 잡고 있는 공유 자식들
+        volatile long refs; // byKey.compute(key) 안에서만 바꾼다
+
+        Entry(Key key, JsonNode node, List<Entry> children) {
+            this.key = key;
+            this.node = node;
+            this.children = children;
+        }
+    }
+
+    /**
+     * 해시 계산 결과 (락 밖에서 만든다).
+     * known == true: 이미 공유 노드라서 자식은 다시 보지 않음 (children 비어 있음)
+     */
+    private record Prepared(Key key, JsonNode node, int weight, List<Prepared> children, boolean known) {
+        boolean shared() {
+            return known || (weight >= MIN_SHARED_NODES && node.isContainer());
+        }
+    }
+
+    /** 공유 노드를 객체 동일성으로 찾기 위한 키 */
+    private record Ident(JsonNode node) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Ident i && i.node == node;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(node);
+        }
+    }
+
+    private final boolean enabled;
+    // 참조 수는 키별 compute 안에서만 바꾼다 (전역 락 없음). 해시 계산/트리 구성은 락 밖
+    private final ConcurrentHashMap<Key, Entry> byKey = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Ident, Entry> canonical = new ConcurrentHashMap<>();
+    private final ThreadLocal<MessageDigest> sha = ThreadLocal.withInitial(VaultContentStore::newDigest);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VaultContentStore(@Value("${graphmind.vault.dedup.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * content를 공유 노드로 바꿔서 돌려주고 참조 수를 1 올린다.
+     * 작은 content(공유 대상 아님)는 그대로 돌려준다.
+     */
+    public JsonNode acquire(JsonNode content) {
+        if (!enabled || content == null || !content.isContainer()) return content;
+
+        Entry known = canonical.get(new Ident(content));
+        if (known != null && retain(known)) {
+            hits.increment();
+            return known.node;
+        }
+        Prepared p = prepare(content); // 처음 보거나 그 사이 해제됨
+        return p.shared() ? intern(p).node : content;
+    }
+
+    /** acquire로 받은 content를 놓는다 (공유 노드가 아니면 무시) */
+    public void release(JsonNode content) {
+        if (!enabled || content == null || !content.isContainer()) return;
+        Entry e = canonical.get(new Ident(content));
+        if (e != null) release(e);
+    }
+
+    /** content가 공유 노드면 참조 수, 아니면 0 */
+    public long refs(JsonNode content) {
+        if (content == null) return 0;
+        Entry e = canonical.get(new Ident(content));
+        return e == null ? 0 : e.refs;
+    }
+
+    public Map<String, Object> stats() {
+        long refs = 0;
+        for (Entry e : byKey.values()) refs += e.refs;
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("sharedNodes", byKey.size());
+        out.put("refs", refs);
+        out.put("hits", hits.sum());
+        out.put("misses", misses.sum());
+        return out;
+    }
+
+    // ------------------- refcount (키별 compute) -------------------
+
+    /** e가 아직 살아 있으면 참조 +1 */
+    private boolean retain(Entry e) {
+        boolean[] ok = {false};
+        byKey.computeIfPresent(e.key, (k, cur) -> {
+            if (cur == e) {
+                cur.refs++;
+                ok[0] = true;
+            }
+            return cur;
+        });
+        return ok[0];
+    }
+
+    /**
+     * 같은 키가 있으면 참조만 올리고, 없으면 자식을 먼저 잡은 뒤(각자 참조 1) 새 노드를 만든다.
+     * 노드 구성은 락 밖. 그 사이 다른 스레드가 같은 키를 넣었으면 그쪽을 쓰고 잡은 자식은 돌려준다
+     */
+    private Entry intern(Prepared p) {
+        Entry[] hit = {null};
+        byKey.computeIfPresent(p.key(), (k, cur) -> {
+            cur.refs++;
+            hit[0] = cur;
+            return cur;
+        });
+        if (hit[0] != null) {
+            hits.increment();
+            return hit[0];
+        }
+        // 공유 노드였는데 그 사이 해제됨 → 자식까지 다시 준비 (canonical에 남은 옛 기록은 보지 않고)
+        if (p.known()) p = prepare(p.node(), false);
+
+        List<Entry> held = new ArrayList<>(2);
+        JsonNode node;
+        int i = 0;
+        if (p.node().isObject()) {
+            ObjectNode o = JsonNodeFactory.instance.objectNode();
+            for (Map.Entry<String, JsonNode> f : p.node().properties()) {
+                o.set(f.getKey(), child(f.getValue(), p.children().get(i++), held));
+            }
+            node = o;
+        } else {
+            ArrayNode a = JsonNodeFactory.instance.arrayNode(p.node().size());
+            for (JsonNode v : p.node()) a.add(child(v, p.children().get(i++), held));
+            node = a;
+        }
+
+        Entry fresh = new Entry(p.key(), node, held.isEmpty() ? List.of() : held);
+        fresh.refs = 1;
+        // byKey에 넣기 전에 canonical부터: 다른 스레드가 byKey에서 이 노드를 받자마자 release해도 찾을 수 있게
+        Ident ident = new Ident(node);
+        canonical.put(ident, fresh);
+        Entry[] won = {fresh};
+        byKey.compute(p.key(), (k, cur) -> {
+            if (cur == null) return fresh;
+            cur.refs++;
+            won[0] = cur;
+            return cur;
+        });
+        if (won[0] != fresh) {
+            canonical.remove(ident, fresh);
+            for (Entry c : held) release(c);
+            hits.increment();
+            return won[0];
+        }
+        misses.increment();
+        return fresh;
+    }
+
+    private JsonNode child(JsonNode raw, Prepared c, List<Entry> held) {
+        if (c == null || !c.shared()) return raw;
+        Entry e = intern(c);
+        held.add(e);
+        return e.node;
+    }
+
+    /** 참조 -1. 0이 되면 맵에서 빼고 자식도 연쇄 해제 */
+    private void release(Entry root) {
+        ArrayDeque<Entry> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Entry e = stack.pop();
+            boolean[] freed = {false};
+            byKey.computeIfPresent(e.key, (k, cur) -> {
+                if (cur != e || --cur.refs > 0) return cur;
+                freed[0] = true;
+                return null;
+            });
+            if (!freed[0]) continue;
+            canonical.remove(new Ident(e.node), e);
+            for (Entry c : e.children) stack.push(c);
+        }
+    }
+
+    // ------------------- hashing (호출 스레드) -------------------
+
+    /** n은 object/array. 값(leaf)은 따로 해시하지 않고 부모 해시 입력에 바이트로 넣는다 */
+    private Prepared prepare(JsonNode n) {
+        return prepare(n, true);
+    }
+
+    private Prepared prepare(JsonNode n, boolean reuse) {
+        // 이미 공유 중인 하위 트리는 저장된 키를 재사용 (경로 복사된 patch는 바뀐 경로만 해시).
+        // 해제 직후라 byKey에서 빠진 기록은 무시
+        Entry known = reuse ? canonical.get(new Ident(n)) : null;
+        if (known != null && byKey.get(known.key) == known) {
+            return new Prepared(known.key, n, MIN_SHARED_NODES, List.of(), true);
+        }
+
+        // children[i] == null 이면 i번째 자식은 값(leaf)
+        List<Prepared> children = new ArrayList<>(n.size());
+        ByteBuffer buf = ByteBuffer.allocate(Math.max(64, n.size() * 24));
+        int weight = 1;
+        buf.put(n.isObject() ? TAG_OBJECT : TAG_ARRAY);
+        if (n.isObject()) {
+            for (Map.Entry<String, JsonNode> f : n.properties()) {
+                byte[] name = f.getKey().getBytes(StandardCharsets.UTF_8);
+                buf = ensure(buf, name.length + 4);
+                buf.putInt(name.length).put(name);
+                buf = putChild(buf, f.getValue(), children);
+                Prepared c = children.get(children.size() - 1);
+                weight += c == null ? 1 : c.weight();
+            }
+        } else {
+            for (JsonNode v : n) {
+                buf = putChild(buf, v, children);
+                Prepared c = children.get(children.size() - 1);
+                weight += c == null ? 1 : c.weight();
+            }
+        }
+        return new Prepared(hash(buf.array(), buf.position()), n, weight, children, false);
+    }
+
+    private ByteBuffer putChild(ByteBuffer buf, JsonNode v, List<Prepared> children) {
+        if (v.isContainer()) {
+            Prepared c = prepare(v);
+            children.add(c);
+            buf = ensure(buf, 17);
+            return buf.put(TAG_NODE).putLong(c.key().hi()).putLong(c.key().lo());
+        }
+        children.add(null);
+        // 흔한 숫자는 문자열 변환 없이 비트 그대로 (볼륨 데이터는 대부분 int/double)
+        if (v.isInt() || v.isLong()) {
+            buf = ensure(buf, 9);
+            return buf.put(TAG_LONG).putLong(v.longValue());
+        }
+        if (v.isDouble()) {
+            buf = ensure(buf, 9);
+            return buf.put(TAG_DOUBLE).putLong(Double.doubleToLongBits(v.doubleValue()));
+        }
+        byte[] raw = v.toString().getBytes(StandardCharsets.UTF_8);
+        buf = ensure(buf, raw.length + 5);
+        return buf.put(TAG_VALUE).putInt(raw.length).put(raw);
+    }
+
+    private Key hash(byte[] bytes, int len) {
+        MessageDigest md = sha.get();
+        md.reset();
+        md.update(bytes, 0, len);
+        return key(md.digest());
+    }
+
+    private static Key key(byte[] d) {
+        ByteBuffer b = ByteBuffer.wrap(d);
+        return new Key(b.getLong(), b.getLong());
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buf, int more) {
+        if (buf.remaining() >= more) return buf;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + more));
+        buf.flip();
+        bigger.put(buf);
+        return bigger;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.graphmind.backend.service.storage;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.NullNode;
+
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.service.feed.VaultChangeFeed;
+import com.graphmind.backend.service.json.JsonPatch;
+import com.graphmind.backend.service.json.JsonSize;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * vault 아이템 버전 이력 (역방향 delta + 주기적 keyframe).
+ *
+ * - 최신 버전의 content는 저장소의 아이템 그 자체라서 여기엔 두지 않는다 (cold tier와 겹치지 않도록)
+ * - 지난 버전 v는 "v+1 → v" JSON Patch로 보관. version % keyframeInterval == 0 이면 content 통째(keyframe)
+ * - 버전 k 복원 = k 위쪽의 가장 가까운 keyframe(또는 최신)에서 patch를 내려가며 적용 → 최대 keyframeInterval-1번
+ * - 아이템당 maxVersions개까지 (오래된 것부터 버림, 복원은 위에서 내려오므로 끊기지 않음)
+ *
+ * patch 계산(prepare)은 락 밖에서, 체인에 붙이는 것(record)만 items.compute 안에서 → 아이템 단위로 직렬화.
+ * 메모리에만 둔다: 재시작(WAL 복구)이나 vault spill 후에는 그 시점 버전부터 다시 쌓인다.
+ * 이력 크기는 record/forget이 돌려주는 바이트로 vault의 approxBytes(메모리 예산)에 더해진다.
+ */
+@Component
+public class VaultHistoryStore {
+
+    /** 목록용 버전 정보. fields = 직전 버전 대비 바뀐 필드 */
+    public record Version(long version, Instant updatedAt, List<String> fields, boolean keyframe) {}
+
+    /** prepare()가 락 밖에서 만든 기록 1건. record()에 그대로 넘긴다 */
+    public record Step(VaultItem prev, VaultItem next, JsonNode keyframe, JsonNode diff, List<String> fields, long bytes) {}
+
+    /** 지난 버전 1개: content를 뺀 아이템 + (keyframe 또는 다음 버전 → 이 버전 patch) */
+    private record Entry(VaultItem meta, JsonNode keyframe, JsonNode diff, List<String> fields, long bytes) {}
+
+    private static final class Chain {
+        final ArrayDeque<Entry> past = new ArrayDeque<>(); // 오래된 것부터
+        long headVersion;
+        List<String> headFields = List.of();
+        long bytes = CHAIN_BYTES;
+    }
+
+    // 추정치 계수: 체인 1개(맵 엔트리 + deque) / 지난 버전 1개(메타 아이템 + 엔트리). patch/keyframe은 JsonSize
+    private static final long CHAIN_BYTES = 256;
+    private static final long ENTRY_BYTES = 512;
+
+    private final boolean enabled;
+    private final int keyframeInterval;
+    private final int maxVersions;
+
+    // userId -> itemId -> 이력
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Chain>> chains = new ConcurrentHashMap<>();
+
+    private final AtomicLong diffs = new AtomicLong();
+    private final AtomicLong diffOps = new AtomicLong();
+    private final AtomicLong keyframes = new AtomicLong();
+    private final AtomicLong materialized = new AtomicLong();
+    private final AtomicLong patchesApplied = new AtomicLong();
+
+    public VaultHistoryStore(
+            @Value("${graphmind.vault.history.enabled:true}") boolean enabled,
+            @Value("${graphmind.vault.history.keyframe-interval:16}") int keyframeInterval,
+            @Value("${graphmind.vault.history.max-versions:256}") int maxVersions
+    ) {
+        this.enabled = enabled;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.maxVersions = Math.max(1, maxVersions);
+    }
+
+    // =========================
+    // write path: prepare(락 밖) → record(items.compute 안)
+    // =========================
+
+    /**
+     * prev == null 이면 생성. prev는 content까지 채운 값 (cold였다면 푼 값).
+     * content 크기에 비례하는 diff/비교는 여기서 끝내 둔다. 비활성이면 null
+     */
+    public Step prepare(VaultItem prev, VaultItem next) {
+        if (!enabled) return null;
+        JsonNode keyframe = null;
+        JsonNode diff = null;
+        long bytes = 0;
+        if (prev != null) {
+            if (prev.version() % keyframeInterval == 0) {
+                // content 없는 버전도 keyframe으로 표시되도록 NullNode (materialize가 null로 되돌린다)
+                keyframe = prev.content() == null ? NullNode.getInstance() : prev.content();
+            } else {
+                diff = JsonPatch.diff(next.content(), prev.content());
+            }
+            bytes = ENTRY_BYTES + JsonSize.estimate(keyframe != null ? keyframe : diff);
+        }
+        return new Step(prev, next, keyframe, diff, VaultChangeFeed.changedFields(prev, next), bytes);
+    }
+
+    /** 체인에 붙이고 늘어난(오래된 버전을 버렸으면 줄어든) 바이트를 돌려준다 */
+    public long record(Step step) {
+        if (step == null) return 0;
+        VaultItem prev = step.prev();
+        VaultItem next = step.next();
+        boolean[] created = {false};
+        Chain chain = chains.computeIfAbsent(next.userId(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(next.id(), k -> {
+                    created[0] = true;
+                    return new Chain();
+                });
+        long delta = created[0] ? CHAIN_BYTES : 0;
+        synchronized (chain) {
+            if (prev != null) {
+                if (step.keyframe() != null) {
+                    keyframes.incrementAndGet();
+                } else {
+                    diffs.incrementAndGet();
+                    diffOps.addAndGet(step.diff().size());
+                }
+                chain.past.addLast(new Entry(withContent(prev, null), step.keyframe(), step.diff(), chain.headFields, step.bytes()));
+                delta += step.bytes();
+                while (chain.past.size() > maxVersions) delta -= chain.past.removeFirst().bytes();
+            }
+            chain.headVersion = next.version();
+            chain.headFields = step.fields();
+            chain.bytes += delta - (created[0] ? CHAIN_BYTES : 0);
+        }
+        return delta;
+    }
+
+    /** 아이템 이력을 버리고 풀린 바이트를 돌려준다 */
+    public long forget(String userId, String id) {
+        Map<String, Chain> byItem = chains.get(userId);
+        Chain chain = byItem == null ? null : byItem.remove(id);
+        if (chain == null) return 0;
+        synchronized (chain) {
+            return chain.bytes;
+        }
+    }
+
+    /** vault를 통째로 내릴 때: 유저의 이력 전부 */
+    public void forgetUser(String userId) {
+        chains.remove(userId);
+    }
+
+    // =========================
+    // read
+    // =========================
+
+    /** 최신부터. head = 현재 저장된 아이템 */
+    public List<Version> versions(VaultItem head) {
+        List<Version> out = new ArrayList<>();
+        Chain chain = chain(head);
+        if (chain == null || chain.headVersion != head.version()) {
+            out.add(new Version(head.version(), head.updatedAt(), List.of(), true));
+            return out;
+        }
+        synchronized (chain) {
+            out.add(new Version(head.version(), head.updatedAt(), chain.headFields, true));
+            Iterator<Entry> it = chain.past.descendingIterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                out.add(new Version(e.meta().version(), e.meta().updatedAt(), e.fields(), e.keyframe() != null));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * version 시점의 아이템. head는 content까지 채운 현재 아이템.
+     * 이력에 없는 버전이면 null, head가 그 사이 바뀌어 체인과 안 맞으면 IllegalStateException (다시 시도)
+     */
+    public VaultItem materialize(VaultItem head, long version) {
+        if (version == head.version()) return head;
+        Chain chain = chain(head);
+        if (chain == null) return null;
+
+        Entry target = null;
+        List<JsonNode> patches = new ArrayList<>();
+        JsonNode base = head.content();
+        synchronized (chain) {
+            if (chain.headVersion != head.version()) throw new IllegalStateException("vault_history_moved");
+            // 위에서부터 내려오며, target 위쪽에서 가장 가까운 keyframe을 기준으로 잡는다
+            Iterator<Entry> it = chain.past.descendingIterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (e.meta().version() < version) break;
+                if (e.keyframe() != null) {
+                    base = e.keyframe();
+                    patches.clear();
+                } else {
+                    patches.add(e.diff());
+                }
+                if (e.meta().version() == version) {
+                    target = e;
+                    break;
+                }
+            }
+        }
+        if (target == null) return null;
+
+        JsonNode content = base;
+        for (JsonNode p : patches) content = JsonPatch.apply(content, p);
+        materialized.incrementAndGet();
+        patchesApplied.addAndGet(patches.size());
+        return withContent(target.meta(), content == null || content.isNull() ? null : content);
+    }
+
+    public Map<String, Object> stats() {
+        long items = 0, versions = 0;
+        for (Map<String, Chain> byItem : chains.values()) {
+            for (Chain c : byItem.values()) {
+                items++;
+                synchronized (c) {
+                    versions += c.past.size();
+                }
+            }
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("keyframeInterval", keyframeInterval);
+        out.put("items", items);
+        out.put("pastVersions", versions);
+        out.put("keyframes", keyframes.get());
+        out.put("diffs", diffs.get());
+        out.put("diffOps", diffOps.get());
+        out.put("materialized", materialized.get());
+        out.put("patchesApplied", patchesApplied.get());
+        return out;
+    }
+
+    private Chain chain(VaultItem head) {
+        Map<String, Chain> byItem = chains.get(head.userId());
+        return byItem == null ? null : byItem.get(head.id());
+    }
+
+    private static VaultItem withContent(VaultItem it, JsonNode content) {
+        return new VaultItem(
+                it.id(), it.userId(), it.title(), it.type(),
+                it.formula(), it.expr(), it.samples(), it.axisOrder(),
+                it.sizeX(), it.sizeY(), it.sizeZ(),
+                it.tags(), content, it.links(), it.updatedAt(), it.version()
+        );
+    }
+}
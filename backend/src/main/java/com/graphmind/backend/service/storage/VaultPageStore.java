@@ -0,0 +1,291 @@
+package com.graphmind.backend.service.storage;
+
+import com.graphmind.backend.domain.VaultItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * disk 모드(graphmind.vault.store=disk)의 content 저장소: 고정 크기 페이지 파일 + 크기 제한 페이지 캐시.
+ *
+ * - 레코드 1개(압축된 content) = 페이지 여러 장. 페이지 목록은 Ref가 들고 있고(힙에는 페이지 번호만),
+ *   해제된 페이지는 free list로 재사용한다 → 수정이 많아도 파일이 계속 자라지 않음
+ * - 페이지 헤더 = 레코드 stamp(8) + 이 페이지에 쓴 바이트 수(4). stamp는 레코드마다 고유해서,
+ *   읽는 사이 해제/재사용된 페이지는 stamp가 달라 null을 돌려준다 (호출 쪽이 최신 아이템으로 다시 읽음)
+ * - 읽기는 페이지 캐시(LRU, cache-mb)를 거친다. 캐시 밖은 OS 페이지 캐시에 맡김
+ * - 메모리 확장일 뿐이라 시작할 때 파일을 비운다 (내구성은 WAL)
+ */
+@Component
+@ConditionalOnProperty(name = "graphmind.vault.store", havingValue = "disk")
+public class VaultPageStore {
+
+    public static final int PAGE = 8192;
+    private static final int HEADER = 12;
+    private static final int PAYLOAD = PAGE - HEADER;
+
+    /** 페이지 파일에 둔 content 기록: 저장소의 content 없는 아이템 + 레코드 위치 */
+    public record Paged(VaultItem item, Ref ref, int rawBytes) implements VaultColdStore.Packed {
+        @Override
+        public int packedBytes() {
+            return ref.bytes();
+        }
+
+        /** 힙에는 페이지 번호만 */
+        @Override
+        public int heapBytes() {
+            return 64 + 4 * ref.pages();
+        }
+
+        @Override
+        public byte[] read() {
+            return ref.read();
+        }
+
+        @Override
+        public void release() {
+            ref.free();
+        }
+    }
+
+    /** 레코드 위치. free()는 한 번만 효과가 있다 */
+    public static final class Ref {
+        private final VaultPageStore store;
+        private final int[] pages;
+        private final long stamp;
+        private final int bytes;
+        private final AtomicBoolean freed = new AtomicBoolean();
+
+        private Ref(VaultPageStore store, int[] pages, long stamp, int bytes) {
+            this.store = store;
+            this.pages = pages;
+            this.stamp = stamp;
+            this.bytes = bytes;
+        }
+
+        /** 레코드 바이트. 그 사이 해제됐으면 null */
+        public byte[] read() {
+            return store.read(this);
+        }
+
+        public void free() {
+            if (freed.compareAndSet(false, true)) store.free(this);
+        }
+
+        public int bytes() {
+            return bytes;
+        }
+
+        public int pages() {
+            return pages.length;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel ch;
+    private final int cachePages;
+
+    // 페이지 할당 (free list + 파일 끝)
+    private final Object allocLock = new Object();
+    private int[] freePages = new int[1024];
+    private int freeCount;
+    private int pageCount;
+
+    private final AtomicLong stamps = new AtomicLong();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    // 페이지 번호 → 페이지 전체(헤더 포함). 값은 불변 배열
+    private final LinkedHashMap<Integer, byte[]> cache = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+            return size() > cachePages;
+        }
+    };
+
+    public VaultPageStore(
+            @Value("${graphmind.vault.disk.file:data/vault-pages/content.pages}") String file,
+            @Value("${graphmind.vault.disk.cache-mb:64}") long cacheMb,
+            MeterRegistry registry
+    ) {
+        this.file = Path.of(file);
+        this.cachePages = (int) Math.max(16, Math.min(Integer.MAX_VALUE, cacheMb * 1024 * 1024 / PAGE));
+        try {
+            if (this.file.getParent() != null) Files.createDirectories(this.file.getParent());
+            this.ch = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Gauge.builder("graphmind.vault.disk.bytes", liveBytes, AtomicLong::get)
+                .description("페이지 파일에 들어 있는 content 크기 합").baseUnit("bytes").register(registry);
+        Gauge.builder("graphmind.vault.disk.pages", this, s -> s.pageCount)
+                .description("페이지 파일 크기 (페이지 수)").register(registry);
+        Gauge.builder("graphmind.vault.disk.free.pages", this, s -> s.freeCount)
+                .description("재사용 대기 중인 페이지 수").register(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            ch.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** 레코드 쓰기 (호출 스레드에서 바로 pwrite) */
+    public Ref write(byte[] data) {
+        int n = Math.max(1, (data.length + PAYLOAD - 1) / PAYLOAD);
+        int[] pages = allocate(n);
+        long stamp = stamps.incrementAndGet();
+
+        // 연속된 페이지는 한 번에 쓴다 (새로 늘린 파일 끝은 항상 연속)
+        int off = 0;
+        for (int i = 0; i < n; ) {
+            int run = 1;
+            while (i + run < n && pages[i + run] == pages[i] + run) run++;
+            ByteBuffer buf = ByteBuffer.allocate(run * PAGE);
+            for (int k = 0; k < run; k++) {
+                int len = Math.min(PAYLOAD, data.length - off);
+                buf.position(k * PAGE);
+                buf.putLong(stamp).putInt(len).put(data, off, len);
+                off += len;
+            }
+            buf.clear();
+            writeFully(buf, (long) pages[i] * PAGE);
+            synchronized (cache) {
+                for (int k = 0; k < run; k++) cache.remove(pages[i + k]);
+            }
+            i += run;
+        }
+        liveBytes.addAndGet(data.length);
+        return new Ref(this, pages, stamp, data.length);
+    }
+
+    private byte[] read(Ref r) {
+        byte[] out = new byte[r.bytes];
+        int off = 0;
+        for (int page : r.pages) {
+            byte[] p = page(page, r.stamp);
+            if (p == null) {
+                stale.incrementAndGet();
+                return null;
+            }
+            int len = ByteBuffer.wrap(p, 8, 4).getInt();
+            System.arraycopy(p, HEADER, out, off, len);
+            off += len;
+        }
+        return out;
+    }
+
+    /** 캐시 → 파일. stamp가 다르면(해제/재사용됨) null */
+    private byte[] page(int page, long stamp) {
+        byte[] p;
+        synchronized (cache) {
+            p = cache.get(page);
+        }
+        if (p != null) {
+            if (stampOf(p) == stamp) {
+                hits.incrementAndGet();
+                return p;
+            }
+            synchronized (cache) {
+                cache.remove(page, p); // 옛 내용이 캐시에 남은 경우 → 파일에서 다시
+            }
+        }
+        misses.incrementAndGet();
+        ByteBuffer buf = ByteBuffer.allocate(PAGE);
+        readFully(buf, (long) page * PAGE);
+        p = buf.array();
+        if (stampOf(p) != stamp) return null;
+        // 읽는 도중 재사용됐으면 헤더가 이미 바뀌어 있다 (헤더를 먼저 쓰므로 다시 확인)
+        ByteBuffer head = ByteBuffer.allocate(8);
+        readFully(head, (long) page * PAGE);
+        if (head.getLong(0) != stamp) return null;
+        synchronized (cache) {
+            cache.put(page, p);
+        }
+        return p;
+    }
+
+    private void free(Ref r) {
+        synchronized (cache) {
+            for (int page : r.pages) cache.remove(page);
+        }
+        synchronized (allocLock) {
+            if (freeCount + r.pages.length > freePages.length) {
+                freePages = Arrays.copyOf(freePages, Math.max(freePages.length * 2, freeCount + r.pages.length));
+            }
+            for (int page : r.pages) freePages[freeCount++] = page;
+        }
+        liveBytes.addAndGet(-r.bytes);
+    }
+
+    /** free list 먼저 (최근 반환된 것부터), 모자라면 파일 끝에서 연속으로 */
+    private int[] allocate(int n) {
+        int[] out = new int[n];
+        synchronized (allocLock) {
+            int reuse = Math.min(n, freeCount);
+            for (int i = 0; i < reuse; i++) out[i] = freePages[--freeCount];
+            for (int i = reuse; i < n; i++) out[i] = pageCount++;
+        }
+        return out;
+    }
+
+    private static long stampOf(byte[] page) {
+        return ByteBuffer.wrap(page, 0, 8).getLong();
+    }
+
+    private void writeFully(ByteBuffer buf, long pos) {
+        try {
+            while (buf.hasRemaining()) pos += ch.write(buf, pos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void readFully(ByteBuffer buf, long pos) {
+        try {
+            while (buf.hasRemaining()) {
+                int n = ch.read(buf, pos);
+                if (n < 0) break; // 파일 끝 (아직 안 쓴 페이지) → stamp 0
+                pos += n;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("file", file.toString());
+        out.put("liveBytes", liveBytes.get());
+        synchronized (allocLock) {
+            out.put("pages", pageCount);
+            out.put("freePages", freeCount);
+        }
+        out.put("cachePages", cachePages);
+        out.put("cacheHits", hits.get());
+        out.put("cacheMisses", misses.get());
+        out.put("staleReads", stale.get());
+        return out;
+    }
+}
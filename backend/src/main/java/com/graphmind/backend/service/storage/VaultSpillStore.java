@@ -0,0 +1,250 @@
+package com.graphmind.backend.service.storage;
+
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import com.graphmind.backend.domain.VaultItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 유저 vault 통째 내려놓기 (메모리 예산 초과 시 오래 안 쓴 유저부터).
+ *
+ * - 유저 1명 = 파일 1개 (Smile + Deflate). 아이템 + seq + tombstone + epoch를 그대로 담아서
+ *   다시 올렸을 때 ETag/delta sync 커서가 끊기지 않는다
+ * - 영속화 수단이 아니라 메모리 확장이다: 시작할 때 디렉터리를 비운다 (내구성은 WAL 담당)
+ * - 예산 검사/축출은 InMemoryVaultService가 넘겨준 작업을 주기적으로 실행 (유저 맵은 서비스가 가짐)
+ * - 로그인 직후 prefetch는 별도 풀에서 (요청 스레드를 막지 않음)
+ */
+@Component
+public class VaultSpillStore {
+
+    /** 내려놓은 아이템 1개 + 그 아이템의 마지막 변경 seq */
+    public record SpilledItem(long seq, VaultItem item) {}
+
+    /** 삭제 기록 (delta sync용) */
+    public record SpilledTombstone(long seq, String id, long version, Instant at) {}
+
+    public record Spilled(
+            long epoch,
+            long version,
+            long compactedSeq,
+            List<SpilledItem> items,
+            List<SpilledTombstone> tombstones
+    ) {}
+
+    private static final String SUFFIX = ".vault";
+    private static final long SWEEP_SECONDS = 5;
+
+    private final Path dir;
+    private final long budgetBytes;
+    private final long minIdleMillis;
+
+    private final SmileMapper smile = SmileMapper.builder().build();
+    // 파일이 있는 유저 (파일 존재 확인을 매 접근마다 하지 않도록). 다시 올라간 유저도 포함
+    private final Set<String> spilled = ConcurrentHashMap.newKeySet();
+
+    private final Timer loadTimer;
+    private final LatencyRecorder loadLatency = new LatencyRecorder(4096);
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong prefetches = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private volatile LongSupplier resident = () -> 0;
+    private ScheduledExecutorService scheduler;
+    private final ExecutorService prefetcher = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "vault-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public VaultSpillStore(
+            @Value("${graphmind.vault.spill.dir:data/vault-spill}") String dir,
+            @Value("${graphmind.vault.memory-budget-mb:0}") long budgetMb,
+            @Value("${graphmind.vault.spill.min-idle-seconds:30}") long minIdleSeconds,
+            MeterRegistry registry
+    ) {
+        this.dir = Path.of(dir);
+        this.budgetBytes = budgetMb <= 0 ? Long.MAX_VALUE : budgetMb * 1024 * 1024;
+        this.minIdleMillis = TimeUnit.SECONDS.toMillis(Math.max(0, minIdleSeconds));
+
+        try {
+            Files.createDirectories(this.dir);
+            // 이전 실행이 남긴 파일은 의미 없음 (WAL 복구 결과가 기준)
+            try (Stream<Path> s = Files.list(this.dir)) {
+                for (Path p : s.toList()) {
+                    if (p.getFileName().toString().endsWith(SUFFIX) || p.getFileName().toString().endsWith(".tmp")) {
+                        Files.deleteIfExists(p);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.loadTimer = Timer.builder("graphmind.vault.spill.load")
+                .description("내려놓은 유저 vault를 다시 올리는 데 걸린 시간")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("graphmind.vault.resident.bytes", () -> resident.getAsLong())
+                .description("메모리에 올라와 있는 vault 추정 크기").baseUnit("bytes").register(registry);
+        Gauge.builder("graphmind.vault.spill.files", spilled::size)
+                .description("디스크에 vault 파일이 있는 유저 수").register(registry);
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    /** 마지막 접근이 이 시각(ms) 이후인 유저는 예산을 넘어도 내리지 않는다 */
+    public long idleCutoffMillis() {
+        return System.currentTimeMillis() - minIdleMillis;
+    }
+
+    /** 주기적으로 예산 검사 실행 + 게이지가 읽을 상주 크기 공급자 등록 */
+    public void start(Runnable enforce, LongSupplier resident) {
+        this.resident = resident;
+        if (budgetBytes == Long.MAX_VALUE) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vault-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                enforce.run();
+            } catch (RuntimeException e) {
+                System.out.printf("[vault-spill] evict failed: %s%n", e);
+            }
+        }, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** 로그인 등에서 미리 올리기 (비동기, 실패는 로그만). 파일이 없는 유저는 할 일 없음 */
+    public void prefetch(String userId, Runnable load) {
+        if (!spilled.contains(userId)) return;
+        prefetches.incrementAndGet();
+        prefetcher.execute(() -> {
+            try {
+                load.run();
+            } catch (RuntimeException e) {
+                System.out.printf("[vault-spill] prefetch failed user=%s: %s%n", userId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduler != null) scheduler.shutdownNow();
+        prefetcher.shutdownNow();
+    }
+
+    public boolean has(String userId) {
+        return spilled.contains(userId);
+    }
+
+    // =========================
+    // read / write
+    // =========================
+
+    /** 임시 파일에 쓰고 rename (읽는 쪽이 반쯤 쓴 파일을 보지 않도록) */
+    public void write(String userId, Spilled s) {
+        Path file = path(userId);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            try (OutputStream out = new DeflaterOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16), deflater, 1 << 16)) {
+                smile.writeValue(out, s);
+            }
+            bytesWritten.addAndGet(Files.size(tmp));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+        spilled.add(userId);
+        evictions.incrementAndGet();
+    }
+
+    /** 없으면 null */
+    public Spilled read(String userId) {
+        if (!spilled.contains(userId)) return null;
+        long t0 = System.nanoTime();
+        Inflater inflater = new Inflater();
+        try (InputStream in = new InflaterInputStream(
+                new BufferedInputStream(Files.newInputStream(path(userId)), 1 << 16), inflater, 1 << 16)) {
+            return smile.readValue(in, Spilled.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inflater.end();
+            long ns = System.nanoTime() - t0;
+            loadTimer.record(ns, TimeUnit.NANOSECONDS);
+            loadLatency.record(ns);
+            loads.incrementAndGet();
+        }
+    }
+
+    /**
+     * 스냅샷용: 파일이 있는 유저들 중 skip에 없는 유저.
+     * 다시 올라간 유저의 파일은 지우지 않고 남겨 둔다 (다음 축출 때 덮어씀) —
+     * 상주 유저를 먼저 훑고 나머지를 여기서 읽으면, 그 사이 올라가거나 내려간 유저도 빠지지 않는다
+     */
+    public void forEach(Set<String> skip, BiConsumer<String, Spilled> sink) {
+        for (String userId : List.copyOf(spilled)) {
+            if (skip.contains(userId)) continue;
+            Spilled s = read(userId);
+            if (s != null) sink.accept(userId, s);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("budgetBytes", budgetBytes == Long.MAX_VALUE ? -1 : budgetBytes);
+        out.put("residentBytes", resident.getAsLong());
+        out.put("spillFiles", spilled.size());
+        out.put("evictions", evictions.get());
+        out.put("loads", loads.get());
+        out.put("prefetches", prefetches.get());
+        out.put("bytesWritten", bytesWritten.get());
+        out.put("loadLatency", loadLatency.snapshot());
+        return out;
+    }
+
+    private Path path(String userId) {
+        // userId는 UUID지만, 파일 이름으로 안전하게
+        String name = Base64.getUrlEncoder().withoutPadding().encodeToString(userId.getBytes(StandardCharsets.UTF_8));
+        return dir.resolve(name + SUFFIX);
+    }
+}
@@ -0,0 +1,655 @@
+package com.graphmind.backend.service.storage;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.VaultItem;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Vault 영속화 모드: append-only WAL + 주기적 스냅샷.
+ *
+ * - 로그 프레임: [int length][int crc32c][payload(JSON Entry)]
+ * - group commit: writer 스레드 하나가 큐에 쌓인 레코드를 한 번에 쓰고 fsync 1회로 확정
+ * - 스냅샷: 로그 세대(generation)를 넘긴 뒤 현재 상태를 N개 part 파일로 덤프 → 이전 로그/스냅샷 삭제
+ * - 복구: 최신 스냅샷 part들을 병렬로 읽고, 그 세대 이후 로그를 순서대로 재생.
+ *   마지막 로그의 찢어진 꼬리만 잘라내고, 중간 세대 로그가 손상됐으면 복구 실패 (구멍 난 상태로 뒤 세대를 재생하지 않음)
+ * - 쓰기 실패(write/fsync): 그 뒤 쓰기는 메모리에 반영하기 전에 거절 (vault_wal_failed).
+ *   다음 스냅샷(주기 또는 resetAfterFailure)이 성공하면 메모리 상태가 디스크에 다시 맞춰지므로 실패 상태를 푼다
+ *
+ * graphmind.vault.wal.enabled=false(기본)이면 모든 메서드가 no-op.
+ */
+@Component
+public class VaultWal {
+
+    /** 로그 한 건: PUT(아이템 전체 상태) 또는 DELETE(userId + id) */
+    public record Entry(String op, String userId, String id, VaultItem item) {}
+
+    /** 복구 시 상태를 되살리는 쪽(InMemoryVaultService) */
+    public interface Applier {
+        void put(VaultItem item);
+        void delete(String userId, String id);
+    }
+
+    /** 스냅샷 시 현재 상태를 흘려주는 쪽 */
+    public interface SnapshotSource {
+        void forEach(Consumer<VaultItem> sink);
+    }
+
+    public static final String OP_PUT = "PUT";
+    public static final String OP_DELETE = "DELETE";
+
+    private static final int MAX_FRAME = 512 * 1024 * 1024;
+    private static final int MAX_BATCH = 4096;
+    // batch(durableOnce)가 enqueue를 끝낼 때까지 writer가 기다리는 최대 시간
+    private static final long BATCH_HOLD_MILLIS = 50;
+    private static final Pattern LOG_NAME = Pattern.compile("wal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)");
+
+    private record Pending(long seq, byte[] frame, long enqueuedAt, CompletableFuture<Long> rotate) {}
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long snapshotIntervalSec;
+    private final int snapshotParts;
+    private final ObjectMapper om;
+
+    // 메모리 반영 + enqueue 구간(read) vs 세대 회전(write)
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private long nextSeq; // guarded by appendLock
+    private long rotatedSeq; // 마지막 회전 마커 직전 seq. guarded by appendLock
+
+    private final Object durableLock = new Object();
+    private long durableSeq; // guarded by durableLock
+    private volatile IOException failure; // 쓰기는 durableLock 안에서
+
+    private volatile long generation;
+    private FileChannel channel; // writer thread only (복구 후)
+    private Thread writer;
+    private ScheduledExecutorService snapshotter;
+    private volatile boolean running;
+    private SnapshotSource source;
+
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong fsyncs = new AtomicLong();
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+    private final LatencyRecorder commitLatency = new LatencyRecorder(8192);
+    private volatile long lastRecoveryMillis = -1;
+    private volatile long lastRecoveredItems;
+    private volatile long lastSnapshotMillis = -1;
+
+    // durableOnce 구간 안에서 미뤄둔 최대 seq
+    private final ThreadLocal<long[]> deferred = new ThreadLocal<>();
+    // 진행 중인 durableOnce 수. 0보다 크면 writer가 잠깐 기다렸다가 한 번에 기록한다
+    private final AtomicInteger openBatches = new AtomicInteger();
+    private final Object batchLock = new Object();
+
+    public VaultWal(
+            @Value("${graphmind.vault.wal.enabled:false}") boolean enabled,
+            @Value("${graphmind.vault.wal.dir:data/vault}") String dir,
+            @Value("${graphmind.vault.wal.snapshot-interval-seconds:300}") long snapshotIntervalSec,
+            @Value("${graphmind.vault.wal.snapshot-parts:8}") int snapshotParts,
+            ObjectMapper om
+    ) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir);
+        this.snapshotIntervalSec = Math.max(1, snapshotIntervalSec);
+        this.snapshotParts = Math.max(1, snapshotParts);
+        this.om = om;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    // =========================
+    // write path
+    // =========================
+
+    /**
+     * 메모리 반영과 로그 enqueue를 하나의 구간으로 묶는다.
+     * 스냅샷은 이 구간이 모두 끝난 시점에만 세대를 넘기므로,
+     * 이전 세대 로그에 들어간 변경은 반드시 스냅샷에 보인다.
+     */
+    public <T> T apply(Supplier<T> mutation) {
+        if (!enabled) return mutation.get();
+        rotationLock.readLock().lock();
+        try {
+            // 실패 상태면 메모리에 반영하기 전에 거절 (로그에 못 남길 쓰기로 메모리/디스크가 갈라지지 않게)
+            IOException err = failure;
+            if (err != null) throw new UncheckedIOException("vault_wal_failed", err);
+            return mutation.get();
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 여러 쓰기를 하나의 flush로 묶는다 (batch API).
+     * work 안의 awaitDurable은 seq만 모아두고, 끝나면 가장 큰 seq까지 한 번만 기다린다.
+     * (group commit이므로 마지막 seq가 확정되면 그 앞의 seq도 모두 확정)
+     */
+    public <T> T durableOnce(Supplier<T> work) {
+        if (!enabled || deferred.get() != null) return work.get();
+        long[] batch = {0};
+        deferred.set(batch);
+        openBatches.incrementAndGet();
+        T out;
+        try {
+            out = work.get();
+        } finally {
+            deferred.remove();
+            if (openBatches.decrementAndGet() == 0) {
+                synchronized (batchLock) {
+                    batchLock.notifyAll();
+                }
+            }
+        }
+        awaitDurable(batch[0]);
+        return out;
+    }
+
+    /** 레코드를 큐에 넣고 seq를 돌려준다. 확정은 awaitDurable(seq)로 기다린다. */
+    public long append(Entry e) {
+        if (!enabled) return 0;
+        byte[] frame = frame(om.writeValueAsBytes(e));
+        synchronized (appendLock) {
+            long seq = ++nextSeq;
+            queue.add(new Pending(seq, frame, System.nanoTime(), null));
+            return seq;
+        }
+    }
+
+    public long appendPut(VaultItem item) {
+        return append(new Entry(OP_PUT, item.userId(), item.id(), item));
+    }
+
+    public long appendDelete(String userId, String id) {
+        return append(new Entry(OP_DELETE, userId, id, null));
+    }
+
+    public void awaitDurable(long seq) {
+        if (!enabled || seq <= 0) return;
+        long[] batch = deferred.get();
+        if (batch != null) {
+            batch[0] = Math.max(batch[0], seq);
+            return;
+        }
+        synchronized (durableLock) {
+            while (durableSeq < seq) {
+                if (failure != null) throw new UncheckedIOException("vault_wal_failed", failure);
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("vault_wal_interrupted");
+                }
+            }
+        }
+    }
+
+    /** 쓰기 실패 상태인지 (다음 스냅샷이 성공할 때까지) */
+    public boolean failed() {
+        return failure != null;
+    }
+
+    /**
+     * 실패 상태에서 빠져나온다: 새 세대로 넘기고 현재 메모리 상태 전체를 스냅샷으로 남긴 뒤 실패 상태를 푼다.
+     * 스냅샷도 실패하면 IOException (실패 상태 유지)
+     */
+    public void resetAfterFailure() throws IOException {
+        if (!failed()) return;
+        snapshot();
+    }
+
+    private void markDurable(long seq, IOException err) {
+        synchronized (durableLock) {
+            if (err != null && failure == null) failure = err;
+            if (err == null && seq > durableSeq) durableSeq = seq;
+            durableLock.notifyAll();
+        }
+    }
+
+    private void writerLoop() {
+        List<Pending> batch = new ArrayList<>();
+        List<ByteBuffer> bufs = new ArrayList<>();
+        while (true) {
+            Pending first;
+            try {
+                first = queue.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                first = null;
+            }
+            if (first == null) {
+                if (!running) break;
+                continue;
+            }
+
+            // batch가 enqueue 중이면 끝날 때까지(최대 BATCH_HOLD_MILLIS) 모았다가 fsync 한 번
+            if (openBatches.get() > 0) holdForBatches();
+
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH);
+
+            long lastSeq = 0;
+            IOException err = null;
+            boolean failed = failure != null;
+            try {
+                for (Pending p : batch) {
+                    if (p.rotate() != null) {
+                        if (!failed) lastSeq = writeAndForce(bufs, lastSeq);
+                        roll();
+                        p.rotate().complete(generation);
+                        continue;
+                    }
+                    // 실패 상태면 기록하지 않는다: 반쯤 쓰인 프레임 뒤에 이어 쓰면 복구 때 그 뒤가 통째로 사라진다
+                    if (failed) continue;
+                    bufs.add(ByteBuffer.wrap(p.frame()));
+                    lastSeq = p.seq();
+                }
+                if (!failed) writeAndForce(bufs, lastSeq);
+            } catch (IOException e) {
+                err = e;
+                System.out.printf("[vault-wal] write failed: %s%n", e);
+            }
+
+            long now = System.nanoTime();
+            for (Pending p : batch) {
+                if (p.rotate() != null) {
+                    if (!p.rotate().isDone()) p.rotate().completeExceptionally(err != null ? err : new IOException("rotate_failed"));
+                    continue;
+                }
+                commitLatency.record(now - p.enqueuedAt());
+            }
+            markDurable(lastSeq, err);
+            batch.clear();
+            bufs.clear();
+        }
+    }
+
+    private void holdForBatches() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_HOLD_MILLIS);
+        synchronized (batchLock) {
+            long left;
+            while (openBatches.get() > 0 && (left = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(batchLock, left);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private long writeAndForce(List<ByteBuffer> bufs, long lastSeq) throws IOException {
+        if (bufs.isEmpty()) return lastSeq;
+        ByteBuffer[] arr = bufs.toArray(ByteBuffer[]::new);
+        long remaining = 0;
+        for (ByteBuffer b : arr) remaining += b.remaining();
+        while (remaining > 0) remaining -= channel.write(arr);
+        channel.force(false);
+        fsyncs.incrementAndGet();
+        records.addAndGet(arr.length);
+        recordsSinceSnapshot.addAndGet(arr.length);
+        bufs.clear();
+        markDurable(lastSeq, null);
+        return lastSeq;
+    }
+
+    /** 새 세대 로그를 먼저 열고 넘긴다. 실패 상태의 이전 로그는 곧 스냅샷으로 대체되므로 force 실패를 무시 */
+    private void roll() throws IOException {
+        FileChannel next = openLog(generation + 1);
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            if (failure == null) {
+                next.close();
+                throw e;
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+        generation++;
+        channel = next;
+    }
+
+    private FileChannel openLog(long gen) throws IOException {
+        return FileChannel.open(logPath(gen),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // =========================
+    // recovery
+    // =========================
+
+    /** 최신 스냅샷 + 이후 로그를 재생한다. start() 전에 한 번 호출. */
+    public void recover(Applier applier) {
+        if (!enabled) return;
+        long t0 = System.nanoTime();
+        try {
+            Files.createDirectories(dir);
+
+            long snapGen = latestSnapshot();
+            long[] loaded = {0};
+            if (snapGen >= 0) {
+                loaded[0] = loadSnapshot(snapDir(snapGen), applier);
+            }
+
+            List<Long> logs = listGenerations(LOG_NAME).stream()
+                    .filter(g -> g >= snapGen)
+                    .sorted()
+                    .toList();
+
+            long replayed = 0;
+            for (int i = 0; i < logs.size(); i++) {
+                boolean last = i == logs.size() - 1;
+                replayed += replayLog(logs.get(i), applier, last);
+            }
+
+            long gen = Math.max(Math.max(snapGen, 0), logs.isEmpty() ? 0 : logs.get(logs.size() - 1));
+            generation = gen;
+            channel = openLog(gen);
+
+            lastRecoveredItems = loaded[0] + replayed;
+            lastRecoveryMillis = (System.nanoTime() - t0) / 1_000_000;
+            System.out.printf("[vault-wal] recovered snapshot=%d items=%d logRecords=%d in %dms%n",
+                    snapGen, loaded[0], replayed, lastRecoveryMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("vault_wal_recover_failed", e);
+        }
+    }
+
+    private long loadSnapshot(Path snap, Applier applier) throws IOException {
+        List<Path> parts;
+        try (Stream<Path> s = Files.list(snap)) {
+            parts = s.filter(p -> p.getFileName().toString().startsWith("part-")).sorted().toList();
+        }
+        // part 파일끼리는 유저가 겹치지 않으므로 병렬 재생
+        return parts.parallelStream().mapToLong(p -> {
+            long n = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(p), 1 << 16))) {
+                byte[] payload;
+                while ((payload = readFrame(in)) != null) {
+                    applier.put(om.readValue(payload, VaultItem.class));
+                    n++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return n;
+        }).sum();
+    }
+
+    private long replayLog(long gen, Applier applier, boolean last) throws IOException {
+        Path p = logPath(gen);
+        long n = 0;
+        long goodBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(p), 1 << 16))) {
+            byte[] payload;
+            while ((payload = readFrame(in)) != null) {
+                Entry e = om.readValue(payload, Entry.class);
+                if (OP_DELETE.equals(e.op())) applier.delete(e.userId(), e.id());
+                else if (e.item() != null) applier.put(e.item());
+                goodBytes += 8 + payload.length;
+                n++;
+            }
+        } catch (IOException torn) {
+            // 중간 세대가 손상됐으면 뒤 세대를 재생하면 확정된 쓰기가 빠진 채로 열린다 → 복구 실패로 알린다
+            if (!last) {
+                throw new IOException(String.format("%s: corrupt frame after %d records (not the last log): %s",
+                        p.getFileName(), n, torn.getMessage()), torn);
+            }
+            System.out.printf("[vault-wal] %s: stopped at torn/corrupt frame after %d records (%s)%n",
+                    p.getFileName(), n, torn.getMessage());
+        }
+
+        // 마지막 로그의 찢어진 꼬리는 잘라낸 뒤 이어쓴다.
+        if (last && Files.size(p) > goodBytes) {
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.WRITE)) {
+                ch.truncate(goodBytes);
+                ch.force(true);
+            }
+        }
+        return n;
+    }
+
+    // =========================
+    // snapshots
+    // =========================
+
+    /** writer 스레드와 주기 스냅샷을 시작한다. */
+    public void start(SnapshotSource source) {
+        if (!enabled || running) return;
+        this.source = source;
+        running = true;
+
+        writer = new Thread(this::writerLoop, "vault-wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vault-wal-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                if (recordsSinceSnapshot.get() > 0 || failed()) snapshot();
+            } catch (Exception e) {
+                System.out.printf("[vault-wal] snapshot failed: %s%n", e);
+            }
+        }, snapshotIntervalSec, snapshotIntervalSec, TimeUnit.SECONDS);
+    }
+
+    public synchronized void snapshot() throws IOException {
+        if (!enabled || !running) return;
+        long t0 = System.nanoTime();
+        // 회전 이후에는 실패 상태에서 새 쓰기가 들어오지 않으므로, 스냅샷이 성공하면 이 실패까지 디스크에 반영된 것
+        IOException failedBefore = failure;
+
+        long gen = rotate();
+        recordsSinceSnapshot.set(0);
+
+        Path tmp = dir.resolve("snapshot-" + gen + ".tmp");
+        deleteRecursively(tmp);
+        Files.createDirectories(tmp);
+
+        FileOutputStream[] files = new FileOutputStream[snapshotParts];
+        DataOutputStream[] outs = new DataOutputStream[snapshotParts];
+        long[] count = {0};
+        try {
+            for (int i = 0; i < snapshotParts; i++) {
+                files[i] = new FileOutputStream(tmp.resolve(String.format("part-%03d.bin", i)).toFile());
+                outs[i] = new DataOutputStream(new BufferedOutputStream(files[i], 1 << 16));
+            }
+            source.forEach(item -> {
+                int part = Math.floorMod(item.userId().hashCode(), snapshotParts);
+                try {
+                    outs[part].write(frame(om.writeValueAsBytes(item)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            for (int i = 0; i < snapshotParts; i++) {
+                outs[i].flush();
+                files[i].getFD().sync();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            for (DataOutputStream o : outs) if (o != null) o.close();
+        }
+
+        Files.writeString(tmp.resolve("MANIFEST"),
+                "generation=" + gen + "\nparts=" + snapshotParts + "\nitems=" + count[0] + "\n",
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(tmp, snapDir(gen), StandardCopyOption.ATOMIC_MOVE);
+
+        // 이 스냅샷 이전 세대 로그와 예전 스냅샷 정리
+        for (long g : listGenerations(LOG_NAME)) {
+            if (g < gen) Files.deleteIfExists(logPath(g));
+        }
+        for (long g : listGenerations(SNAPSHOT_NAME)) {
+            if (g != gen) deleteRecursively(snapDir(g));
+        }
+
+        if (failedBefore != null) {
+            long covered;
+            synchronized (appendLock) {
+                covered = rotatedSeq;
+            }
+            synchronized (durableLock) {
+                if (failure == failedBefore) failure = null;
+                // 회전 전에 기록하지 못한 쓰기도 스냅샷에 들어갔으므로 확정으로 친다
+                if (covered > durableSeq) durableSeq = covered;
+                durableLock.notifyAll();
+            }
+            System.out.printf("[vault-wal] recovered from write failure (%s)%n", failedBefore.getMessage());
+        }
+
+        lastSnapshotMillis = (System.nanoTime() - t0) / 1_000_000;
+        System.out.printf("[vault-wal] snapshot generation=%d items=%d in %dms commit=%s%n",
+                gen, count[0], lastSnapshotMillis, commitLatency.snapshot());
+    }
+
+    /** 새 로그 세대로 넘긴다. 진행 중인 apply() 구간이 끝난 뒤에만 마커를 넣는다. */
+    private long rotate() throws IOException {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        rotationLock.writeLock().lock();
+        try {
+            synchronized (appendLock) {
+                rotatedSeq = nextSeq;
+                queue.add(new Pending(0, null, System.nanoTime(), done));
+            }
+        } finally {
+            rotationLock.writeLock().unlock();
+        }
+        try {
+            return done.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("rotate_interrupted", ie);
+        } catch (ExecutionException ee) {
+            throw new IOException("rotate_failed", ee.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!running) return;
+        if (snapshotter != null) snapshotter.shutdownNow();
+        running = false;
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("generation", generation);
+        IOException err = failure;
+        out.put("failure", err == null ? null : err.toString());
+        out.put("records", records.get());
+        out.put("fsyncs", fsyncs.get());
+        out.put("recordsSinceSnapshot", recordsSinceSnapshot.get());
+        out.put("lastRecoveryMillis", lastRecoveryMillis);
+        out.put("lastRecoveredItems", lastRecoveredItems);
+        out.put("lastSnapshotMillis", lastSnapshotMillis);
+        out.put("commitLatency", commitLatency.snapshot());
+        return out;
+    }
+
+    // =========================
+    // file helpers
+    // =========================
+
+    private static byte[] frame(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer b = ByteBuffer.allocate(8 + payload.length);
+        b.putInt(payload.length);
+        b.putInt((int) crc.getValue());
+        b.put(payload);
+        return b.array();
+    }
+
+    /** 정상 EOF면 null, 찢어진/손상된 프레임이면 IOException */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int len;
+        try {
+            len = in.readInt();
+        } catch (EOFException eof) {
+            return null;
+        }
+        if (len < 0 || len > MAX_FRAME) throw new IOException("bad frame length " + len);
+        int expected = in.readInt();
+        byte[] payload = in.readNBytes(len);
+        if (payload.length != len) throw new EOFException("short frame");
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        if ((int) crc.getValue() != expected) throw new IOException("checksum mismatch");
+        return payload;
+    }
+
+    private Path logPath(long gen) {
+        return dir.resolve(String.format("wal-%012d.log", gen));
+    }
+
+    private Path snapDir(long gen) {
+        return dir.resolve(String.format("snapshot-%012d", gen));
+    }
+
+    private long latestSnapshot() throws IOException {
+        long best = -1;
+        for (long g : listGenerations(SNAPSHOT_NAME)) {
+            if (g > best && Files.exists(snapDir(g).resolve("MANIFEST"))) best = g;
+        }
+        return best;
+    }
+
+    private List<Long> listGenerations(Pattern pattern) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        List<Long> out = new ArrayList<>();
+        try (Stream<Path> s = Files.list(dir)) {
+            s.forEach(p -> {
+                Matcher m = pattern.matcher(p.getFileName().toString());
+                if (m.matches()) out.add(Long.parseLong(m.group(1)));
+            });
+        }
+        return out;
+    }
+
+    private static void deleteRecursively(Path p) throws IOException {
+        if (!Files.exists(p)) return;
+        try (Stream<Path> s = Files.walk(p)) {
+            for (Path x : s.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(x);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.service.DiskVaultService;
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.feed.VaultChangeFeed;
+import com.graphmind.backend.service.graph.VaultAnalyticsJob;
+import com.graphmind.backend.service.layout.VaultLayoutJob;
+import com.graphmind.backend.service.storage.VaultColdStore;
+import com.graphmind.backend.service.storage.VaultContentStore;
+import com.graphmind.backend.service.storage.VaultHistoryStore;
+import com.graphmind.backend.service.storage.VaultPageStore;
+import com.graphmind.backend.service.storage.VaultSpillStore;
+import com.graphmind.backend.service.storage.VaultWal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/** 벤치용 InMemoryVaultService 조립 (스프링 없이, application.properties 기본값과 같게) */
+final class BenchVaults {
+
+    private BenchVaults() {}
+
+    static VaultWal noWal(ObjectMapper om) {
+        return new VaultWal(false, "", 3600, 8, om);
+    }
+
+    static VaultColdStore noCold() {
+        return new VaultColdStore(false, 60, 16384, 60, new SimpleMeterRegistry());
+    }
+
+    /** 백그라운드 분석 없음 (필요하면 refreshAnalyticsNow) */
+    static VaultAnalyticsJob noAnalytics() {
+        return new VaultAnalyticsJob(false, 2000, new SimpleMeterRegistry());
+    }
+
+    /** 백그라운드 배치 없음 (필요하면 refreshLayoutNow) */
+    static VaultLayoutJob noLayout() {
+        return new VaultLayoutJob(false, 1, new SimpleMeterRegistry());
+    }
+
+    /** 예산 없음 (내리지 않음) */
+    static VaultSpillStore noSpill() {
+        try {
+            return new VaultSpillStore(Files.createTempDirectory("vault-spill").toString(), 0, 30, new SimpleMeterRegistry());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static InMemoryVaultService create(VaultWal wal, ObjectMapper om) {
+        return create(wal, new VaultContentStore(true), noCold(), om);
+    }
+
+    static InMemoryVaultService create(VaultWal wal, VaultContentStore contents, VaultColdStore cold, ObjectMapper om) {
+        return create(wal, contents, cold, noSpill(), om);
+    }
+
+    static InMemoryVaultService create(VaultWal wal, VaultContentStore contents, VaultColdStore cold,
+                                       VaultSpillStore spill, ObjectMapper om) {
+        return create(wal, contents, cold, spill, new VaultHistoryStore(true, 16, 256), om);
+    }
+
+    static InMemoryVaultService create(VaultWal wal, VaultContentStore contents, VaultColdStore cold,
+                                       VaultSpillStore spill, VaultHistoryStore history, ObjectMapper om) {
+        return new InMemoryVaultService(wal, new VaultChangeFeed(256, 30), contents, cold, spill, history, noAnalytics(), noLayout(), om, 168);
+    }
+
+    /** disk 모드 (graphmind.vault.store=disk). 페이지 파일은 임시 디렉터리에 */
+    static InMemoryVaultService disk(VaultWal wal, long cacheMb, ObjectMapper om) {
+        try {
+            String file = Files.createTempDirectory("vault-pages").resolve("content.pages").toString();
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            return new DiskVaultService(wal, new VaultChangeFeed(256, 30), new VaultContentStore(true), noCold(), noSpill(),
+                    new VaultHistoryStore(true, 16, 256), noAnalytics(), noLayout(), om, 168, new VaultPageStore(file, cacheMb, registry));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 그래프 분석 측정: 아이템 N개(태그 1~3개, 링크 0~2개) vault에서 처음 분석 / 아이템 몇 개 추가 후 다시 (warm) /
+ * 그래프와 상관없는 수정 후 다시 걸리는 시간 (백그라운드 refresh 한 번 = 유저 1명).
+ *
+ * ./gradlew bench -Pbench=VaultAnalyticsBench [-Pitems=100000]
+ */
+public class VaultAnalyticsBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 100_000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < items; i++) ids.add(svc.create("user-0", upsert(rnd, ids, i)).id());
+
+        long t0 = System.nanoTime();
+        svc.refreshAnalyticsNow();
+        System.out.printf("cold  items=%d %dms (threads=%d)%n", items, (System.nanoTime() - t0) / 1_000_000,
+                Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < 3; round++) {
+            for (int k = 0; k < 10; k++) ids.add(svc.create("user-0", upsert(rnd, ids, ids.size())).id());
+            t0 = System.nanoTime();
+            svc.refreshAnalyticsNow();
+            System.out.printf("warm  +10 items %dms%n", (System.nanoTime() - t0) / 1_000_000);
+        }
+
+        svc.patchMeta("user-0", ids.get(0), new VaultService.VaultMetaPatch("renamed", null, null));
+        t0 = System.nanoTime();
+        svc.refreshAnalyticsNow();
+        System.out.printf("same graph (title edit) %dms%n", (System.nanoTime() - t0) / 1_000_000);
+
+        VaultService.VaultQuery q = new VaultService.VaultQuery(List.of(), null, null, 50, null, null);
+        svc.listSummary("user-0", q).stream().limit(3).forEach(s -> System.out.println("  " + s.title() + " " + s.graph()));
+    }
+
+    private static VaultService.VaultUpsert upsert(Random rnd, List<String> ids, int i) {
+        List<String> tags = new ArrayList<>();
+        for (int k = 1 + rnd.nextInt(3); k > 0; k--) tags.add("t" + (int) (Math.pow(rnd.nextDouble(), 2) * 300));
+        List<LinkRef> links = new ArrayList<>();
+        for (int k = ids.isEmpty() ? 0 : rnd.nextInt(3); k > 0; k--) {
+            links.add(new LinkRef("VAULT_ITEM", ids.get(rnd.nextInt(ids.size())), null));
+        }
+        return new VaultService.VaultUpsert("n" + i, "equation", "y = x", null, null,
+                null, null, null, null, tags, null, links);
+    }
+}
@@ -0,0 +1,83 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+import com.graphmind.backend.service.storage.VaultColdStore;
+import com.graphmind.backend.service.storage.VaultContentStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * cold tier 측정: 큰 content 아이템을 전부 idle로 보고 압축했을 때 heap 변화 + 다시 읽을 때 inflate 지연.
+ *
+ * ./gradlew bench -Pbench=VaultColdBench [-Pitems=1000]
+ */
+public class VaultColdBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 1000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+
+        // idle 0분: sweep 시점에 모두 대상
+        VaultColdStore cold = new VaultColdStore(true, 0, 1024, 3600, new SimpleMeterRegistry());
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), new VaultContentStore(true), cold, om);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            ids.add(svc.create("user-" + (i % 10), new VaultService.VaultUpsert(
+                    "volume " + i, "array3d", null, null, null,
+                    "zyx", null, null, null, List.of("cold"), volume(om, 16, rnd), null)).id());
+        }
+        long hotHeap = usedHeap();
+
+        long t0 = System.nanoTime();
+        svc.coolIdleNow();
+        long coolMs = (System.nanoTime() - t0) / 1_000_000;
+        long coldHeap = usedHeap();
+
+        System.out.printf("items=%d hot=%.1fMB cold=%.1fMB cool=%dms%n",
+                items, hotHeap / 1048576.0, coldHeap / 1048576.0, coolMs);
+
+        // 요약 목록은 풀지 않음, full 목록은 풀어서 반환 (저장소는 cold 유지)
+        long s0 = System.nanoTime();
+        int summaries = svc.listSummary("user-0", null).size();
+        long s1 = System.nanoTime();
+        int full = svc.listFull("user-0", null).size();
+        long s2 = System.nanoTime();
+        System.out.printf("listSummary=%d in %.2fms, listFull=%d in %.2fms%n",
+                summaries, (s1 - s0) / 1e6, full, (s2 - s1) / 1e6);
+
+        // 단건 조회는 풀고 hot으로 되돌림
+        for (int i = 0; i < Math.min(100, ids.size()); i++) svc.getOwned("user-" + (i % 10), ids.get(i));
+        System.out.println("cold=" + cold.stats());
+    }
+
+    private static ArrayNode volume(ObjectMapper om, int n, Random rnd) {
+        ArrayNode z = om.createArrayNode();
+        for (int k = 0; k < n; k++) {
+            ArrayNode y = z.addArray();
+            for (int j = 0; j < n; j++) {
+                ArrayNode x = y.addArray();
+                // 값 종류가 적은 볼륨 (마스크/라벨 데이터와 비슷하게)
+                for (int i = 0; i < n; i++) x.add(rnd.nextInt(4));
+            }
+        }
+        return z;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
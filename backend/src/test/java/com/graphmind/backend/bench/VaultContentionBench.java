@@ -0,0 +1,73 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 쓰기 경합 측정: 같은 아이템 / 같은 유저의 서로 다른 아이템을 여러 스레드가 동시에 PATCH.
+ * 처리량과 CAS 재시도 횟수를 출력한다.
+ *
+ * ./gradlew bench -Pbench=VaultContentionBench [-Pthreads=32 -Pwrites=2000]
+ */
+public class VaultContentionBench {
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("threads", 32);
+        int writesPerThread = Integer.getInteger("writes", 2000);
+        ObjectMapper om = new ObjectMapper();
+
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        VaultItem hot = svc.create("user-hot", upsert("hot"));
+        run("same item", "user-hot", threads, writesPerThread, svc, t -> hot.id());
+
+        String[] ids = new String[threads];
+        for (int t = 0; t < threads; t++) ids[t] = svc.create("user-map", upsert("item " + t)).id();
+        run("same user, distinct items", "user-map", threads, writesPerThread, svc, t -> ids[t]);
+
+        VaultItem last = svc.getOwned("user-hot", hot.id());
+        System.out.printf("hot item version=%d (expected %d)%n", last.version(), 1L + (long) threads * writesPerThread);
+    }
+
+    interface Target {
+        String id(int thread);
+    }
+
+    private static void run(String name, String user, int threads, int writesPerThread, InMemoryVaultService svc, Target target)
+            throws InterruptedException {
+        long retries0 = svc.casRetries();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            String id = target.id(t);
+            int n = t;
+            pool.execute(() -> {
+                for (int i = 0; i < writesPerThread; i++) {
+                    svc.patchMeta(user, id, new VaultService.VaultMetaPatch("t" + n + "-" + i, null, null));
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        long ms = Math.max(1, (System.nanoTime() - t0) / 1_000_000);
+        pool.shutdown();
+
+        long total = (long) threads * writesPerThread;
+        System.out.printf("%s: writes=%d threads=%d in %dms (%.0f ops/s) casRetries=%d%n",
+                name, total, threads, ms, total * 1000.0 / ms, svc.casRetries() - retries0);
+    }
+
+    private static VaultService.VaultUpsert upsert(String title) {
+        return new VaultService.VaultUpsert(title, "equation", "y=x", null, null,
+                null, null, null, null, List.of("bench"), null, null);
+    }
+}
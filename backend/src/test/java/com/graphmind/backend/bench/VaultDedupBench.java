@@ -0,0 +1,67 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+import com.graphmind.backend.service.storage.VaultContentStore;
+
+import java.util.List;
+
+/**
+ * content 중복 제거 측정: 같은 array3d 볼륨(템플릿)을 여러 유저가 복제해 둔 상황의 heap 사용량.
+ * dedup 끔/켬을 차례로 돌려 비교한다.
+ *
+ * ./gradlew bench -Pbench=VaultDedupBench [-Pitems=2000 -Pusers=20]
+ */
+public class VaultDedupBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 2000);
+        int users = Integer.getInteger("users", 20);
+        ObjectMapper om = new ObjectMapper();
+
+        for (boolean dedup : new boolean[]{false, true}) {
+            long before = usedHeap();
+            VaultContentStore contents = new VaultContentStore(dedup);
+            InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), contents, BenchVaults.noCold(), om);
+
+            long t0 = System.nanoTime();
+            for (int i = 0; i < items; i++) {
+                // 요청마다 새로 파싱된 content (실제 API와 같이 매번 다른 객체)
+                svc.create("user-" + (i % users), new VaultService.VaultUpsert(
+                        "volume " + i, "array3d", null, null, null,
+                        "zyx", null, null, null, List.of("template"), volume(om, 16, i % 4), null));
+            }
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            long after = usedHeap();
+
+            System.out.printf("dedup=%s items=%d users=%d create=%dms heap=%.1fMB (%.1fKB/item) store=%s%n",
+                    dedup, items, users, ms, (after - before) / 1048576.0, (after - before) / 1024.0 / items, contents.stats());
+            svc.listFull("user-0", null); // svc를 측정 끝까지 살려 둔다
+        }
+    }
+
+    /** n x n x n 볼륨. variant 마다 한 칸만 다르게 (나머지 하위 트리는 공유 가능) */
+    private static ArrayNode volume(ObjectMapper om, int n, int variant) {
+        ArrayNode z = om.createArrayNode();
+        for (int k = 0; k < n; k++) {
+            ArrayNode y = z.addArray();
+            for (int j = 0; j < n; j++) {
+                ArrayNode x = y.addArray();
+                for (int i = 0; i < n; i++) x.add(k == 0 && j == 0 && i == 0 ? variant : (i + j + k) % 7);
+            }
+        }
+        return z;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,89 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * disk 모드 측정: content 합이 힙보다 훨씬 큰 vault에서 목록 / 검색 / 단건 조회 / content 수정 지연.
+ * 같은 설정을 -Pstore=memory로 돌리면 힙 부족으로 못 올라가는 크기를 기준으로 본다.
+ *
+ * ./gradlew bench -Pbench=VaultDiskBench [-Pstore=disk|memory] [-Pitems=8000] [-Pheap=256m]
+ */
+public class VaultDiskBench {
+
+    private static final int N = 64; // content = 2×64×64 격자 (무작위라 압축이 거의 안 됨)
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 8_000);
+        String store = System.getProperty("store", "disk");
+        ObjectMapper om = new ObjectMapper();
+        InMemoryVaultService svc = store.equals("memory")
+                ? BenchVaults.create(BenchVaults.noWal(om), om)
+                : BenchVaults.disk(BenchVaults.noWal(om), 64, om);
+
+        Random rnd = new Random(42);
+        List<String> ids = new ArrayList<>();
+        long rawBytes = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < items; i++) {
+            JsonNode content = grid(om, rnd);
+            if (i == 0) rawBytes = om.writeValueAsBytes(content).length;
+            ids.add(svc.create("user-0", new VaultService.VaultUpsert(
+                    "grid " + i, "array3d", null, null, null, "zyx", N, N, 2,
+                    List.of("t" + rnd.nextInt(20)), content, null)).id());
+        }
+        System.gc();
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("store=%s items=%d content~%dMB (json) created in %dms heapUsed=%dMB heapMax=%dMB%n",
+                store, items, rawBytes * items >> 20, (System.nanoTime() - t0) / 1_000_000,
+                (rt.totalMemory() - rt.freeMemory()) >> 20, rt.maxMemory() >> 20);
+
+        VaultService.VaultQuery page = new VaultService.VaultQuery(List.of(), null, null, 20, null, null);
+        VaultService.VaultQuery search = new VaultService.VaultQuery(List.of(), null, "tag:t3 grid 12", 20, null, null);
+        measure("list summary (20)", 2000, i -> svc.listSummary("user-0", page));
+        measure("search", 2000, i -> svc.listSummary("user-0", search));
+        measure("get (random)", 2000, i -> svc.getOwned("user-0", ids.get(rnd.nextInt(ids.size()))));
+        measure("get (hot set 64)", 2000, i -> svc.getOwned("user-0", ids.get(rnd.nextInt(64))));
+        measure("list full (20)", 200, i -> svc.listFull("user-0", page));
+        JsonNode ops = om.readTree("[{\"op\":\"replace\",\"path\":\"/0/0/0\",\"value\":7}]");
+        measure("patch content", 1000, i -> svc.patchContentDelta("user-0", ids.get(rnd.nextInt(ids.size())),
+                new VaultService.ContentDelta(false, ops)));
+    }
+
+    private interface Op {
+        void run(int i) throws Exception;
+    }
+
+    private static void measure(String name, int n, Op op) throws Exception {
+        for (int i = 0; i < n / 4; i++) op.run(i); // warmup
+        long[] ns = new long[n];
+        for (int i = 0; i < n; i++) {
+            long s = System.nanoTime();
+            op.run(i);
+            ns[i] = System.nanoTime() - s;
+        }
+        Arrays.sort(ns);
+        System.out.printf("%-20s p50=%dus p99=%dus%n", name, ns[n / 2] / 1000, ns[n * 99 / 100] / 1000);
+    }
+
+    private static JsonNode grid(ObjectMapper om, Random rnd) {
+        ArrayNode z = om.createArrayNode();
+        for (int k = 0; k < 2; k++) {
+            ArrayNode y = z.addArray();
+            for (int j = 0; j < N; j++) {
+                ArrayNode x = y.addArray();
+                for (int i = 0; i < N; i++) x.add(rnd.nextInt(1_000_000));
+            }
+        }
+        return z;
+    }
+}
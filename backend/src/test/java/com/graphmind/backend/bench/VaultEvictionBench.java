@@ -0,0 +1,85 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+import com.graphmind.backend.service.storage.VaultContentStore;
+import com.graphmind.backend.service.storage.VaultSpillStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 메모리 예산 측정: 유저 수가 예산을 넘으면 오래 안 쓴 유저를 디스크로 내렸을 때 heap 변화
+ * + 다시 올리는 첫 접근 지연 + 올린 뒤 ETag/delta sync seq가 그대로인지.
+ *
+ * ./gradlew bench -Pbench=VaultEvictionBench [-Pusers=2000 -Pitems=20]
+ */
+public class VaultEvictionBench {
+
+    public static void main(String[] args) throws Exception {
+        int users = Integer.getInteger("users", 2000);
+        int items = Integer.getInteger("items", 20);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+
+        // 예산 16MB, idle 기준 0초: 검사 시점에 모두 대상
+        VaultSpillStore spill = new VaultSpillStore(
+                Files.createTempDirectory("vault-spill-bench").toString(), 16, 0, new SimpleMeterRegistry());
+        InMemoryVaultService svc = BenchVaults.create(
+                BenchVaults.noWal(om), new VaultContentStore(true), BenchVaults.noCold(), spill, om);
+
+        for (int u = 0; u < users; u++) {
+            for (int i = 0; i < items; i++) {
+                svc.create("user-" + u, new VaultService.VaultUpsert(
+                        "item " + i, "surface3d", null, null, null, null, null, null, null, List.of("t" + (i % 5)),
+                        om.createObjectNode().put("expr", "sin(x)*" + rnd.nextInt(1000)).put("nx", 64)
+                                .set("samples", om.valueToTree(rnd.ints(32, 0, 100).toArray())), null));
+            }
+        }
+        String etag0 = svc.listEtag("user-0");
+        long seq0 = svc.changes("user-0", 0, null, null).seq();
+        long hotHeap = usedHeap();
+
+        long t0 = System.nanoTime();
+        svc.enforceBudgetNow();
+        long evictMs = (System.nanoTime() - t0) / 1_000_000;
+        long spilledHeap = usedHeap();
+
+        System.out.printf("users=%d items/user=%d before=%.1fMB after=%.1fMB evict=%dms%n",
+                users, items, hotHeap / 1048576.0, spilledHeap / 1048576.0, evictMs);
+
+        // 첫 접근: 디스크에서 올림
+        long l0 = System.nanoTime();
+        int n = svc.listSummary("user-0", null).size();
+        long l1 = System.nanoTime();
+        svc.listSummary("user-0", null);
+        long l2 = System.nanoTime();
+        System.out.printf("first list=%d in %.2fms, second in %.2fms%n", n, (l1 - l0) / 1e6, (l2 - l1) / 1e6);
+
+        String etag1 = svc.listEtag("user-0");
+        VaultService.VaultChanges ch = svc.changes("user-0", seq0, null, null);
+        System.out.printf("etag same=%s changes since seq reset=%s items=%d%n",
+                etag0.equals(etag1), ch.reset(), ch.items().size());
+
+        // prefetch 후 첫 목록
+        svc.prefetch("user-1");
+        Thread.sleep(200);
+        long p0 = System.nanoTime();
+        svc.listSummary("user-1", null);
+        System.out.printf("list after prefetch in %.2fms%n", (System.nanoTime() - p0) / 1e6);
+        System.out.println("spill=" + spill.stats());
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
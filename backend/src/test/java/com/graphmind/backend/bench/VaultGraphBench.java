@@ -0,0 +1,88 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 로컬 그래프 측정: 아이템 N개(각 링크 0~4개, 앞쪽 아이템으로 몰리게) vault에서 graph(root, depth) 지연
+ * vs 예전 방식(전체 목록을 받아 클라이언트에서 인접 리스트를 만드는 비용) + 링크 수정 비용.
+ *
+ * ./gradlew bench -Pbench=VaultGraphBench [-Pitems=100000]
+ */
+public class VaultGraphBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 100_000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        List<String> ids = new ArrayList<>();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < items; i++) {
+            ids.add(svc.create("user-0", upsert("n" + i, links(rnd, ids))).id());
+        }
+        System.out.printf("items=%d created in %dms%n", items, (System.nanoTime() - t0) / 1_000_000);
+
+        for (int depth = 1; depth <= 3; depth++) {
+            int d = depth;
+            long[] ns = new long[300];
+            int nodes = 0;
+            for (int i = 0; i < 100; i++) svc.graph("user-0", ids.get(rnd.nextInt(ids.size())), d, null, false); // warmup
+            for (int i = 0; i < ns.length; i++) {
+                String root = ids.get(rnd.nextInt(ids.size()));
+                long s = System.nanoTime();
+                nodes += svc.graph("user-0", root, d, null, false).nodes().size();
+                ns[i] = System.nanoTime() - s;
+            }
+            Arrays.sort(ns);
+            System.out.printf("graph depth=%d avgNodes=%d p50=%dus p99=%dus%n",
+                    d, nodes / ns.length, ns[ns.length / 2] / 1000, ns[ns.length * 99 / 100] / 1000);
+        }
+
+        // 예전 방식: 전체 목록 → 링크 인접 리스트 (직렬화/전송 제외, 서버 쪽 최소 비용만)
+        long[] full = new long[5];
+        int edges = 0;
+        for (int i = 0; i < full.length; i++) {
+            long s = System.nanoTime();
+            edges = 0;
+            for (VaultItem it : svc.listFull("user-0", (VaultService.VaultQuery) null)) {
+                if (it.links() != null) edges += it.links().size();
+            }
+            full[i] = System.nanoTime() - s;
+        }
+        Arrays.sort(full);
+        System.out.printf("full listing walk edges=%d p50=%dms%n", edges, full[full.length / 2] / 1_000_000);
+
+        // 링크 교체 (색인 갱신 포함)
+        long u0 = System.nanoTime();
+        for (int i = 0; i < 20_000; i++) {
+            String id = ids.get(rnd.nextInt(ids.size()));
+            svc.update("user-0", id, upsert(id, links(rnd, ids)), null);
+        }
+        System.out.printf("link updates=20000 avg=%dus%n", (System.nanoTime() - u0) / 20_000 / 1000);
+    }
+
+    private static List<LinkRef> links(Random rnd, List<String> ids) {
+        List<LinkRef> out = new ArrayList<>();
+        if (ids.isEmpty()) return out;
+        for (int k = rnd.nextInt(5); k > 0; k--) {
+            out.add(new LinkRef("VAULT_ITEM", ids.get((int) (Math.pow(rnd.nextDouble(), 2) * ids.size())), null));
+        }
+        return out;
+    }
+
+    private static VaultService.VaultUpsert upsert(String title, List<LinkRef> links) {
+        return new VaultService.VaultUpsert(title, "equation", "y = x", null, null,
+                null, null, null, null, List.of(), null, links);
+    }
+}
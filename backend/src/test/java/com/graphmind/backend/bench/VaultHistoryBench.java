@@ -0,0 +1,97 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+import com.graphmind.backend.service.storage.VaultContentStore;
+import com.graphmind.backend.service.storage.VaultHistoryStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 버전 이력 측정: 볼륨 아이템마다 한 칸씩 바꾸는 delta PATCH를 여러 번 했을 때
+ * 이력 heap(역방향 patch + keyframe) vs 전체 사본으로 보관했을 경우 + 임의 버전 복원 지연.
+ *
+ * ./gradlew bench -Pbench=VaultHistoryBench [-Pitems=200 -Pwrites=64]
+ */
+public class VaultHistoryBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 200);
+        int edits = Integer.getInteger("writes", 64);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+
+        VaultHistoryStore history = new VaultHistoryStore(true, 16, 256);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), new VaultContentStore(true),
+                BenchVaults.noCold(), BenchVaults.noSpill(), history, om);
+
+        int n = 16;
+        long emptyHeap = usedHeap();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            ids.add(svc.create("user-0", new VaultService.VaultUpsert(
+                    "volume " + i, "array3d", null, null, null,
+                    "zyx", null, null, null, List.of(), volume(om, n, rnd), null)).id());
+        }
+        long baseHeap = usedHeap();
+
+        long t0 = System.nanoTime();
+        for (int e = 0; e < edits; e++) {
+            for (String id : ids) {
+                String path = "/" + rnd.nextInt(n) + "/" + rnd.nextInt(n) + "/" + rnd.nextInt(n);
+                ArrayNode patch = om.createArrayNode();
+                patch.addObject().put("op", "replace").put("path", path).put("value", rnd.nextInt(1000));
+                svc.patchContentDelta("user-0", id, new VaultService.ContentDelta(false, patch));
+            }
+        }
+        long editMs = (System.nanoTime() - t0) / 1_000_000;
+        long histHeap = usedHeap();
+
+        // 전체 사본으로 보관했다면: 지난 버전 수 × 아이템 1개 content 크기
+        long perItem = (baseHeap - emptyHeap) / Math.max(1, items);
+        long fullCopies = (long) items * edits * perItem;
+        System.out.printf("items=%d edits/item=%d in %dms history=%.1fMB vs full copies~%.1fMB%n",
+                items, edits, editMs, (histHeap - baseHeap) / 1048576.0, fullCopies / 1048576.0);
+
+        // 임의 버전 복원 (keyframe 간격만큼만 patch 적용)
+        long[] ns = new long[2000];
+        for (int i = 0; i < ns.length; i++) {
+            String id = ids.get(rnd.nextInt(ids.size()));
+            long version = 1 + rnd.nextInt(edits + 1);
+            long s = System.nanoTime();
+            svc.version("user-0", id, version);
+            ns[i] = System.nanoTime() - s;
+        }
+        Arrays.sort(ns);
+        System.out.printf("materialize p50=%dus p99=%dus max=%dus%n",
+                ns[ns.length / 2] / 1000, ns[ns.length * 99 / 100] / 1000, ns[ns.length - 1] / 1000);
+        System.out.println("history=" + history.stats());
+    }
+
+    private static ArrayNode volume(ObjectMapper om, int n, Random rnd) {
+        ArrayNode z = om.createArrayNode();
+        for (int k = 0; k < n; k++) {
+            ArrayNode y = z.addArray();
+            for (int j = 0; j < n; j++) {
+                ArrayNode x = y.addArray();
+                for (int i = 0; i < n; i++) x.add(rnd.nextInt(1000));
+            }
+        }
+        return z;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
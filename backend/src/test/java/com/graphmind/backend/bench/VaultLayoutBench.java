@@ -0,0 +1,61 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 서버 배치 측정: 아이템 N개(태그 1~3개, 링크 0~2개) vault에서
+ * 처음 배치(cold) / 변경 없음(요청만, 캐시) / 아이템 몇 개 추가 후 이어서 배치(warm) 시간.
+ * cold/warm은 백그라운드 작업이 하는 계산 시간 (요청 스레드는 마지막 결과만 돌려준다).
+ *
+ * ./gradlew bench -Pbench=VaultLayoutBench [-Pitems=10000]
+ */
+public class VaultLayoutBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 10_000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < items; i++) ids.add(svc.create("user-0", upsert(rnd, ids, i)).id());
+
+        // 계산은 백그라운드 작업이 하는 일 → 여기서는 같은 계산을 직접 돌려 시간을 잰다
+        long t0 = System.nanoTime();
+        svc.refreshLayoutNow("user-0");
+        VaultService.VaultLayout cold = svc.layout("user-0");
+        System.out.printf("cold  nodes=%d edges=%d iterations=%d %dms (threads=%d)%n", cold.nodes().size(), cold.edges(),
+                cold.iterations(), (System.nanoTime() - t0) / 1_000_000, Runtime.getRuntime().availableProcessors());
+
+        t0 = System.nanoTime();
+        VaultService.VaultLayout cached = svc.layout("user-0");
+        System.out.printf("cache (request) stale=%s %dms%n", cached.stale(), (System.nanoTime() - t0) / 1_000_000);
+
+        for (int round = 0; round < 3; round++) {
+            for (int k = 0; k < 10; k++) ids.add(svc.create("user-0", upsert(rnd, ids, ids.size())).id());
+            t0 = System.nanoTime();
+            svc.refreshLayoutNow("user-0");
+            VaultService.VaultLayout warm = svc.layout("user-0");
+            System.out.printf("warm  +10 items iterations=%d %dms%n", warm.iterations(), (System.nanoTime() - t0) / 1_000_000);
+        }
+    }
+
+    private static VaultService.VaultUpsert upsert(Random rnd, List<String> ids, int i) {
+        List<String> tags = new ArrayList<>();
+        for (int k = 1 + rnd.nextInt(3); k > 0; k--) tags.add("t" + (int) (Math.pow(rnd.nextDouble(), 2) * 300));
+        List<LinkRef> links = new ArrayList<>();
+        for (int k = ids.isEmpty() ? 0 : rnd.nextInt(3); k > 0; k--) {
+            links.add(new LinkRef("VAULT_ITEM", ids.get(rnd.nextInt(ids.size())), null));
+        }
+        return new VaultService.VaultUpsert("n" + i, "equation", "y = x", null, null,
+                null, null, null, null, tags, null, links);
+    }
+}
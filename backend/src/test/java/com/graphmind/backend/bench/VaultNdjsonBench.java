@@ -0,0 +1,156 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * NDJSON export/import 측정: 큰 볼륨 아이템으로 채운 vault를 gzip 파일로 내보내고 다른 유저로 가져올 때
+ * 처리량 + 진행 중 heap 증가분(목록 전체를 만들지 않으므로 vault 크기와 무관해야 함).
+ * 목록 view=full도 같은 방식(writeFull)과 예전 방식(listFull 본문 하나)을 비교한다.
+ *
+ * ./gradlew bench -Pbench=VaultNdjsonBench [-Pitems=2000]
+ */
+public class VaultNdjsonBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 2000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        for (int i = 0; i < items; i++) {
+            svc.create("user-a", new VaultService.VaultUpsert(
+                    "volume " + i, "array3d", null, null, null,
+                    "zyx", null, null, null, List.of("io"), volume(om, 24, rnd), null));
+        }
+        Path file = Files.createTempFile("vault-export", ".ndjson.gz");
+
+        // 비교: 예전 방식 (listFull → 응답 본문 하나)
+        long base = usedHeap();
+        HeapPeak peak = HeapPeak.start();
+        long r0 = System.nanoTime();
+        int bytes = om.writeValueAsBytes(svc.listFull("user-a", null)).length;
+        long listPeak = peak.stop() - base;
+        System.out.printf("listFull body=%.1fMB in %dms peak heap +%.1fMB%n",
+                bytes / 1048576.0, (System.nanoTime() - r0) / 1_000_000, listPeak / 1048576.0);
+
+        // view=full 스트리밍: id 목록만 정하고 아이템 하나씩 직렬화
+        base = usedHeap();
+        peak = HeapPeak.start();
+        long s0 = System.nanoTime();
+        long[] firstByte = {0};
+        long[] streamed = {0};
+        svc.writeFull("user-a", svc.planFull("user-a", null), null, new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                if (firstByte[0] == 0) firstByte[0] = System.nanoTime() - s0;
+                streamed[0] += len;
+            }
+        });
+        long streamPeak = peak.stop() - base;
+        System.out.printf("writeFull body=%.1fMB in %dms first byte %.2fms peak heap +%.1fMB%n",
+                streamed[0] / 1048576.0, (System.nanoTime() - s0) / 1_000_000, firstByte[0] / 1e6, streamPeak / 1048576.0);
+
+        base = usedHeap();
+        peak = HeapPeak.start();
+        long t0 = System.nanoTime();
+        try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), 1 << 16) {
+            {
+                def.setLevel(Deflater.BEST_SPEED); // VaultController와 같게
+            }
+        }) {
+            svc.exportNdjson("user-a", out);
+        }
+        long exportMs = (System.nanoTime() - t0) / 1_000_000;
+        long exportPeak = peak.stop() - base;
+        System.out.printf("export items=%d file=%.1fMB in %dms peak heap +%.1fMB%n",
+                items, Files.size(file) / 1048576.0, exportMs, exportPeak / 1048576.0);
+
+        base = usedHeap();
+        peak = HeapPeak.start();
+        long t1 = System.nanoTime();
+        VaultService.VaultImportResult r;
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16), 1 << 16)) {
+            r = svc.importNdjson("user-b", in);
+        }
+        long importMs = (System.nanoTime() - t1) / 1_000_000;
+        long importPeak = peak.stop() - base;
+        System.out.printf("import created=%d updated=%d skipped=%d in %dms (%.0f items/s) peak heap +%.1fMB%n",
+                r.created(), r.updated(), r.skipped(), importMs, r.created() * 1000.0 / Math.max(1, importMs),
+                importPeak / 1048576.0);
+        Files.deleteIfExists(file);
+    }
+
+    /** 진행 중 최대 heap 사용량 (10ms 간격 표본) */
+    private static final class HeapPeak {
+        private final AtomicLong max = new AtomicLong();
+        private volatile boolean running = true;
+        private Thread t;
+
+        static HeapPeak start() {
+            HeapPeak p = new HeapPeak();
+            p.t = new Thread(() -> {
+                Runtime rt = Runtime.getRuntime();
+                while (p.running) {
+                    p.max.accumulateAndGet(rt.totalMemory() - rt.freeMemory(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            p.t.setDaemon(true);
+            p.t.start();
+            return p;
+        }
+
+        long stop() throws InterruptedException {
+            running = false;
+            t.join();
+            return max.get();
+        }
+    }
+
+    private static ArrayNode volume(ObjectMapper om, int n, Random rnd) {
+        ArrayNode z = om.createArrayNode();
+        for (int k = 0; k < n; k++) {
+            ArrayNode y = z.addArray();
+            for (int j = 0; j < n; j++) {
+                ArrayNode x = y.addArray();
+                for (int i = 0; i < n; i++) x.add(rnd.nextInt(1000));
+            }
+        }
+        return z;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,73 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+import com.graphmind.backend.service.json.JsonProjection;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * fields projection 측정: surface 아이템 N개(content = 범위 + 큰 격자)를 view=full로 쓸 때
+ * 전체 / 메타만 / content 일부 경로별 응답 크기와 직렬화 시간.
+ *
+ * ./gradlew bench -Pbench=VaultProjectionBench [-Pitems=2000]
+ */
+public class VaultProjectionBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 2000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        for (int i = 0; i < items; i++) {
+            ObjectNode c = om.createObjectNode();
+            c.putArray("xRange").add(-1).add(1);
+            c.putArray("yRange").add(-1).add(1);
+            c.put("expr", "sin(x)*cos(y)");
+            ArrayNode z = c.putArray("z");
+            for (int k = 0; k < 40 * 40; k++) z.add(rnd.nextDouble());
+            svc.create("user-0", new VaultService.VaultUpsert(
+                    "surface " + i, "surface3d", null, "sin(x)*cos(y)", 40,
+                    null, null, null, null, List.of("bench"), c, null));
+        }
+        VaultService.VaultFullPage page = svc.planFull("user-0", null);
+
+        for (String fields : new String[]{null, "id,title,updatedAt", "id,content/xRange,content/yRange", "content/z/0"}) {
+            JsonProjection p = JsonProjection.parse(fields);
+            Counting out = new Counting();
+            for (int i = 0; i < 5; i++) svc.writeFull("user-0", page, p, out); // warmup
+            long[] ns = new long[20];
+            for (int i = 0; i < ns.length; i++) {
+                out.bytes = 0;
+                long s = System.nanoTime();
+                svc.writeFull("user-0", page, p, out);
+                ns[i] = System.nanoTime() - s;
+            }
+            Arrays.sort(ns);
+            System.out.printf("fields=%-34s body=%8.1fKB p50=%6.1fms%n",
+                    fields == null ? "(all)" : fields, out.bytes / 1024.0, ns[ns.length / 2] / 1e6);
+        }
+    }
+
+    private static final class Counting extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 구조화 검색어 측정: 아이템 N개 vault에서 첫 페이지(20개) 지연.
+ * 선택도가 다른 조건(드문 태그 / 흔한 type + 크기 / 최근 updated / 자유 텍스트)별로 본다.
+ *
+ * ./gradlew bench -Pbench=VaultQueryBench [-Pitems=50000]
+ */
+public class VaultQueryBench {
+
+    private static final String[] TYPES = {"equation", "array3d", "curve3d", "surface3d"};
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 50_000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < items; i++) {
+            String type = TYPES[rnd.nextInt(TYPES.length)];
+            Integer size = type.equals("array3d") ? 8 << rnd.nextInt(5) : null;
+            svc.create("user-0", new VaultService.VaultUpsert(
+                    "item " + i, type, type.equals("equation") ? "sin(x) + " + rnd.nextInt(100) : null, null, null,
+                    type.equals("array3d") ? "zyx" : null, size, size, size,
+                    List.of("t" + rnd.nextInt(20), "rare" + rnd.nextInt(2000)), null, null));
+        }
+        System.out.printf("items=%d created in %dms%n", items, (System.nanoTime() - t0) / 1_000_000);
+
+        String[] cases = {
+                null,
+                "tag:rare7",
+                "type:array3d sizeX>64",
+                "type:array3d sizeX>64 tag:t3",
+                "updated>5m",
+                "type:equation item 1234",
+                "samples>1000",
+                "item 1234",
+        };
+        for (String q : cases) {
+            VaultService.VaultQuery query = new VaultService.VaultQuery(List.of(), null, q, 20, null, null);
+            for (int i = 0; i < 200; i++) svc.listSummary("user-0", query); // warmup
+            long[] ns = new long[500];
+            int hits = 0;
+            for (int i = 0; i < ns.length; i++) {
+                long s = System.nanoTime();
+                hits = svc.listSummary("user-0", query).size();
+                ns[i] = System.nanoTime() - s;
+            }
+            Arrays.sort(ns);
+            System.out.printf("q=%-30s hits=%-3d p50=%dus p99=%dus%n",
+                    q == null ? "(none)" : "\"" + q + "\"", hits, ns[ns.length / 2] / 1000, ns[ns.length * 99 / 100] / 1000);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * relevance 검색 측정: 아이템 N개 vault에서 sort=relevance 상위 20개 지연 (흔한 단어 / 드문 단어 / 여러 단어)
+ * + 쓰기마다 색인 갱신 비용(같은 쓰기를 색인 포함으로 측정).
+ *
+ * ./gradlew bench -Pbench=VaultRankBench [-Pitems=50000]
+ */
+public class VaultRankBench {
+
+    private static final String[] COMMON = {"wave", "sin", "cos", "surface", "grid", "x", "y", "heat", "field", "plot"};
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 50_000);
+        ObjectMapper om = new ObjectMapper();
+        Random rnd = new Random(42);
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        // 흔한 단어 10개 + 드문 단어 (zipf 비슷하게)
+        long t0 = System.nanoTime();
+        for (int i = 0; i < items; i++) {
+            svc.create("user-0", new VaultService.VaultUpsert(
+                    word(rnd) + " " + word(rnd) + " " + word(rnd), "equation", word(rnd) + "(" + word(rnd) + ")",
+                    rnd.nextBoolean() ? word(rnd) + "*" + word(rnd) : null, null,
+                    null, null, null, null, List.of(word(rnd), "t" + rnd.nextInt(20)), null, null));
+        }
+        System.out.printf("items=%d created in %dms%n", items, (System.nanoTime() - t0) / 1_000_000);
+
+        String[][] cases = {
+                {"common 1 term", "wave"},
+                {"rare 1 term", "w" + 123},
+                {"common 2 terms", "sin wave"},
+                {"mixed 3 terms", "heat w77 grid"},
+                {"common 4 terms", "sin cos x y"},
+        };
+        for (String[] c : cases) {
+            VaultService.VaultQuery q = new VaultService.VaultQuery(List.of(), null, c[1], 20, null, "relevance");
+            for (int i = 0; i < 200; i++) svc.listSummary("user-0", q); // warmup
+            long[] ns = new long[500];
+            int hits = 0;
+            for (int i = 0; i < ns.length; i++) {
+                long s = System.nanoTime();
+                hits = svc.listSummary("user-0", q).size();
+                ns[i] = System.nanoTime() - s;
+            }
+            Arrays.sort(ns);
+            System.out.printf("%-15s q=%-14s hits=%d p50=%dus p99=%dus%n",
+                    c[0], "\"" + c[1] + "\"", hits, ns[ns.length / 2] / 1000, ns[ns.length * 99 / 100] / 1000);
+        }
+
+        // 색인 갱신 포함 title 수정
+        List<String> ids = new ArrayList<>();
+        svc.listSummary("user-0", new VaultService.VaultQuery(List.of(), null, null, 1000, null, null))
+                .forEach(s -> ids.add(s.id()));
+        long u0 = System.nanoTime();
+        for (int i = 0; i < 20_000; i++) {
+            svc.patchMeta("user-0", ids.get(rnd.nextInt(ids.size())),
+                    new VaultService.VaultMetaPatch(word(rnd) + " " + word(rnd), null, null));
+        }
+        System.out.printf("title updates=20000 avg=%dus%n", (System.nanoTime() - u0) / 20_000 / 1000);
+    }
+
+    private static String word(Random rnd) {
+        return rnd.nextInt(3) == 0 ? "w" + (int) (Math.pow(rnd.nextDouble(), 2) * 5000) : COMMON[rnd.nextInt(COMMON.length)];
+    }
+}
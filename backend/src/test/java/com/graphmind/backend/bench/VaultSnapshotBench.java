@@ -0,0 +1,74 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 읽기/쓰기 혼합 처리량: 한 유저 vault에서 스레드 수를 늘려 가며
+ * 단건 조회 85% / 목록(첫 페이지 20개, 전체 또는 태그) 10% / 메타 수정 5%.
+ *
+ * ./gradlew bench -Pbench=VaultSnapshotBench [-Pitems=20000 -Pwrites=200000]
+ */
+public class VaultSnapshotBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = Integer.getInteger("items", 20_000);
+        int ops = Integer.getInteger("writes", 200_000); // 스레드 수와 상관없이 총 작업 수
+        ObjectMapper om = new ObjectMapper();
+        InMemoryVaultService svc = BenchVaults.create(BenchVaults.noWal(om), om);
+
+        List<String> ids = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            ids.add(svc.create("user-0", new VaultService.VaultUpsert("item " + i, "equation", "y = " + i + " x",
+                    null, null, null, null, null, null, List.of("t" + i % 20), null, null)).id());
+        }
+        VaultService.VaultQuery recent = new VaultService.VaultQuery(List.of(), null, null, 20, null, null);
+        VaultService.VaultQuery tagged = new VaultService.VaultQuery(List.of("t3"), null, null, 20, null, null);
+
+        System.out.printf("items=%d ops=%d cores=%d%n", items, ops, Runtime.getRuntime().availableProcessors());
+        for (int threads : new int[]{1, 2, 4, 8, 1}) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch done = new CountDownLatch(threads);
+            LongAdder writes = new LongAdder();
+            LongAdder[] ns = {new LongAdder(), new LongAdder(), new LongAdder()}; // get / list / write
+            long t0 = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    for (int i = 0; i < ops / threads; i++) {
+                        int p = rnd.nextInt(100);
+                        String id = ids.get(rnd.nextInt(ids.size()));
+                        long s = System.nanoTime();
+                        int kind = p < 85 ? 0 : p < 95 ? 1 : 2;
+                        if (p < 85) {
+                            svc.getOwned("user-0", id);
+                        } else if (p < 95) {
+                            svc.listSummary("user-0", p % 2 == 0 ? recent : tagged);
+                        } else {
+                            svc.patchMeta("user-0", id, new VaultService.VaultMetaPatch("edit " + i, null, null));
+                            writes.increment();
+                        }
+                        ns[kind].add(System.nanoTime() - s);
+                    }
+                    done.countDown();
+                });
+            }
+            done.await();
+            long ms = Math.max(1, (System.nanoTime() - t0) / 1_000_000);
+            pool.shutdown();
+            long w = Math.max(1, writes.sum());
+            System.out.printf("threads=%d %dms %.0f ops/s | mean get=%dus list=%dus write=%dus%n", threads, ms, ops * 1000.0 / ms,
+                    ns[0].sum() / 1000 / (ops * 85 / 100), ns[1].sum() / 1000 / (ops / 10), ns[2].sum() / 1000 / w);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.graphmind.backend.bench;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.service.InMemoryVaultService;
+import com.graphmind.backend.service.VaultService;
+import com.graphmind.backend.service.storage.VaultWal;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * WAL 영속화 모드 측정: 동시 쓰기 p99(group commit) + batch flush 수 + 재시작 복구 시간.
+ *
+ * ./gradlew bench -Pbench=VaultWalBench [-Pthreads=32 -Pwrites=2000]
+ */
+public class VaultWalBench {
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("threads", 32);
+        int writesPerThread = Integer.getInteger("writes", 2000);
+        Path dir = Files.createTempDirectory("vault-wal-bench");
+        ObjectMapper om = new ObjectMapper();
+
+        VaultWal wal = new VaultWal(true, dir.toString(), 3600, 8, om);
+        InMemoryVaultService svc = BenchVaults.create(wal, om);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        long t0 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            String user = "user-" + (t % 8);
+            pool.execute(() -> {
+                for (int i = 0; i < writesPerThread; i++) {
+                    svc.create(user, new VaultService.VaultUpsert(
+                            "bench " + i, "surface3d", null, "sin(x)*cos(y)", 64,
+                            null, null, null, null, List.of("bench"),
+                            om.createObjectNode().put("expr", "sin(x)*cos(y)").put("nx", 64), null));
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        long writeMs = (System.nanoTime() - t0) / 1_000_000;
+        pool.shutdown();
+
+        System.out.printf("writes=%d threads=%d in %dms (%.0f ops/s)%n",
+                threads * writesPerThread, threads, writeMs, threads * writesPerThread * 1000.0 / Math.max(1, writeMs));
+        System.out.println("wal=" + wal.stats());
+
+        // ✅ 같은 양을 batch로: 단건 create N번 vs batch 1번의 fsync 수 비교
+        List<VaultService.BatchOp> ops = new ArrayList<>();
+        for (int i = 0; i < writesPerThread; i++) {
+            ops.add(new VaultService.BatchOp("create", null, null, om.createObjectNode()
+                    .put("title", "batch " + i).put("type", "equation").put("formula", "y=x")));
+        }
+        long fsyncs0 = (long) wal.stats().get("fsyncs");
+        long b0 = System.nanoTime();
+        svc.batch("user-batch", ops);
+        System.out.printf("batch ops=%d in %dms fsyncs=%d%n",
+                ops.size(), (System.nanoTime() - b0) / 1_000_000, (long) wal.stats().get("fsyncs") - fsyncs0);
+
+        // 대부분은 스냅샷, 마지막 일부는 로그 재생으로 복구되도록
+        wal.snapshot();
+        for (int i = 0; i < writesPerThread; i++) {
+            svc.create("user-tail", new VaultService.VaultUpsert(
+                    "tail " + i, "equation", "y=x", null, null,
+                    null, null, null, null, List.of(), null, null));
+        }
+        wal.close();
+
+        VaultWal wal2 = new VaultWal(true, dir.toString(), 3600, 8, om);
+        BenchVaults.create(wal2, om);
+        System.out.println("recovery=" + wal2.stats());
+        wal2.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.graphmind.backend.service;
+
+import com.graphmind.backend.service.feed.VaultChangeFeed;
+import com.graphmind.backend.service.graph.VaultAnalyticsJob;
+import com.graphmind.backend.service.layout.VaultLayoutJob;
+import com.graphmind.backend.service.storage.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+class DiskVaultServiceTest extends VaultServiceContractTest {
+
+    @TempDir
+    Path dir;
+
+    private DiskVaultService svc;
+
+    @Override
+    protected VaultService service() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // 페이지 캐시를 최소(16장)로: 대부분의 읽기가 파일까지 가도록
+        svc = new DiskVaultService(
+                new VaultWal(false, "", 3600, 8, om),
+                new VaultChangeFeed(256, 30),
+                new VaultContentStore(true),
+                new VaultColdStore(false, 60, 16384, 60, registry),
+                new VaultSpillStore(dir.resolve("spill").toString(), 0, 30, registry),
+                new VaultHistoryStore(true, 16, 256),
+                new VaultAnalyticsJob(false, 2000, registry),
+                new VaultLayoutJob(false, 1, registry),
+                om, 168,
+                new VaultPageStore(dir.resolve("content.pages").toString(), 0, registry));
+        return svc;
+    }
+
+    @Override
+    protected int refreshAnalytics() {
+        return svc.refreshAnalyticsNow();
+    }
+
+    @Override
+    protected void refreshLayout(String userId) {
+        svc.refreshLayoutNow(userId);
+    }
+}
@@ -0,0 +1,236 @@
+package com.graphmind.backend.service;
+
+import tools.jackson.databind.JsonNode;
+
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.domain.VaultItemSummary;
+import com.graphmind.backend.service.feed.VaultChangeFeed;
+import com.graphmind.backend.service.graph.VaultAnalyticsJob;
+import com.graphmind.backend.service.layout.VaultLayoutJob;
+import com.graphmind.backend.service.storage.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryVaultServiceTest extends VaultServiceContractTest {
+
+    @TempDir
+    Path dir;
+
+    private InMemoryVaultService svc;
+
+    @Override
+    protected VaultService service() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        svc = build(new VaultColdStore(false, 60, 16384, 60, registry), registry);
+        return svc;
+    }
+
+    @Override
+    protected int refreshAnalytics() {
+        return svc.refreshAnalyticsNow();
+    }
+
+    @Override
+    protected void refreshLayout(String userId) {
+        svc.refreshLayoutNow(userId);
+    }
+
+    /** cold tier: 큰 content만 압축 보관, 목록은 풀지 않고, 읽기/수정/이력/내보내기는 원래 값 그대로 */
+    @Test
+    void coldContentRoundTrips() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VaultColdStore cold = new VaultColdStore(true, 0, 1024, 3600, registry);
+        InMemoryVaultService s = build(cold, registry);
+        try {
+            VaultItem big = s.create("u1", new VaultService.VaultUpsert("big", "array3d", null, null, null,
+                    null, null, null, null, List.of(), grid(40, 1), null));
+            VaultItem other = s.create("u1", new VaultService.VaultUpsert("other", "array3d", null, null, null,
+                    null, null, null, null, List.of(), grid(40, 2), null));
+            VaultItem small = s.create("u1", new VaultService.VaultUpsert("small", "array3d", null, null, null,
+                    null, null, null, null, List.of(), grid(2, 3), null));
+
+            s.coolIdleNow();
+            assertEquals(2L, cold.stats().get("items"), "only content above min-bytes is frozen");
+            assertEquals(0L, cold.stats().get("thawed"));
+            assertTrue((Long) cold.stats().get("packedBytes") < (Long) cold.stats().get("rawBytes"));
+
+            // 요약 목록은 content를 풀지 않는다
+            assertEquals(3, s.listSummary("u1", (VaultService.VaultQuery) null).size());
+            assertEquals(0L, cold.stats().get("thawed"));
+
+            assertEquals(grid(40, 1), s.getOwned("u1", big.id()).content());
+            assertEquals(grid(2, 3), s.getOwned("u1", small.id()).content());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            s.exportNdjson("u1", out);
+            VaultService.VaultImportResult copied = s.importNdjson("u2", new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(3, copied.created());
+            assertEquals(grid(40, 2), s.getOwned("u2", other.id()).content());
+
+            // cold 아이템을 고치면 다시 hot, 지난 버전은 원래 content로 복원된다
+            JsonNode ops = om.readTree("[{\"op\":\"replace\",\"path\":\"/0/0/0\",\"value\":-1}]");
+            VaultItem patched = s.patchContentDelta("u1", big.id(), new VaultService.ContentDelta(false, ops));
+            assertEquals(-1, patched.content().get(0).get(0).get(0).asInt());
+            assertEquals(1L, cold.stats().get("items"));
+            assertEquals(grid(40, 1), s.version("u1", big.id(), 1).content());
+
+            // 삭제하면 압축본도 놓는다
+            s.delete("u1", other.id());
+            assertEquals(0L, cold.stats().get("items"));
+            Map<String, Object> after = cold.stats();
+            assertTrue((Long) after.get("cooled") >= 2, after.toString());
+        } finally {
+            cold.close();
+        }
+    }
+
+    /**
+     * 예산(1MB)을 넘긴 유저를 통째로 내렸다가 다시 올려도 목록, delta sync, ETag, cursor가 그대로.
+     * prefetch는 요청 전에 미리 올려 둔다
+     */
+    @Test
+    void evictedVaultReloadsUnchanged() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VaultSpillStore spill = new VaultSpillStore(dir.resolve("evict").toString(), 1, 0, registry);
+        InMemoryVaultService s = build(new VaultColdStore(false, 60, 16384, 60, registry), spill, registry);
+        try {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                ids.add(s.create("u1", new VaultService.VaultUpsert("big" + i, "array3d", null, null, null,
+                        null, null, null, null, List.of("t" + i), grid(150, i), null)).id());
+            }
+            for (int i = 0; i < 4; i++) {
+                ids.add(s.create("u1", new VaultService.VaultUpsert("eq" + i, "equation", "y = " + i, null, null,
+                        null, null, null, null, List.of(), null, null)).id());
+            }
+            s.delete("u1", ids.remove(6));
+            VaultItem edited = s.patchMeta("u1", ids.get(0), new VaultService.VaultMetaPatch("big0 edited", null, null));
+
+            VaultService.VaultChanges baseline = s.changes("u1", 0, null, null);
+            VaultService.VaultChanges sinceFirst = s.changes("u1", 1, baseline.epoch(), null);
+            VaultService.VaultQuery page = new VaultService.VaultQuery(List.of(), null, null, 2, null, null);
+            VaultService.VaultJson first = s.listSummaryJson("u1", page);
+            VaultService.VaultQuery second = new VaultService.VaultQuery(List.of(), null, null, 2, first.nextCursor(), null);
+            byte[] secondJson = s.listSummaryJson("u1", second).json();
+            List<VaultItemSummary> list = s.listSummary("u1", (VaultService.VaultQuery) null);
+            String listEtag = s.listEtag("u1");
+            String itemEtag = s.itemEtag("u1", edited.id());
+            JsonNode content = s.getOwned("u1", ids.get(1)).content();
+
+            Thread.sleep(5);
+            s.enforceBudgetNow();
+            assertEquals(1L, spill.stats().get("evictions"));
+            assertTrue(spill.has("u1"));
+
+            // 다시 접근하면 파일에서 올린다: 전부 내리기 전과 같다
+            assertEquals(listEtag, s.listEtag("u1"));
+            assertEquals(1L, spill.stats().get("loads"));
+            assertEquals(list, s.listSummary("u1", (VaultService.VaultQuery) null));
+            assertEquals(itemEtag, s.itemEtag("u1", edited.id()));
+            assertEquals(content, s.getOwned("u1", ids.get(1)).content());
+            assertArrayEquals(secondJson, s.listSummaryJson("u1", second).json());
+            assertEquals(om.writeValueAsString(sinceFirst), om.writeValueAsString(s.changes("u1", 1, baseline.epoch(), null)));
+            VaultService.VaultChanges after = s.changes("u1", baseline.seq(), baseline.epoch(), null);
+            assertFalse(after.reset());
+            assertEquals(List.of(), after.items());
+
+            // 올린 뒤 쓰기도 seq를 이어간다
+            VaultItem fresh = s.create("u1", new VaultService.VaultUpsert("fresh", "equation", "y = 9", null, null,
+                    null, null, null, null, List.of(), null, null));
+            VaultService.VaultChanges next = s.changes("u1", baseline.seq(), baseline.epoch(), null);
+            assertFalse(next.reset());
+            assertEquals(List.of(fresh.id()), next.items().stream().map(VaultItem::id).toList());
+
+            // prefetch: 요청 전에 백그라운드로 올려 두면 첫 요청은 디스크를 읽지 않는다
+            Thread.sleep(5);
+            s.enforceBudgetNow();
+            assertEquals(2L, spill.stats().get("evictions"));
+            s.prefetch("u1");
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((Long) spill.stats().get("loads") < 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertEquals(1L, spill.stats().get("prefetches"));
+            assertEquals(2L, spill.stats().get("loads"));
+            assertEquals(list.size() + 1, s.listSummary("u1", (VaultService.VaultQuery) null).size());
+            assertEquals(2L, spill.stats().get("loads"));
+            s.prefetch("u1"); // 이미 올라와 있으면 아무 일도 안 한다
+            assertEquals(1L, spill.stats().get("prefetches"));
+            s.prefetch("nobody");
+            assertEquals(1L, spill.stats().get("prefetches"));
+        } finally {
+            spill.close();
+        }
+    }
+
+    /** 읽는 중(pin)인 vault는 내리지 않고, 내리는 중에 들어온 읽기는 다시 올린 값을 본다 */
+    @Test
+    void readsRacingEvictionSeeTheSameVault() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        VaultSpillStore spill = new VaultSpillStore(dir.resolve("race").toString(), 1, 0, registry);
+        InMemoryVaultService s = build(new VaultColdStore(false, 60, 16384, 60, registry), spill, registry);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 3; i++) {
+                s.create("u1", new VaultService.VaultUpsert("big" + i, "array3d", null, null, null,
+                        null, null, null, null, List.of(), grid(150, i), null));
+            }
+            List<VaultItemSummary> expected = s.listSummary("u1", (VaultService.VaultQuery) null);
+            String etag = s.listEtag("u1");
+
+            AtomicBoolean stop = new AtomicBoolean();
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                readers.add(pool.submit(() -> {
+                    while (!stop.get()) {
+                        assertEquals(expected, s.listSummary("u1", (VaultService.VaultQuery) null));
+                        assertEquals(etag, s.listEtag("u1"));
+                        Thread.sleep(3);
+                    }
+                    return null;
+                }));
+            }
+            // 읽기가 계속 들어오므로 pin이 풀려 있고 1ms 이상 쉰 틈에만 내려간다
+            for (int i = 0; i < 2000 && (Long) spill.stats().get("evictions") < 5; i++) {
+                Thread.sleep(1);
+                s.enforceBudgetNow();
+            }
+            stop.set(true);
+            for (Future<?> f : readers) f.get(10, TimeUnit.SECONDS);
+            assertTrue((Long) spill.stats().get("evictions") > 0);
+            assertEquals(expected, s.listSummary("u1", (VaultService.VaultQuery) null));
+        } finally {
+            pool.shutdownNow();
+            spill.close();
+        }
+    }
+
+    private InMemoryVaultService build(VaultColdStore cold, SimpleMeterRegistry registry) {
+        return build(cold, new VaultSpillStore(dir.resolve("spill").toString(), 0, 30, registry), registry);
+    }
+
+    private InMemoryVaultService build(VaultColdStore cold, VaultSpillStore spill, SimpleMeterRegistry registry) {
+        return new InMemoryVaultService(
+                new VaultWal(false, "", 3600, 8, om),
+                new VaultChangeFeed(256, 30),
+                new VaultContentStore(true),
+                cold,
+                spill,
+                new VaultHistoryStore(true, 16, 256),
+                new VaultAnalyticsJob(false, 2000, registry),
+                new VaultLayoutJob(false, 1, registry),
+                om, 168);
+    }
+}
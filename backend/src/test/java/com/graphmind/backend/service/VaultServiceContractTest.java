@@ -0,0 +1,677 @@
+package com.graphmind.backend.service;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.domain.VaultGraphStats;
+import com.graphmind.backend.domain.VaultItem;
+import com.graphmind.backend.domain.VaultItemSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VaultService 구현(메모리 / 디스크)이 똑같이 지켜야 하는 동작.
+ * 구현마다 하위 클래스에서 service()만 만든다.
+ */
+abstract class VaultServiceContractTest {
+
+    protected final ObjectMapper om = new ObjectMapper();
+    private VaultService vault;
+
+    protected abstract VaultService service() throws Exception;
+
+    /** 백그라운드 그래프 분석을 즉시 한 번 (구현마다 갱신 훅이 다르다). 계산한 유저 수 */
+    protected abstract int refreshAnalytics();
+
+    /** 백그라운드 배치 계산을 이 스레드에서 즉시 한 번 (테스트 구성은 배치 작업을 끈다) */
+    protected abstract void refreshLayout(String userId);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        vault = service();
+    }
+
+    @Test
+    void createGetListAndDelete() {
+        VaultItem a = vault.create("u1", upsert("Heat cube", "array3d", List.of("physics"), grid(20, 1)));
+        VaultItem b = vault.create("u1", upsert("Sine", "equation", List.of("math"), null));
+        vault.create("u2", upsert("Other user", "equation", List.of(), null));
+
+        VaultItem got = vault.getOwned("u1", a.id());
+        assertEquals(grid(20, 1), got.content());
+        assertEquals(1, got.version());
+        assertEquals(List.of(b.id(), a.id()), ids(vault.listSummary("u1", (VaultService.VaultQuery) null)));
+        assertThrows(NoSuchElementException.class, () -> vault.getOwned("u2", a.id()));
+
+        vault.delete("u1", a.id());
+        assertThrows(NoSuchElementException.class, () -> vault.getOwned("u1", a.id()));
+        assertEquals(List.of(b.id()), ids(vault.listSummary("u1", (VaultService.VaultQuery) null)));
+    }
+
+    @Test
+    void optimisticConcurrencyAndHistory() {
+        VaultItem a = vault.create("u1", upsert("v1", "array3d", List.of(), grid(16, 1)));
+        VaultItem a2 = vault.update("u1", a.id(), upsert("v2", "array3d", List.of(), grid(16, 2)), 1L);
+        assertEquals(2, a2.version());
+        assertThrows(VaultVersionConflictException.class,
+                () -> vault.patchMeta("u1", a.id(), new VaultService.VaultMetaPatch("stale", null, null), 1L));
+
+        vault.patchMeta("u1", a.id(), new VaultService.VaultMetaPatch("v3", List.of("t"), null), 2L);
+        VaultItem cur = vault.getOwned("u1", a.id());
+        assertEquals("v3", cur.title());
+        assertEquals(grid(16, 2), cur.content());
+
+        assertEquals(List.of(3L, 2L, 1L), vault.versions("u1", a.id()).stream().map(VaultService.VaultVersion::version).toList());
+        assertEquals(grid(16, 1), vault.version("u1", a.id(), 1).content());
+        assertEquals("v2", vault.version("u1", a.id(), 2).title());
+    }
+
+    @Test
+    void contentDeltaPatches() {
+        VaultItem a = vault.create("u1", upsert("s", "surface3d", List.of(), surface(1)));
+        JsonNode ops = om.readTree("[{\"op\":\"replace\",\"path\":\"/xRange/1\",\"value\":9}]");
+        vault.patchContentDelta("u1", a.id(), new VaultService.ContentDelta(false, ops));
+        vault.patchContentDelta("u1", a.id(), new VaultService.ContentDelta(true, om.readTree("{\"nx\":7}")));
+
+        JsonNode c = vault.getOwned("u1", a.id()).content();
+        assertEquals(9, c.get("xRange").get(1).asInt());
+        assertEquals(7, c.get("nx").asInt());
+        assertEquals(surface(1).get("z"), c.get("z"));
+        assertEquals(surface(1), vault.version("u1", a.id(), 1).content());
+    }
+
+    @Test
+    void listQueriesAndStreamingFullView() throws Exception {
+        for (int i = 0; i < 30; i++) {
+            vault.create("u1", upsert("item " + i, i % 3 == 0 ? "array3d" : "equation",
+                    List.of("t" + i % 2), i % 3 == 0 ? grid(8 + i, i) : null));
+        }
+        VaultService.VaultQuery q = new VaultService.VaultQuery(List.of("t0"), null, "type:array3d", null, null, null);
+        List<VaultItem> full = vault.listFull("u1", q);
+        assertEquals(5, full.size());
+        for (VaultItem it : full) assertNotNull(it.content());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        vault.writeFull("u1", vault.planFull("u1", q), null, out);
+        assertEquals(om.readTree(om.writeValueAsBytes(full)), om.readTree(out.toByteArray()));
+
+        // 페이지 이어받기
+        VaultService.VaultQuery page = new VaultService.VaultQuery(List.of(), null, null, 7, null, null);
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            VaultService.VaultFullPage p = vault.planFull("u1", new VaultService.VaultQuery(List.of(), null, null, 7, cursor, null));
+            seen.addAll(p.ids());
+            cursor = p.nextCursor();
+        } while (cursor != null);
+        assertEquals(ids(vault.listSummary("u1", (VaultService.VaultQuery) null)), seen.subList(0, 30));
+        assertEquals(7, vault.planFull("u1", page).ids().size());
+    }
+
+    @Test
+    void exportImportRoundTrip() throws Exception {
+        for (int i = 0; i < 10; i++) vault.create("u1", upsert("x" + i, "array3d", List.of(), grid(12, i)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        vault.exportNdjson("u1", out);
+
+        VaultService.VaultImportResult r = vault.importNdjson("u2", new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(10, r.created());
+        Map<String, JsonNode> a = contents("u1");
+        assertEquals(a, contents("u2"));
+        assertEquals(10, vault.changes("u2", 0, null, null).items().size());
+    }
+
+    @Test
+    void importNeverRollsBackNewerItemsAndDerivesSummaries() throws Exception {
+        VaultItem a = vault.create("u1", upsert("a", "array3d", List.of(), grid(6, 1)));
+        VaultItem b = vault.create("u1", upsert("b", "array3d", List.of(), grid(6, 2)));
+        ByteArrayOutputStream backup = new ByteArrayOutputStream();
+        vault.exportNdjson("u1", backup);
+
+        // 백업 뒤에 고친 a는 오래된 백업으로 되돌아가지 않는다
+        Thread.sleep(5);
+        vault.update("u1", a.id(), upsert("a2", "array3d", List.of(), grid(6, 9)));
+        VaultService.VaultImportResult r = vault.importNdjson("u1", new ByteArrayInputStream(backup.toByteArray()));
+        assertEquals(0, r.created());
+        assertEquals(0, r.updated());
+        assertEquals(2, r.skipped());
+        assertTrue(r.errors().contains(a.id() + ": import_stored_is_newer"), r.errors().toString());
+        assertEquals("a2", vault.getOwned("u1", a.id()).title());
+        assertEquals(grid(6, 9), vault.getOwned("u1", a.id()).content());
+
+        // 파일 쪽이 더 새것이면 덮어쓰고 버전은 저장된 것에서 이어 올린다
+        ObjectNode newer = om.createObjectNode();
+        newer.put("id", b.id());
+        newer.put("type", "surface3d");
+        newer.put("title", "b2");
+        newer.put("updatedAt", "2100-01-01T00:00:00Z");
+        newer.put("version", 1);
+        newer.set("content", om.readTree("{\"expr\":\"sin(x)*y\",\"nx\":40}"));
+        r = vault.importNdjson("u1", new ByteArrayInputStream(om.writeValueAsBytes(newer)));
+        assertEquals(1, r.updated());
+        VaultItem got = vault.getOwned("u1", b.id());
+        assertEquals(2, got.version());
+        // create와 같은 요약값 동기화
+        assertEquals("sin(x)*y", got.expr());
+        assertEquals(40, got.samples());
+    }
+
+    /** 같은 아이템들을 여러 스레드가 고쳐 쓰며 읽을 때, 읽은 값은 항상 한 버전의 title/content 짝이어야 한다 */
+    @Test
+    void concurrentRewritesNeverMixVersions() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) ids.add(vault.create("u1", upsert("rev 0", "array3d", List.of(), grid(24, 0))).id());
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> jobs = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            int seed = t;
+            jobs.add(pool.submit(() -> {
+                Random rnd = new Random(seed);
+                for (int n = 1; n <= 150; n++) {
+                    String id = ids.get(rnd.nextInt(ids.size()));
+                    int rev = seed * 1000 + n;
+                    vault.update("u1", id, upsert("rev " + rev, "array3d", List.of(), grid(24, rev)));
+                }
+            }));
+            jobs.add(pool.submit(() -> {
+                Random rnd = new Random(seed + 7);
+                for (int n = 0; n < 600; n++) {
+                    VaultItem it = vault.getOwned("u1", ids.get(rnd.nextInt(ids.size())));
+                    int rev = Integer.parseInt(it.title().substring(4));
+                    assertEquals(grid(24, rev), it.content(), it.title());
+                }
+            }));
+        }
+        for (Future<?> f : jobs) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        for (String id : ids) {
+            VaultItem it = vault.getOwned("u1", id);
+            assertEquals(grid(24, Integer.parseInt(it.title().substring(4))), it.content());
+        }
+    }
+
+    /** 아이템 16개를 순서대로 고쳐 쓰는 동안 목록은 한 시점 그대로: 빠지는 아이템 없이, 앞 아이템이 뒤보다 최대 1번 앞섬 */
+    @Test
+    void listingsSeeOnePointInTime() throws Exception {
+        List<String> chain = new ArrayList<>();
+        for (int i = 0; i < 16; i++) chain.add(vault.create("u1", upsert("0", "array3d", List.of("chain"), null)).id());
+        for (int i = 0; i < 80; i++) vault.create("u1", upsert("other " + i, "equation", List.of("other"), null));
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        Future<?> writer = pool.submit(() -> {
+            for (int r = 1; r <= 200; r++) {
+                for (String id : chain) vault.update("u1", id, upsert(String.valueOf(r), "array3d", List.of("chain"), null));
+            }
+        });
+        List<Future<?>> readers = new ArrayList<>();
+        for (String q : new String[]{null, "tag:chain"}) {
+            VaultService.VaultQuery query = new VaultService.VaultQuery(List.of(), null, q, null, null, null);
+            readers.add(pool.submit(() -> {
+                while (!writer.isDone()) {
+                    Map<String, Integer> rev = new HashMap<>();
+                    for (VaultItemSummary s : vault.listSummary("u1", query)) {
+                        if (s.type().equals("array3d")) rev.put(s.id(), Integer.parseInt(s.title()));
+                    }
+                    assertEquals(chain.size(), rev.size(), "query " + q);
+                    int first = rev.get(chain.get(0));
+                    for (String id : chain) {
+                        int r = rev.get(id);
+                        assertTrue(r == first || r == first - 1, "query " + q + ": " + rev);
+                    }
+                }
+            }));
+        }
+        writer.get(60, TimeUnit.SECONDS);
+        for (Future<?> f : readers) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+    }
+
+    /** 서로 다른 아이템을 동시에 만드는 동안 since를 따라 읽어도 빠지는 아이템이 없다 (돌려준 seq 아래에 빈 칸 없음) */
+    @Test
+    void deltaSyncSeesEveryConcurrentWrite() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        List<Future<List<String>>> writers = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            int w = t;
+            writers.add(pool.submit(() -> {
+                List<String> made = new ArrayList<>();
+                for (int i = 0; i < 150; i++) made.add(vault.create("u1", upsert(w + "-" + i, "equation", List.of(), null)).id());
+                return made;
+            }));
+        }
+        Set<String> seen = new HashSet<>();
+        long since = 0;
+        boolean done = false;
+        while (!done) {
+            done = writers.stream().allMatch(Future::isDone); // 다 끝난 걸 본 뒤에 한 번 더 읽는다
+            VaultService.VaultChanges c;
+            do {
+                c = vault.changes("u1", since, null, 40);
+                assertFalse(c.reset());
+                for (VaultItem it : c.items()) seen.add(it.id());
+                since = c.seq();
+            } while (c.more());
+        }
+        Set<String> made = new HashSet<>();
+        for (Future<List<String>> f : writers) made.addAll(f.get(60, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(made, seen);
+        assertEquals(450, vault.listSummary("u1", (VaultService.VaultQuery) null).size());
+    }
+
+    @Test
+    void linkGraphFollowsWrites() {
+        VaultItem a = vault.create("u1", upsert("a", "equation", List.of("math"), null));
+        VaultItem b = vault.create("u1", linked("b", a.id(), "uses"));
+        VaultItem c = vault.create("u1", linked("c", b.id(), null));
+
+        VaultService.VaultGraph g = vault.graph("u1", a.id(), 1, null, false);
+        assertEquals(Set.of(a.id(), b.id()), graphIds(g));
+        assertEquals(List.of(new VaultService.VaultGraphEdge(b.id(), a.id(), "link", "uses")), g.edges());
+        assertEquals(1, g.nodes().get(0).backlinks());
+
+        assertEquals(Set.of(a.id(), b.id(), c.id()), graphIds(vault.graph("u1", a.id(), 2, null, false)));
+        assertTrue(graphIds(vault.graph("u1", a.id(), 1, null, true)).contains("tag:math"));
+
+        // 링크를 바꾸면 바로 반영, 지운 아이템은 missing 노드로 남음
+        vault.update("u1", b.id(), new VaultService.VaultUpsert("b", "equation", "y = x", null, null,
+                null, null, null, null, List.of(), null, List.of()), null);
+        assertEquals(Set.of(a.id()), graphIds(vault.graph("u1", a.id(), 2, null, false)));
+        vault.delete("u1", b.id());
+        VaultService.VaultGraph left = vault.graph("u1", c.id(), 1, null, false);
+        assertTrue(left.nodes().get(1).missing());
+
+        assertThrows(NoSuchElementException.class, () -> vault.graph("u1", b.id(), 1, null, false));
+        assertThrows(NoSuchElementException.class, () -> vault.graph("u2", a.id(), 1, null, false));
+        assertThrows(IllegalArgumentException.class, () -> vault.graph("u1", a.id(), 7, null, false));
+    }
+
+    @Test
+    void layoutIsComputedInBackgroundAndWarmStarted() {
+        assertEquals(List.of(), vault.layout("u1").nodes());
+        assertFalse(vault.layout("u1").stale()); // 빈 vault는 계산할 게 없다
+
+        VaultItem a = vault.create("u1", upsert("a", "equation", List.of("math"), null));
+        vault.create("u1", linked("b", a.id(), null));
+
+        // 요청 스레드는 계산하지 않는다: 첫 계산 전에는 빈 결과 + stale
+        VaultService.VaultLayout pending = vault.layout("u1");
+        assertTrue(pending.stale());
+        assertEquals(-1, pending.seq());
+        assertEquals(List.of(), pending.nodes());
+
+        refreshLayout("u1");
+        VaultService.VaultLayout first = vault.layout("u1");
+        assertFalse(first.stale());
+        Set<String> ids = new HashSet<>();
+        first.nodes().forEach(n -> ids.add(n.id()));
+        assertTrue(ids.containsAll(Set.of(a.id(), "tag:math")));
+        assertEquals(3, ids.size());
+        assertEquals(2, first.edges());
+        assertFalse(first.warm());
+        assertTrue(first.iterations() > 0);
+
+        // 그래프와 상관없는 수정은 다시 계산해도 좌표 그대로, 반복 0
+        vault.patchMeta("u1", a.id(), new VaultService.VaultMetaPatch("renamed", null, null), null);
+        assertTrue(vault.layout("u1").stale());
+        refreshLayout("u1");
+        VaultService.VaultLayout same = vault.layout("u1");
+        assertFalse(same.stale());
+        assertEquals(0, same.iterations());
+        assertEquals(first.nodes(), same.nodes());
+        assertTrue(same.seq() > first.seq());
+
+        // 바뀐 뒤에도 다시 계산이 끝날 때까지는 마지막 결과를 그대로 돌려준다
+        vault.create("u1", upsert("c", "equation", List.of("math"), null));
+        VaultService.VaultLayout old = vault.layout("u1");
+        assertTrue(old.stale());
+        assertEquals(same.seq(), old.seq());
+        assertEquals(same.nodes(), old.nodes());
+
+        refreshLayout("u1");
+        VaultService.VaultLayout next = vault.layout("u1");
+        assertFalse(next.stale());
+        assertTrue(next.warm());
+        assertEquals(4, next.nodes().size());
+        assertTrue(next.seq() > same.seq());
+    }
+
+    @Test
+    void graphStatsAppearOnSummariesAfterRefresh() {
+        VaultItem a = vault.create("u1", upsert("a", "equation", List.of("math"), null));
+        VaultItem b = vault.create("u1", linked("b", a.id(), null));
+        vault.patchMeta("u1", b.id(), new VaultService.VaultMetaPatch(null, List.of("math"), null), null);
+        VaultItem c = vault.create("u1", upsert("c", "equation", List.of("math"), null));
+        VaultItem d = vault.create("u1", upsert("d", "equation", List.of(), null));
+        VaultService.VaultQuery all = new VaultService.VaultQuery(List.of(), null, null, null, null, null);
+
+        String before = vault.listEtag("u1");
+        assertNull(vault.listSummary("u1", all).get(0).graph());
+        byte[] cached = vault.listSummaryJson("u1", all).json();
+
+        // 분석은 백그라운드(여기서는 직접 한 번). 쓰기가 없어도 목록 ETag/캐시가 바뀐다
+        assertEquals(1, refreshAnalytics());
+        assertEquals(0, refreshAnalytics());
+        assertNotEquals(before, vault.listEtag("u1"));
+        assertFalse(Arrays.equals(cached, vault.listSummaryJson("u1", all).json()));
+
+        Map<String, VaultGraphStats> stats = new HashMap<>();
+        for (VaultItemSummary s : vault.listSummary("u1", all)) stats.put(s.id(), s.graph());
+        // a, b, c, tag:math는 한 요소 (4개, a-b-tag 삼각형 + c), d는 혼자
+        assertEquals(0, stats.get(a.id()).component());
+        assertEquals(4, stats.get(b.id()).componentSize());
+        assertEquals(1, stats.get(d.id()).componentSize());
+        assertEquals(stats.get(a.id()).community(), stats.get(c.id()).community());
+        assertEquals(d.id(), stats.get(d.id()).community());
+        // 링크와 태그를 모두 받는 a가 가장 높다
+        assertTrue(stats.get(a.id()).rank() > stats.get(b.id()).rank());
+        assertTrue(stats.get(a.id()).rank() > stats.get(d.id()).rank());
+
+        // 그래프와 상관없는 수정 뒤에도 값은 그대로
+        vault.patchMeta("u1", c.id(), new VaultService.VaultMetaPatch("renamed", null, null), null);
+        refreshAnalytics();
+        assertEquals(stats.get(c.id()), vault.listSummary("u1", all).stream()
+                .filter(s -> s.id().equals(c.id())).findFirst().orElseThrow().graph());
+    }
+
+    @Test
+    void facetsAndMultiTagFiltersFollowWrites() {
+        VaultItem a = vault.create("u1", upsert("a", "equation", List.of("math", "physics"), null));
+        VaultItem b = vault.create("u1", upsert("b", "array3d", List.of("math"), null));
+        VaultItem c = vault.create("u1", upsert("c", "equation", List.of("physics"), null));
+        vault.create("u1", upsert("d", "equation", List.of(), null));
+        vault.create("u2", upsert("other", "equation", List.of("math"), null));
+
+        VaultService.VaultFacets f = vault.facets("u1");
+        assertEquals(List.of("math", "physics"), List.copyOf(f.tags().keySet()));
+        assertEquals(Map.of("math", 2, "physics", 2), f.tags());
+        // 많은 순
+        assertEquals(List.of(Map.entry("equation", 3), Map.entry("array3d", 1)), List.copyOf(f.types().entrySet()));
+        assertEquals(4, f.total());
+
+        List<String> both = List.of("math", "physics");
+        assertEquals(List.of(a.id()), ids(vault.listSummary("u1", new VaultService.VaultQuery(both, "and", null, null, null, null))));
+        assertEquals(List.of(c.id(), b.id(), a.id()),
+                ids(vault.listSummary("u1", new VaultService.VaultQuery(both, "or", null, null, null, null))));
+
+        // 태그를 바꾸거나 지우면 개수와 필터가 바로 따라온다 (0이 된 태그는 빠짐)
+        vault.patchMeta("u1", a.id(), new VaultService.VaultMetaPatch(null, List.of("math"), null), null);
+        vault.delete("u1", c.id());
+        f = vault.facets("u1");
+        assertEquals(Map.of("math", 2), f.tags());
+        assertEquals(Map.of("equation", 2, "array3d", 1), f.types());
+        assertEquals(3, f.total());
+        assertEquals(List.of(), ids(vault.listSummary("u1", new VaultService.VaultQuery(both, "and", null, null, null, null))));
+        assertEquals(List.of(a.id(), b.id()),
+                ids(vault.listSummary("u1", new VaultService.VaultQuery(both, "or", null, null, null, null))));
+    }
+
+    /** keyset cursor: 페이지 사이에 쓰기가 끼어도 남은 아이템은 중복/누락 없이, 고친 아이템은 맨 앞으로 */
+    @Test
+    void cursorPagesStayStableAcrossWrites() {
+        List<String> created = new ArrayList<>();
+        for (int i = 0; i < 20; i++) created.add(vault.create("u1", upsert("p" + i, "equation", List.of(), null)).id());
+        List<String> newestFirst = new ArrayList<>(created);
+        Collections.reverse(newestFirst);
+
+        VaultService.VaultJson first = vault.listSummaryJson("u1", new VaultService.VaultQuery(List.of(), null, null, 5, null, null));
+        assertEquals(newestFirst.subList(0, 5), jsonIds(first.json()));
+        assertNotNull(first.nextCursor());
+
+        // 첫 페이지 뒤: 새 아이템 생성, 아직 안 읽은 아이템 하나 수정, 읽은 아이템 하나 삭제
+        String moved = newestFirst.get(12);
+        VaultItem fresh = vault.create("u1", upsert("new", "equation", List.of(), null));
+        vault.patchMeta("u1", moved, new VaultService.VaultMetaPatch("moved", null, null), null);
+        vault.delete("u1", newestFirst.get(1));
+
+        List<String> rest = new ArrayList<>();
+        String cursor = first.nextCursor();
+        while (cursor != null) {
+            VaultService.VaultJson page = vault.listSummaryJson("u1", new VaultService.VaultQuery(List.of(), null, null, 5, cursor, null));
+            rest.addAll(jsonIds(page.json()));
+            cursor = page.nextCursor();
+        }
+        List<String> expected = new ArrayList<>(newestFirst.subList(5, 20));
+        expected.remove(moved);
+        assertEquals(expected, rest);
+
+        // 처음부터 다시 읽으면 새 아이템과 고친 아이템이 맨 앞
+        List<String> top = jsonIds(vault.listSummaryJson("u1", new VaultService.VaultQuery(List.of(), null, null, 2, null, null)).json());
+        assertEquals(List.of(moved, fresh.id()), top);
+        assertThrows(IllegalArgumentException.class,
+                () -> vault.listSummaryJson("u1", new VaultService.VaultQuery(List.of(), null, null, 5, "not-a-cursor", null)));
+    }
+
+    @Test
+    void updatedBeforeQueryPagesEndOnExactMultipleOfLimit() throws Exception {
+        List<String> older = new ArrayList<>();
+        for (int i = 0; i < 6; i++) older.add(vault.create("u1", upsert("old" + i, "equation", List.of(), null)).id());
+        Thread.sleep(5);
+        Instant cut = java.time.Instant.now();
+        Thread.sleep(5);
+        for (int i = 0; i < 3; i++) vault.create("u1", upsert("new" + i, "equation", List.of(), null));
+        Collections.reverse(older);
+
+        // updated<cut 에 맞는 건 정확히 limit × 2개 → 마지막 페이지 뒤 cursor로 처음 페이지가 다시 나오면 안 된다
+        String q = "updated<" + cut;
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            VaultService.VaultJson page = vault.listSummaryJson("u1", new VaultService.VaultQuery(List.of(), null, q, 3, cursor, null));
+            seen.addAll(jsonIds(page.json()));
+            cursor = page.nextCursor();
+            assertTrue(++pages <= 3, "pagination did not terminate");
+        } while (cursor != null);
+        assertEquals(older, seen);
+        assertEquals(2, pages); // 마지막 페이지가 꽉 차도 빈 페이지를 한 번 더 받지 않는다
+
+        seen.clear();
+        cursor = null;
+        pages = 0;
+        do {
+            VaultService.VaultFullPage p = vault.planFull("u1", new VaultService.VaultQuery(List.of(), null, q, 3, cursor, null));
+            seen.addAll(p.ids());
+            cursor = p.nextCursor();
+            assertTrue(++pages <= 3, "pagination did not terminate");
+        } while (cursor != null);
+        assertEquals(older, seen);
+        assertEquals(2, pages); // 마지막 페이지가 꽉 차도 빈 페이지를 한 번 더 받지 않는다
+    }
+
+    /** 컨트롤러의 304 판단 = listEtag/itemEtag 비교: 읽기만으로는 그대로, 쓰기(다른 유저 제외) 뒤에는 달라진다 */
+    @Test
+    void etagsChangeOnlyWhenTheVaultChanges() {
+        VaultItem a = vault.create("u1", upsert("a", "equation", List.of("math"), null));
+        VaultService.VaultQuery q = new VaultService.VaultQuery(List.of(), null, null, null, null, null);
+
+        String etag = vault.listEtag("u1");
+        VaultService.VaultJson first = vault.listSummaryJson("u1", q);
+        assertEquals(etag, first.etag());
+        // 바뀐 게 없으면 같은 ETag(→ 304)에 캐시된 바이트 그대로
+        vault.getOwned("u1", a.id());
+        vault.listSummary("u1", q);
+        vault.facets("u1");
+        vault.create("u2", upsert("other user", "equation", List.of(), null));
+        assertEquals(etag, vault.listEtag("u1"));
+        VaultService.VaultJson again = vault.listSummaryJson("u1", q);
+        assertEquals(etag, again.etag());
+        assertSame(first.json(), again.json());
+        assertEquals("\"1\"", vault.itemEtag("u1", a.id()));
+
+        // 쓰기마다 목록 ETag와 본문이 바뀐다. 아이템 ETag는 그 아이템의 버전
+        VaultItem b = vault.create("u1", upsert("b", "equation", List.of(), null));
+        String afterCreate = vault.listEtag("u1");
+        assertNotEquals(etag, afterCreate);
+        assertEquals(List.of(b.id(), a.id()), jsonIds(vault.listSummaryJson("u1", q).json()));
+        vault.patchMeta("u1", a.id(), new VaultService.VaultMetaPatch("a2", null, null), null);
+        assertNotEquals(afterCreate, vault.listEtag("u1"));
+        assertEquals("\"2\"", vault.itemEtag("u1", a.id()));
+        assertEquals("\"1\"", vault.itemEtag("u1", b.id()));
+        assertEquals(vault.listEtag("u1"), vault.listSummaryJson("u1", q).etag());
+
+        String beforeDelete = vault.listEtag("u1");
+        vault.delete("u1", b.id());
+        assertNotEquals(beforeDelete, vault.listEtag("u1"));
+        assertThrows(NoSuchElementException.class, () -> vault.itemEtag("u1", b.id()));
+    }
+
+    /** batch: 작업마다 단건 API와 같은 상태 코드, 실패한 작업이 있어도 나머지는 반영된다 */
+    @Test
+    void batchReportsStatusPerOp() {
+        VaultItem a = vault.create("u1", upsert("a", "surface3d", List.of(), surface(1)));
+        VaultItem b = vault.create("u1", upsert("b", "equation", List.of(), null));
+        VaultItem foreign = vault.create("u2", upsert("foreign", "equation", List.of(), null));
+
+        List<VaultService.BatchResult> r = vault.batch("u1", List.of(
+                new VaultService.BatchOp("create", null, null, om.valueToTree(upsert("c", "equation", List.of("x"), null))),
+                new VaultService.BatchOp("get", a.id(), null, null),
+                new VaultService.BatchOp("meta", a.id(), 9L, om.readTree("{\"title\":\"stale\"}")),
+                new VaultService.BatchOp("delta", a.id(), 1L, om.readTree("{\"nx\":7}")),
+                new VaultService.BatchOp("get", foreign.id(), null, null),
+                new VaultService.BatchOp("delete", "missing", null, null),
+                new VaultService.BatchOp("update", null, null, null),
+                new VaultService.BatchOp("rename", b.id(), null, null),
+                new VaultService.BatchOp("delete", b.id(), 1L, null)
+        ));
+        assertEquals(List.of(201, 200, 412, 200, 404, 404, 400, 400, 204),
+                r.stream().map(VaultService.BatchResult::status).toList());
+        assertEquals("c", r.get(0).item().title());
+        assertEquals(a.id(), r.get(1).item().id());
+        assertEquals(1L, r.get(2).currentVersion());
+        assertNull(r.get(2).item());
+        assertEquals(2, r.get(3).item().version());
+        assertEquals("batch_id_required", r.get(6).error());
+        assertTrue(r.get(7).error().startsWith("batch_unknown_op"), r.get(7).error());
+
+        // 실패한 작업과 상관없이 성공한 작업은 모두 반영
+        assertEquals(7, vault.getOwned("u1", a.id()).content().get("nx").asInt());
+        assertEquals("a", vault.getOwned("u1", a.id()).title());
+        assertEquals(List.of(a.id(), r.get(0).item().id()), ids(vault.listSummary("u1", (VaultService.VaultQuery) null)));
+        assertEquals("foreign", vault.getOwned("u2", foreign.id()).title());
+        assertThrows(IllegalArgumentException.class, () -> vault.batch("u1",
+                Collections.nCopies(1001, new VaultService.BatchOp("get", a.id(), null, null))));
+    }
+
+    /** delta sync: since 이후의 최종 상태만 (수정은 최신 값 한 번, 삭제는 tombstone), epoch가 다르면 reset */
+    @Test
+    void deltaSyncReturnsChangesAndTombstones() {
+        VaultItem a = vault.create("u1", upsert("a", "equation", List.of(), null));
+        VaultItem b = vault.create("u1", upsert("b", "equation", List.of(), null));
+        VaultService.VaultChanges full = vault.changes("u1", 0, null, null);
+        assertFalse(full.reset());
+        assertEquals(Set.of(a.id(), b.id()), full.items().stream().map(VaultItem::id).collect(Collectors.toSet()));
+        assertEquals(List.of(), full.deleted());
+
+        vault.update("u1", a.id(), upsert("a2", "equation", List.of(), null));
+        vault.patchMeta("u1", a.id(), new VaultService.VaultMetaPatch("a3", null, null), null);
+        vault.delete("u1", b.id());
+        VaultItem c = vault.create("u1", upsert("c", "equation", List.of(), null));
+
+        VaultService.VaultChanges delta = vault.changes("u1", full.seq(), full.epoch(), null);
+        assertFalse(delta.reset());
+        assertFalse(delta.more());
+        assertTrue(delta.seq() > full.seq());
+        assertEquals(List.of(a.id(), c.id()), delta.items().stream().map(VaultItem::id).toList());
+        assertEquals("a3", delta.items().get(0).title());
+        assertEquals(3, delta.items().get(0).version());
+        assertEquals(1, delta.deleted().size());
+        assertEquals(b.id(), delta.deleted().get(0).id());
+        assertEquals(1, delta.deleted().get(0).version());
+
+        // 따라잡은 뒤에는 빈 응답, seq 그대로
+        VaultService.VaultChanges none = vault.changes("u1", delta.seq(), delta.epoch(), null);
+        assertEquals(List.of(), none.items());
+        assertEquals(List.of(), none.deleted());
+        assertEquals(delta.seq(), none.seq());
+
+        // limit: 나눠 받아도 합치면 같다
+        VaultService.VaultChanges p1 = vault.changes("u1", full.seq(), full.epoch(), 2);
+        assertTrue(p1.more());
+        VaultService.VaultChanges p2 = vault.changes("u1", p1.seq(), p1.epoch(), 2);
+        assertFalse(p2.more());
+        assertEquals(3, p1.items().size() + p1.deleted().size() + p2.items().size() + p2.deleted().size());
+
+        // 다른 서버 인스턴스의 epoch이거나 모르는 seq면 처음부터 (tombstone 없이 살아있는 것만)
+        for (VaultService.VaultChanges reset : List.of(
+                vault.changes("u1", delta.seq(), "0", null),
+                vault.changes("u1", delta.seq() + 100, delta.epoch(), null))) {
+            assertTrue(reset.reset());
+            assertEquals(Set.of(a.id(), c.id()), reset.items().stream().map(VaultItem::id).collect(Collectors.toSet()));
+            assertEquals(List.of(), reset.deleted());
+        }
+    }
+
+    // ------------------- helpers -------------------
+
+    private Map<String, JsonNode> contents(String userId) {
+        Map<String, JsonNode> out = new TreeMap<>();
+        for (VaultItem it : vault.listFull(userId, (VaultService.VaultQuery) null)) out.put(it.title(), it.content());
+        return out;
+    }
+
+    private static List<String> ids(List<VaultItemSummary> items) {
+        return items.stream().map(VaultItemSummary::id).toList();
+    }
+
+    private List<String> jsonIds(byte[] json) {
+        List<String> out = new ArrayList<>();
+        for (JsonNode n : om.readTree(json)) out.add(n.get("id").asString());
+        return out;
+    }
+
+    private static VaultService.VaultUpsert upsert(String title, String type, List<String> tags, JsonNode content) {
+        return new VaultService.VaultUpsert(title, type, type.equals("equation") ? "y = x" : null, null, null,
+                null, null, null, null, tags, content, null);
+    }
+
+    private static VaultService.VaultUpsert linked(String title, String target, String label) {
+        return new VaultService.VaultUpsert(title, "equation", "y = x", null, null,
+                null, null, null, null, List.of(), null, List.of(new LinkRef("VAULT_ITEM", target, label)));
+    }
+
+    private static Set<String> graphIds(VaultService.VaultGraph g) {
+        Set<String> out = new HashSet<>();
+        for (VaultService.VaultGraphNode n : g.nodes()) out.add(n.id());
+        return out;
+    }
+
+    /** n×n×2 격자. 값은 seed로 정해짐 (페이지 여러 장에 걸치는 크기) */
+    protected ArrayNode grid(int n, int seed) {
+        Random rnd = new Random(seed);
+        ArrayNode z = om.createArrayNode();
+        for (int k = 0; k < 2; k++) {
+            ArrayNode y = z.addArray();
+            for (int j = 0; j < n; j++) {
+                ArrayNode x = y.addArray();
+                for (int i = 0; i < n; i++) x.add(rnd.nextInt(100_000));
+            }
+        }
+        return z;
+    }
+
+    private ObjectNode surface(int seed) {
+        ObjectNode c = om.createObjectNode();
+        c.putArray("xRange").add(-1).add(1);
+        c.put("expr", "x*y");
+        c.put("nx", 40);
+        c.set("z", grid(10, seed));
+        return c;
+    }
+}
@@ -0,0 +1,148 @@
+package com.graphmind.backend.service.feed;
+
+import com.graphmind.backend.domain.VaultItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultChangeFeedTest {
+
+    private static final int BUFFER = 4;
+
+    /** 보낸 이벤트를 기록하는 emitter. gate가 있으면 change 전송을 거기서 멈춘다 (느린 구독자) */
+    private static final class Recorder extends SseEmitter {
+        final BlockingQueue<Sent> sent = new LinkedBlockingQueue<>();
+        volatile CountDownLatch gate;
+
+        Recorder(long timeout) {
+            super(timeout);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder text = new StringBuilder();
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType d : builder.build()) {
+                if (d.getData() instanceof String str) text.append(str);
+                else data = d.getData();
+            }
+            CountDownLatch g = gate;
+            if (g != null && data instanceof VaultChangeFeed.Change) {
+                try {
+                    g.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(new Sent(text.toString(), data));
+        }
+    }
+
+    private record Sent(String text, Object data) {}
+
+    private Recorder last;
+    private final VaultChangeFeed feed = new VaultChangeFeed(BUFFER, 1) {
+        @Override
+        SseEmitter newEmitter(long timeoutMillis) {
+            last = new Recorder(timeoutMillis);
+            return last;
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    @Test
+    void changePayloadsForCreatePatchAndDelete() throws Exception {
+        feed.subscribe("u1");
+        Recorder r = last;
+        assertTrue(next(r).text().contains("event:ready"));
+
+        VaultItem a = item("a", "Sine", List.of("math"), 1);
+        VaultItem a2 = item("a", "Sine wave", List.of("math"), 2);
+        feed.publish("u1", null, a);
+        feed.publish("u1", a, a2);
+        feed.publish("u1", a2, null);
+        feed.publish("u2", null, item("b", "other user", List.of(), 1));
+
+        Sent created = next(r);
+        assertTrue(created.text().contains("event:change"));
+        assertTrue(created.text().contains("id:a:1"));
+        assertEquals(new VaultChangeFeed.Change(VaultChangeFeed.OP_UPSERT, "a", 1, List.of(), a.updatedAt()), created.data());
+
+        assertEquals(new VaultChangeFeed.Change(VaultChangeFeed.OP_UPSERT, "a", 2, List.of("title"), a2.updatedAt()), next(r).data());
+
+        VaultChangeFeed.Change deleted = (VaultChangeFeed.Change) next(r).data();
+        assertEquals(VaultChangeFeed.OP_DELETE, deleted.op());
+        assertEquals("a", deleted.id());
+        assertEquals(2, deleted.version());
+        assertEquals(List.of(), deleted.fields());
+
+        // 다른 유저의 변경은 오지 않는다
+        assertNull(r.sent.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void slowSubscriberIsDroppedOnOverflow() throws Exception {
+        feed.subscribe("u1");
+        Recorder slow = last;
+        slow.gate = new CountDownLatch(1);
+        feed.subscribe("u1");
+        Recorder fast = last;
+        assertEquals(2, feed.subscriberCount("u1"));
+
+        // 느린 쪽은 첫 change에서 멈춰 있고, 큐(BUFFER)를 넘기면 끊긴다
+        for (int v = 1; v <= BUFFER + 2; v++) feed.publish("u1", null, item("a" + v, "t", List.of(), 1));
+        assertEquals(1, feed.subscriberCount("u1"));
+        assertEquals(1L, ((Number) feed.stats().get("droppedSubscribers")).longValue());
+
+        // 빠른 쪽은 그대로 전부 받는다
+        assertTrue(next(fast).text().contains("event:ready"));
+        for (int v = 1; v <= BUFFER + 2; v++) {
+            assertEquals("a" + v, ((VaultChangeFeed.Change) next(fast).data()).id());
+        }
+
+        slow.gate.countDown();
+        feed.publish("u1", null, item("late", "t", List.of(), 1));
+        assertEquals("late", ((VaultChangeFeed.Change) next(fast).data()).id());
+        // 끊긴 구독자는 멈춰 있던 1개 뒤로 더 받지 않는다
+        assertTrue(next(slow).text().contains("event:ready"));
+        assertNotNull(next(slow).data());
+        assertNull(slow.sent.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void heartbeatPingsIdleSubscribers() throws Exception {
+        feed.subscribe("u1");
+        Recorder r = last;
+        next(r);
+        feed.heartbeat();
+        Sent ping = next(r);
+        assertTrue(ping.text().startsWith(":ping"), ping.text());
+        assertNull(ping.data());
+    }
+
+    private static Sent next(Recorder r) throws InterruptedException {
+        Sent s = r.sent.poll(5, TimeUnit.SECONDS);
+        assertNotNull(s, "no event sent");
+        return s;
+    }
+
+    private static VaultItem item(String id, String title, List<String> tags, long version) {
+        return new VaultItem(id, "u1", title, "equation", "y = x", null, null, null, null, null, null,
+                tags, null, List.of(), Instant.parse("2026-01-01T00:00:00Z").plusSeconds(version), version);
+    }
+}
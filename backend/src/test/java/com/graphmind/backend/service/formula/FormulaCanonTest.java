@@ -0,0 +1,60 @@
+package com.graphmind.backend.service.formula;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormulaCanonTest {
+
+    @Test
+    void equivalentFormulasShareCanonicalForm() {
+        same("y = 2x + 1", "y=1+2*x", "2 * x + 1", "1 + x + x", "2x + 1 = y");
+        same("x^2 + 2x + 1", "(x+1)^2", "(x + 1)(1 + x)", "x*x + 2*x + 1");
+        same("sin(x)*cos(y)", "cos(y) * sin(x)", "z = sin(x) cos(y)");
+        same("x/2", "0.5x", "x * 0.5", "x / 4 * 2");
+        same("sqrt(x)", "x^0.5", "x^(1/2)", "x**0.5");
+        same("x + y = 1", "1 = y + x", "x + y - 1 = 0", "-x - y + 1 = 0");
+        same("0.1 + 0.2 + x", "x + 0.3");
+        same("exp(x)", "e^x");
+    }
+
+    @Test
+    void differentFormulasStayApart() {
+        differ("x^2", "x^3");
+        differ("sin(x)", "cos(x)");
+        differ("x = y^2", "y^2");
+        differ("x - y", "y - x");
+        differ("X + 1", "x + 1");
+    }
+
+    @Test
+    void shapeIgnoresConstants() {
+        FormulaCanon.Canon a = FormulaCanon.of("y = 3x + 5");
+        FormulaCanon.Canon b = FormulaCanon.of("2x + 1");
+        assertNotEquals(a.canonical(), b.canonical());
+        assertEquals(a.shape(), b.shape());
+        assertNotEquals(a.shape(), FormulaCanon.of("2x^2 + 1").shape());
+    }
+
+    @Test
+    void unparsableIsNull() {
+        assertNull(FormulaCanon.of("2 + * 3"));
+        assertNull(FormulaCanon.of("sin("));
+        assertNull(FormulaCanon.of(""));
+        assertNull(FormulaCanon.of("(".repeat(500) + "x" + ")".repeat(500)));
+    }
+
+    private static void same(String... formulas) {
+        FormulaCanon.Canon first = FormulaCanon.of(formulas[0]);
+        assertNotNull(first, formulas[0]);
+        for (String f : formulas) {
+            FormulaCanon.Canon c = FormulaCanon.of(f);
+            assertNotNull(c, f);
+            assertEquals(first.canonical(), c.canonical(), formulas[0] + " vs " + f);
+        }
+    }
+
+    private static void differ(String a, String b) {
+        assertNotEquals(FormulaCanon.of(a).canonical(), FormulaCanon.of(b).canonical(), a + " vs " + b);
+    }
+}
@@ -0,0 +1,132 @@
+package com.graphmind.backend.service.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphAnalyticsTest {
+
+    @Test
+    void componentsAndPageRankMatchBruteForce() {
+        Random rnd = new Random(11);
+        int n = 400;
+        List<String> ids = ids(n);
+        List<Long> arcs = new ArrayList<>();
+        for (int k = 0; k < 500; k++) arcs.add(GraphAnalytics.arc(rnd.nextInt(n), rnd.nextInt(n)));
+        GraphAnalytics.Result r = GraphAnalytics.analyze(ids, toArray(arcs), null);
+
+        // 연결 요소: 무방향 BFS와 같은 분할, 번호는 크기 순
+        int[] bfs = new int[n];
+        Arrays.fill(bfs, -1);
+        List<Set<Integer>> adj = new ArrayList<>();
+        for (int i = 0; i < n; i++) adj.add(new HashSet<>());
+        for (long a : arcs) {
+            int u = (int) (a >>> 32), v = (int) a;
+            if (u == v) continue;
+            adj.get(u).add(v);
+            adj.get(v).add(u);
+        }
+        int comps = 0;
+        for (int s = 0; s < n; s++) {
+            if (bfs[s] >= 0) continue;
+            ArrayDeque<Integer> q = new ArrayDeque<>(List.of(s));
+            bfs[s] = comps;
+            while (!q.isEmpty()) for (int v : adj.get(q.poll())) if (bfs[v] < 0) { bfs[v] = comps; q.add(v); }
+            comps++;
+        }
+        assertEquals(comps, r.componentSize().length);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) assertEquals(bfs[i] == bfs[j], r.component()[i] == r.component()[j]);
+        }
+        for (int c = 1; c < comps; c++) assertTrue(r.componentSize()[c - 1] >= r.componentSize()[c]);
+
+        // PageRank: 밀집 행렬로 충분히 오래 돌린 값
+        Set<Long> unique = new HashSet<>();
+        for (long a : arcs) if ((int) (a >>> 32) != (int) a) unique.add(a);
+        int[] out = new int[n];
+        for (long a : unique) out[(int) (a >>> 32)]++;
+        double[] pr = new double[n];
+        Arrays.fill(pr, 1.0 / n);
+        for (int it = 0; it < 300; it++) {
+            double dangling = 0;
+            for (int i = 0; i < n; i++) if (out[i] == 0) dangling += pr[i];
+            double[] next = new double[n];
+            Arrays.fill(next, 0.15 / n + 0.85 * dangling / n);
+            for (long a : unique) next[(int) a] += 0.85 * pr[(int) (a >>> 32)] / out[(int) (a >>> 32)];
+            pr = next;
+        }
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            assertEquals(pr[i], r.rank()[i], 1e-6);
+            sum += r.rank()[i];
+        }
+        assertEquals(1, sum, 1e-9);
+    }
+
+    @Test
+    void labelPropagationFindsPlantedClusters() {
+        // 10개짜리 완전 그래프 8개, 이웃 묶음끼리 간선 1개씩
+        int groups = 8, size = 10;
+        List<String> ids = ids(groups * size);
+        List<Long> arcs = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            for (int a = 0; a < size; a++) {
+                for (int b = 0; b < size; b++) if (a != b) arcs.add(GraphAnalytics.arc(g * size + a, g * size + b));
+            }
+            arcs.add(GraphAnalytics.arc(g * size, ((g + 1) % groups) * size + 1));
+        }
+        GraphAnalytics.Result r = GraphAnalytics.analyze(ids, toArray(arcs), null);
+        assertEquals(1, r.componentSize().length);
+        assertEquals(groups, r.communitySize().length);
+        for (int g = 0; g < groups; g++) {
+            for (int a = 1; a < size; a++) assertEquals(r.community()[g * size], r.community()[g * size + a]);
+            // hub = 다른 묶음에서 링크를 받는 노드 (rank가 가장 높음)
+            assertEquals(g * size + 1, r.hub()[r.community()[g * size]]);
+        }
+    }
+
+    @Test
+    void warmStartReusesPreviousResult() {
+        Random rnd = new Random(5);
+        int n = 3000;
+        List<String> ids = ids(n);
+        List<Long> arcs = new ArrayList<>();
+        for (int i = 1; i < n; i++) {
+            int t = rnd.nextInt(i);
+            arcs.add(GraphAnalytics.arc(i, t));
+            if (rnd.nextInt(3) == 0) arcs.add(GraphAnalytics.arc(t, i));
+        }
+        GraphAnalytics.Result cold = GraphAnalytics.analyze(ids, toArray(arcs), null);
+        assertSame(cold, GraphAnalytics.analyze(ids, toArray(arcs), cold));
+
+        List<String> more = new ArrayList<>(ids);
+        more.add("new");
+        arcs.add(GraphAnalytics.arc(n, 7));
+        GraphAnalytics.Result warm = GraphAnalytics.analyze(more, toArray(arcs), cold);
+        GraphAnalytics.Result fresh = GraphAnalytics.analyze(more, toArray(arcs), null);
+        assertTrue(warm.rankIterations() < fresh.rankIterations(), warm.rankIterations() + " vs " + fresh.rankIterations());
+        for (int i = 0; i <= n; i++) assertEquals(fresh.rank()[i], warm.rank()[i], 1e-6);
+
+        // 기존 노드 대부분은 이전과 같은 묶음
+        int same = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j : new int[]{i + 1, rnd.nextInt(n)}) {
+                if (j >= n) continue;
+                if ((cold.community()[i] == cold.community()[j]) == (warm.community()[i] == warm.community()[j])) same++;
+            }
+        }
+        assertTrue(same > 2 * n * 0.95 - 1, "same " + same);
+    }
+
+    private static List<String> ids(int n) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) out.add("n" + i);
+        return out;
+    }
+
+    private static long[] toArray(List<Long> arcs) {
+        return arcs.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,71 @@
+package com.graphmind.backend.service.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HamtMapTest {
+
+    /** 해시가 겹치는 키 (충돌 노드 경로) */
+    private record Key(int hash, String name) {
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomPutsAndRemoves() {
+        Random rnd = new Random(42);
+        HamtMap<Object, Integer> map = HamtMap.empty();
+        Map<Object, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            // 1/4은 해시 값이 몇 개뿐인 키 → 충돌 노드/분할/끌어올리기까지 지난다
+            Object key = rnd.nextInt(4) == 0 ? new Key(rnd.nextInt(8) << 27, "k" + rnd.nextInt(40)) : "id-" + rnd.nextInt(3000);
+            if (rnd.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Object, Integer> e : expected.entrySet()) assertEquals(e.getValue(), map.get(e.getKey()));
+        assertNull(map.get("missing"));
+
+        List<Integer> values = new ArrayList<>();
+        map.values().forEach(values::add);
+        List<Integer> want = new ArrayList<>(expected.values());
+        Collections.sort(values);
+        Collections.sort(want);
+        assertEquals(want, values);
+
+        for (Object k : new ArrayList<>(expected.keySet())) map = map.remove(k);
+        assertTrue(map.isEmpty());
+        assertFalse(map.values().iterator().hasNext());
+    }
+
+    @Test
+    void olderVersionsStayUnchanged() {
+        HamtMap<String, Integer> v1 = HamtMap.empty();
+        for (int i = 0; i < 1000; i++) v1 = v1.put("id-" + i, i);
+        HamtMap<String, Integer> v2 = v1.put("id-7", -7).remove("id-8").put("new", 1);
+
+        assertEquals(7, v1.get("id-7"));
+        assertEquals(8, v1.get("id-8"));
+        assertNull(v1.get("new"));
+        assertEquals(1000, v1.size());
+
+        assertEquals(-7, v2.get("id-7"));
+        assertNull(v2.get("id-8"));
+        assertEquals(1000, v2.size());
+
+        Integer same = v2.get("id-1");
+        assertSame(v2, v2.put("id-1", same));
+        assertSame(v2, v2.remove("missing"));
+    }
+}
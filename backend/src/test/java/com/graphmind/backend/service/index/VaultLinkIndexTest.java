@@ -0,0 +1,123 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.domain.VaultItem;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultLinkIndexTest {
+
+    @Test
+    void neighborhoodMatchesBruteForceUnderRandomLinkChanges() {
+        Random rnd = new Random(7);
+        VaultLinkIndex index = new VaultLinkIndex();
+        Map<String, Set<String>> links = new HashMap<>(); // 살아 있는 아이템 → 링크 대상
+
+        for (int i = 0; i < 20_000; i++) {
+            String id = "n" + rnd.nextInt(300);
+            if (rnd.nextInt(5) == 0) {
+                index.remove(id);
+                links.remove(id);
+            } else {
+                List<LinkRef> refs = new ArrayList<>();
+                for (int k = rnd.nextInt(5); k > 0; k--) refs.add(new LinkRef("VAULT_ITEM", "n" + rnd.nextInt(320), null));
+                if (rnd.nextInt(4) == 0) refs.add(new LinkRef("STUDIO_PROJECT", "p1", null)); // 따라가지 않음
+                if (rnd.nextInt(8) == 0) refs.add(new LinkRef("VAULT_ITEM", id, null));      // 자기 자신 제외
+                index.put(item(id, refs));
+                Set<String> targets = new HashSet<>();
+                for (LinkRef l : refs) if (l.refType().equals("VAULT_ITEM") && !l.refId().equals(id)) targets.add(l.refId());
+                links.put(id, targets);
+            }
+
+            if (i % 500 == 0) {
+                for (int d = 0; d <= 3; d++) check(index, links, "n" + rnd.nextInt(300), d);
+            }
+        }
+        assertEquals(links.values().stream().mapToLong(Set::size).sum(), index.edgeCount());
+    }
+
+    @Test
+    void backlinksAndMissingTargetsStayVisible() {
+        VaultLinkIndex index = new VaultLinkIndex();
+        index.put(item("a", List.of(new LinkRef("VAULT_ITEM", "b", "uses"))));
+        index.put(item("c", List.of(new LinkRef("VAULT_ITEM", "b", null), new LinkRef("VAULT_ITEM", "ghost", null))));
+        index.put(item("b", List.of()));
+
+        VaultLinkIndex.Neighborhood n = index.neighborhood("b", 1, 100);
+        assertEquals("b", n.nodes().get(0));
+        assertEquals(Set.of("a", "b", "c"), new HashSet<>(n.nodes()));
+        assertEquals(2, n.inDegree()[0]);
+
+        // depth 2면 c를 거쳐 아직 없는 ghost까지
+        assertTrue(index.neighborhood("b", 2, 100).nodes().contains("ghost"));
+
+        // b를 지워도 a, c의 링크는 남는다
+        index.remove("b");
+        assertEquals(Set.of("a", "b", "c"), new HashSet<>(index.neighborhood("b", 1, 100).nodes()));
+
+        // 노드 수 제한
+        VaultLinkIndex.Neighborhood cut = index.neighborhood("b", 2, 2);
+        assertEquals(2, cut.nodes().size());
+        assertTrue(cut.truncated());
+
+        // 모르는 root는 자기 자신만
+        assertEquals(List.of("zzz"), index.neighborhood("zzz", 3, 100).nodes());
+    }
+
+    /** 인접 리스트를 매번 새로 만들어 BFS한 결과와 비교 (노드 집합, 거리, 간선, 차수) */
+    private static void check(VaultLinkIndex index, Map<String, Set<String>> links, String root, int depth) {
+        Map<String, Set<String>> out = new HashMap<>();
+        Map<String, Set<String>> in = new HashMap<>();
+        links.forEach((u, ts) -> {
+            for (String t : ts) {
+                out.computeIfAbsent(u, k -> new HashSet<>()).add(t);
+                in.computeIfAbsent(t, k -> new HashSet<>()).add(u);
+            }
+        });
+
+        Map<String, Integer> dist = new HashMap<>();
+        dist.put(root, 0);
+        ArrayDeque<String> queue = new ArrayDeque<>(List.of(root));
+        while (!queue.isEmpty()) {
+            String u = queue.poll();
+            if (dist.get(u) == depth) continue;
+            for (Map<String, Set<String>> adj : List.of(out, in)) {
+                for (String v : adj.getOrDefault(u, Set.of())) {
+                    if (dist.putIfAbsent(v, dist.get(u) + 1) == null) queue.add(v);
+                }
+            }
+        }
+
+        VaultLinkIndex.Neighborhood n = index.neighborhood(root, depth, 10_000);
+        assertFalse(n.truncated());
+        Map<String, Integer> got = new HashMap<>();
+        for (int i = 0; i < n.nodes().size(); i++) {
+            String id = n.nodes().get(i);
+            got.put(id, n.depths()[i]);
+            if (!id.equals(root) || out.containsKey(id) || in.containsKey(id)) {
+                assertEquals(out.getOrDefault(id, Set.of()).size(), n.outDegree()[i], id);
+                assertEquals(in.getOrDefault(id, Set.of()).size(), n.inDegree()[i], id);
+            }
+        }
+        assertEquals(dist, got, "root=" + root + " depth=" + depth);
+
+        Set<String> edges = new HashSet<>();
+        for (int e = 0; e < n.from().length; e++) edges.add(n.nodes().get(n.from()[e]) + ">" + n.nodes().get(n.to()[e]));
+        Set<String> expected = new HashSet<>();
+        out.forEach((u, ts) -> {
+            if (!dist.containsKey(u)) return;
+            for (String t : ts) if (dist.containsKey(t)) expected.add(u + ">" + t);
+        });
+        assertEquals(expected, edges);
+        assertEquals(expected.size(), n.from().length); // 중복 간선 없음
+    }
+
+    private static VaultItem item(String id, List<LinkRef> links) {
+        return new VaultItem(id, "u", id, "equation", null, null, null, null, null, null, null,
+                List.of(), null, links, Instant.now(), 1L);
+    }
+}
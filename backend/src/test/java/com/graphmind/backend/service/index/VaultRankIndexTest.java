@@ -0,0 +1,160 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.VaultItem;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VaultRankIndexTest {
+
+    private static final String[] WORDS = {"sin", "cos", "wave", "x", "y", "physics", "grid", "heat", "Ω", "2"};
+
+    @Test
+    void topKMatchesFullRescoreAfterIncrementalUpdates() {
+        Random rnd = new Random(42);
+        VaultRankIndex index = new VaultRankIndex();
+        Map<String, VaultItem> items = new HashMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            VaultItem it = randomItem("id-" + rnd.nextInt(400), rnd);
+            index.put(it);
+            items.put(it.id(), it);
+            if (rnd.nextInt(8) == 0) {
+                String victim = "id-" + rnd.nextInt(400);
+                index.remove(victim);
+                items.remove(victim);
+            }
+        }
+        assertEquals(items.size(), index.size());
+
+        Set<String> filter = new HashSet<>();
+        for (String id : items.keySet()) if (rnd.nextBoolean()) filter.add(id);
+
+        List<String> queries = List.of("sin", "WAVE heat", "x y 2", "sin(x) * cos(y)", "ω grid physics", "nothing");
+        for (String q : queries) {
+            for (int k : new int[]{1, 5, 50, 1000}) {
+                for (Set<String> f : Arrays.asList(null, filter)) {
+                    Map<String, Double> expected = rescore(items.values(), q, f);
+                    List<VaultRankIndex.Hit> hits = index.top(q, k, f);
+
+                    List<Double> best = new ArrayList<>(expected.values());
+                    best.sort(Comparator.reverseOrder());
+                    assertEquals(Math.min(k, best.size()), hits.size(), q + " k=" + k);
+                    for (int i = 0; i < hits.size(); i++) {
+                        VaultRankIndex.Hit h = hits.get(i);
+                        assertEquals(best.get(i), h.score(), 1e-9, q + " k=" + k + " #" + i);
+                        assertEquals(expected.get(h.id()), h.score(), 1e-9, q + " " + h.id());
+                    }
+                }
+            }
+        }
+        assertNull(index.top("  *  ", 10, null));
+    }
+
+    @Test
+    void multiTermQueryOverDenseVaultReturnsEveryItem() {
+        VaultRankIndex single = new VaultRankIndex();
+        single.put(item("a", "sin x", null, null));
+        assertEquals(List.of("a"), single.top("sin x", 20, null).stream().map(VaultRankIndex.Hit::id).toList());
+
+        // 빈 ord 없이 모든 아이템이 가장 드문 term까지 가진 경우
+        VaultRankIndex index = new VaultRankIndex();
+        Map<String, VaultItem> items = new HashMap<>();
+        for (int i = 0; i < 5; i++) {
+            VaultItem it = item("g" + i, "graph plot " + i, null, null);
+            index.put(it);
+            items.put(it.id(), it);
+        }
+        List<VaultRankIndex.Hit> hits = index.top("graph plot", 20, null);
+        assertEquals(5, hits.size());
+        Map<String, Double> expected = rescore(items.values(), "graph plot", null);
+        for (VaultRankIndex.Hit h : hits) assertEquals(expected.get(h.id()), h.score(), 1e-9, h.id());
+    }
+
+    @Test
+    void titleOutweighsExprAndShortFieldsOutweighLongOnes() {
+        VaultRankIndex index = new VaultRankIndex();
+        index.put(item("a", "heat equation", null, "u_t = k * u_xx"));
+        index.put(item("b", "notes", null, "heat"));
+        index.put(item("c", "heat transfer in a rod", null, null));
+        index.put(item("d", "unrelated", "sin(x)", null));
+
+        List<String> ids = index.top("heat", 10, null).stream().map(VaultRankIndex.Hit::id).toList();
+        assertEquals(List.of("a", "c", "b"), ids);
+
+        index.put(item("b", "notes", null, "cold"));
+        ids = index.top("heat", 10, null).stream().map(VaultRankIndex.Hit::id).toList();
+        assertEquals(List.of("a", "c"), ids);
+    }
+
+    // ------------------- reference BM25F (전체 재계산) -------------------
+
+    private static final double[] WEIGHT = {3.0, 2.0, 1.5, 1.0};
+
+    private static Map<String, Double> rescore(Collection<VaultItem> items, String q, Set<String> filter) {
+        Map<String, int[]> lens = new HashMap<>();
+        Map<String, List<Map<String, Integer>>> tfs = new HashMap<>();
+        double[] avg = new double[4];
+        for (VaultItem it : items) {
+            String[] fields = {it.title(), it.tags() == null ? null : String.join(" ", it.tags()), it.formula(), it.expr()};
+            int[] l = new int[4];
+            List<Map<String, Integer>> tf = new ArrayList<>();
+            for (int f = 0; f < 4; f++) {
+                Map<String, Integer> m = new HashMap<>();
+                for (String t : VaultRankIndex.tokens(fields[f])) m.merge(t, 1, Integer::sum);
+                l[f] = VaultRankIndex.tokens(fields[f]).size();
+                avg[f] += l[f];
+                tf.add(m);
+            }
+            lens.put(it.id(), l);
+            tfs.put(it.id(), tf);
+        }
+        int n = Math.max(1, items.size());
+        for (int f = 0; f < 4; f++) avg[f] = Math.max(1.0, avg[f] / n);
+
+        Map<String, Double> out = new HashMap<>();
+        for (String term : new LinkedHashSet<>(VaultRankIndex.tokens(q))) {
+            int df = 0;
+            for (List<Map<String, Integer>> tf : tfs.values()) {
+                if (tf.stream().anyMatch(m -> m.containsKey(term))) df++;
+            }
+            if (df == 0) continue;
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            for (VaultItem it : items) {
+                if (filter != null && !filter.contains(it.id())) continue;
+                double tf = 0;
+                for (int f = 0; f < 4; f++) {
+                    int c = tfs.get(it.id()).get(f).getOrDefault(term, 0);
+                    if (c > 0) tf += WEIGHT[f] * c / (1 - 0.75 + 0.75 * lens.get(it.id())[f] / avg[f]);
+                }
+                if (tf > 0) out.merge(it.id(), idf * tf * 2.2 / (1.2 + tf), Double::sum);
+            }
+        }
+        return out;
+    }
+
+    private static VaultItem randomItem(String id, Random rnd) {
+        List<String> tags = new ArrayList<>();
+        for (int i = rnd.nextInt(3); i > 0; i--) tags.add(WORDS[rnd.nextInt(WORDS.length)]);
+        return new VaultItem(id, "u", words(rnd, 1 + rnd.nextInt(4)), "equation",
+                rnd.nextBoolean() ? words(rnd, 1 + rnd.nextInt(3)) : null,
+                rnd.nextBoolean() ? words(rnd, rnd.nextInt(6)) : null,
+                null, null, null, null, null,
+                tags, null, List.of(), Instant.now(), 1L);
+    }
+
+    private static String words(Random rnd, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) sb.append(i == 0 ? "" : rnd.nextBoolean() ? " " : "*").append(WORDS[rnd.nextInt(WORDS.length)]);
+        return sb.toString();
+    }
+
+    private static VaultItem item(String id, String title, String formula, String expr) {
+        return new VaultItem(id, "u", title, "equation", formula, expr, null, null, null, null, null,
+                List.of(), null, List.of(), Instant.now(), 1L);
+    }
+}
@@ -0,0 +1,72 @@
+package com.graphmind.backend.service.index;
+
+import com.graphmind.backend.domain.VaultItem;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VaultSearchIndexTest {
+
+    private static final String[] WORDS = {"Sin", "cos", "Wave", "x^2", "y = 2x + 1", "physics", "Ω", "3D", "grid"};
+
+    @Test
+    void searchMatchesPlainContainsScan() {
+        Random rnd = new Random(42);
+        VaultSearchIndex index = new VaultSearchIndex();
+        Map<String, VaultItem> items = new HashMap<>();
+
+        for (int i = 0; i < 500; i++) {
+            VaultItem it = randomItem("id-" + rnd.nextInt(300), rnd);
+            index.put(it);
+            items.put(it.id(), it);
+            if (rnd.nextInt(10) == 0) {
+                String victim = "id-" + rnd.nextInt(300);
+                index.remove(victim);
+                items.remove(victim);
+            }
+        }
+
+        List<String> queries = new ArrayList<>(List.of("s", "x", "2x", "  WAVE ", "y = 2", "sics", "ω", "3x4", "zzz", "cos wave"));
+        for (String w : WORDS) queries.add(w.toLowerCase());
+
+        for (String q : queries) {
+            Set<String> expected = items.values().stream()
+                    .filter(it -> naiveMatches(it, q))
+                    .map(VaultItem::id)
+                    .collect(Collectors.toSet());
+            assertEquals(expected, index.search(q), "q=" + q);
+        }
+    }
+
+    private static VaultItem randomItem(String id, Random rnd) {
+        String type = List.of("equation", "array3d", "curve3d", "surface3d").get(rnd.nextInt(4));
+        List<String> tags = new ArrayList<>();
+        for (int i = rnd.nextInt(3); i > 0; i--) tags.add(WORDS[rnd.nextInt(WORDS.length)]);
+        return new VaultItem(id, "u", WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)], type,
+                rnd.nextBoolean() ? WORDS[rnd.nextInt(WORDS.length)] : null,
+                rnd.nextBoolean() ? WORDS[rnd.nextInt(WORDS.length)] : null,
+                null, null,
+                rnd.nextInt(5) + 1, 4, rnd.nextInt(5) + 1,
+                tags, null, List.of(), Instant.now(), 1L);
+    }
+
+    /** 기존 InMemoryVaultService.matchesQ 그대로 */
+    private static boolean naiveMatches(VaultItem it, String q) {
+        String needle = q.trim().toLowerCase();
+        String title = (it.title() == null ? "" : it.title()).toLowerCase();
+        String type = (it.type() == null ? "" : it.type()).toLowerCase();
+        String formula = (it.formula() == null ? "" : it.formula()).toLowerCase();
+        String expr = (it.expr() == null ? "" : it.expr()).toLowerCase();
+        String tags = it.tags() == null ? "" : String.join(" ", it.tags()).toLowerCase();
+        String dims = "";
+        if ("array3d".equals(it.type()) && it.sizeX() != null && it.sizeY() != null && it.sizeZ() != null) {
+            dims = (it.sizeX() + "x" + it.sizeY() + "x" + it.sizeZ()).toLowerCase();
+        }
+        return title.contains(needle) || type.contains(needle) || formula.contains(needle)
+                || expr.contains(needle) || tags.contains(needle) || dims.contains(needle);
+    }
+}
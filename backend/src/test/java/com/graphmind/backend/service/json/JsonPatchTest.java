@@ -0,0 +1,189 @@
+package com.graphmind.backend.service.json;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPatchTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void diffThenApplyReproducesTarget() {
+        Random rnd = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            JsonNode a = random(rnd, 3);
+            JsonNode b = rnd.nextBoolean() ? random(rnd, 3) : mutate(a, rnd);
+            assertEquals(b, JsonPatch.apply(a, JsonPatch.diff(a, b)), () -> a + " -> " + b);
+            assertEquals(a, JsonPatch.apply(b, JsonPatch.diff(b, a)), () -> b + " -> " + a);
+        }
+    }
+
+    @Test
+    void sharedSubtreesProduceOnlyChangedPaths() {
+        ObjectNode doc = om.createObjectNode();
+        ArrayNode grid = doc.putArray("grid");
+        for (int z = 0; z < 8; z++) grid.addArray().add(z).add(z + 1);
+        doc.put("expr", "x*y");
+
+        JsonNode next = JsonPatch.apply(doc, om.readTree("[{\"op\":\"replace\",\"path\":\"/grid/3/1\",\"value\":99}]"));
+        assertEquals(om.readTree("[{\"op\":\"replace\",\"path\":\"/grid/3/1\",\"value\":99}]"), JsonPatch.diff(doc, next));
+        assertEquals(0, JsonPatch.diff(doc, doc).size());
+    }
+
+    @Test
+    void keysAreEscaped() {
+        JsonNode a = om.readTree("{\"a/b\":1,\"c~d\":2}");
+        JsonNode b = om.readTree("{\"a/b\":3}");
+        assertEquals(b, JsonPatch.apply(a, JsonPatch.diff(a, b)));
+    }
+
+    @Test
+    void applyFollowsRfc6902Examples() {
+        // RFC 6902 Appendix A (A.1 ~ A.10, A.14, A.16)
+        patch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\"}]", "{\"baz\":\"qux\",\"foo\":\"bar\"}");
+        patch("{\"foo\":[\"bar\",\"baz\"]}", "[{\"op\":\"add\",\"path\":\"/foo/1\",\"value\":\"qux\"}]", "{\"foo\":[\"bar\",\"qux\",\"baz\"]}");
+        patch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"remove\",\"path\":\"/baz\"}]", "{\"foo\":\"bar\"}");
+        patch("{\"foo\":[\"bar\",\"qux\",\"baz\"]}", "[{\"op\":\"remove\",\"path\":\"/foo/1\"}]", "{\"foo\":[\"bar\",\"baz\"]}");
+        patch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"replace\",\"path\":\"/baz\",\"value\":\"boo\"}]", "{\"baz\":\"boo\",\"foo\":\"bar\"}");
+        patch("{\"foo\":{\"bar\":\"baz\",\"waldo\":\"fred\"},\"qux\":{\"corge\":\"grault\"}}",
+                "[{\"op\":\"move\",\"from\":\"/foo/waldo\",\"path\":\"/qux/thud\"}]",
+                "{\"foo\":{\"bar\":\"baz\"},\"qux\":{\"corge\":\"grault\",\"thud\":\"fred\"}}");
+        patch("{\"foo\":[\"all\",\"grass\",\"cows\",\"eat\"]}", "[{\"op\":\"move\",\"from\":\"/foo/1\",\"path\":\"/foo/3\"}]",
+                "{\"foo\":[\"all\",\"cows\",\"eat\",\"grass\"]}");
+        patch("{\"baz\":\"qux\",\"foo\":[\"a\",2,\"c\"]}",
+                "[{\"op\":\"test\",\"path\":\"/baz\",\"value\":\"qux\"},{\"op\":\"test\",\"path\":\"/foo/1\",\"value\":2}]",
+                "{\"baz\":\"qux\",\"foo\":[\"a\",2,\"c\"]}");
+        patch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/child\",\"value\":{\"grandchild\":{}}}]", "{\"foo\":\"bar\",\"child\":{\"grandchild\":{}}}");
+        patch("{\"/\":9,\"~1\":10}", "[{\"op\":\"test\",\"path\":\"/~01\",\"value\":10}]", "{\"/\":9,\"~1\":10}");
+        patch("{\"foo\":[\"bar\"]}", "[{\"op\":\"add\",\"path\":\"/foo/-\",\"value\":[\"abc\",\"def\"]}]", "{\"foo\":[\"bar\",[\"abc\",\"def\"]]}");
+        // copy, 루트 교체
+        patch("{\"a\":{\"b\":1}}", "[{\"op\":\"copy\",\"from\":\"/a\",\"path\":\"/c\"}]", "{\"a\":{\"b\":1},\"c\":{\"b\":1}}");
+        patch("{\"a\":1}", "[{\"op\":\"replace\",\"path\":\"\",\"value\":[1]}]", "[1]");
+    }
+
+    @Test
+    void applyRejectsRfc6902ErrorCases() {
+        // A.8 test 실패, A.12 없는 부모에 add, A.13 op 이름 오류, A.15 타입이 다른 test
+        fails("{\"baz\":\"qux\"}", "[{\"op\":\"test\",\"path\":\"/baz\",\"value\":\"bar\"}]", "json_patch_test_failed");
+        fails("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz/bat\",\"value\":\"qux\"}]", "json_patch_path_not_found");
+        fails("{}", "[{\"op\":\"frob\",\"path\":\"/a\"}]", "json_patch_unknown_op");
+        fails("{\"/\":9,\"~1\":10}", "[{\"op\":\"test\",\"path\":\"/~01\",\"value\":\"10\"}]", "json_patch_test_failed");
+        // 배열 인덱스: 끝+1을 넘는 add, 없는 원소 replace, 0으로 시작하거나 숫자가 아닌 토큰
+        fails("{\"foo\":[\"bar\",\"baz\"]}", "[{\"op\":\"add\",\"path\":\"/foo/3\",\"value\":1}]", "json_patch_index_out_of_bounds");
+        fails("{\"foo\":[\"bar\"]}", "[{\"op\":\"replace\",\"path\":\"/foo/1\",\"value\":1}]", "json_patch_index_out_of_bounds");
+        fails("{\"foo\":[\"bar\"]}", "[{\"op\":\"remove\",\"path\":\"/foo/01\"}]", "json_patch_bad_index");
+        fails("{\"foo\":[\"bar\"]}", "[{\"op\":\"remove\",\"path\":\"/foo/x\"}]", "json_patch_bad_index");
+        // 없는 경로 remove / replace, 루트 remove, 자기 자식으로 move
+        fails("{\"a\":1}", "[{\"op\":\"remove\",\"path\":\"/b\"}]", "json_patch_path_not_found");
+        fails("{\"a\":{}}", "[{\"op\":\"remove\",\"path\":\"/a/b/c\"}]", "json_patch_path_not_found");
+        fails("{\"a\":1}", "[{\"op\":\"replace\",\"path\":\"/b\",\"value\":2}]", "json_patch_path_not_found");
+        fails("{\"a\":1}", "[{\"op\":\"remove\",\"path\":\"\"}]", "json_patch_cannot_remove_root");
+        fails("{\"a\":{\"b\":1}}", "[{\"op\":\"move\",\"from\":\"/a\",\"path\":\"/a/b/c\"}]", "json_patch_move_into_child");
+        // 필수 멤버 / 형식
+        fails("{}", "[{\"op\":\"add\",\"path\":\"/a\"}]", "json_patch_value_required");
+        fails("{}", "[{\"op\":\"add\",\"value\":1}]", "json_patch_path_required");
+        fails("{}", "[{\"op\":\"add\",\"path\":\"a\",\"value\":1}]", "json_patch_bad_pointer");
+        fails("{}", "{\"op\":\"add\"}", "json_patch_must_be_array");
+    }
+
+    @Test
+    void applyIsAtomicAndCopiesOnlyTouchedPath() {
+        JsonNode doc = om.readTree("{\"grid\":[[1,2],[3,4]],\"meta\":{\"n\":2}}");
+        JsonNode before = doc.deepCopy();
+
+        // 두 번째 op가 실패하면 첫 번째 op도 보이지 않는다 (입력은 그대로)
+        assertThrows(IllegalArgumentException.class, () -> JsonPatch.apply(doc, om.readTree(
+                "[{\"op\":\"replace\",\"path\":\"/grid/0/0\",\"value\":9},{\"op\":\"test\",\"path\":\"/meta/n\",\"value\":3}]")));
+        assertEquals(before, doc);
+
+        JsonNode next = JsonPatch.apply(doc, om.readTree("[{\"op\":\"replace\",\"path\":\"/grid/1/0\",\"value\":9}]"));
+        assertEquals(before, doc);
+        assertSame(doc.get("meta"), next.get("meta"));
+        assertSame(doc.get("grid").get(0), next.get("grid").get(0));
+        assertNotSame(doc.get("grid").get(1), next.get("grid").get(1));
+    }
+
+    @Test
+    void mergeFollowsRfc7396Examples() {
+        // RFC 7396 Appendix A
+        merge("{\"a\":\"b\"}", "{\"a\":\"c\"}", "{\"a\":\"c\"}");
+        merge("{\"a\":\"b\"}", "{\"b\":\"c\"}", "{\"a\":\"b\",\"b\":\"c\"}");
+        merge("{\"a\":\"b\"}", "{\"a\":null}", "{}");
+        merge("{\"a\":\"b\",\"b\":\"c\"}", "{\"a\":null}", "{\"b\":\"c\"}");
+        merge("{\"a\":[\"b\"]}", "{\"a\":\"c\"}", "{\"a\":\"c\"}");
+        merge("{\"a\":\"c\"}", "{\"a\":[\"b\"]}", "{\"a\":[\"b\"]}");
+        merge("{\"a\":{\"b\":\"c\"}}", "{\"a\":{\"b\":\"d\",\"c\":null}}", "{\"a\":{\"b\":\"d\"}}");
+        merge("{\"a\":[{\"b\":\"c\"}]}", "{\"a\":[1]}", "{\"a\":[1]}");
+        merge("[\"a\",\"b\"]", "[\"c\",\"d\"]", "[\"c\",\"d\"]");
+        merge("{\"a\":\"b\"}", "[\"c\"]", "[\"c\"]");
+        merge("{\"a\":\"foo\"}", "null", "null");
+        merge("{\"a\":\"foo\"}", "\"bar\"", "\"bar\"");
+        merge("{\"e\":null}", "{\"a\":1}", "{\"e\":null,\"a\":1}");
+        merge("[1,2]", "{\"a\":\"b\",\"c\":null}", "{\"a\":\"b\"}");
+        merge("{}", "{\"a\":{\"bb\":{\"ccc\":null}}}", "{\"a\":{\"bb\":{}}}");
+
+        // 대상은 그대로, 건드리지 않은 서브트리는 공유
+        JsonNode target = om.readTree("{\"keep\":{\"x\":[1,2]},\"a\":1}");
+        JsonNode out = JsonPatch.merge(target, om.readTree("{\"a\":2}"));
+        assertEquals(om.readTree("{\"keep\":{\"x\":[1,2]},\"a\":1}"), target);
+        assertSame(target.get("keep"), out.get("keep"));
+    }
+
+    private void patch(String doc, String ops, String expected) {
+        assertEquals(om.readTree(expected), JsonPatch.apply(om.readTree(doc), om.readTree(ops)), ops);
+    }
+
+    private void fails(String doc, String ops, String error) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> JsonPatch.apply(om.readTree(doc), om.readTree(ops)), ops);
+        assertTrue(e.getMessage().startsWith(error), () -> ops + " -> " + e.getMessage());
+    }
+
+    private void merge(String target, String patch, String expected) {
+        assertEquals(om.readTree(expected), JsonPatch.merge(om.readTree(target), om.readTree(patch)), patch);
+    }
+
+    private JsonNode random(Random rnd, int depth) {
+        int kind = depth == 0 ? 2 + rnd.nextInt(2) : rnd.nextInt(4);
+        switch (kind) {
+            case 0: {
+                ObjectNode o = om.createObjectNode();
+                for (int i = rnd.nextInt(4); i > 0; i--) o.set("k" + rnd.nextInt(5), random(rnd, depth - 1));
+                return o;
+            }
+            case 1: {
+                ArrayNode a = om.createArrayNode();
+                for (int i = rnd.nextInt(4); i > 0; i--) a.add(random(rnd, depth - 1));
+                return a;
+            }
+            case 2:
+                return om.getNodeFactory().numberNode(rnd.nextInt(5));
+            default:
+                return om.getNodeFactory().stringNode("s" + rnd.nextInt(3));
+        }
+    }
+
+    /** 일부 값만 바꾼 복사본 (나머지 서브트리는 공유) */
+    private JsonNode mutate(JsonNode n, Random rnd) {
+        if (n.isObject()) {
+            ObjectNode copy = ((ObjectNode) n).deepCopy();
+            if (rnd.nextBoolean()) copy.put("k" + rnd.nextInt(5), rnd.nextInt(5));
+            else copy.remove("k" + rnd.nextInt(5));
+            return copy;
+        }
+        if (n.isArray()) {
+            ArrayNode copy = ((ArrayNode) n).deepCopy();
+            if (rnd.nextBoolean() || copy.isEmpty()) copy.add(rnd.nextInt(5));
+            else copy.remove(copy.size() - 1);
+            return copy;
+        }
+        return random(rnd, 1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.graphmind.backend.service.json;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.LinkRef;
+import com.graphmind.backend.domain.VaultItem;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonProjectionTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void projectsRecordFieldsAndContentSubPaths() {
+        JsonNode content = om.readTree("{\"xRange\":[-1,1],\"yRange\":[0,2],\"meta\":{\"name\":\"s\",\"big\":[1,2,3]}}");
+        VaultItem it = item(content);
+
+        assertEquals("{\"id\":\"a\",\"content\":{\"xRange\":[-1,1],\"meta\":{\"name\":\"s\"}}}",
+                json(JsonProjection.parse("id, content/xRange ,/content/meta/name"), it));
+        assertEquals("{\"title\":\"T\",\"updatedAt\":" + om.writeValueAsString(it.updatedAt()) + "}",
+                json(JsonProjection.parse("title,updatedAt"), it));
+
+        // 없는 키는 빠지고, 스칼라 아래 경로는 필드째 빠짐
+        assertEquals("{\"content\":{}}", json(JsonProjection.parse("content/nope"), it));
+        assertEquals("{}", json(JsonProjection.parse("title/x"), it));
+
+        // 상위 경로를 요청하면 하위 경로는 무시 (전체)
+        assertEquals("{\"content\":" + om.writeValueAsString(content) + "}",
+                json(JsonProjection.parse("content/xRange,content"), it));
+    }
+
+    @Test
+    void arraysPickIndexesOrMapEveryElement() {
+        VaultItem it = item(om.readTree("[[1,2],[3,4],[5,6]]"));
+        assertEquals("{\"content\":[[3,4]]}", json(JsonProjection.parse("content/1"), it));
+        assertEquals("{\"content\":[[2],[6]]}", json(JsonProjection.parse("content/0/1,content/2/1"), it));
+        assertEquals("{\"links\":[{\"refId\":\"b\"}]}", json(JsonProjection.parse("links/refId"), it));
+        assertEquals("{\"content\":[]}", json(JsonProjection.parse("content/nx"), it));
+    }
+
+    @Test
+    void validationRejectsUnknownFields() {
+        assertNull(JsonProjection.parse(" , "));
+        assertThrows(IllegalArgumentException.class, () -> JsonProjection.parse("content//x"));
+        assertThrows(IllegalArgumentException.class, () -> JsonProjection.parse("nope").validate(VaultItem.class));
+        assertTrue(JsonProjection.parse("content/x").includes("content"));
+        assertFalse(JsonProjection.parse("title").includes("content"));
+    }
+
+    private String json(JsonProjection p, Object value) {
+        return new String(p.bytes(om, value), StandardCharsets.UTF_8);
+    }
+
+    private static VaultItem item(JsonNode content) {
+        return new VaultItem("a", "u", "T", "surface3d", null, null, null, null, null, null, null,
+                List.of(), content, List.of(new LinkRef("VAULT_ITEM", "b", "ref")), Instant.parse("2026-01-01T00:00:00Z"), 1L);
+    }
+}
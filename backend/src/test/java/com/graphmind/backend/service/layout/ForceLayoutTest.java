@@ -0,0 +1,99 @@
+package com.graphmind.backend.service.layout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForceLayoutTest {
+
+    @Test
+    void clustersStaySeparateAndEdgesSettleNearLinkDistance() {
+        // 별 모양 묶음 20개 (가운데 + 잎 30개), 묶음끼리는 간선 없음
+        List<String> ids = new ArrayList<>();
+        List<Long> edges = new ArrayList<>();
+        for (int c = 0; c < 20; c++) {
+            int hub = ids.size();
+            ids.add("hub" + c);
+            for (int k = 0; k < 30; k++) {
+                edges.add(ForceLayout.edge(hub, ids.size()));
+                ids.add("leaf" + c + "-" + k);
+            }
+        }
+        ForceLayout.Result r = ForceLayout.layout(ids, toArray(edges), null);
+        assertFalse(r.warm());
+        assertEquals(ForceLayout.COLD_ITERATIONS, r.iterations());
+
+        double edgeSum = 0;
+        for (long e : r.edges()) edgeSum += dist(r, (int) (e >>> 32), (int) e);
+        double meanEdge = edgeSum / r.edges().length;
+        assertTrue(meanEdge > 15 && meanEdge < 80, "mean edge " + meanEdge);
+
+        // 같은 묶음의 잎끼리가 다른 묶음 가운데끼리보다 가깝다
+        double hubs = 0;
+        for (int a = 0; a < 20; a++) for (int b = a + 1; b < 20; b++) hubs += dist(r, a * 31, b * 31);
+        hubs /= 190;
+        assertTrue(meanEdge * 2 < hubs, "edge " + meanEdge + " hubs " + hubs);
+
+        for (int i = 0; i < ids.size(); i++) assertTrue(Double.isFinite(r.x()[i]) && Double.isFinite(r.y()[i]));
+    }
+
+    @Test
+    void warmStartKeepsExistingPositions() {
+        Random rnd = new Random(3);
+        List<String> ids = new ArrayList<>();
+        List<Long> edges = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            ids.add("n" + i);
+            if (i > 0) edges.add(ForceLayout.edge(i, rnd.nextInt(i)));
+        }
+        ForceLayout.Result cold = ForceLayout.layout(ids, toArray(edges), null);
+
+        // 그래프가 그대로면 이전 결과 그대로 (간선 순서/중복은 상관없음)
+        List<Long> shuffled = new ArrayList<>(edges);
+        Collections.shuffle(shuffled, rnd);
+        shuffled.add(edges.get(0));
+        assertSame(cold, ForceLayout.layout(ids, toArray(shuffled), cold));
+
+        // 노드 하나 추가 → 짧게 이어서 돌고, 기존 노드는 거의 그대로
+        List<String> more = new ArrayList<>(ids);
+        more.add("new");
+        edges.add(ForceLayout.edge(2000, 17));
+        ForceLayout.Result warm = ForceLayout.layout(more, toArray(edges), cold);
+        assertTrue(warm.warm());
+        assertEquals(ForceLayout.WARM_ITERATIONS, warm.iterations());
+
+        double moved = 0;
+        for (int i = 0; i < 2000; i++) moved += Math.hypot(warm.x()[i] - cold.x()[i], warm.y()[i] - cold.y()[i]);
+        assertTrue(moved / 2000 < 10, "mean move " + moved / 2000);
+        assertTrue(dist(warm, 2000, 17) < 100, "new node far from its neighbour: " + dist(warm, 2000, 17));
+    }
+
+    @Test
+    void coincidentAndTinyGraphs() {
+        assertEquals(0, ForceLayout.layout(List.of(), new long[0], null).ids().size());
+        ForceLayout.Result one = ForceLayout.layout(List.of("a"), new long[0], null);
+        assertEquals(0, one.iterations());
+
+        // 모든 노드가 같은 좌표에서 시작해도 흩어진다
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) ids.add("p" + i);
+        ForceLayout.Result stacked = new ForceLayout.Result(ids, new double[100], new double[100], new long[0], 0, false);
+        ForceLayout.Result r = ForceLayout.layout(ids, new long[]{ForceLayout.edge(0, 1)}, stacked);
+        Set<String> distinct = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(Double.isFinite(r.x()[i]) && Double.isFinite(r.y()[i]));
+            distinct.add(Math.round(r.x()[i] * 10) + "," + Math.round(r.y()[i] * 10));
+        }
+        assertTrue(distinct.size() > 90, "distinct " + distinct.size());
+    }
+
+    private static double dist(ForceLayout.Result r, int a, int b) {
+        return Math.hypot(r.x()[a] - r.x()[b], r.y()[a] - r.y()[b]);
+    }
+
+    private static long[] toArray(List<Long> edges) {
+        return edges.stream().mapToLong(Long::longValue).toArray();
+    }
+}
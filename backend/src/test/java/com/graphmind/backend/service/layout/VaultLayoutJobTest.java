@@ -0,0 +1,64 @@
+package com.graphmind.backend.service.layout;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultLayoutJobTest {
+
+    @Test
+    void requestsDuringAComputeCoalesceIntoOneMore() throws Exception {
+        VaultLayoutJob job = new VaultLayoutJob(true, 2, new SimpleMeterRegistry());
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch second = new CountDownLatch(1);
+            AtomicInteger runs = new AtomicInteger();
+            AtomicInteger concurrent = new AtomicInteger();
+            AtomicInteger maxConcurrent = new AtomicInteger();
+            Runnable compute = () -> {
+                maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                try {
+                    if (runs.incrementAndGet() == 1) {
+                        started.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                    } else {
+                        second.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    concurrent.decrementAndGet();
+                }
+            };
+
+            // 요청은 블록하지 않는다
+            job.request("u1", compute);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) job.request("u1", compute);
+            release.countDown();
+
+            assertTrue(second.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(2, runs.get(), "requests while computing run once more, not once each");
+            assertEquals(1, maxConcurrent.get(), "one compute per user at a time");
+        } finally {
+            job.close();
+        }
+    }
+
+    @Test
+    void disabledJobNeverComputes() throws Exception {
+        VaultLayoutJob job = new VaultLayoutJob(false, 1, new SimpleMeterRegistry());
+        AtomicInteger runs = new AtomicInteger();
+        job.request("u1", runs::incrementAndGet);
+        Thread.sleep(50);
+        assertEquals(0, runs.get());
+        job.close();
+    }
+}
@@ -0,0 +1,69 @@
+package com.graphmind.backend.service.query;
+
+import com.graphmind.backend.domain.VaultItem;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultFilterTest {
+
+    private static final VaultItem CUBE = item("a", "Heat cube", "array3d", 128, List.of("physics", "sim"),
+            Instant.parse("2026-03-02T10:00:00Z"));
+    private static final VaultItem WAVE = item("b", "sin wave", "equation", null, List.of("math"),
+            Instant.parse("2025-12-31T23:00:00Z"));
+
+    @Test
+    void structuredClausesAndFreeText() {
+        VaultFilter f = VaultFilter.parse("type:array3d sizeX>64 updated>2026-01-01 tag:physics", null, false);
+        assertTrue(f.matches(CUBE));
+        assertFalse(f.matches(WAVE));
+        assertNull(f.text());
+        assertEquals(List.of(List.of("physics")), f.tagClauses());
+        assertEquals(List.of(List.of("array3d")), f.typeClauses());
+        assertEquals(Instant.parse("2026-01-02T00:00:00Z"), f.updatedFrom());
+
+        assertFalse(VaultFilter.parse("sizeX>128", null, false).matches(CUBE));
+        assertTrue(VaultFilter.parse("sizeX=64..128 -tag:math", null, false).matches(CUBE));
+        assertTrue(VaultFilter.parse("type:equation,curve3d wave", null, false).matches(WAVE));
+        assertFalse(VaultFilter.parse("type:equation cube", null, false).matches(WAVE));
+        assertTrue(VaultFilter.parse("title:\"heat cube\" updated:2026-03-02", null, false).matches(CUBE));
+        assertTrue(VaultFilter.parse("updated<2026-01-01", null, false).matches(WAVE));
+    }
+
+    @Test
+    void relativeEqualityMeansWithinTheLastPeriod() {
+        VaultItem recent = item("c", "fresh", "equation", null, List.of(), Instant.now().minusSeconds(3600));
+        assertTrue(VaultFilter.parse("updated:7d", null, false).matches(recent));
+        assertTrue(VaultFilter.parse("updated=12h", null, false).matches(recent));
+        assertFalse(VaultFilter.parse("updated:30m", null, false).matches(recent));
+        assertFalse(VaultFilter.parse("updated!=7d", null, false).matches(recent));
+        assertFalse(VaultFilter.parse("updated:7d", null, false).matches(WAVE));
+        assertNull(VaultFilter.parse("updated:7d", null, false).updatedTo());
+    }
+
+    @Test
+    void tagParameterAndUnknownFields() {
+        assertTrue(VaultFilter.parse(null, List.of("physics", "math"), true).matches(WAVE));
+        assertFalse(VaultFilter.parse(null, List.of("physics", "math"), false).matches(WAVE));
+
+        // 모르는 필드는 자유 텍스트 그대로
+        VaultFilter f = VaultFilter.parse("x>0", null, false);
+        assertFalse(f.hasClauses());
+        assertEquals("x>0", f.text());
+    }
+
+    @Test
+    void badValuesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> VaultFilter.parse("sizeX>big", null, false));
+        assertThrows(IllegalArgumentException.class, () -> VaultFilter.parse("updated>yesterday", null, false));
+        assertThrows(IllegalArgumentException.class, () -> VaultFilter.parse("type>array3d", null, false));
+    }
+
+    private static VaultItem item(String id, String title, String type, Integer sizeX, List<String> tags, Instant updatedAt) {
+        return new VaultItem(id, "u", title, type, null, null, null, "zyx", sizeX, sizeX, sizeX,
+                tags, null, List.of(), updatedAt, 1L);
+    }
+}
@@ -0,0 +1,88 @@
+package com.graphmind.backend.service.storage;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultContentStoreTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void equalTreesShareOneNodeAndFreeOnLastRelease() {
+        VaultContentStore store = new VaultContentStore(true);
+        JsonNode a = store.acquire(grid(4, 1));
+        JsonNode b = store.acquire(grid(4, 1));
+        assertSame(a, b);
+        assertEquals(grid(4, 1), a);
+        assertEquals(2, store.refs(a));
+        // 행(8칸)끼리도 공유: 값이 같은 두 행은 한 노드
+        JsonNode c = store.acquire(grid(4, 2));
+        assertNotSame(a, c);
+
+        store.release(a);
+        assertEquals(1, store.refs(b));
+        store.release(b);
+        store.release(c);
+        assertEquals(0, store.refs(a));
+        assertEquals(0, ((Number) store.stats().get("sharedNodes")).intValue());
+    }
+
+    @Test
+    void concurrentAcquireReleaseKeepsRefcountsExact() throws Exception {
+        VaultContentStore store = new VaultContentStore(true);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                done.add(pool.submit(() -> {
+                    Random rnd = new Random(seed);
+                    List<JsonNode> held = new ArrayList<>();
+                    for (int i = 0; i < 3000; i++) {
+                        if (!held.isEmpty() && rnd.nextInt(3) == 0) {
+                            store.release(held.remove(rnd.nextInt(held.size())));
+                        } else {
+                            // 몇 가지 값만 돌려 써서 스레드끼리 같은 키를 동시에 잡고 놓게
+                            JsonNode content = grid(2 + rnd.nextInt(3), rnd.nextInt(4));
+                            JsonNode got = store.acquire(content);
+                            assertEquals(content, got);
+                            held.add(got);
+                        }
+                    }
+                    held.forEach(store::release);
+                    return null;
+                }));
+            }
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, ((Number) store.stats().get("sharedNodes")).intValue());
+        assertEquals(0L, ((Number) store.stats().get("refs")).longValue());
+    }
+
+    /** n×n×8 볼륨, 모든 칸 = v (행 하나가 8칸이라 행도 공유 대상) */
+    private JsonNode grid(int n, int v) {
+        ArrayNode z = om.createArrayNode();
+        for (int k = 0; k < n; k++) {
+            ArrayNode y = z.addArray();
+            for (int j = 0; j < n; j++) {
+                ArrayNode x = y.addArray();
+                for (int i = 0; i < 8; i++) x.add(v);
+            }
+        }
+        return z;
+    }
+}
@@ -0,0 +1,96 @@
+package com.graphmind.backend.service.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultPageStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private VaultPageStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new VaultPageStore(dir.resolve("content.pages").toString(), 1, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void recordsSpanningPagesRoundTrip() {
+        byte[] small = bytes(10, 1);
+        byte[] large = bytes(VaultPageStore.PAGE * 3 + 100, 2);
+        byte[] empty = new byte[0];
+        VaultPageStore.Ref a = store.write(small);
+        VaultPageStore.Ref b = store.write(large);
+        VaultPageStore.Ref c = store.write(empty);
+
+        assertEquals(1, a.pages());
+        assertEquals(4, b.pages());
+        assertArrayEquals(small, a.read());
+        assertArrayEquals(large, b.read());
+        assertArrayEquals(empty, c.read());
+        // 두 번째는 페이지 캐시에서
+        assertArrayEquals(large, b.read());
+    }
+
+    @Test
+    void freedPagesAreReusedAndOldRefsReadNull() throws Exception {
+        Path file = dir.resolve("content.pages");
+        byte[] first = bytes(VaultPageStore.PAGE * 2, 3);
+        VaultPageStore.Ref old = store.write(first);
+        assertArrayEquals(first, old.read()); // 캐시에 올려 둔다
+        long size = Files.size(file);
+        int pages = pages();
+
+        old.free();
+        old.free(); // 두 번째 free는 효과 없음 (free list에 같은 페이지가 두 번 들어가지 않게)
+        byte[] second = bytes(VaultPageStore.PAGE * 2, 4);
+        VaultPageStore.Ref next = store.write(second);
+
+        // 같은 페이지를 다시 썼으니 옛 Ref는 캐시/파일 어디서든 stamp가 안 맞는다
+        assertNull(old.read());
+        assertArrayEquals(second, next.read());
+        assertEquals(size, Files.size(file), "rewrite reuses freed pages");
+        assertEquals(pages, pages());
+        assertEquals(0, ((Number) store.stats().get("freePages")).intValue());
+
+        // 쓰고 버리기를 반복해도 파일은 자라지 않는다
+        for (int i = 0; i < 50; i++) {
+            VaultPageStore.Ref prev = next;
+            prev.free();
+            byte[] data = bytes(VaultPageStore.PAGE + i * 37, i);
+            next = store.write(data);
+            assertArrayEquals(data, next.read());
+            assertNull(prev.read(), "stale ref must not see the new record");
+        }
+        assertEquals(size, Files.size(file));
+        assertEquals(pages, pages());
+        assertEquals(next.bytes(), ((Number) store.stats().get("liveBytes")).longValue());
+    }
+
+    // ------------------- helpers -------------------
+
+    private int pages() {
+        return ((Number) store.stats().get("pages")).intValue();
+    }
+
+    private static byte[] bytes(int n, int seed) {
+        byte[] out = new byte[n];
+        new Random(seed).nextBytes(out);
+        return out;
+    }
+}
@@ -0,0 +1,121 @@
+package com.graphmind.backend.service.storage;
+
+import tools.jackson.databind.ObjectMapper;
+
+import com.graphmind.backend.domain.VaultItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultWalTest {
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailIsTruncatedAndCommittedWritesSurvive() throws Exception {
+        Map<String, VaultItem> state = new TreeMap<>();
+        VaultWal wal = open(state);
+        for (int i = 0; i < 10; i++) put(wal, state, item("n" + i, "v" + i));
+        put(wal, state, item("n3", "v3b"));
+        delete(wal, state, "n5");
+        wal.close();
+
+        Path log = dir.resolve(String.format("wal-%012d.log", 0));
+        long good = Files.size(log);
+        // 길이는 100이라고 적혀 있지만 몇 바이트만 쓰인 프레임 (쓰다 죽은 꼬리)
+        Files.write(log, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, '{', '"'}, StandardOpenOption.APPEND);
+
+        Map<String, VaultItem> recovered = new TreeMap<>();
+        VaultWal again = open(recovered);
+        assertEquals(state, recovered);
+        assertEquals("v3b", recovered.get("n3").title());
+        assertFalse(recovered.containsKey("n5"));
+        assertEquals(good, Files.size(log), "torn tail is truncated");
+
+        // 잘라낸 자리에서 이어 쓴 기록도 다음 복구에 보인다
+        put(again, recovered, item("n10", "v10"));
+        again.close();
+        Map<String, VaultItem> third = new TreeMap<>();
+        open(third).close();
+        assertEquals(recovered, third);
+    }
+
+    @Test
+    void corruptFrameInOlderLogFailsRecovery() throws Exception {
+        Map<String, VaultItem> state = new TreeMap<>();
+        VaultWal wal = open(state);
+        for (int i = 0; i < 5; i++) put(wal, state, item("n" + i, "v" + i));
+        wal.close();
+
+        // 다음 세대 로그가 있는 상태에서 이전 세대 중간 프레임의 checksum이 깨지면 복구를 거부
+        Path gen0 = dir.resolve(String.format("wal-%012d.log", 0));
+        Path gen1 = dir.resolve(String.format("wal-%012d.log", 1));
+        Files.copy(gen0, gen1);
+        byte[] bytes = Files.readAllBytes(gen0);
+        bytes[bytes.length / 2] ^= 0x5a;
+        Files.write(gen0, bytes);
+
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> open(new TreeMap<>()));
+        assertTrue(e.getCause().getMessage().contains("not the last log"), e.getCause().getMessage());
+        assertEquals(bytes.length, Files.size(gen0), "older log is left untouched");
+
+        // 같은 손상이 마지막 로그에 있으면 그 프레임부터 잘라내고 연다
+        Files.delete(gen1);
+        Map<String, VaultItem> recovered = new TreeMap<>();
+        open(recovered).close();
+        assertTrue(recovered.size() < state.size());
+        recovered.forEach((id, it) -> assertEquals(state.get(id), it));
+        assertTrue(Files.size(gen0) < bytes.length);
+    }
+
+    // ------------------- helpers -------------------
+
+    private VaultWal open(Map<String, VaultItem> state) {
+        VaultWal wal = new VaultWal(true, dir.toString(), 3600, 2, om);
+        wal.recover(new VaultWal.Applier() {
+            @Override
+            public void put(VaultItem item) {
+                state.put(item.id(), item);
+            }
+
+            @Override
+            public void delete(String userId, String id) {
+                state.remove(id);
+            }
+        });
+        wal.start(sink -> state.values().forEach(sink));
+        return wal;
+    }
+
+    private static void put(VaultWal wal, Map<String, VaultItem> state, VaultItem item) {
+        wal.awaitDurable(wal.apply(() -> {
+            state.put(item.id(), item);
+            return wal.appendPut(item);
+        }));
+    }
+
+    private static void delete(VaultWal wal, Map<String, VaultItem> state, String id) {
+        wal.awaitDurable(wal.apply(() -> {
+            state.remove(id);
+            return wal.appendDelete("u", id);
+        }));
+    }
+
+    private VaultItem item(String id, String title) {
+        return new VaultItem(id, "u", title, "equation", "y=x", null, null, null, null, null, null,
+                List.of("t"), om.readTree("{\"xRange\":[-5,5]}"), List.of(), Instant.parse("2026-01-01T00:00:00Z"), 1L);
+    }
+}
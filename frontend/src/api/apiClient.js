@@ -129,6 +129,94 @@ async function request(path, opts = {}) {
   }
 }
 
+// ✅ vault 변경 스트림 (SSE). EventSource는 Authorization 헤더를 못 보내므로 fetch 스트림으로 읽는다.
+// onChange({ op, id, version, fields, updatedAt }) / 끊기면 onClose(err) → 호출 측에서 목록 재확인 후 재구독
+// 반환값: 구독 해제 함수
+export function subscribeVaultEvents({ onChange, onClose } = {}) {
+  const token = getToken();
+  const ctrl = new AbortController();
+
+  (async () => {
+    let err = null;
+    try {
+      const res = await fetch(`${API_BASE}/api/v1/vault/events`, {
+        headers: {
+          Accept: "text/event-stream",
+          ...(token ? { Authorization: `Bearer ${token}` } : {}),
+        },
+        signal: ctrl.signal,
+      });
+      if (!res.ok || !res.body) throw new Error(`vault events ${res.status}`);
+
+      const reader = res.body.getReader();
+      const decoder = new TextDecoder();
+      let buf = "";
+      for (;;) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buf += decoder.decode(value, { stream: true });
+
+        let sep;
+        while ((sep = buf.indexOf("\n\n")) >= 0) {
+          const block = buf.slice(0, sep);
+          buf = buf.slice(sep + 2);
+
+          let event = "message";
+          const data = [];
+          for (const line of block.split("\n")) {
+            if (line.startsWith("event:")) event = line.slice(6).trim();
+            else if (line.startsWith("data:")) data.push(line.slice(5).trimStart());
+          }
+          if (event === "change" && data.length && onChange) {
+            try {
+              onChange(JSON.parse(data.join("\n")));
+            } catch {
+              // ignore malformed event
+            }
+          }
+        }
+      }
+    } catch (e) {
+      if (e?.name !== "AbortError") err = e;
+    }
+    if (!ctrl.signal.aborted && onClose) onClose(err);
+  })();
+
+  return () => ctrl.abort();
+}
+
+// ✅ vault 백업: NDJSON(.gz) Blob으로 받기 / 파일(Blob) 그대로 올리기 (request()는 JSON 전용이라 fetch 직접)
+export async function exportVault({ gzip = true } = {}) {
+  const token = getToken();
+  const res = await fetch(`${API_BASE}/api/v1/vault/export${gzip ? "?gzip=true" : ""}`, {
+    headers: token ? { Authorization: `Bearer ${token}` } : {},
+  });
+  if (!res.ok) throw new Error(`vault export ${res.status}`);
+  return res.blob();
+}
+
+// 응답: { created, updated, skipped, errors: ["#줄번호: 사유"] }
+export async function importVault(file) {
+  const token = getToken();
+  const gzip = /\.gz$/i.test(file?.name || "");
+  const res = await fetch(`${API_BASE}/api/v1/vault/import${gzip ? "?gzip=true" : ""}`, {
+    method: "POST",
+    headers: {
+      "Content-Type": gzip ? "application/gzip" : "application/x-ndjson",
+      ...(token ? { Authorization: `Bearer ${token}` } : {}),
+    },
+    body: file,
+  });
+  const data = await res.json().catch(() => null);
+  if (!res.ok) {
+    const err = new Error("API_ERROR");
+    err.status = res.status;
+    err.data = data;
+    throw err;
+  }
+  return data;
+}
+
 export const api = {
   // ✅ auth
   register: (email, password, displayName) =>
@@ -148,15 +236,35 @@ export const api = {
   me: () => request("/api/v1/me"),
 
   // Vault
-  listVaultItems: ({ tag, q, view = "summary" } = {}) => {
+  // sort: "recent"(기본) | "relevance" (q 점수순, limit개)
+  // q: 자유 텍스트 + 조건 (예: "type:array3d sizeX>64 updated>7d tag:physics -tag:old")
+  // fields: view=full에서 필요한 경로만 (예: "id,title,content/xRange")
+  listVaultItems: ({ tag, tags, tagMode, q, sort, limit, fields, view = "summary" } = {}) => {
     const sp = new URLSearchParams();
-    if (tag) sp.set("tag", tag);
+    if (tag) sp.append("tag", tag);
+    (tags || []).forEach((t) => sp.append("tag", t));
+    if (tagMode) sp.set("tagMode", tagMode);
     if (q) sp.set("q", q);
+    if (sort) sp.set("sort", sort);
+    if (limit) sp.set("limit", String(limit));
     if (view) sp.set("view", view);
+    if (fields) sp.set("fields", fields);
     const qs = sp.toString();
     return request(`/api/v1/vault/items${qs ? `?${qs}` : ""}`);
   },
 
+  // ✅ delta sync: 이전 응답의 { seq, epoch }를 그대로 넘김 (처음엔 since=0)
+  // reset === true면 로컬 캐시를 비우고 items로 다시 채움, more === true면 이어서 요청
+  getVaultChanges: ({ since = 0, epoch, limit } = {}) => {
+    const sp = new URLSearchParams({ since: String(since) });
+    if (epoch) sp.set("epoch", epoch);
+    if (limit) sp.set("limit", String(limit));
+    return request(`/api/v1/vault/changes?${sp.toString()}`);
+  },
+
+  // ✅ tag/type 개수만 (전체 목록 다운로드 없이 태그 목록 표시용)
+  getVaultFacets: () => request("/api/v1/vault/facets"),
+
   createVaultItem: (payload) =>
     request(`/api/v1/vault/items`, { method: "POST", body: payload }),
 
@@ -180,8 +288,45 @@ export const api = {
       body: { content },
     }),
 
+  // ✅ content 일부만 수정: JSON Patch(op 배열) 또는 Merge Patch(객체)
+  patchVaultContentDelta: (id, patch) =>
+    request(`/api/v1/vault/items/${id}/content`, {
+      method: "PATCH",
+      body: patch,
+      headers: {
+        "Content-Type": Array.isArray(patch)
+          ? "application/json-patch+json"
+          : "application/merge-patch+json",
+      },
+    }),
+
   deleteVaultItem: (id) =>
     request(`/api/v1/vault/items/${id}`, { method: "DELETE" }),
 
+  // ✅ 버전 이력: [{ version, updatedAt, fields, keyframe }] (최신부터) / 특정 버전의 아이템 전체
+  getVaultVersions: (id) => request(`/api/v1/vault/items/${id}/versions`),
+  getVaultVersion: (id, version) =>
+    request(`/api/v1/vault/items/${id}/versions/${version}`),
+
+  // ✅ 같은 수식 찾기: { formula, canonical, equivalent: [summary], similar: [summary] }
+  getVaultEquivalents: (id) => request(`/api/v1/vault/items/${id}/equivalents`),
+  findEquivalentFormulas: (formula) =>
+    request(`/api/v1/vault/formulas/equivalents?${new URLSearchParams({ formula })}`),
+
+  // ✅ 로컬 그래프: root에서 링크/역링크 depth번 (응답: { root, depth, nodes, edges, truncated })
+  getVaultGraph: (root, { depth = 1, limit, tags = false } = {}) => {
+    const params = new URLSearchParams({ root, depth: String(depth), tags: String(tags) });
+    if (limit != null) params.set("limit", String(limit));
+    return request(`/api/v1/vault/graph?${params}`);
+  },
+
+  // ✅ 전체 그래프 배치 좌표 (서버 계산): { seq, edges, warm, iterations, nodes: [{ id, x, y }] }
+  getVaultLayout: () => request(`/api/v1/vault/layout`),
+
+  // ✅ 여러 작업을 한 번에: [{ op: "create"|"update"|"patch"|"meta"|"delta"|"delete"|"get", id, version, body }]
+  // 응답: { results: [{ op, id, status, item, error, currentVersion }] } (작업 순서 그대로)
+  vaultBatch: (ops) =>
+    request(`/api/v1/vault/batch`, { method: "POST", body: { ops } }),
+
   logout: () => request("/api/v1/auth/logout", { method: "POST" }),
 };
@@ -7,8 +7,12 @@ import React, {
   useState,
 } from "react";
 import ForceGraph2D from "react-force-graph-2d";
+import { api } from "../api/apiClient";
 import "../styles/ObsidianGraphView.css";
 
+// 서버 배치가 아직 계산 중(stale)일 때 다시 요청하는 간격
+const LAYOUT_RETRY_MS = 1000;
+
 export default function ObsidianGraphView({
   notes = [],
   activeId,
@@ -38,8 +42,40 @@ export default function ObsidianGraphView({
     setFilters((prev) => ({ ...prev, [type]: !prev[type] }));
   };
 
+  // ✅ 서버 배치 좌표 (id -> {x, y}). 노트가 바뀌면 다시 요청 (서버는 백그라운드에서 이전 좌표부터 이어서 계산)
+  // stale이면 계산이 끝나지 않은 것 → 받은 좌표는 쓰되 잠시 뒤 다시 요청
+  const [layout, setLayout] = useState(null);
+  useEffect(() => {
+    let alive = true;
+    let timer = null;
+    const load = () =>
+      api
+        .getVaultLayout()
+        .then((res) => {
+          if (!alive) return;
+          if (!res?.stale || res.nodes?.length) {
+            const m = new Map();
+            for (const p of res?.nodes || []) m.set(String(p.id), p);
+            setLayout(m);
+          }
+          if (res?.stale) timer = setTimeout(load, LAYOUT_RETRY_MS);
+        })
+        .catch(() => alive && setLayout(null));
+    load();
+    return () => {
+      alive = false;
+      if (timer) clearTimeout(timer);
+    };
+  }, [notes]);
+
   // === 전체 그래프 (정적) - 수식 + 배열 + curve3d + surface3d 동시 처리 ===
   const fullGraph = useMemo(() => {
+    // 서버 좌표가 있으면 그 자리에서 시작 (없는 노드는 브라우저 시뮬레이션이 놓음)
+    const at = (id) => {
+      const p = layout?.get(String(id));
+      return p ? { x: p.x, y: p.y } : {};
+    };
+
     const nodes = [];
     const links = [];
     const noteIds = new Set(notes.map((n) => n.id));
@@ -55,6 +91,7 @@ export default function ObsidianGraphView({
         id: n.id,
         label: n.title,
         type,
+        ...at(n.id),
       });
     });
 
@@ -68,7 +105,7 @@ export default function ObsidianGraphView({
         const tagId = `tag:${t}`; // ✅ "abc" ≠ "abcd"
         if (!tagSet.has(tagId)) {
           tagSet.add(tagId);
-          nodes.push({ id: tagId, label: `#${t}`, type: "tag" });
+          nodes.push({ id: tagId, label: `#${t}`, type: "tag", ...at(tagId) });
         }
         links.push({ source: n.id, target: tagId });
       });
@@ -84,7 +121,7 @@ export default function ObsidianGraphView({
     }
 
     return { nodes, links };
-  }, [notes]);
+  }, [notes, layout]);
 
   // === 크기 추적 ===
   useLayoutEffect(() => {
@@ -301,6 +338,9 @@ export default function ObsidianGraphView({
     fgRef.current?.d3ReheatSimulation?.();
   };
 
+  // 전체 그래프를 서버 좌표로 그릴 때는 브라우저에서 다시 시뮬레이션하지 않음
+  const serverLaid = layout != null && !isPlaying && graph === fullGraph;
+
   const currentTs = timeline[Math.min(cursor - 1, total - 1)]?.t;
   const currentDateLabel = currentTs
     ? new Date(currentTs).toLocaleString()
@@ -370,6 +410,7 @@ export default function ObsidianGraphView({
     onOpenStudio?.(node.id);         // Vault.jsx의 handleOpenStudio로 연결됨
   }}
           cooldownTime={8000}
+          cooldownTicks={serverLaid ? 0 : Infinity}
           backgroundColor="#0f1115"
         />
       )}